@@ -15,7 +15,16 @@ import org.junit.runners.Suite;
 		FixTest.class,RouteTest.class,NasTest.class,RunwayEventTest.class,
 		TerminalEventTest.class,TaxiwayEventTest.class,HoldEventTest.class,
 		FixEventTest.class,NaspacBridgeTest.class,
-		NasSimEventDrivenTest.class})
+		NasSimEventDrivenTest.class,GzipPipeInputStreamTest.class,
+		ScheduleBridgeTest.class,LineTokenizerTest.class,ReloadCacheTest.class,
+		FlightOutputWriterTest.class,FlightOutputStreamerTest.class,
+		FlightColumnFileTest.class,QuantileSketchTest.class,DelayAggregatorTest.class,
+		ColumnOpsTest.class,NasSimLocalAnalyzerTest.class,TableLoaderTest.class,
+		DayPipelineTest.class,DelayAggregateStoreTest.class,EventLogTest.class,
+		ScenarioGeneratorTest.class,JfrEventsTest.class,SimProgressTest.class,
+		NodeQueueSeriesTest.class,RunFingerprintTest.class,
+		EventTimingsTest.class,AllocationBudgetTest.class,
+		PhaseProfilerTest.class})
 
 public class AllTestsNassim2_4 {
 	
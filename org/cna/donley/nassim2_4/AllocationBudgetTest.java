@@ -0,0 +1,121 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Guards the allocation of the sim's hot path.  A synthetic day is run
+ * with each engine configuration and the bytes allocated by the sim thread
+ * in {@link NasSimEventDriven#run()}, as measured by
+ * {@link ThreadAllocation#allocatedBytes()}, are divided by the events
+ * processed.
+ * <p>
+ * The default configuration has a budget in bytes per event, well over
+ * what it allocated when it was set, which is mostly the event of each hop
+ * and the runway and hold temporaries.  Each of the other configurations
+ * has a budget as a ratio to the default of the same run, so that the
+ * budgets don't depend on the JVM.  If a change lowers the allocation,
+ * lower the budget with it; if a change needs more, raise it in the same
+ * change and say why.  The default day is run once before it is measured
+ * so that the hot path is compiled, as it is in a real run.  The test is
+ * skipped on a JVM that can't measure allocation.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class AllocationBudgetTest
+{
+	/** Flights of the day. */
+	private static final int NUM_FLIGHTS = 3000;
+
+	/**
+	 * Budget of the default configuration, which allocated some 130 when
+	 * it was set.  Units: bytes per event
+	 */
+	private static final double DEFAULT_BUDGET = 200.;
+
+	/**
+	 * Budgets, as ratios to the bytes per event of the default, of the
+	 * other engine configurations, each given by its sim properties.
+	 */
+	private static final Object[][] budgets = {
+		{"no progress MBean",new String[]{"registerProgressMBean","false"},1.05},
+		{"queue series",new String[]{"writeQueueSeries","true"},1.15},
+		{"event timings",new String[]{"timeEvents","true"},1.15},
+		{"fingerprint",new String[]{"computeFingerprint","true"},1.15},
+		{"event log",new String[]{"writeEventLog","true"},1.15},
+		{"stream output",new String[]{"streamOutput","true"},1.15},
+		{"aggregate delays",new String[]{"aggregateDelays","true"},1.7},
+	};
+
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+	}
+
+	/**
+	 * Measures the bytes per event of the run of a day.
+	 * @param simProps Sim properties of the configuration.
+	 * @param nRuns Number of runs; the last is measured, the others are
+	 *   the warm-up.
+	 * @return the bytes per event.
+	 */
+	private static double measure(Properties simProps, int nRuns)
+		throws IOException {
+		File dir = File.createTempFile("allocationBudget","");
+		assertTrue(dir.delete() && dir.mkdir());
+		try{
+			File props = EngineBenchmark.writeDay(dir,NUM_FLIGHTS,
+				EngineBenchmark.SEED,simProps);
+			double bytesPerEvent = 0.;
+			for(int rep=0;rep<nRuns;rep++){
+				NasSimEventDriven sim = new NasSimEventDriven(props);
+				sim.initialize();
+				long bytes = ThreadAllocation.allocatedBytes();
+				sim.run();
+				bytes = ThreadAllocation.allocatedBytes() - bytes;
+				bytesPerEvent = (double)bytes/sim.getNumEvents();
+				assertTrue(sim.processOutput());
+			}
+			return bytesPerEvent;
+		}finally{
+			for(File f : dir.listFiles())f.delete();
+			dir.delete();
+		}
+	}
+
+	/**
+	 * Test that each engine configuration is within its budget.
+	 */
+	@Test
+	public void testBudgets() throws IOException {
+		if(ThreadAllocation.allocatedBytes() < 0){
+			System.err.println("AllocationBudgetTest: the JVM can't measure " +
+				"allocation, skipped.");
+			return;
+		}
+		StringBuilder over = new StringBuilder();
+		double base = measure(new Properties(),2);
+		if(base > DEFAULT_BUDGET){
+			over.append(String.format(Locale.US," default: %.1f > %.1f;",
+				base,DEFAULT_BUDGET));
+		}
+		for(Object[] b : budgets){
+			String[] ps = (String[])b[1];
+			Properties p = new Properties();
+			for(int i=0;i<ps.length;i+=2)p.setProperty(ps[i],ps[i+1]);
+			double ratio = measure(p,1)/base;
+			double budget = (Double)b[2];
+			if(ratio > budget){
+				over.append(String.format(Locale.US,
+					" %s: %.2f times default > %.2f;",b[0],ratio,budget));
+			}
+		}
+		assertTrue("over budget:" + over,over.length() == 0);
+	}
+}
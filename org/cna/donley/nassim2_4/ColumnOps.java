@@ -0,0 +1,536 @@
+package org.cna.donley.nassim2_4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Relational operators over the columns of {@link ColumnTable}s: an
+ * inner hash join, a band join and a grouped sum, each over int keys
+ * (including string codes) that may span several columns.  Rows are
+ * processed in chunks of
+ * {@link #CHUNK_ROWS}, in parallel if asked, and the chunk results are
+ * combined in chunk order, so the results don't depend on the number of
+ * threads.  As in SQL, rows with a null key never match in a join, while
+ * in a grouping the nulls form a group of their own.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ColumnOps
+{
+	/**
+	 * Number of rows each task processes.
+	 */
+	public static final int CHUNK_ROWS = 16*1024;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "ColumnOps";
+
+	/**
+	 * Task on a range of rows.
+	 */
+	private static interface ChunkTask<T> {
+		T run(int start, int end);
+	}
+
+	/**
+	 * Runs a task on each chunk of rows.
+	 * @return the results, in chunk order.
+	 */
+	private static <T> List<T> runChunks(int numRows, int nThreads,
+		ChunkTask<T> task){
+		return runChunks(numRows,CHUNK_ROWS,nThreads,task);
+	}
+
+	/**
+	 * Runs a task on each chunk of items.
+	 * @return the results, in chunk order.
+	 */
+	private static <T> List<T> runChunks(int numItems, final int chunkSize,
+		int nThreads, final ChunkTask<T> task){
+		final String method = className + ".runChunks()";
+		if(nThreads < 1){
+			throw new IllegalArgumentException(method + ": number of " +
+				"threads must be positive.");
+		}
+		int nChunks = Math.max(1,(numItems + chunkSize - 1)/chunkSize);
+		List<T> results = new ArrayList<T>(nChunks);
+		if(nThreads == 1 || nChunks == 1){
+			for(int k=0;k<nChunks;k++){
+				results.add(task.run(k*chunkSize,
+					Math.min(numItems,(k+1)*chunkSize)));
+			}
+			return results;
+		}
+		ExecutorService exec =
+			Executors.newFixedThreadPool(Math.min(nThreads,nChunks));
+		try{
+			List<Future<T>> futures = new ArrayList<Future<T>>(nChunks);
+			for(int k=0;k<nChunks;k++){
+				final int start = k*chunkSize;
+				final int end = Math.min(numItems,(k+1)*chunkSize);
+				futures.add(exec.submit(new Callable<T>(){
+					public T call(){
+						return task.run(start,end);
+					}
+				}));
+			}
+			for(Future<T> f : futures)results.add(f.get());
+			return results;
+		}catch(InterruptedException ie){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(method + ": interrupted.",ie);
+		}catch(ExecutionException ee){
+			if(ee.getCause() instanceof RuntimeException){
+				throw (RuntimeException)ee.getCause();
+			}
+			throw new IllegalStateException(method + ": task failed.",ee);
+		}finally{
+			exec.shutdown();
+		}
+	}
+
+	/**
+	 * Hash of the key of a row.
+	 */
+	private static int hash(int[][] keys, int row){
+		int h = 1;
+		for(int[] k : keys)h = 31*h + k[row];
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	private static boolean hasNull(int[][] keys, int row){
+		for(int[] k : keys)if(k[row] == ColumnTable.NULL)return true;
+		return false;
+	}
+
+	private static boolean equal(int[][] a, int ra, int[][] b, int rb){
+		for(int k=0;k<a.length;k++)if(a[k][ra] != b[k][rb])return false;
+		return true;
+	}
+
+	private static int tableSize(int n){
+		return Math.max(16,Integer.highestOneBit(Math.max(1,n))*4);
+	}
+
+	private static void checkKeys(String method, int[][] keys){
+		if(keys.length == 0){
+			throw new IllegalArgumentException(method + ": no key columns.");
+		}
+		for(int[] k : keys){
+			if(k.length != keys[0].length){
+				throw new IllegalArgumentException(method + ": key columns " +
+					"have different lengths.");
+			}
+		}
+	}
+
+	/**
+	 * Growable pairs of rows.
+	 */
+	private static final class Pairs {
+		int[] left = new int[64], right = new int[64];
+		int size = 0;
+		void add(int l, int r){
+			if(size == left.length){
+				left = Arrays.copyOf(left,2*size);
+				right = Arrays.copyOf(right,2*size);
+			}
+			left[size] = l;
+			right[size++] = r;
+		}
+	}
+
+	/**
+	 * Inner equi-join of two tables on their keys.  A hash table is built
+	 * on the right keys and probed with the left ones.
+	 * @param leftKeys Key columns of the left table.
+	 * @param rightKeys Key columns of the right table, the same number and
+	 *   in the same order as the left ones.
+	 * @param nThreads Number of threads to probe with.
+	 * @return the matching rows: element 0 the left rows and element 1 the
+	 *   right rows, ordered by left row and then by right row.
+	 */
+	public static int[][] hashJoin(final int[][] leftKeys,
+		final int[][] rightKeys, int nThreads){
+		final String method = className + ".hashJoin()";
+		checkKeys(method,leftKeys);
+		checkKeys(method,rightKeys);
+		if(leftKeys.length != rightKeys.length){
+			throw new IllegalArgumentException(method + ": tables have " +
+				"different numbers of key columns.");
+		}
+
+		// Build.  Rows are put on the chains from last to first so the
+		// chains are in row order.
+		int nRight = rightKeys[0].length;
+		final int mask = tableSize(nRight) - 1;
+		final int[] head = new int[mask + 1];
+		final int[] next = new int[nRight];
+		Arrays.fill(head,-1);
+		for(int r=nRight-1;r>=0;r--){
+			if(hasNull(rightKeys,r))continue;
+			int b = hash(rightKeys,r) & mask;
+			next[r] = head[b];
+			head[b] = r;
+		}
+
+		// Probe.
+		int nLeft = leftKeys[0].length;
+		List<Pairs> chunks = runChunks(nLeft,nThreads,new ChunkTask<Pairs>(){
+			public Pairs run(int start, int end){
+				Pairs p = new Pairs();
+				for(int l=start;l<end;l++){
+					if(hasNull(leftKeys,l))continue;
+					for(int r=head[hash(leftKeys,l) & mask];r>=0;r=next[r]){
+						if(equal(leftKeys,l,rightKeys,r))p.add(l,r);
+					}
+				}
+				return p;
+			}
+		});
+		int n = 0;
+		for(Pairs p : chunks)n += p.size;
+		int[][] rows = new int[2][n];
+		int off = 0;
+		for(Pairs p : chunks){
+			System.arraycopy(p.left,0,rows[0],off,p.size);
+			System.arraycopy(p.right,0,rows[1],off,p.size);
+			off += p.size;
+		}
+		return rows;
+	}
+
+	/**
+	 * Growable list of longs.
+	 */
+	private static final class Longs {
+		long[] v = new long[64];
+		int size = 0;
+		void add(long x){
+			if(size == v.length)v = Arrays.copyOf(v,2*size);
+			v[size++] = x;
+		}
+	}
+
+	/**
+	 * Inner join of two tables on equal keys and band values that differ
+	 * by less than a width, as for the SQL condition
+	 * <code>a.k=b.k and a.x+w &gt; b.x and a.x-w &lt; b.x</code>.  Both
+	 * tables are hash partitioned on the keys, each partition is sorted by
+	 * band value, and then the two sides of a partition are merged with a
+	 * sliding window.  The partitions are merged in parallel.
+	 * @param leftKeys Key columns of the left table.
+	 * @param leftBand Band values of the left table.
+	 * @param rightKeys Key columns of the right table, the same number and
+	 *   in the same order as the left ones.
+	 * @param rightBand Band values of the right table.
+	 * @param width Width of the band.  Must be positive.
+	 * @param nThreads Number of threads.
+	 * @return the matching rows: element 0 the left rows and element 1 the
+	 *   right rows, ordered by left row and then by right row.
+	 */
+	public static int[][] bandJoin(int[][] leftKeys, final int[] leftBand,
+		int[][] rightKeys, final int[] rightBand, final int width,
+		int nThreads){
+		final String method = className + ".bandJoin()";
+		checkKeys(method,leftKeys);
+		checkKeys(method,rightKeys);
+		if(leftKeys.length != rightKeys.length){
+			throw new IllegalArgumentException(method + ": tables have " +
+				"different numbers of key columns.");
+		}
+		if(leftBand.length != leftKeys[0].length ||
+			rightBand.length != rightKeys[0].length){
+			throw new IllegalArgumentException(method + ": band and key " +
+				"columns have different lengths.");
+		}
+		if(width <= 0){
+			throw new IllegalArgumentException(method + ": width, " + width +
+				", is not positive.");
+		}
+
+		// Partition the rows by key.
+		Groups parts = new Groups(rightKeys.length,0);
+		int[] k = new int[rightKeys.length];
+		final int[] rightPart = new int[rightBand.length];
+		for(int r=0;r<rightPart.length;r++){
+			rightPart[r] = -1;
+			if(hasNull(rightKeys,r) || rightBand[r] == ColumnTable.NULL)continue;
+			for(int j=0;j<k.length;j++)k[j] = rightKeys[j][r];
+			rightPart[r] = parts.find(k,0);
+		}
+		final int[] leftPart = new int[leftBand.length];
+		for(int l=0;l<leftPart.length;l++){
+			leftPart[l] = -1;
+			if(hasNull(leftKeys,l) || leftBand[l] == ColumnTable.NULL)continue;
+			for(int j=0;j<k.length;j++)k[j] = leftKeys[j][l];
+			leftPart[l] = parts.lookup(k,0);
+		}
+		final int nParts = parts.getNumGroups();
+		final int[] leftStart = new int[nParts+1], rightStart = new int[nParts+1];
+		final long[] lefts = bucket(leftPart,leftBand,nParts,leftStart);
+		final long[] rights = bucket(rightPart,rightBand,nParts,rightStart);
+
+		// Sort and merge each partition.  Entries are the band value in
+		// the high int and the row in the low one, so they sort by band.
+		int chunk = Math.max(1,nParts/(8*nThreads));
+		List<Longs> chunks = runChunks(nParts,chunk,nThreads,
+			new ChunkTask<Longs>(){
+			public Longs run(int start, int end){
+				Longs pairs = new Longs();
+				for(int p=start;p<end;p++){
+					int l0 = leftStart[p], l1 = leftStart[p+1];
+					int r0 = rightStart[p], r1 = rightStart[p+1];
+					if(l0 == l1)continue;
+					Arrays.sort(lefts,l0,l1);
+					Arrays.sort(rights,r0,r1);
+					int w = r0;
+					for(int i=l0;i<l1;i++){
+						long band = lefts[i] >> 32;
+						long row = lefts[i] & 0xffffffffL;
+						while(w < r1 && (rights[w] >> 32) <= band - width)w++;
+						for(int j=w;j<r1 && (rights[j] >> 32) < band + width;j++){
+							pairs.add(row << 32 | (rights[j] & 0xffffffffL));
+						}
+					}
+				}
+				return pairs;
+			}
+		});
+		int n = 0;
+		for(Longs c : chunks)n += c.size;
+		long[] all = new long[n];
+		int off = 0;
+		for(Longs c : chunks){
+			System.arraycopy(c.v,0,all,off,c.size);
+			off += c.size;
+		}
+		Arrays.sort(all);
+		int[][] rows = new int[2][n];
+		for(int i=0;i<n;i++){
+			rows[0][i] = (int)(all[i] >>> 32);
+			rows[1][i] = (int)all[i];
+		}
+		return rows;
+	}
+
+	/**
+	 * Groups the band values and rows of a table by partition.
+	 * @param part Partition of each row; -1 if none.
+	 * @param band Band value of each row.
+	 * @param nParts Number of partitions.
+	 * @param start Filled with the start of each partition's entries, and
+	 *   their end.
+	 * @return the entries, band value in the high int and row in the low.
+	 */
+	private static long[] bucket(int[] part, int[] band, int nParts,
+		int[] start){
+		for(int p : part)if(p >= 0)start[p+1]++;
+		for(int p=0;p<nParts;p++)start[p+1] += start[p];
+		int[] fill = Arrays.copyOf(start,nParts);
+		long[] entries = new long[start[nParts]];
+		for(int i=0;i<part.length;i++){
+			if(part[i] < 0)continue;
+			entries[fill[part[i]]++] = (long)band[i] << 32 | (i & 0xffffffffL);
+		}
+		return entries;
+	}
+
+	/**
+	 * Sums of values by group, as from an SQL "group by" with
+	 * <code>sum()</code> and <code>count(*)</code>.  Groups are in the
+	 * order in which their first rows appear.
+	 */
+	public static final class Groups {
+		private final int numKeys, numValues;
+		private int numGroups = 0;
+		/** Keys, by group and then key column. */
+		private int[] keys;
+		/** Rows in each group. */
+		private long[] rowCounts;
+		/** Sums and counts of non-null values, by group and value column. */
+		private double[] sums;
+		private long[] counts;
+		/** Open addressing table of group + 1; zero if empty. */
+		private int[] table;
+
+		private Groups(int numKeys, int numValues){
+			this.numKeys = numKeys;
+			this.numValues = numValues;
+			keys = new int[16*numKeys];
+			rowCounts = new long[16];
+			sums = new double[16*numValues];
+			counts = new long[16*numValues];
+			table = new int[64];
+		}
+
+		private int hash(int[] k, int off){
+			int h = 1;
+			for(int j=0;j<numKeys;j++)h = 31*h + k[off+j];
+			h ^= h >>> 16;
+			h *= 0x85ebca6b;
+			h ^= h >>> 13;
+			return h;
+		}
+
+		/**
+		 * Finds or adds the group of a key.
+		 * @param k Array holding the key.
+		 * @param off Offset of the key in the array.
+		 */
+		private int find(int[] k, int off){
+			int mask = table.length - 1;
+			for(int b=hash(k,off) & mask;;b=(b+1) & mask){
+				int g = table[b] - 1;
+				if(g < 0)break;
+				boolean eq = true;
+				for(int j=0;j<numKeys && eq;j++)eq = keys[g*numKeys+j] == k[off+j];
+				if(eq)return g;
+			}
+			// New group.
+			int g = numGroups++;
+			if(numGroups > rowCounts.length){
+				int cap = 2*rowCounts.length;
+				keys = Arrays.copyOf(keys,cap*numKeys);
+				rowCounts = Arrays.copyOf(rowCounts,cap);
+				sums = Arrays.copyOf(sums,cap*numValues);
+				counts = Arrays.copyOf(counts,cap*numValues);
+			}
+			System.arraycopy(k,off,keys,g*numKeys,numKeys);
+			if(2*numGroups > table.length){
+				table = new int[2*table.length];
+				for(int i=0;i<numGroups;i++)insert(i);
+			} else {
+				insert(g);
+			}
+			return g;
+		}
+
+		/**
+		 * Finds the group of a key.
+		 * @return the group; -1 if there is none.
+		 */
+		private int lookup(int[] k, int off){
+			int mask = table.length - 1;
+			for(int b=hash(k,off) & mask;;b=(b+1) & mask){
+				int g = table[b] - 1;
+				if(g < 0)return -1;
+				boolean eq = true;
+				for(int j=0;j<numKeys && eq;j++)eq = keys[g*numKeys+j] == k[off+j];
+				if(eq)return g;
+			}
+		}
+
+		private void insert(int g){
+			int mask = table.length - 1;
+			int b = hash(keys,g*numKeys) & mask;
+			while(table[b] != 0)b = (b+1) & mask;
+			table[b] = g + 1;
+		}
+
+		private void merge(Groups other){
+			for(int o=0;o<other.numGroups;o++){
+				int g = find(other.keys,o*numKeys);
+				rowCounts[g] += other.rowCounts[o];
+				for(int v=0;v<numValues;v++){
+					sums[g*numValues+v] += other.sums[o*numValues+v];
+					counts[g*numValues+v] += other.counts[o*numValues+v];
+				}
+			}
+		}
+
+		/**
+		 * @return Number of groups.
+		 */
+		public int getNumGroups(){return numGroups;}
+		/**
+		 * @param g Group.
+		 * @param k Key column.
+		 * @return Value of the key column of the group.
+		 */
+		public int getKey(int g, int k){return keys[g*numKeys+k];}
+		/**
+		 * @param g Group.
+		 * @return Number of rows in the group, as <code>count(*)</code>.
+		 */
+		public long getRowCount(int g){return rowCounts[g];}
+		/**
+		 * @param g Group.
+		 * @param v Value column.
+		 * @return Sum of the non-null values of the group.
+		 */
+		public double getSum(int g, int v){return sums[g*numValues+v];}
+		/**
+		 * @param g Group.
+		 * @param v Value column.
+		 * @return Number of non-null values of the group.
+		 */
+		public long getCount(int g, int v){return counts[g*numValues+v];}
+		/**
+		 * Sum of the values divided by the number of rows, as
+		 * <code>sum(x)/count(*)</code> in SQL.
+		 * @param g Group.
+		 * @param v Value column.
+		 * @return the average; <code>NaN</code> if all the values of the
+		 *   group are null.
+		 */
+		public double getAverage(int g, int v){
+			return counts[g*numValues+v] == 0 ? Double.NaN :
+				sums[g*numValues+v]/rowCounts[g];
+		}
+	}
+
+	/**
+	 * Sums values by group.  Each chunk of rows is summed into its own
+	 * groups and the chunks are then merged.
+	 * @param keys Key columns to group by.
+	 * @param values Value columns to sum, <code>NaN</code> for null.  May
+	 *   be empty.
+	 * @param nThreads Number of threads.
+	 * @return the groups.
+	 */
+	public static Groups groupBy(final int[][] keys, final double[][] values,
+		int nThreads){
+		final String method = className + ".groupBy()";
+		checkKeys(method,keys);
+		final int n = keys[0].length;
+		for(double[] v : values){
+			if(v.length != n){
+				throw new IllegalArgumentException(method + ": value " +
+					"columns and key columns have different lengths.");
+			}
+		}
+		List<Groups> chunks = runChunks(n,nThreads,new ChunkTask<Groups>(){
+			public Groups run(int start, int end){
+				Groups gs = new Groups(keys.length,values.length);
+				int[] k = new int[keys.length];
+				for(int i=start;i<end;i++){
+					for(int j=0;j<keys.length;j++)k[j] = keys[j][i];
+					int g = gs.find(k,0);
+					gs.rowCounts[g]++;
+					for(int v=0;v<values.length;v++){
+						double x = values[v][i];
+						if(Double.isNaN(x))continue;
+						gs.sums[g*values.length+v] += x;
+						gs.counts[g*values.length+v]++;
+					}
+				}
+				return gs;
+			}
+		});
+		Groups all = chunks.get(0);
+		for(int c=1;c<chunks.size();c++)all.merge(chunks.get(c));
+		return all;
+	}
+}
@@ -0,0 +1,244 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the ColumnOps, ColumnTable and StringDictionary classes.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ColumnOpsTest
+{
+	/**
+	 * Random keys, some null.
+	 */
+	private static int[][] createKeys(Random rand, int nCols, int n, int range){
+		int[][] keys = new int[nCols][n];
+		for(int k=0;k<nCols;k++){
+			for(int i=0;i<n;i++){
+				keys[k][i] = rand.nextInt(50) == 0 ? ColumnTable.NULL :
+					rand.nextInt(range);
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Test of the hash join against a nested loop join.
+	 */
+	@Test
+	public void testHashJoin(){
+		Random rand = new Random(21L);
+		int nLeft = 3*ColumnOps.CHUNK_ROWS + 17, nRight = 5000;
+		int[][] left = createKeys(rand,2,nLeft,40);
+		int[][] right = createKeys(rand,2,nRight,40);
+
+		// Nested loop.
+		List<int[]> expected = new ArrayList<int[]>();
+		for(int l=0;l<nLeft;l++){
+			if(left[0][l] == ColumnTable.NULL || left[1][l] == ColumnTable.NULL){
+				continue;
+			}
+			for(int r=0;r<nRight;r++){
+				if(left[0][l] == right[0][r] && left[1][l] == right[1][r]){
+					expected.add(new int[]{l,r});
+				}
+			}
+		}
+		for(int nThreads=1;nThreads<=4;nThreads+=3){
+			int[][] rows = ColumnOps.hashJoin(left,right,nThreads);
+			assertTrue(rows[0].length == expected.size());
+			for(int i=0;i<rows[0].length;i++){
+				assertTrue(rows[0][i] == expected.get(i)[0]);
+				assertTrue(rows[1][i] == expected.get(i)[1]);
+			}
+		}
+		// Different numbers of keys.
+		boolean thrown = false;
+		try{
+			ColumnOps.hashJoin(left,new int[][]{right[0]},1);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * Test of the band join against a nested loop join, and that it
+	 * doesn't depend on the number of threads.
+	 */
+	@Test
+	public void testBandJoin(){
+		Random rand = new Random(23L);
+		int nLeft = 2*ColumnOps.CHUNK_ROWS + 11, nRight = 3000;
+		int[][] left = createKeys(rand,2,nLeft,10);
+		int[][] right = createKeys(rand,2,nRight,10);
+		int[] leftBand = new int[nLeft], rightBand = new int[nRight];
+		for(int i=0;i<nLeft;i++){
+			leftBand[i] = rand.nextInt(50) == 0 ? ColumnTable.NULL :
+				rand.nextInt(3600) - 100;
+		}
+		for(int i=0;i<nRight;i++)rightBand[i] = rand.nextInt(3600) - 100;
+		int width = 10;
+
+		// Nested loop, with the SQL condition.
+		List<int[]> expected = new ArrayList<int[]>();
+		for(int l=0;l<nLeft;l++){
+			if(left[0][l] == ColumnTable.NULL || left[1][l] == ColumnTable.NULL ||
+				leftBand[l] == ColumnTable.NULL)continue;
+			for(int r=0;r<nRight;r++){
+				if(left[0][l] == right[0][r] && left[1][l] == right[1][r] &&
+					leftBand[l] + width > rightBand[r] &&
+					leftBand[l] - width < rightBand[r]){
+					expected.add(new int[]{l,r});
+				}
+			}
+		}
+		assertTrue(expected.size() > 0);
+		for(int nThreads=1;nThreads<=4;nThreads+=3){
+			int[][] rows = ColumnOps.bandJoin(left,leftBand,right,rightBand,
+				width,nThreads);
+			assertTrue(rows[0].length == expected.size());
+			for(int i=0;i<rows[0].length;i++){
+				assertTrue(rows[0][i] == expected.get(i)[0]);
+				assertTrue(rows[1][i] == expected.get(i)[1]);
+			}
+		}
+		// The band is exclusive.
+		int[][] rows = ColumnOps.bandJoin(new int[][]{{1,1,1}},
+			new int[]{100,200,300},new int[][]{{1,1,1,2}},
+			new int[]{110,191,90,300},10,2);
+		assertTrue(Arrays.equals(rows[0],new int[]{1}));
+		assertTrue(Arrays.equals(rows[1],new int[]{1}));
+
+		boolean thrown = false;
+		try{
+			ColumnOps.bandJoin(left,leftBand,right,rightBand,0,1);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * Test of the grouped sums against a direct computation, and that they
+	 * don't depend on the number of threads.
+	 */
+	@Test
+	public void testGroupBy(){
+		Random rand = new Random(22L);
+		int n = 4*ColumnOps.CHUNK_ROWS + 5;
+		int[][] keys = createKeys(rand,2,n,7);
+		double[][] values = new double[2][n];
+		for(int i=0;i<n;i++){
+			values[0][i] = rand.nextInt(100) - 20;
+			values[1][i] = rand.nextInt(3) == 0 ? Double.NaN : rand.nextDouble();
+		}
+		// Group 8*8 keys, with null as 7.
+		double[][] sums = new double[2][64];
+		long[][] counts = new long[2][64];
+		long[] rowCounts = new long[64];
+		for(int i=0;i<n;i++){
+			int a = keys[0][i] == ColumnTable.NULL ? 7 : keys[0][i];
+			int b = keys[1][i] == ColumnTable.NULL ? 7 : keys[1][i];
+			rowCounts[8*a+b]++;
+			for(int v=0;v<2;v++){
+				if(Double.isNaN(values[v][i]))continue;
+				sums[v][8*a+b] += values[v][i];
+				counts[v][8*a+b]++;
+			}
+		}
+		ColumnOps.Groups one = ColumnOps.groupBy(keys,values,1);
+		ColumnOps.Groups four = ColumnOps.groupBy(keys,values,4);
+		int nGroups = 0;
+		for(long c : rowCounts)if(c > 0)nGroups++;
+		assertTrue(one.getNumGroups() == nGroups);
+		assertTrue(four.getNumGroups() == nGroups);
+		for(int g=0;g<nGroups;g++){
+			int a = one.getKey(g,0) == ColumnTable.NULL ? 7 : one.getKey(g,0);
+			int b = one.getKey(g,1) == ColumnTable.NULL ? 7 : one.getKey(g,1);
+			assertTrue(one.getRowCount(g) == rowCounts[8*a+b]);
+			for(int v=0;v<2;v++){
+				assertTrue(one.getCount(g,v) == counts[v][8*a+b]);
+				assertTrue(Math.abs(one.getSum(g,v) - sums[v][8*a+b]) < 1.e-6);
+				assertTrue(Math.abs(one.getAverage(g,v) -
+					sums[v][8*a+b]/rowCounts[8*a+b]) < 1.e-9);
+				// Same order and same sums with more threads.
+				assertTrue(four.getKey(g,0) == one.getKey(g,0));
+				assertTrue(four.getSum(g,v) == one.getSum(g,v));
+			}
+		}
+		// Groups are in the order of their first rows.
+		assertTrue(one.getKey(0,0) == keys[0][0] && one.getKey(0,1) == keys[1][0]);
+		// All null values average to null.
+		ColumnOps.Groups nulls = ColumnOps.groupBy(new int[][]{{1,1}},
+			new double[][]{{Double.NaN,Double.NaN}},1);
+		assertTrue(nulls.getRowCount(0) == 2);
+		assertTrue(Double.isNaN(nulls.getAverage(0,0)));
+	}
+
+	/**
+	 * Test of selecting, sorting, concatenating and writing tables.
+	 */
+	@Test
+	public void testColumnTable() throws IOException {
+		StringDictionary dict = new StringDictionary();
+		assertTrue(dict.getCode("") == ColumnTable.NULL);
+		assertTrue(dict.getCode(null) == ColumnTable.NULL);
+		int bos = dict.getCode("BOS"), atl = dict.getCode("ATL");
+		assertTrue(dict.getCode("BOS") == bos && dict.size() == 2);
+		assertTrue(dict.compare(atl,bos) < 0 && dict.compare(ColumnTable.NULL,atl) > 0);
+
+		ColumnTable t = new ColumnTable(4,dict);
+		t.addColumn("aprt",ColumnTable.Type.STRING,
+			new int[]{bos,atl,ColumnTable.NULL,atl});
+		t.addColumn("n",ColumnTable.Type.INT,new int[]{1,2,3,ColumnTable.NULL});
+		t.addColumn("x",ColumnTable.Type.DOUBLE,
+			new double[]{0.5,Double.NaN,1.5,2.5});
+		boolean thrown = false;
+		try{
+			t.addColumn("y",ColumnTable.Type.INT,new int[3]);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+
+		// Strings by name, nulls last.
+		int[] order = t.sortOrder("aprt","n");
+		assertTrue(Arrays.equals(order,new int[]{1,3,0,2}));
+		ColumnTable s = t.select(order,new String[]{"aprt","x"},
+			new String[]{"arr_aprt","x"});
+		assertTrue(s.getString("arr_aprt",2).equals("BOS"));
+		assertTrue(s.getDoubles("x")[1] == 2.5);
+
+		List<ColumnTable> tables = new ArrayList<ColumnTable>();
+		tables.add(t);
+		tables.add(t.select(new int[]{0}));
+		ColumnTable c = ColumnTable.concat(tables);
+		assertTrue(c.getNumRows() == 5 && c.getInts("n")[4] == 1);
+
+		File file = File.createTempFile("columnTable",".csv");
+		try{
+			assertTrue(t.write(file));
+			BufferedReader br = new BufferedReader(new FileReader(file));
+			assertTrue(br.readLine().equals("#aprt,n,x"));
+			assertTrue(br.readLine().equals("BOS,1,0.5"));
+			assertTrue(br.readLine().equals("ATL,2,"));
+			assertTrue(br.readLine().equals(",3,1.5"));
+			assertTrue(br.readLine().equals("ATL,,2.5"));
+			br.close();
+		}finally{
+			file.delete();
+		}
+	}
+}
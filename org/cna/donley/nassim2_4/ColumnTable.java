@@ -0,0 +1,350 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory table of named columns, used by {@link NasSimLocalAnalyzer}
+ * in place of the database tables of {@link NasSimOutputAnalyzer}.  Each
+ * column is one array: an <code>int[]</code> for integers, dates and
+ * times, a <code>double[]</code> for floats, or an <code>int[]</code> of
+ * {@link StringDictionary} codes for strings.  Nulls are
+ * {@link #NULL} in int and string columns and <code>NaN</code> in double
+ * columns.
+ * <p>
+ * Tables are built one column at a time and then only read, so they may
+ * be read by several threads at once.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ColumnTable
+{
+	/**
+	 * Types of columns.
+	 */
+	public enum Type {INT,DOUBLE,STRING};
+
+	/**
+	 * Null value of int and string columns.
+	 */
+	public static final int NULL = Integer.MIN_VALUE;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "ColumnTable";
+
+	private final int numRows;
+	private final StringDictionary dict;
+	private final List<String> names = new ArrayList<String>();
+	private final List<Type> types = new ArrayList<Type>();
+	private final List<Object> data = new ArrayList<Object>();
+	private final Map<String,Integer> indices = new HashMap<String,Integer>();
+
+	/**
+	 * Constructor of a table with no columns.
+	 * @param numRows Number of rows.
+	 * @param dict Dictionary of the string columns.
+	 */
+	public ColumnTable(int numRows, StringDictionary dict){
+		this.numRows = numRows;
+		this.dict = dict;
+	}
+
+	/**
+	 * @return Number of rows.
+	 */
+	public int getNumRows(){return numRows;}
+
+	/**
+	 * @return Dictionary of the string columns.
+	 */
+	public StringDictionary getDictionary(){return dict;}
+
+	/**
+	 * @return Names of the columns, in order.
+	 */
+	public String[] getColumnNames(){
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * @param name Column name.
+	 * @return <code>true</code> if the table has the column.
+	 */
+	public boolean hasColumn(String name){
+		return indices.containsKey(name);
+	}
+
+	/**
+	 * Adds a column.
+	 * @param name Column name.  Must be new to the table.
+	 * @param type Column type.
+	 * @param values Column values; an <code>int[]</code> for
+	 *   {@link Type#INT} and {@link Type#STRING} columns and a
+	 *   <code>double[]</code> for {@link Type#DOUBLE} columns.  Not copied.
+	 */
+	public void addColumn(String name, Type type, Object values){
+		final String method = className + ".addColumn()";
+		if(indices.containsKey(name)){
+			throw new IllegalArgumentException(method + ": table already " +
+				"has a column named " + name + ".");
+		}
+		int len = -1;
+		if(type == Type.DOUBLE && values instanceof double[]){
+			len = ((double[])values).length;
+		} else if(type != Type.DOUBLE && values instanceof int[]){
+			len = ((int[])values).length;
+		}
+		if(len != numRows){
+			throw new IllegalArgumentException(method + ": values of " +
+				"column " + name + " are not " + numRows + " " + type +
+				" values.");
+		}
+		indices.put(name,names.size());
+		names.add(name);
+		types.add(type);
+		data.add(values);
+	}
+
+	/**
+	 * Adds all the columns of another table with the same number of rows.
+	 * @param other Other table.
+	 */
+	public void addColumns(ColumnTable other){
+		for(int c=0;c<other.names.size();c++){
+			addColumn(other.names.get(c),other.types.get(c),other.data.get(c));
+		}
+	}
+
+	private int index(String name){
+		Integer c = indices.get(name);
+		if(c == null){
+			final String method = className + ".index()";
+			throw new IllegalArgumentException(method + ": table has no " +
+				"column named " + name + ".");
+		}
+		return c;
+	}
+
+	/**
+	 * @param name Column name.
+	 * @return Type of the column.
+	 */
+	public Type getType(String name){
+		return types.get(index(name));
+	}
+
+	/**
+	 * Gets the values of an int or string column.  Not a copy.
+	 * @param name Column name.
+	 * @return the values, or codes for a string column.
+	 */
+	public int[] getInts(String name){
+		int c = index(name);
+		if(types.get(c) == Type.DOUBLE){
+			final String method = className + ".getInts()";
+			throw new IllegalArgumentException(method + ": column " + name +
+				" is not an int or string column.");
+		}
+		return (int[])data.get(c);
+	}
+
+	/**
+	 * Gets the values of a double column.  Not a copy.
+	 * @param name Column name.
+	 * @return the values.
+	 */
+	public double[] getDoubles(String name){
+		int c = index(name);
+		if(types.get(c) != Type.DOUBLE){
+			final String method = className + ".getDoubles()";
+			throw new IllegalArgumentException(method + ": column " + name +
+				" is not a double column.");
+		}
+		return (double[])data.get(c);
+	}
+
+	/**
+	 * Gets a value of a string column.
+	 * @param name Column name.
+	 * @param row Row.
+	 * @return the string; <code>null</code> if null.
+	 */
+	public String getString(String name, int row){
+		return dict.getName(getInts(name)[row]);
+	}
+
+	/**
+	 * Gets the values of int or string columns, as keys for
+	 * {@link ColumnOps}.
+	 * @param cols Column names.
+	 * @return the values, by column.
+	 */
+	public int[][] getKeys(String... cols){
+		int[][] keys = new int[cols.length][];
+		for(int k=0;k<cols.length;k++)keys[k] = getInts(cols[k]);
+		return keys;
+	}
+
+	/**
+	 * Creates a table of some rows of this one.
+	 * @param rows Rows, in the order wanted.  May repeat.
+	 * @return the new table.
+	 */
+	public ColumnTable select(int[] rows){
+		String[] cols = getColumnNames();
+		return select(rows,cols,cols);
+	}
+
+	/**
+	 * Creates a table of some rows and columns of this one.
+	 * @param rows Rows, in the order wanted.  May repeat.
+	 * @param cols Columns wanted.
+	 * @param newNames Names of the columns in the new table; if
+	 *   <code>null</code> the same names.
+	 * @return the new table.
+	 */
+	public ColumnTable select(int[] rows, String[] cols, String[] newNames){
+		ColumnTable t = new ColumnTable(rows.length,dict);
+		for(int k=0;k<cols.length;k++){
+			int c = index(cols[k]);
+			String name = newNames == null ? cols[k] : newNames[k];
+			if(types.get(c) == Type.DOUBLE){
+				double[] from = (double[])data.get(c);
+				double[] to = new double[rows.length];
+				for(int i=0;i<rows.length;i++)to[i] = from[rows[i]];
+				t.addColumn(name,Type.DOUBLE,to);
+			} else {
+				int[] from = (int[])data.get(c);
+				int[] to = new int[rows.length];
+				for(int i=0;i<rows.length;i++)to[i] = from[rows[i]];
+				t.addColumn(name,types.get(c),to);
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Creates a table of the rows of several tables with the same columns
+	 * and dictionary, one table after the other.
+	 * @param tables Tables.  Must be at least one.
+	 * @return the new table.
+	 */
+	public static ColumnTable concat(List<ColumnTable> tables){
+		final String method = className + ".concat()";
+		ColumnTable first = tables.get(0);
+		int n = 0;
+		for(ColumnTable t : tables){
+			if(!t.names.equals(first.names) || t.dict != first.dict){
+				throw new IllegalArgumentException(method + ": tables have " +
+					"different columns or dictionaries.");
+			}
+			n += t.numRows;
+		}
+		ColumnTable all = new ColumnTable(n,first.dict);
+		for(int c=0;c<first.names.size();c++){
+			Type type = first.types.get(c);
+			Object values = type == Type.DOUBLE ? new double[n] : new int[n];
+			int off = 0;
+			for(ColumnTable t : tables){
+				System.arraycopy(t.data.get(c),0,values,off,t.numRows);
+				off += t.numRows;
+			}
+			all.addColumn(first.names.get(c),type,values);
+		}
+		return all;
+	}
+
+	/**
+	 * Gets the order of the rows sorted by some columns, as for an SQL
+	 * "order by".  Strings are sorted by their names, and nulls are last.
+	 * The sort is stable.
+	 * @param cols Columns to sort by, the first the most significant.
+	 * @return the rows in sorted order.
+	 */
+	public int[] sortOrder(String... cols){
+		final int[] c = new int[cols.length];
+		for(int k=0;k<cols.length;k++)c[k] = index(cols[k]);
+		Integer[] order = new Integer[numRows];
+		for(int i=0;i<numRows;i++)order[i] = i;
+		Arrays.sort(order,new Comparator<Integer>(){
+			public int compare(Integer a, Integer b){
+				for(int k=0;k<c.length;k++){
+					int cmp = compareRows(c[k],a,b);
+					if(cmp != 0)return cmp;
+				}
+				return 0;
+			}
+		});
+		int[] rows = new int[numRows];
+		for(int i=0;i<numRows;i++)rows[i] = order[i];
+		return rows;
+	}
+
+	private int compareRows(int c, int a, int b){
+		switch(types.get(c)){
+		case DOUBLE:
+			double[] d = (double[])data.get(c);
+			// NaN last.
+			return Double.compare(d[a],d[b]);
+		case STRING:
+			int[] s = (int[])data.get(c);
+			return dict.compare(s[a],s[b]);
+		default:
+			int[] v = (int[])data.get(c);
+			if(v[a] == v[b])return 0;
+			if(v[a] == NULL)return 1;
+			if(v[b] == NULL)return -1;
+			return v[a] < v[b] ? -1 : 1;
+		}
+	}
+
+	/**
+	 * Writes the table to a comma separated file, with a header line of
+	 * the column names.  Nulls are empty.
+	 * @param fileNPath Output file and path.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public boolean write(File fileNPath){
+		PrintWriter pw = null;
+		try{
+			pw = new PrintWriter(fileNPath);
+			StringBuilder sb = new StringBuilder("#");
+			for(int c=0;c<names.size();c++){
+				if(c > 0)sb.append(',');
+				sb.append(names.get(c));
+			}
+			pw.println(sb);
+			for(int i=0;i<numRows;i++){
+				sb.setLength(0);
+				for(int c=0;c<names.size();c++){
+					if(c > 0)sb.append(',');
+					if(types.get(c) == Type.DOUBLE){
+						double v = ((double[])data.get(c))[i];
+						if(!Double.isNaN(v))sb.append((float)v);
+					} else {
+						int v = ((int[])data.get(c))[i];
+						if(v == NULL)continue;
+						if(types.get(c) == Type.STRING)sb.append(dict.getName(v));
+						else sb.append(v);
+					}
+				}
+				pw.println(sb);
+			}
+		}catch(FileNotFoundException fnfe){
+			fnfe.printStackTrace();
+			return false;
+		}finally{
+			if(pw != null)pw.close();
+		}
+		return true;
+	}
+}
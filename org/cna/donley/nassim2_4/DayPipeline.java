@@ -0,0 +1,170 @@
+package org.cna.donley.nassim2_4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runs the per day stages of an analysis, such as loading a day's flight
+ * output and schedule files in {@link NasSimOutputAnalyzer}, for many
+ * days, with up to a given number of days in progress at once.  The
+ * stages of a day are run in order, so while one day is in a later stage
+ * the next can be in an earlier one.  The first day is run by itself
+ * before the others, since it may create the tables the others add to.
+ * <p>
+ * Once a stage fails, days not yet started are skipped.  The time of each
+ * stage of each day is printed as the day finishes, with the total of each
+ * stage at the end.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class DayPipeline
+{
+	/**
+	 * A stage of the analysis of a day.
+	 */
+	public interface Stage {
+		/**
+		 * Runs the stage for a day.
+		 * @param day Index of the day.
+		 * @return <code>true</code> if successful; <code>false</code> if not.
+		 */
+		boolean run(int day);
+	}
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "DayPipeline";
+
+	private final String name;
+	private final String[] days;
+	private final int concurrentDays;
+	private final List<String> stageNames = new ArrayList<String>();
+	private final List<Stage> stages = new ArrayList<Stage>();
+	private AtomicLongArray stageMillis = null;
+
+	/**
+	 * Constructor.
+	 * @param name Name to print progress under, such as the calling method.
+	 * @param days Names of the days, for progress.
+	 * @param concurrentDays Most days to have in progress at once.  If one,
+	 *   the days are run one after the other.
+	 */
+	public DayPipeline(String name, String[] days, int concurrentDays){
+		final String method = className + ".DayPipeline()";
+		if(concurrentDays < 1){
+			throw new IllegalArgumentException(method + ": number of " +
+				"concurrent days must be positive.");
+		}
+		this.name = name;
+		this.days = days;
+		this.concurrentDays = concurrentDays;
+	}
+
+	/**
+	 * Adds a stage, run after those already added.
+	 * @param stageName Name of the stage, for progress.
+	 * @param stage The stage.
+	 */
+	public void addStage(String stageName, Stage stage){
+		stageNames.add(stageName);
+		stages.add(stage);
+	}
+
+	/**
+	 * Runs the stages for all the days.
+	 * @return <code>true</code> if all were successful; <code>false</code>
+	 *   if not.
+	 */
+	public boolean run(){
+		long start = System.currentTimeMillis();
+		stageMillis = new AtomicLongArray(stages.size());
+		if(days.length == 0)return true;
+		final AtomicBoolean failed = new AtomicBoolean(false);
+		final AtomicInteger done = new AtomicInteger(0);
+		if(!runDay(0,failed,done))return false;
+
+		ExecutorService exec = null;
+		boolean success = true;
+		try{
+			exec = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(concurrentDays,days.length-1)));
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for(int d=1;d<days.length;d++){
+				final int day = d;
+				results.add(exec.submit(new Callable<Boolean>(){
+					public Boolean call(){
+						return runDay(day,failed,done);
+					}
+				}));
+			}
+			for(Future<Boolean> r : results){
+				if(!r.get())success = false;
+			}
+		}catch(InterruptedException ie){
+			ie.printStackTrace();
+			success = false;
+		}catch(ExecutionException ee){
+			ee.printStackTrace();
+			success = false;
+		}finally{
+			if(exec != null)exec.shutdown();
+		}
+
+		StringBuilder sb = new StringBuilder(name + ": " + done.get() + " of " +
+			days.length + " days in " + (System.currentTimeMillis() - start) +
+			" ms; totals:");
+		for(int s=0;s<stages.size();s++){
+			sb.append(" ").append(stageNames.get(s)).append(" ")
+				.append(stageMillis.get(s)).append(" ms");
+		}
+		System.out.println(sb);
+		return success;
+	}
+
+	/**
+	 * Runs the stages of a day, unless a stage has already failed.
+	 */
+	private boolean runDay(int day, AtomicBoolean failed, AtomicInteger done){
+		if(failed.get())return false;
+		StringBuilder sb = new StringBuilder();
+		for(int s=0;s<stages.size();s++){
+			long start = System.currentTimeMillis();
+			boolean ok = false;
+			try{
+				ok = stages.get(s).run(day);
+			}finally{
+				long ms = System.currentTimeMillis() - start;
+				stageMillis.addAndGet(s,ms);
+				sb.append(" ").append(stageNames.get(s)).append(" ")
+					.append(ms).append(" ms");
+				if(!ok)failed.set(true);
+			}
+			if(!ok){
+				System.err.println(name + ": " + stageNames.get(s) +
+					" failed for day " + days[day] + ".");
+				return false;
+			}
+		}
+		System.out.println(name + ": day " + days[day] + " (" +
+			done.incrementAndGet() + " of " + days.length + ") done:" + sb);
+		return true;
+	}
+
+	/**
+	 * @param stage Index of a stage, in the order added.
+	 * @return Total time of the stage over all the days of the last run.
+	 *   Units: milliseconds
+	 */
+	public long getStageMillis(int stage){
+		return stageMillis == null ? 0 : stageMillis.get(stage);
+	}
+}
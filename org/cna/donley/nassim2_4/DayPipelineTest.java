@@ -0,0 +1,131 @@
+package org.cna.donley.nassim2_4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the DayPipeline class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class DayPipelineTest
+{
+	/**
+	 * Two stages that add their day to a list, and keep track of the most
+	 * days in progress at once.
+	 */
+	private static class Recorder {
+		final List<String> rows = Collections.synchronizedList(new ArrayList<String>());
+		final AtomicInteger inProgress = new AtomicInteger(0);
+		final AtomicInteger maxInProgress = new AtomicInteger(0);
+		/** Days started before the first one was done. */
+		final AtomicInteger early = new AtomicInteger(0);
+		volatile boolean firstDone = false;
+		int failingDay = -1;
+
+		DayPipeline create(int nDays, int concurrentDays){
+			String[] days = new String[nDays];
+			for(int d=0;d<nDays;d++)days[d] = "day" + d;
+			DayPipeline p = new DayPipeline("DayPipelineTest",days,concurrentDays);
+			p.addStage("first",new DayPipeline.Stage(){
+				public boolean run(int day){
+					if(day > 0 && !firstDone)early.incrementAndGet();
+					int n = inProgress.incrementAndGet();
+					synchronized(maxInProgress){
+						if(n > maxInProgress.get())maxInProgress.set(n);
+					}
+					sleep(day);
+					rows.add(day + ":first");
+					return day != failingDay;
+				}
+			});
+			p.addStage("second",new DayPipeline.Stage(){
+				public boolean run(int day){
+					sleep(day);
+					rows.add(day + ":second");
+					inProgress.decrementAndGet();
+					if(day == 0)firstDone = true;
+					return true;
+				}
+			});
+			return p;
+		}
+
+		private void sleep(int day){
+			try{
+				Thread.sleep(day % 3);
+			}catch(InterruptedException ie){
+				ie.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Test that running days at once gives the same results as one at a
+	 * time, with the first day alone and no more than the given number of
+	 * days at once.
+	 */
+	@Test
+	public void testRun(){
+		Recorder serial = new Recorder();
+		assertTrue(serial.create(20,1).run());
+		assertTrue(serial.maxInProgress.get() == 1);
+		assertTrue(serial.rows.size() == 40);
+		for(int d=0;d<20;d++){
+			assertTrue(serial.rows.get(2*d).equals(d + ":first"));
+			assertTrue(serial.rows.get(2*d+1).equals(d + ":second"));
+		}
+
+		Recorder parallel = new Recorder();
+		DayPipeline p = parallel.create(20,4);
+		assertTrue(p.run());
+		assertTrue(parallel.maxInProgress.get() <= 4);
+		assertTrue(parallel.early.get() == 0);
+		assertTrue(p.getStageMillis(0) >= 0 && p.getStageMillis(1) >= 0);
+		List<String> a = new ArrayList<String>(serial.rows);
+		List<String> b = new ArrayList<String>(parallel.rows);
+		Collections.sort(a);
+		Collections.sort(b);
+		assertTrue(a.equals(b));
+		// Each day's stages in order.
+		for(int d=0;d<20;d++){
+			assertTrue(b.indexOf(d + ":first") >= 0);
+			assertTrue(parallel.rows.indexOf(d + ":first") <
+				parallel.rows.indexOf(d + ":second"));
+		}
+
+		// No days.
+		assertTrue(new DayPipeline("DayPipelineTest",new String[0],2).run());
+	}
+
+	/**
+	 * Test that a failed stage fails the run and stops later days.
+	 */
+	@Test
+	public void testFailure(){
+		Recorder r = new Recorder();
+		r.failingDay = 3;
+		assertTrue(!r.create(10,1).run());
+		// The failed day's second stage and later days are not run.
+		assertTrue(r.rows.size() == 7);
+		assertTrue(r.rows.get(6).equals("3:first"));
+
+		r = new Recorder();
+		r.failingDay = 0;
+		assertTrue(!r.create(10,4).run());
+		assertTrue(r.rows.size() == 1);
+
+		boolean thrown = false;
+		try{
+			new DayPipeline("DayPipelineTest",new String[1],0);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+}
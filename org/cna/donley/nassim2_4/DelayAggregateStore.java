@@ -0,0 +1,437 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Delay aggregates of the days of a study, kept between runs of
+ * {@link NasSimLocalAnalyzer} so that only new days need to be loaded.
+ * For each base and forecast day, systemwide and for each arrival
+ * airport, it holds the number of rows and, for each of the
+ * {@link NasSimLocalAnalyzer#AIRPORT_DELAYS}, the sum and number of
+ * non-null values and a {@link QuantileSketch} of the values in seconds.
+ * The averages are then <code>sum(delay)/count(*)</code>, as in the
+ * delay tables of {@link NasSimOutputAnalyzer}, without going back to the
+ * rows.
+ * <p>
+ * Aggregates are kept for all arrival airports, so the airports of the
+ * by-airport delays may change from run to run.  The store is written to
+ * and read from a small binary file:
+ * <pre>
+ *   int MAGIC, int VERSION, int number of days
+ *   for each day:
+ *     int base day, int forecast day, system aggregate,
+ *     int number of airports, then for each: UTF airport, aggregate
+ *   aggregate: long rows, then for each delay: double sum, long count,
+ *     sketch
+ * </pre>
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class DelayAggregateStore
+{
+	/**
+	 * Magic number at the start of a store file, "NSDA".
+	 */
+	public static final int MAGIC = 0x4E534441;
+
+	/**
+	 * Version of the file layout.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "DelayAggregateStore";
+
+	private static final String[] delays = NasSimLocalAnalyzer.AIRPORT_DELAYS;
+
+	/**
+	 * Aggregate of the rows of a day, or of an airport on a day.
+	 */
+	private static class Aggregate {
+		long rows = 0;
+		final double[] sums = new double[delays.length];
+		final long[] counts = new long[delays.length];
+		final QuantileSketch[] sketches = new QuantileSketch[delays.length];
+
+		Aggregate(){
+			for(int k=0;k<delays.length;k++)sketches[k] = new QuantileSketch();
+		}
+
+		void add(double[][] values, int row){
+			rows++;
+			for(int k=0;k<delays.length;k++){
+				double x = values[k][row];
+				if(Double.isNaN(x))continue;
+				sums[k] += x;
+				counts[k]++;
+				sketches[k].add((int)Math.round(60.*x));
+			}
+		}
+
+		double getAverage(int k){
+			return counts[k] == 0 ? Double.NaN : sums[k]/rows;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeLong(rows);
+			for(int k=0;k<delays.length;k++){
+				out.writeDouble(sums[k]);
+				out.writeLong(counts[k]);
+				sketches[k].write(out);
+			}
+		}
+
+		static Aggregate read(DataInputStream in) throws IOException {
+			Aggregate a = new Aggregate();
+			a.rows = in.readLong();
+			for(int k=0;k<delays.length;k++){
+				a.sums[k] = in.readDouble();
+				a.counts[k] = in.readLong();
+				a.sketches[k] = QuantileSketch.read(in);
+			}
+			return a;
+		}
+	}
+
+	/**
+	 * Aggregates of a day.
+	 */
+	private static class Day {
+		final int baseDay, forecastDay;
+		Aggregate system = new Aggregate();
+		/** By arrival airport; "" for none. */
+		final Map<String,Aggregate> airports = new TreeMap<String,Aggregate>();
+
+		Day(int baseDay, int forecastDay){
+			this.baseDay = baseDay;
+			this.forecastDay = forecastDay;
+		}
+	}
+
+	/** Days by base and then forecast day. */
+	private final Map<Long,Day> days = new TreeMap<Long,Day>();
+
+	private static Long dayKey(int baseDay, int forecastDay){
+		return ((long)baseDay << 32) | (forecastDay & 0xffffffffL);
+	}
+
+	/**
+	 * @return Number of days in the store.
+	 */
+	public int getNumDays(){return days.size();}
+
+	/**
+	 * @param baseDay Base day.  Format: yyyymmdd
+	 * @param forecastDay Forecast day.  Format: yyyymmdd
+	 * @return <code>true</code> if the store has the day; <code>false</code>
+	 *   if not.
+	 */
+	public boolean contains(int baseDay, int forecastDay){
+		return days.containsKey(dayKey(baseDay,forecastDay));
+	}
+
+	/**
+	 * Gets the days that are not in the store.
+	 * @param baseNForecastDays Pairs of base and forecast days.  Format:
+	 *   yyyymmdd
+	 * @return the pairs not in the store, in the same order.
+	 */
+	public String[][] getMissingDays(String[][] baseNForecastDays){
+		List<String[]> missing = new ArrayList<String[]>();
+		for(String[] d : baseNForecastDays){
+			if(!contains(NasSimLocalAnalyzer.parseDate(d[0]),
+				NasSimLocalAnalyzer.parseDate(d[1])))missing.add(d);
+		}
+		return missing.toArray(new String[missing.size()][]);
+	}
+
+	/**
+	 * Removes a day, so that it may be added again.
+	 * @param baseDay Base day.  Format: yyyymmdd
+	 * @param forecastDay Forecast day.  Format: yyyymmdd
+	 */
+	public void remove(int baseDay, int forecastDay){
+		days.remove(dayKey(baseDay,forecastDay));
+	}
+
+	/**
+	 * Adds the days of an actual and simulation table of
+	 * {@link NasSimLocalAnalyzer}.  The cost is that of one pass over the
+	 * table, whatever the number of days already in the store.
+	 * @param aNS Actual and simulation table.
+	 * @throws IllegalArgumentException if the store already has one of
+	 *   the days.
+	 */
+	public void add(ColumnTable aNS){
+		final String method = className + ".add()";
+		int n = aNS.getNumRows();
+		int[] base = aNS.getInts("base_day");
+		int[] forecast = aNS.getInts("forecast_day");
+		int[] arr = aNS.getInts("arr_aprt");
+		StringDictionary dict = aNS.getDictionary();
+		double[][] values = new double[delays.length][];
+		for(int k=0;k<delays.length;k++){
+			values[k] = NasSimLocalAnalyzer.computeDelay(aNS,delays[k]);
+		}
+
+		Map<Long,Day> added = new HashMap<Long,Day>();
+		Day day = null;
+		for(int i=0;i<n;i++){
+			if(day == null || day.baseDay != base[i] ||
+				day.forecastDay != forecast[i]){
+				Long key = dayKey(base[i],forecast[i]);
+				day = added.get(key);
+				if(day == null){
+					if(days.containsKey(key)){
+						throw new IllegalArgumentException(method + ": store " +
+							"already has base day " + base[i] +
+							" and forecast day " + forecast[i] + ".");
+					}
+					day = new Day(base[i],forecast[i]);
+					added.put(key,day);
+				}
+			}
+			day.system.add(values,i);
+			String a = dict.getName(arr[i]);
+			if(a == null)a = "";
+			Aggregate agg = day.airports.get(a);
+			if(agg == null){
+				agg = new Aggregate();
+				day.airports.put(a,agg);
+			}
+			agg.add(values,i);
+		}
+		days.putAll(added);
+	}
+
+	/**
+	 * Finds the days of the store in a list of days.
+	 */
+	private List<Day> getDays(String[][] baseNForecastDays){
+		List<Day> ds = new ArrayList<Day>();
+		for(String[] d : baseNForecastDays){
+			Day day = days.get(dayKey(NasSimLocalAnalyzer.parseDate(d[0]),
+				NasSimLocalAnalyzer.parseDate(d[1])));
+			if(day != null && !ds.contains(day))ds.add(day);
+		}
+		return ds;
+	}
+
+	/**
+	 * Same as {@link NasSimLocalAnalyzer#computeDelaysSystemwide(ColumnTable, int)}
+	 * for days of the store.
+	 * @param baseNForecastDays Pairs of base and forecast days.  Those not
+	 *   in the store are left out.  Format: yyyymmdd
+	 * @param dict Dictionary of the table.
+	 * @return table of the {@link NasSimLocalAnalyzer#SYSTEM_DELAYS} by
+	 *   base and forecast day.  Units: minutes
+	 */
+	public ColumnTable getDelaysSystemwide(String[][] baseNForecastDays,
+		StringDictionary dict){
+		List<Day> ds = getDays(baseNForecastDays);
+		List<Aggregate> aggs = new ArrayList<Aggregate>();
+		for(Day d : ds)aggs.add(d.system);
+		ColumnTable t = newTable(ds,aggs,NasSimLocalAnalyzer.SYSTEM_DELAYS,dict);
+		return t.select(t.sortOrder("base_day","forecast_day"));
+	}
+
+	/**
+	 * Same as {@link NasSimLocalAnalyzer#computeDelaysByAirport(ColumnTable, Set, int)}
+	 * for days of the store.
+	 * @param baseNForecastDays Pairs of base and forecast days.  Those not
+	 *   in the store are left out.  Format: yyyymmdd
+	 * @param airports Arrival airports to get delays for;
+	 *   <code>null</code> for all.
+	 * @param dict Dictionary of the table.
+	 * @return table of the {@link NasSimLocalAnalyzer#AIRPORT_DELAYS} by
+	 *   base day, forecast day and arrival airport.  Units: minutes
+	 */
+	public ColumnTable getDelaysByAirport(String[][] baseNForecastDays,
+		Set<String> airports, StringDictionary dict){
+		List<Day> ds = new ArrayList<Day>();
+		List<Aggregate> aggs = new ArrayList<Aggregate>();
+		List<String> names = new ArrayList<String>();
+		for(Day d : getDays(baseNForecastDays)){
+			for(Map.Entry<String,Aggregate> e : d.airports.entrySet()){
+				if(airports != null && !airports.contains(e.getKey().trim())){
+					continue;
+				}
+				ds.add(d);
+				aggs.add(e.getValue());
+				names.add(e.getKey());
+			}
+		}
+		ColumnTable t = newTable(ds,aggs,delays,dict);
+		int[] arr = new int[names.size()];
+		for(int i=0;i<arr.length;i++)arr[i] = dict.getCode(names.get(i));
+		t.addColumn("arr_aprt",ColumnTable.Type.STRING,arr);
+		String[] cols = new String[2 + 1 + delays.length];
+		cols[0] = "base_day";
+		cols[1] = "forecast_day";
+		cols[2] = "arr_aprt";
+		System.arraycopy(delays,0,cols,3,delays.length);
+		return t.select(t.sortOrder("base_day","forecast_day","arr_aprt"),
+			cols,null);
+	}
+
+	/**
+	 * Table of the days and averages of aggregates.
+	 */
+	private static ColumnTable newTable(List<Day> ds, List<Aggregate> aggs,
+		String[] names, StringDictionary dict){
+		int n = ds.size();
+		ColumnTable t = new ColumnTable(n,dict);
+		int[] base = new int[n], forecast = new int[n];
+		for(int i=0;i<n;i++){
+			base[i] = ds.get(i).baseDay;
+			forecast[i] = ds.get(i).forecastDay;
+		}
+		t.addColumn("base_day",ColumnTable.Type.INT,base);
+		t.addColumn("forecast_day",ColumnTable.Type.INT,forecast);
+		for(String name : names){
+			int k = Arrays.asList(delays).indexOf(name);
+			double[] avgs = new double[n];
+			for(int i=0;i<n;i++)avgs[i] = aggs.get(i).getAverage(k);
+			t.addColumn(name,ColumnTable.Type.DOUBLE,avgs);
+		}
+		return t;
+	}
+
+	/**
+	 * Estimates a quantile of a delay of a day.
+	 * @param baseDay Base day.  Format: yyyymmdd
+	 * @param forecastDay Forecast day.  Format: yyyymmdd
+	 * @param airport Arrival airport; <code>null</code> for systemwide.
+	 * @param delay One of the {@link NasSimLocalAnalyzer#AIRPORT_DELAYS}.
+	 * @param q Quantile, between 0 and 1.
+	 * @return the estimate; <code>NaN</code> if there are no values.
+	 *   Units: minutes
+	 */
+	public double getQuantile(int baseDay, int forecastDay, String airport,
+		String delay, double q){
+		int k = Arrays.asList(delays).indexOf(delay);
+		if(k < 0){
+			final String method = className + ".getQuantile()";
+			throw new IllegalArgumentException(method + ": unknown delay, " +
+				delay + ".");
+		}
+		Day day = days.get(dayKey(baseDay,forecastDay));
+		if(day == null)return Double.NaN;
+		Aggregate agg = airport == null ? day.system : day.airports.get(airport);
+		return agg == null ? Double.NaN : agg.sketches[k].getQuantile(q)/60.;
+	}
+
+	/**
+	 * Writes the store to a file.  It is written to a temporary file
+	 * first, which then replaces the file, so a failed write leaves the
+	 * old store.
+	 * @param fileNPath Store file and path.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public boolean write(File fileNPath){
+		File tmp = new File(fileNPath.getPath() + ".tmp");
+		DataOutputStream out = null;
+		try{
+			out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tmp)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(days.size());
+			for(Day d : days.values()){
+				out.writeInt(d.baseDay);
+				out.writeInt(d.forecastDay);
+				d.system.write(out);
+				out.writeInt(d.airports.size());
+				for(Map.Entry<String,Aggregate> e : d.airports.entrySet()){
+					out.writeUTF(e.getKey());
+					e.getValue().write(out);
+				}
+			}
+			out.close();
+			out = null;
+			if(fileNPath.exists() && !fileNPath.delete()){
+				throw new IOException("can't replace " + fileNPath + ".");
+			}
+			if(!tmp.renameTo(fileNPath)){
+				throw new IOException("can't rename " + tmp + ".");
+			}
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return false;
+		}finally{
+			if(out != null){
+				try{
+					out.close();
+				}catch(IOException ioe){
+					ioe.printStackTrace();
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a store from a file written by {@link #write(File)}.
+	 * @param fileNPath Store file and path.
+	 * @return the store; <code>null</code> if it can't be read.
+	 */
+	public static DelayAggregateStore read(File fileNPath){
+		final String method = className + ".read()";
+		DataInputStream in = null;
+		try{
+			in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fileNPath)));
+			if(in.readInt() != MAGIC){
+				System.err.println(method + ": " + fileNPath +
+					" is not a delay aggregate store.");
+				return null;
+			}
+			int version = in.readInt();
+			if(version != VERSION){
+				System.err.println(method + ": " + fileNPath + " has version " +
+					version + ", not " + VERSION + ".");
+				return null;
+			}
+			DelayAggregateStore store = new DelayAggregateStore();
+			int nDays = in.readInt();
+			for(int i=0;i<nDays;i++){
+				Day d = new Day(in.readInt(),in.readInt());
+				d.system = Aggregate.read(in);
+				int nAirports = in.readInt();
+				for(int a=0;a<nAirports;a++){
+					String name = in.readUTF();
+					d.airports.put(name,Aggregate.read(in));
+				}
+				store.days.put(dayKey(d.baseDay,d.forecastDay),d);
+			}
+			return store;
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return null;
+		}finally{
+			if(in != null){
+				try{
+					in.close();
+				}catch(IOException ioe){
+					ioe.printStackTrace();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the DelayAggregateStore class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class DelayAggregateStoreTest
+{
+	private static final String[] airports = {"ATL","BOS","ORD","DFW"};
+
+	/**
+	 * Random actual and simulation table of a day, with some nulls.
+	 */
+	private static ColumnTable createDay(Random rand, int baseDay,
+		int forecastDay, int n, StringDictionary dict){
+		ColumnTable t = new ColumnTable(n,dict);
+		int[] b = new int[n], f = new int[n], arr = new int[n];
+		int[] schOut = new int[n], simIn = new int[n];
+		Arrays.fill(b,baseDay);
+		Arrays.fill(f,forecastDay);
+		for(int i=0;i<n;i++){
+			arr[i] = i % 17 == 0 ? ColumnTable.NULL :
+				dict.getCode(airports[rand.nextInt(airports.length)]);
+			schOut[i] = 28800 + rand.nextInt(36000);
+			simIn[i] = schOut[i] + 5400 + rand.nextInt(3600);
+		}
+		t.addColumn("base_day",ColumnTable.Type.INT,b);
+		t.addColumn("forecast_day",ColumnTable.Type.INT,f);
+		t.addColumn("arr_aprt",ColumnTable.Type.STRING,arr);
+		t.addColumn("schoutsec",ColumnTable.Type.INT,schOut);
+		t.addColumn("sim_in_time_sec",ColumnTable.Type.INT,simIn);
+		String[] cols = {"nomto","fpete","nomti","actair","dep_delay",
+			"airborne_delay","actinsec","actoffsec","actoutsec","dlaedct",
+			"gate_out_delay","gate_in_delay"};
+		for(String c : cols){
+			double[] v = new double[n];
+			for(int i=0;i<n;i++){
+				v[i] = c.endsWith("sec") ? schOut[i] + 60.*rand.nextInt(200) :
+					rand.nextInt(100) - 10;
+				if(c.startsWith("act") && i % 5 == 0)v[i] = Double.NaN;
+			}
+			t.addColumn(c,ColumnTable.Type.DOUBLE,v);
+		}
+		return t;
+	}
+
+	/**
+	 * Checks that two delay tables are the same, within rounding of the
+	 * sums.
+	 */
+	private static void checkSame(ColumnTable a, ColumnTable b){
+		assertTrue(Arrays.equals(a.getColumnNames(),b.getColumnNames()));
+		assertTrue(a.getNumRows() == b.getNumRows());
+		for(String c : a.getColumnNames()){
+			if(a.getType(c) == ColumnTable.Type.DOUBLE){
+				double[] x = a.getDoubles(c), y = b.getDoubles(c);
+				for(int i=0;i<x.length;i++){
+					assertTrue(Double.isNaN(x[i]) ? Double.isNaN(y[i]) :
+						Math.abs(x[i] - y[i]) <= 1.e-9*(1. + Math.abs(x[i])));
+				}
+			} else if(a.getType(c) == ColumnTable.Type.STRING){
+				for(int i=0;i<a.getNumRows();i++){
+					String s = a.getString(c,i);
+					assertTrue(s == null ? b.getString(c,i) == null :
+						s.equals(b.getString(c,i)));
+				}
+			} else {
+				assertTrue(Arrays.equals(a.getInts(c),b.getInts(c)));
+			}
+		}
+	}
+
+	/**
+	 * Test that delays from a store added to a day at a time, and written
+	 * and read in between, are the same as those computed from all the
+	 * rows at once.
+	 */
+	@Test
+	public void testIncremental() throws IOException {
+		Random rand = new Random(11L);
+		StringDictionary dict = new StringDictionary();
+		String[][] days = {{"20080710","20080710"},{"20080710","20080711"},
+			{"20080711","20080711"},{"20080712","20080713"}};
+		List<ColumnTable> tables = new ArrayList<ColumnTable>();
+		for(String[] d : days){
+			tables.add(createDay(rand,NasSimLocalAnalyzer.parseDate(d[0]),
+				NasSimLocalAnalyzer.parseDate(d[1]),2000,dict));
+		}
+		ColumnTable all = ColumnTable.concat(tables);
+		Set<String> oep = new HashSet<String>(Arrays.asList("BOS","ORD"));
+
+		File file = File.createTempFile("delayStore",".bin");
+		try{
+			DelayAggregateStore store = new DelayAggregateStore();
+			store.add(ColumnTable.concat(tables.subList(0,3)));
+			assertTrue(store.getNumDays() == 3);
+			assertTrue(store.getMissingDays(days).length == 1);
+			assertTrue(store.getMissingDays(days)[0] == days[3]);
+			assertTrue(store.write(file));
+
+			store = DelayAggregateStore.read(file);
+			assertTrue(store != null && store.getNumDays() == 3);
+			store.add(tables.get(3));
+			assertTrue(store.write(file));
+			store = DelayAggregateStore.read(file);
+			assertTrue(store.getMissingDays(days).length == 0);
+
+			checkSame(NasSimLocalAnalyzer.computeDelaysSystemwide(all,2),
+				store.getDelaysSystemwide(days,dict));
+			checkSame(NasSimLocalAnalyzer.computeDelaysByAirport(all,null,2),
+				store.getDelaysByAirport(days,null,dict));
+			checkSame(NasSimLocalAnalyzer.computeDelaysByAirport(all,oep,2),
+				store.getDelaysByAirport(days,oep,dict));
+			// Only some of the days.
+			String[][] some = {days[2],{"20090101","20090101"}};
+			checkSame(NasSimLocalAnalyzer.computeDelaysSystemwide(tables.get(2),1),
+				store.getDelaysSystemwide(some,dict));
+
+			// Quantiles of a day's airport delay in minutes, within the
+			// accuracy of the sketch and the rounding to seconds.
+			ColumnTable t = tables.get(1);
+			int[] arr = t.getInts("arr_aprt");
+			double[] gateIn = t.getDoubles("gate_in_delay");
+			List<Double> bos = new ArrayList<Double>();
+			for(int i=0;i<arr.length;i++){
+				if("BOS".equals(dict.getName(arr[i])))bos.add(gateIn[i]);
+			}
+			Double[] sorted = bos.toArray(new Double[bos.size()]);
+			Arrays.sort(sorted);
+			double p90 = sorted[(int)Math.floor(0.9*(sorted.length - 1))];
+			double est = store.getQuantile(20080710,20080711,"BOS",
+				"delay_sim4",0.9);
+			assertTrue(Math.abs(est - p90) <=
+				QuantileSketch.DEFAULT_ACCURACY*Math.abs(p90) + 1./60.);
+			assertTrue(Double.isNaN(store.getQuantile(20090101,20090101,null,
+				"delay_sim4",0.9)));
+
+			// A day already in the store.
+			boolean thrown = false;
+			try{
+				store.add(tables.get(0));
+			}catch(IllegalArgumentException iae){
+				thrown = true;
+			}
+			assertTrue(thrown);
+			store.remove(20080710,20080710);
+			store.add(tables.get(0));
+			assertTrue(store.getNumDays() == 4);
+
+			// Not a store.
+			assertTrue(new File(file.getPath() + ".tmp").exists() == false);
+			ColumnTable.concat(tables.subList(0,1)).write(file);
+			assertTrue(DelayAggregateStore.read(file) == null);
+		}finally{
+			file.delete();
+		}
+	}
+}
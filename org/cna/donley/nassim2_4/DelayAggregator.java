@@ -0,0 +1,297 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Aggregates flight delays as legs complete, so that delay statistics
+ * are available at the end of a run without post-processing the flight
+ * output.  For each of the delays in {@link Metric}, a {@link DelayStats}
+ * is kept for the whole system and for each departure airport, arrival
+ * airport, carrier, hour of the day of the scheduled out time, departure
+ * fix and arrival fix, as given by {@link Group}.  As in the flight
+ * output averages, only non-VFR flights are counted.
+ * <p>
+ * Aggregators of replications or partitions of a run over the same
+ * {@link Nas} can be merged with {@link #merge(DelayAggregator)}.  The
+ * statistics are exported to a comma separated file with
+ * {@link #write(File, Nas)}.
+ * <p>
+ * Memory: the statistics of a key are created when its first flight is
+ * counted, about a kilobyte for the six metrics and their sketches, plus
+ * twelve bytes for each bucket a sketch has in use (see
+ * {@link QuantileSketch}).  A day of 3000 flights over some 1100 keys
+ * keeps about 16000 buckets, or some 60 bytes per event of the run.
+ * <p>
+ * Not thread safe.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class DelayAggregator implements ILegListener
+{
+	/**
+	 * Delays that are aggregated.
+	 */
+	public enum Metric {GATE_OUT,DEP,ARR,TAXI_IN,DEP_FIX,ARR_FIX};
+
+	/**
+	 * How flights are grouped.
+	 */
+	public enum Group {SYSTEM,DEP_APRT,ARR_APRT,CARRIER,HOUR,DEP_FIX,ARR_FIX};
+
+	/**
+	 * Number of hours in a day.
+	 */
+	public static final int NUM_HOURS = 24;
+
+	/**
+	 * Percentiles written by {@link #write(File, Nas)}.
+	 */
+	public static final double[] QUANTILES = {0.5,0.9,0.99};
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "DelayAggregator";
+
+	private static final Metric[] metrics = Metric.values();
+	private static final Group[] groups = Group.values();
+
+	/**
+	 * Statistics by group, key in the group and metric.  Created as
+	 * needed.
+	 */
+	private final DelayStats[][][] stats;
+
+	/**
+	 * Delays of the flight being added, by metric.
+	 */
+	private final int[] delays = new int[metrics.length];
+
+	/**
+	 * Constructor.
+	 * @param numAirports Number of airports.
+	 * @param numCarriers Number of carriers.
+	 * @param numDepFixes Number of departure fixes.
+	 * @param numArrFixes Number of arrival fixes.
+	 */
+	public DelayAggregator(int numAirports, int numCarriers, int numDepFixes,
+		int numArrFixes){
+		stats = new DelayStats[groups.length][][];
+		stats[Group.SYSTEM.ordinal()] = new DelayStats[1][];
+		stats[Group.DEP_APRT.ordinal()] = new DelayStats[numAirports][];
+		stats[Group.ARR_APRT.ordinal()] = new DelayStats[numAirports][];
+		stats[Group.CARRIER.ordinal()] = new DelayStats[numCarriers][];
+		stats[Group.HOUR.ordinal()] = new DelayStats[NUM_HOURS][];
+		stats[Group.DEP_FIX.ordinal()] = new DelayStats[numDepFixes][];
+		stats[Group.ARR_FIX.ordinal()] = new DelayStats[numArrFixes][];
+	}
+
+	/**
+	 * Constructor for the airports, carriers and fixes of a {@link Nas}.
+	 * @param nas Instance of {@link Nas}.
+	 */
+	public DelayAggregator(Nas nas){
+		this(nas.getNumAirports(),nas.getNumCarriers(),
+			nas.getNumFixes(Nas.Ad.DEP),nas.getNumFixes(Nas.Ad.ARR));
+	}
+
+	/**
+	 * Gets a delay of a flight.
+	 * @param f Flight.
+	 * @param m Which delay.
+	 * @return the delay.  Units: seconds
+	 */
+	public static int getDelay(IFlight f, Metric m){
+		switch(m){
+		case GATE_OUT:
+			return f.get(IFlight.Param.ACT_OUT_TIME) -
+				f.get(IFlight.Param.SCHED_OUT_TIME);
+		case DEP:
+			return f.get(IFlight.Param.ACT_OFF_TIME) -
+				f.get(IFlight.Param.CALC_OFF_TIME);
+		case ARR:
+			return f.get(IFlight.Param.ACT_ON_TIME) -
+				f.get(IFlight.Param.CALC_ON_TIME);
+		case TAXI_IN:
+			return f.get(IFlight.Param.ACT_IN_TIME) -
+				f.get(IFlight.Param.CALC_IN_TIME);
+		case DEP_FIX:
+			return f.get(IFlight.Param.DEP_FIX_DELAY);
+		default:
+			return f.get(IFlight.Param.ARR_FIX_DELAY);
+		}
+	}
+
+	/**
+	 * Gets the key of a flight in a group.
+	 * @param f Flight.
+	 * @param g Group.
+	 * @return the key; -1 if the flight is not in any of the group.
+	 */
+	public static int getKey(IFlight f, Group g){
+		switch(g){
+		case SYSTEM:
+			return 0;
+		case DEP_APRT:
+			return f.get(IFlight.Param.DEP_APRT);
+		case ARR_APRT:
+			return f.get(IFlight.Param.ARR_APRT);
+		case CARRIER:
+			return f.get(IFlight.Param.CARRIER);
+		case HOUR:
+			// Times are w/r to midnight of the base day.
+			int t = f.get(IFlight.Param.SCHED_OUT_TIME);
+			int hour = (t < 0 ? (t + 1)/3600 - 1 : t/3600) % NUM_HOURS;
+			return hour < 0 ? hour + NUM_HOURS : hour;
+		case DEP_FIX:
+			return f.get(IFlight.Param.DEP_FIX);
+		default:
+			return f.get(IFlight.Param.ARR_FIX);
+		}
+	}
+
+	/**
+	 * Adds the delays of a flight.  VFR flights are skipped.
+	 * @param f Flight.
+	 */
+	public void add(IFlight f){
+		if(f.get(IFlight.Param.SCHED_ID) < 0)return;
+		for(int m=0;m<metrics.length;m++)delays[m] = getDelay(f,metrics[m]);
+		for(int g=0;g<groups.length;g++){
+			int key = getKey(f,groups[g]);
+			if(key < 0 || key >= stats[g].length)continue;
+			DelayStats[] s = stats[g][key];
+			if(s == null)s = stats[g][key] = newStats();
+			for(int m=0;m<metrics.length;m++)s[m].add(delays[m]);
+		}
+	}
+
+	private static DelayStats[] newStats(){
+		DelayStats[] s = new DelayStats[metrics.length];
+		for(int m=0;m<s.length;m++)s[m] = new DelayStats();
+		return s;
+	}
+
+	/**
+	 * Adds the delays of a completed leg.
+	 * @param leg The completed leg.
+	 * @param time Sim time at which it completed.
+	 */
+	public void legCompleted(IFlight leg, int time){
+		add(leg);
+	}
+
+	/**
+	 * Gets the statistics of a delay for a key of a group.
+	 * @param g Group.
+	 * @param key Key in the group, such as the airport index.  Zero for
+	 *   {@link Group#SYSTEM}.
+	 * @param m Which delay.
+	 * @return the statistics; <code>null</code> if no flights have been
+	 *   added for the key.
+	 */
+	public DelayStats get(Group g, int key, Metric m){
+		DelayStats[] s = stats[g.ordinal()][key];
+		return s == null ? null : s[m.ordinal()];
+	}
+
+	/**
+	 * Adds the statistics of another aggregator to this one.
+	 * @param other Another aggregator with the same numbers of airports,
+	 *   carriers and fixes.
+	 */
+	public void merge(DelayAggregator other){
+		for(int g=0;g<groups.length;g++){
+			if(other.stats[g].length != stats[g].length){
+				final String method = className + ".merge()";
+				throw new IllegalArgumentException(method + ": aggregators " +
+					"have different numbers of " + groups[g] + " keys.");
+			}
+		}
+		for(int g=0;g<groups.length;g++){
+			for(int k=0;k<stats[g].length;k++){
+				DelayStats[] o = other.stats[g][k];
+				if(o == null)continue;
+				if(stats[g][k] == null)stats[g][k] = newStats();
+				for(int m=0;m<metrics.length;m++)stats[g][k][m].merge(o[m]);
+			}
+		}
+	}
+
+	/**
+	 * Name of a key of a group, for output.
+	 */
+	private static String getKeyName(Group g, int key, Nas nas){
+		switch(g){
+		case SYSTEM:
+			return "NAS";
+		case DEP_APRT:
+		case ARR_APRT:
+			return nas.getAirportFromIndex(key);
+		case CARRIER:
+			return nas.getCarrierFromIndex(key);
+		case HOUR:
+			return String.valueOf(key);
+		case DEP_FIX:
+			return nas.getFixNameFromIndex(Nas.Ad.DEP,key);
+		default:
+			return nas.getFixNameFromIndex(Nas.Ad.ARR,key);
+		}
+	}
+
+	/**
+	 * Writes the statistics to a comma separated file, one line per group,
+	 * key and delay, for the keys that have flights.  Delays are in
+	 * minutes.
+	 * @param fileNPath Output file and path.
+	 * @param nas Instance of {@link Nas} the aggregator was made for, to
+	 *   name the keys.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public boolean write(File fileNPath, Nas nas){
+		PrintWriter pw = null;
+		try{
+			pw = new PrintWriter(fileNPath);
+			pw.println("#");
+			pw.println("# Delay statistics.  Units: minutes");
+			StringBuilder sb = new StringBuilder(
+				"#group,key,delay,count,mean,std_dev,min,max");
+			for(double q : QUANTILES)sb.append(",p" + Math.round(100.*q));
+			pw.println(sb);
+			for(int g=0;g<groups.length;g++){
+				for(int k=0;k<stats[g].length;k++){
+					if(stats[g][k] == null)continue;
+					String name = getKeyName(groups[g],k,nas);
+					for(int m=0;m<metrics.length;m++){
+						DelayStats s = stats[g][k][m];
+						sb.setLength(0);
+						sb.append(groups[g]).append(',').append(name).
+							append(',').append(metrics[m]).append(',').
+							append(s.getCount()).append(',').
+							append(minutes(s.getMean())).append(',').
+							append(minutes(s.getStdDev())).append(',').
+							append(minutes(s.getMin())).append(',').
+							append(minutes(s.getMax()));
+						for(double q : QUANTILES){
+							sb.append(',').append(minutes(s.getQuantile(q)));
+						}
+						pw.println(sb);
+					}
+				}
+			}
+		}catch(FileNotFoundException fnfe){
+			fnfe.printStackTrace();
+			return false;
+		}finally{
+			if(pw != null)pw.close();
+		}
+		return true;
+	}
+
+	private static String minutes(double secs){
+		return String.format(Locale.US,"%.2f",secs/60.);
+	}
+}
@@ -0,0 +1,167 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the DelayAggregator class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class DelayAggregatorTest
+{
+	@Before
+	public void setUp(){
+		Nas.destroyInstance();
+		Nas.createInstance(new String[]{"ATL","BOS","ORD"},
+			new String[]{"AAL","DAL"},new String[]{"B737"},
+			new String[][]{{"DEPA","DEPB"},{"ARRA"}});
+	}
+
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+	}
+
+	private static IFlight[] createFlights(int n, long seed){
+		Random rand = new Random(seed);
+		IFlight[] flights = new IFlight[n];
+		for(int i=0;i<n;i++){
+			int[] pars = new int[IFlight.Param.values().length];
+			pars[IFlight.Param.SCHED_ID.ordinal()] = i%10 == 0 ? -1 : i;
+			pars[IFlight.Param.DEP_APRT.ordinal()] = rand.nextInt(3);
+			pars[IFlight.Param.ARR_APRT.ordinal()] = rand.nextInt(3);
+			pars[IFlight.Param.CARRIER.ordinal()] = rand.nextInt(3) - 1;
+			pars[IFlight.Param.DEP_FIX.ordinal()] = rand.nextInt(3) - 1;
+			pars[IFlight.Param.ARR_FIX.ordinal()] = -1;
+			int out = rand.nextInt(2*86400) - 3600;
+			pars[IFlight.Param.SCHED_OUT_TIME.ordinal()] = out;
+			pars[IFlight.Param.ACT_OUT_TIME.ordinal()] = out + rand.nextInt(900);
+			pars[IFlight.Param.CALC_ON_TIME.ordinal()] = out + 3600;
+			pars[IFlight.Param.ACT_ON_TIME.ordinal()] =
+				out + 3600 + rand.nextInt(1800) - 300;
+			pars[IFlight.Param.ARR_FIX_DELAY.ordinal()] = rand.nextInt(600);
+			flights[i] = new Flight(pars);
+		}
+		return flights;
+	}
+
+	/**
+	 * Test that flights are grouped and that the statistics are those of
+	 * the flights in each group.
+	 */
+	@Test
+	public void testAdd(){
+		IFlight[] flights = createFlights(2000,11L);
+		DelayAggregator da = new DelayAggregator(Nas.getInstance());
+		for(IFlight f : flights)da.legCompleted(f,0);
+
+		for(DelayAggregator.Group g : DelayAggregator.Group.values()){
+			int nKeys = g == DelayAggregator.Group.HOUR ?
+				DelayAggregator.NUM_HOURS : 3;
+			for(int k=0;k<nKeys;k++){
+				DelayStats expected = new DelayStats();
+				for(IFlight f : flights){
+					if(f.get(IFlight.Param.SCHED_ID) < 0 ||
+						DelayAggregator.getKey(f,g) != k)continue;
+					expected.add(DelayAggregator.getDelay(f,
+						DelayAggregator.Metric.ARR));
+				}
+				if(expected.getCount() == 0)continue;
+				DelayStats ds = da.get(g,k,DelayAggregator.Metric.ARR);
+				assertTrue(ds.getCount() == expected.getCount());
+				assertTrue(ds.getMean() == expected.getMean());
+				assertTrue(ds.getQuantile(0.9) == expected.getQuantile(0.9));
+			}
+		}
+		// No flights have an arrival fix.
+		assertTrue(da.get(DelayAggregator.Group.ARR_FIX,0,
+			DelayAggregator.Metric.ARR) == null);
+		// Hour of a time before midnight and on the next day.
+		int[] pars = new int[IFlight.Param.values().length];
+		pars[IFlight.Param.SCHED_OUT_TIME.ordinal()] = -1;
+		assertTrue(DelayAggregator.getKey(new Flight(pars),
+			DelayAggregator.Group.HOUR) == 23);
+		pars[IFlight.Param.SCHED_OUT_TIME.ordinal()] = 86400 + 7200;
+		assertTrue(DelayAggregator.getKey(new Flight(pars),
+			DelayAggregator.Group.HOUR) == 2);
+	}
+
+	/**
+	 * Test that merged aggregators are the same as one of all the flights.
+	 */
+	@Test
+	public void testMerge(){
+		IFlight[] flights = createFlights(3000,12L);
+		DelayAggregator all = new DelayAggregator(Nas.getInstance());
+		DelayAggregator a = new DelayAggregator(Nas.getInstance());
+		DelayAggregator b = new DelayAggregator(Nas.getInstance());
+		for(int i=0;i<flights.length;i++){
+			all.add(flights[i]);
+			if(i < 1000)a.add(flights[i]);
+			else b.add(flights[i]);
+		}
+		a.merge(b);
+		for(DelayAggregator.Metric m : DelayAggregator.Metric.values()){
+			for(int k=0;k<3;k++){
+				DelayStats x = all.get(DelayAggregator.Group.DEP_APRT,k,m);
+				DelayStats y = a.get(DelayAggregator.Group.DEP_APRT,k,m);
+				assertTrue(x.getCount() == y.getCount());
+				assertTrue(Math.abs(x.getMean() - y.getMean()) < 1.e-9);
+				assertTrue(Math.abs(x.getVariance() - y.getVariance()) <
+					1.e-6*(1. + x.getVariance()));
+				assertTrue(x.getQuantile(0.5) == y.getQuantile(0.5));
+				assertTrue(x.getMax() == y.getMax());
+			}
+		}
+		boolean thrown = false;
+		try{
+			a.merge(new DelayAggregator(4,2,2,1));
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * Test of write().
+	 */
+	@Test
+	public void testWrite() throws IOException {
+		DelayAggregator da = new DelayAggregator(Nas.getInstance());
+		for(IFlight f : createFlights(100,13L))da.add(f);
+		File file = File.createTempFile("delayStats",".csv");
+		try{
+			assertTrue(da.write(file,Nas.getInstance()));
+			BufferedReader br = new BufferedReader(new FileReader(file));
+			String line = null;
+			int nLines = 0;
+			boolean sawSystem = false;
+			while((line = br.readLine()) != null){
+				if(line.startsWith("#"))continue;
+				String[] ss = line.split(",");
+				assertTrue(ss.length == 11);
+				if(ss[0].equals("SYSTEM") && ss[2].equals("ARR")){
+					sawSystem = true;
+					assertTrue(ss[1].equals("NAS"));
+					assertTrue(Long.valueOf(ss[3]) == 90);
+				}
+				Double.valueOf(ss[4]);
+				nLines++;
+			}
+			br.close();
+			assertTrue(sawSystem);
+			assertTrue(nLines % DelayAggregator.Metric.values().length == 0);
+		}finally{
+			file.delete();
+		}
+	}
+}
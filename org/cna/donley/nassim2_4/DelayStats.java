@@ -0,0 +1,86 @@
+package org.cna.donley.nassim2_4;
+
+/**
+ * Running statistics of a delay: count, mean, variance, min, max and a
+ * {@link QuantileSketch} for percentiles.  The mean and variance are
+ * updated one value at a time as by Welford, so they don't lose precision
+ * over a long run, and two sets of statistics can be merged, as for
+ * replications or partitions of a run.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class DelayStats
+{
+	private long count = 0;
+	private double mean = 0.;
+	/** Sum of squared differences from the mean. */
+	private double m2 = 0.;
+	private int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+	private final QuantileSketch sketch = new QuantileSketch();
+
+	/**
+	 * Adds a delay.
+	 * @param delay Delay. Units: seconds
+	 */
+	public void add(int delay){
+		count++;
+		double d = delay - mean;
+		mean += d/count;
+		m2 += d*(delay - mean);
+		if(delay < min)min = delay;
+		if(delay > max)max = delay;
+		sketch.add(delay);
+	}
+
+	/**
+	 * Adds the statistics of another set to these.
+	 * @param other Other statistics.
+	 */
+	public void merge(DelayStats other){
+		if(other.count == 0)return;
+		long n = count + other.count;
+		double d = other.mean - mean;
+		m2 += other.m2 + d*d*((double)count*other.count/n);
+		mean += d*other.count/n;
+		count = n;
+		min = Math.min(min,other.min);
+		max = Math.max(max,other.max);
+		sketch.merge(other.sketch);
+	}
+
+	/**
+	 * @return Number of delays.
+	 */
+	public long getCount(){return count;}
+	/**
+	 * @return Mean delay; zero if there are none.  Units: seconds
+	 */
+	public double getMean(){return mean;}
+	/**
+	 * @return Sample variance of the delays; zero if there are fewer than
+	 *   two.  Units: seconds^2
+	 */
+	public double getVariance(){
+		return count > 1 ? m2/(count - 1) : 0.;
+	}
+	/**
+	 * @return Sample standard deviation.  Units: seconds
+	 */
+	public double getStdDev(){return Math.sqrt(getVariance());}
+	/**
+	 * @return Smallest delay; <code>Integer.MAX_VALUE</code> if there are
+	 *   none.  Units: seconds
+	 */
+	public int getMin(){return min;}
+	/**
+	 * @return Largest delay; <code>Integer.MIN_VALUE</code> if there are
+	 *   none.  Units: seconds
+	 */
+	public int getMax(){return max;}
+	/**
+	 * Estimates a percentile, see {@link QuantileSketch#getQuantile(double)}.
+	 * @param q Quantile, between 0 and 1.
+	 * @return the estimate.  Units: seconds
+	 */
+	public double getQuantile(double q){return sketch.getQuantile(q);}
+}
@@ -0,0 +1,411 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Benchmark of the event engine and the node hot paths, so a change to
+ * {@link EventQueue}, {@link FlightQueue}, {@link Runway} or
+ * {@link HoldEvent} can be measured before it goes in.  The benchmarks
+ * are:
+ * <ul>
+ * <li> eventQueue: {@link EventQueue} add and poll in steady state, a poll
+ *   followed by an add of a later event, at a small and a large size.
+ * <li> flightQueue: {@link FlightQueue} add and poll in steady state for
+ *   each {@link IFlight.Param} measure, and FIFO.
+ * <li> runway: {@link Runway#computeNextTime(Nas.Ad, int)} through a day,
+ *   with pareto curves and with called rates.
+ * <li> holdEvent: {@link HoldEvent#processEvent(IQueue)} on a full queue.
+ * <li> day: a day of flights made by the {@link ScenarioGenerator}
+ *   through {@link NasSimEventDriven#run()}, which is the number that
+ *   matters.
+ * </ul>
+ * Each is repeated; the first repetition is a warm-up and is not counted.
+ * Times are summarized by {@link InputBenchmark#summarize(long[])} and
+ * the rate is from the median.  Allocation is the bytes allocated by the
+ * benchmark thread per operation, if the JVM can measure it.
+ * <p>
+ * Usage: <code>EngineBenchmark nReps [nFlights [queueSize]]</code>.  Run
+ * it on a quiet machine with a fixed heap, e.g., -Xms2g -Xmx2g, and
+ * compare runs before and after a change on the same machine.  The
+ * properties files of the day are written to a temp directory, which is
+ * deleted at the end.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class EngineBenchmark
+{
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "EngineBenchmark";
+
+	/**
+	 * Seed of the random numbers, so runs are comparable.
+	 */
+	public static final long SEED = 20080710L;
+
+	/**
+	 * Seconds in a day.
+	 */
+	private static final int DAY_SECS = 24*3600;
+
+	/**
+	 * A benchmark.  {@link #setUp()} is called before each repetition and
+	 * is not timed.
+	 */
+	public static abstract class Bench {
+		/**
+		 * Sets up the state for a repetition.
+		 */
+		public void setUp(){}
+		/**
+		 * Runs the benchmark once.
+		 * @return Number of operations done.
+		 */
+		public abstract long run();
+	}
+
+	/**
+	 * Main method.
+	 * @param args Number of repetitions, then optionally the number of
+	 *   flights of the synthetic day and the size of the large queues.
+	 */
+	public static void main(String[] args){
+		if(args.length < 1){
+			System.err.println("Usage: " + className +
+				" nReps [nFlights [queueSize]]");
+			System.exit(-1);
+		}
+		int nReps = Integer.valueOf(args[0]);
+		int nFlights = args.length > 1 ? Integer.valueOf(args[1]) : 50000;
+		int queueSize = args.length > 2 ? Integer.valueOf(args[2]) : 100000;
+
+		for(int size : new int[]{1000,queueSize}){
+			measure("eventQueue " + size,nReps,benchEventQueue(size,10*size));
+		}
+		for(IFlight.Param p : IFlight.Param.values()){
+			measure("flightQueue " + p,nReps,benchFlightQueue(p,200,100000));
+		}
+		measure("flightQueue FIFO",nReps,benchFlightQueue(null,200,100000));
+		measure("runway pareto",nReps,benchRunway(true));
+		measure("runway calledRates",nReps,benchRunway(false));
+		measure("holdEvent " + queueSize,nReps,benchHoldEvent(queueSize));
+		try{
+			measure("day " + nFlights + " flights",nReps,benchDay(nFlights));
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Runs a benchmark and prints its times, rate and allocation.
+	 * @param name Name of the benchmark.
+	 * @param nReps Number of counted repetitions.
+	 * @param b The benchmark.
+	 * @return Times of the counted repetitions.  Units: nanoseconds
+	 */
+	public static long[] measure(String name, int nReps, Bench b){
+		long[] times = new long[nReps];
+		long nOps = 0, bytes = 0;
+		for(int rep=0;rep<=nReps;rep++){
+			b.setUp();
+			long alloc = ThreadAllocation.allocatedBytes();
+			long start = System.nanoTime();
+			long n = b.run();
+			long time = System.nanoTime() - start;
+			// First pass is the warm up.
+			if(rep > 0){
+				times[rep-1] = time;
+				nOps += n;
+				if(alloc >= 0)bytes += ThreadAllocation.allocatedBytes() - alloc;
+			}
+		}
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		long median = sorted.length == 0 ? 0 : sorted[sorted.length/2];
+		long opsPerRep = nReps > 0 ? nOps/nReps : 0;
+		StringBuilder sb = new StringBuilder();
+		sb.append(name).append(": ops: ").append(opsPerRep).append(", ");
+		sb.append(InputBenchmark.summarize(times));
+		if(median > 0){
+			sb.append(", ops/sec: ").append((long)(1.e9*opsPerRep/median));
+		}
+		if(ThreadAllocation.allocatedBytes() >= 0 && nOps > 0){
+			sb.append(", bytes/op: ").append(bytes/nOps);
+		}
+		System.out.println(sb);
+		return times;
+	}
+
+	/**
+	 * Steady state of the event queue: polls the soonest event and adds a
+	 * later one, as processing an event does.
+	 * @param size Number of events in the queue.
+	 * @param nOps Number of poll and add pairs.
+	 * @return the benchmark.
+	 */
+	public static Bench benchEventQueue(final int size, final int nOps){
+		final Random rand = new Random(SEED);
+		final IEvent[] events = new IEvent[size];
+		for(int i=0;i<size;i++){
+			events[i] = new DummyEvent(null,null,IEvent.Cmd.DEP,
+				rand.nextInt(DAY_SECS));
+		}
+		final int[] delays = new int[nOps];
+		for(int i=0;i<nOps;i++)delays[i] = 1 + rand.nextInt(1800);
+		return new Bench(){
+			IQueue<IEvent> queue = null;
+			public void setUp(){
+				queue = new EventQueue();
+				for(IEvent e : events)queue.add(e);
+			}
+			public long run(){
+				for(int i=0;i<nOps;i++){
+					IEvent e = queue.poll();
+					e.setTime(e.getTime() + delays[i]);
+					queue.add(e);
+				}
+				return nOps;
+			}
+		};
+	}
+
+	/**
+	 * Steady state of a flight queue: polls the top flight and adds one.
+	 * @param measure Measure of the queue; <code>null</code> for FIFO.
+	 * @param size Number of flights in the queue, about that of a busy
+	 *   runway.
+	 * @param nOps Number of poll and add pairs.
+	 * @return the benchmark.
+	 */
+	public static Bench benchFlightQueue(final IFlight.Param measure,
+		final int size, final int nOps){
+		Random rand = new Random(SEED);
+		final IFlight[] flights = new IFlight[size + nOps];
+		for(int f=0;f<flights.length;f++){
+			int[] pars = new int[IFlight.Param.values().length];
+			for(int p=0;p<pars.length;p++)pars[p] = rand.nextInt(DAY_SECS);
+			flights[f] = new Flight(pars);
+		}
+		return new Bench(){
+			IQueue<IFlight> queue = null;
+			public void setUp(){
+				queue = new FlightQueue(measure);
+				for(int f=0;f<size;f++)queue.add(flights[f]);
+			}
+			public long run(){
+				for(int i=0;i<nOps;i++){
+					queue.poll();
+					queue.add(flights[size + i]);
+				}
+				return nOps;
+			}
+		};
+	}
+
+	/**
+	 * Pareto curves of a busy airport.
+	 * @return 3D pareto array, by {@link Nas.Mc}, point and then dep and
+	 *   arr.  Units: numbers per quarter hour
+	 */
+	static double[][][] createParetoCurves(){
+		// As numbers per hour.
+		double[][] paretoV =
+			{{0.,61.6},{35.9,60.0},{36.8,57.2},{41.9,50.4},{70.4,0.}};
+		double[][] paretoI =
+			{{0.,51.6},{25.9,50.0},{26.8,47.2},{31.9,40.4},{60.4,0.}};
+		double[][] paretoM =
+			{{0.,45.6},{20.9,44.0},{21.8,42.2},{26.9,35.4},{55.4,0.}};
+		double[][][] pareto = new double[Nas.Mc.values().length][][];
+		pareto[Nas.Mc.VMC.ordinal()] = paretoV;
+		pareto[Nas.Mc.IMC.ordinal()] = paretoI;
+		pareto[Nas.Mc.MVMC.ordinal()]= paretoM;
+		for(double[][] curve : pareto){
+			if(curve == null)continue;
+			for(double[] point : curve){
+				for(int k=0;k<point.length;k++)point[k] /= 4.;
+			}
+		}
+		return pareto;
+	}
+
+	/**
+	 * Runway next times through a day, as the runway events ask for them.
+	 * @param pareto If <code>true</code>, compute the rates from pareto
+	 *   curves; if not, use called rates.
+	 * @return the benchmark.
+	 */
+	public static Bench benchRunway(boolean pareto){
+		Random rand = new Random(SEED);
+		// About 1000 departures and 1000 arrivals.
+		int[][] estOnNOffTimes = new int[2][1000];
+		for(int[] times : estOnNOffTimes){
+			for(int j=0;j<times.length;j++)times[j] = rand.nextInt(DAY_SECS);
+			Arrays.sort(times);
+		}
+		int[][] changeCap = {{0,Nas.Mc.VMC.ordinal()},
+			{6*3600,Nas.Mc.IMC.ordinal()},{10*3600,Nas.Mc.MVMC.ordinal()},
+			{14*3600,Nas.Mc.VMC.ordinal()}};
+		// Quarter hour rates, with the airport closed for an hour.
+		int[][] calledRates = new int[DAY_SECS/900][2];
+		for(int q=0;q<calledRates.length;q++){
+			boolean closed = q >= 40 && q < 44;
+			calledRates[q][Nas.Ad.DEP.ordinal()] = closed ? 0 : 8 + q%5;
+			calledRates[q][Nas.Ad.ARR.ordinal()] = closed ? 0 : 10 + q%3;
+		}
+		final Runway rw = new Runway(0,0,pareto,calledRates,
+			createParetoCurves(),changeCap,estOnNOffTimes);
+		final Nas.Ad[] ads = Nas.Ad.values();
+		return new Bench(){
+			public long run(){
+				long n = 0;
+				for(int t=0;t<DAY_SECS;t+=30){
+					for(Nas.Ad ad : ads){
+						if(!rw.computeNextTime(ad,t)){
+							throw new IllegalStateException(className +
+								": computeNextTime() failed.");
+						}
+						n++;
+					}
+				}
+				return n;
+			}
+		};
+	}
+
+	/**
+	 * A hold of the departures of one of 50 runways for a quarter hour,
+	 * with the main queue full of runway and taxiway events.
+	 * @param size Number of events in the main queue.
+	 * @return the benchmark.
+	 */
+	public static Bench benchHoldEvent(final int size){
+		final Random rand = new Random(SEED);
+		final int nAprts = 50;
+		final Runway[] runways = new Runway[nAprts];
+		final Taxiway[] taxiways = new Taxiway[nAprts];
+		for(int a=0;a<nAprts;a++){
+			runways[a] = new Runway(a,0,false,null,null,null,null);
+			taxiways[a] = new Taxiway(a,null,null);
+		}
+		final IFlight[] flights = new IFlight[size];
+		final int[] aprts = new int[size], times = new int[size];
+		for(int f=0;f<size;f++){
+			int[] pars = new int[IFlight.Param.values().length];
+			times[f] = rand.nextInt(DAY_SECS);
+			pars[IFlight.Param.CALC_OFF_TIME.ordinal()] = times[f];
+			flights[f] = new Flight(pars);
+			aprts[f] = rand.nextInt(nAprts);
+		}
+		final int timeStart = 12*3600, timeHold = timeStart + 900;
+		return new Bench(){
+			IQueue<IEvent> queue = null;
+			public void setUp(){
+				queue = new EventQueue();
+				for(int f=0;f<size;f++){
+					IEvent.Cmd cmd = f%2 == 0 ? IEvent.Cmd.DEP : IEvent.Cmd.ARR;
+					queue.add(f%3 == 0 ?
+						new TaxiwayEvent(taxiways[aprts[f]],flights[f],cmd,times[f]) :
+						new RunwayEvent(runways[aprts[f]],flights[f],cmd,times[f]));
+				}
+			}
+			public long run(){
+				new HoldEvent(IEvent.Type.RUNWAY,runways[0],IEvent.Cmd.HOLD_DEP,
+					IFlight.Param.CALC_OFF_TIME,timeStart,timeHold).
+					processEvent(queue);
+				return 1;
+			}
+		};
+	}
+
+	/**
+	 * A synthetic day of flights through the simulation, made by the
+	 * {@link ScenarioGenerator} with its default airports.  The properties
+	 * files are written to a temp directory, which is deleted on exit.
+	 * Each repetition initializes the simulation again, which is not timed,
+	 * and runs it.
+	 * @param nFlights Number of flights.
+	 * @return the benchmark, whose operations are the events processed.
+	 * @throws IOException if the files can't be written.
+	 */
+	public static Bench benchDay(int nFlights) throws IOException {
+		File dir = File.createTempFile("engineBenchmark","");
+		if(!dir.delete() || !dir.mkdir()){
+			throw new IOException(className + ": can't create " + dir);
+		}
+		dir.deleteOnExit();
+		final NasSimEventDriven sim = new NasSimEventDriven(
+			writeDay(dir,nFlights,SEED,null));
+		return new Bench(){
+			public void setUp(){
+				sim.initialize();
+			}
+			public long run(){
+				sim.run();
+				return sim.getNumEvents();
+			}
+		};
+	}
+
+	/**
+	 * Writes the properties files of a synthetic day made by the
+	 * {@link ScenarioGenerator} with its default airports, and marks them
+	 * to be deleted on exit.  The output of the sim goes to the same
+	 * directory.
+	 * @param dir Directory of the files.
+	 * @param nFlights Number of flights.
+	 * @param seed Seed of the scenario.
+	 * @param simProps Properties of the sim to add, e.g., to turn on an
+	 *   output; may be <code>null</code>.
+	 * @return the sim properties file.
+	 * @throws IOException if the files can't be written.
+	 */
+	public static File writeDay(File dir, int nFlights, long seed,
+		Properties simProps) throws IOException {
+		String[] names = {"scenario.properties","nassim.properties",
+			"logging.properties","nassim.log"};
+		File[] files = new File[names.length];
+		for(int i=0;i<names.length;i++){
+			files[i] = new File(dir,names[i]);
+			files[i].deleteOnExit();
+		}
+		new File(dir,names[3] + ".lck").deleteOnExit();
+
+		PrintWriter pw = new PrintWriter(files[0]);
+		pw.println("baseDay=20080710");
+		pw.println("numFlights=" + nFlights);
+		pw.println("seed=" + seed);
+		pw.close();
+		pw = new PrintWriter(files[1]);
+		pw.println("baseDir=" + dir.getPath().replace('\\','/'));
+		pw.println("subDir=.");
+		pw.println("baseDay=20080710");
+		pw.println("bridgeType=synthetic");
+		pw.println("bridgePropsFile=" + names[0]);
+		pw.println("outputDir=.");
+		pw.println("flightOutputFilePrefix=flights");
+		pw.println("flightOutputFileSuffix=.txt");
+		pw.println("loggingPropsFile=" + names[2]);
+		pw.println("logFileName=" + names[3]);
+		if(simProps != null){
+			for(Map.Entry<Object,Object> e : simProps.entrySet()){
+				pw.println(e.getKey() + "=" + e.getValue());
+			}
+		}
+		pw.close();
+		// Per event logging is part of the run, but at info it is not
+		// written.
+		pw = new PrintWriter(files[2]);
+		pw.println("handlers=");
+		pw.println(".level=WARNING");
+		pw.close();
+		return files[1];
+	}
+}
@@ -0,0 +1,248 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Replays an event log written by an {@link EventLogWriter}, giving each
+ * record to {@link IEventLogListener}s.  The reader keeps the params of
+ * every flight as of the record being replayed, so a listener can ask for
+ * any of them, not just those written by the event.  Replaying only
+ * decodes the log, so it is much faster than running the sim again.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class EventLogReader
+{
+	/**
+	 * A record of the log.  The same object is given for each record, so
+	 * listeners should copy what they want to keep.
+	 */
+	public static class Record {
+		private int time, node, flight;
+		private IEvent.Type type;
+		private IEvent.Cmd cmd;
+		private int numWrites = 0;
+		private int[] writes = new int[3*16];
+
+		/**
+		 * @return Time of the event.  Units: seconds
+		 */
+		public int getTime(){return time;}
+		/**
+		 * @return Type of the event; <code>null</code> if it had none.
+		 */
+		public IEvent.Type getType(){return type;}
+		/**
+		 * @return Message of the event; <code>null</code> if it had none.
+		 */
+		public IEvent.Cmd getMessage(){return cmd;}
+		/**
+		 * @return Index of the node of the event; -1 if none.
+		 */
+		public int getNode(){return node;}
+		/**
+		 * @return Index of the flight of the event; -1 if none, as for a
+		 *   hold event.
+		 */
+		public int getFlight(){return flight;}
+		/**
+		 * @return Number of param writes of the event.
+		 */
+		public int getNumWrites(){return numWrites;}
+		/**
+		 * @param w Write, in the order made.
+		 * @return Index of the flight written.
+		 */
+		public int getWriteFlight(int w){return writes[3*w];}
+		/**
+		 * @param w Write, in the order made.
+		 * @return Param written.
+		 */
+		public IFlight.Param getWriteParam(int w){return params[writes[3*w+1]];}
+		/**
+		 * @param w Write, in the order made.
+		 * @return Value written.
+		 */
+		public int getWriteValue(int w){return writes[3*w+2];}
+	}
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "EventLogReader";
+
+	private static final IEvent.Type[] types = IEvent.Type.values();
+	private static final IEvent.Cmd[] cmds = IEvent.Cmd.values();
+	private static final IFlight.Param[] params = IFlight.Param.values();
+
+	private final InputStream in;
+	private final byte[] buf = new byte[64*1024];
+	private int pos = 0, end = 0;
+
+	private final int numNodes, numFlights;
+	/** Params of the flights, by flight and then param. */
+	private final int[] values;
+	private boolean replayed = false;
+
+	/**
+	 * Constructor.  Opens the log and reads its header.
+	 * @param fileNPath Log file and path.
+	 * @throws IOException if the file can't be read or is not an event log
+	 *   of this version of the sim.
+	 */
+	public EventLogReader(File fileNPath) throws IOException {
+		final String method = className + ".EventLogReader()";
+		in = new FileInputStream(fileNPath);
+		try{
+			if(readInt() != EventLogWriter.MAGIC){
+				throw new IOException(method + ": " + fileNPath +
+					" is not an event log.");
+			}
+			int version = readInt();
+			if(version != EventLogWriter.VERSION){
+				throw new IOException(method + ": " + fileNPath + " has " +
+					"version " + version + ", not " + EventLogWriter.VERSION + ".");
+			}
+			if(readVarint() != types.length || readVarint() != cmds.length ||
+				readVarint() != params.length){
+				throw new IOException(method + ": " + fileNPath + " has " +
+					"different event types, messages or params.");
+			}
+			numNodes = readVarint();
+			numFlights = readVarint();
+			values = new int[numFlights*params.length];
+			for(int i=0;i<values.length;i++)values[i] = readZigzag();
+		}catch(IOException ioe){
+			in.close();
+			throw ioe;
+		}
+	}
+
+	private int readByte() throws IOException {
+		if(pos == end){
+			end = in.read(buf);
+			pos = 0;
+			if(end <= 0){
+				end = 0;
+				throw new EOFException(className + ": log ends early.");
+			}
+		}
+		return buf[pos++] & 0xFF;
+	}
+
+	private int readInt() throws IOException {
+		int v = 0;
+		for(int k=0;k<4;k++)v = (v << 8) | readByte();
+		return v;
+	}
+
+	private int readVarint() throws IOException {
+		int v = 0;
+		for(int s=0;;s+=7){
+			int b = readByte();
+			v |= (b & 0x7F) << s;
+			if((b & 0x80) == 0)return v;
+		}
+	}
+
+	private long readVarlong() throws IOException {
+		long v = 0;
+		for(int s=0;;s+=7){
+			int b = readByte();
+			v |= (long)(b & 0x7F) << s;
+			if((b & 0x80) == 0)return v;
+		}
+	}
+
+	private int readZigzag() throws IOException {
+		int v = readVarint();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/**
+	 * @return Number of nodes of the sim.
+	 */
+	public int getNumNodes(){return numNodes;}
+	/**
+	 * @return Number of flights of the sim.
+	 */
+	public int getNumFlights(){return numFlights;}
+
+	/**
+	 * Gets a param of a flight, as of the record being replayed, after its
+	 * writes, or as of the start of the run if replay hasn't started.
+	 * @param flight Index of the flight.
+	 * @param p Param.
+	 * @return the value.
+	 */
+	public int getParam(int flight, IFlight.Param p){
+		return values[flight*params.length + p.ordinal()];
+	}
+
+	/**
+	 * Replays the log, giving each record to the listeners in turn, and
+	 * closes it.  A log can be replayed once.
+	 * @param listeners Listeners.
+	 * @return Number of records.
+	 * @throws IOException if the log can't be read or is cut short.
+	 */
+	public long replay(IEventLogListener... listeners) throws IOException {
+		final String method = className + ".replay()";
+		if(replayed){
+			throw new IllegalStateException(method + ": log has already " +
+				"been replayed.");
+		}
+		replayed = true;
+		Record r = new Record();
+		long n = 0;
+		int time = 0, flight = -1;
+		try{
+			for(int tag;(tag = readByte()) != EventLogWriter.END;n++){
+				int t = tag >> 3, c = tag & 7;
+				if(t != EventLogWriter.NONE && t >= types.length ||
+					c != EventLogWriter.NONE && c >= cmds.length){
+					throw new IOException(method + ": bad record " + n + ".");
+				}
+				r.type = t == EventLogWriter.NONE ? null : types[t];
+				r.cmd = c == EventLogWriter.NONE ? null : cmds[c];
+				time += readZigzag();
+				r.time = time;
+				r.node = readVarint() - 1;
+				flight += readZigzag();
+				r.flight = flight;
+				r.numWrites = readVarint();
+				if(3*r.numWrites > r.writes.length){
+					r.writes = Arrays.copyOf(r.writes,
+						Math.max(3*r.numWrites,2*r.writes.length));
+				}
+				for(int w=0;w<r.numWrites;w++){
+					int f = flight + readZigzag();
+					int p = readVarint();
+					if(f < 0 || f >= numFlights || p >= params.length){
+						throw new IOException(method + ": bad write in " +
+							"record " + n + ".");
+					}
+					int k = f*params.length + p;
+					values[k] += readZigzag();
+					r.writes[3*w] = f;
+					r.writes[3*w+1] = p;
+					r.writes[3*w+2] = values[k];
+				}
+				for(IEventLogListener l : listeners)l.eventLogged(r,this);
+			}
+			long count = readVarlong();
+			if(count != n){
+				throw new IOException(method + ": log has " + n +
+					" records, not " + count + ".");
+			}
+		}finally{
+			in.close();
+		}
+		return n;
+	}
+}
@@ -0,0 +1,277 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the EventLogWriter and EventLogReader classes.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class EventLogTest
+{
+	private static final IFlight.Param[] params = IFlight.Param.values();
+
+	/**
+	 * Event that writes params of some flights when processed, as a
+	 * runway event writes those of the top of its queue.
+	 */
+	private static class WritingEvent extends DummyEvent {
+		final IEvent.Type type;
+		final IFlight[] written;
+		final IFlight.Param[] ps;
+		final int[] values;
+
+		WritingEvent(INode node, IFlight flight, IEvent.Type type,
+			IEvent.Cmd cmd, int time, IFlight[] written, IFlight.Param[] ps,
+			int[] values){
+			super(node,flight,cmd,time);
+			this.type = type;
+			this.written = written;
+			this.ps = ps;
+			this.values = values;
+		}
+
+		public IEvent.Type getType(){return type;}
+
+		public void processEvent(IQueue<IEvent> mainQueue){
+			for(int w=0;w<written.length;w++)written[w].set(ps[w],values[w]);
+		}
+	}
+
+	private File file = null;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("eventLog",EventLogWriter.SUFFIX);
+	}
+
+	@After
+	public void tearDown(){
+		file.delete();
+	}
+
+	/**
+	 * Test that a replayed log gives the events and writes of the run,
+	 * and the params of the flights as of each event.
+	 */
+	@Test
+	public void testWriteNReplay() throws IOException {
+		Random rand = new Random(3L);
+		IFlight[] flights = new IFlight[50];
+		for(int f=0;f<flights.length;f++){
+			int[] ps = new int[params.length];
+			for(int p=0;p<ps.length;p++)ps[p] = rand.nextInt(100000) - 100;
+			flights[f] = new Flight(ps);
+		}
+		INode[] nodes = new INode[7];
+		for(int n=0;n<nodes.length;n++)nodes[n] = new DummyNode();
+		ISimElements se = new SimElements("20080710","20080710",flights,nodes);
+		final int[][] initial = new int[flights.length][params.length];
+		for(int f=0;f<flights.length;f++){
+			for(int p=0;p<params.length;p++)initial[f][p] = flights[f].get(params[p]);
+		}
+
+		EventLogWriter writer = new EventLogWriter(file,se);
+		final List<WritingEvent> events = new ArrayList<WritingEvent>();
+		final List<int[]> flightIndices = new ArrayList<int[]>();
+		int time = 28800;
+		for(int i=0;i<2000;i++){
+			// Mostly later, sometimes earlier.
+			time += rand.nextInt(120) - 10;
+			int node = rand.nextInt(nodes.length + 1) - 1;
+			int flight = rand.nextInt(flights.length + 1) - 1;
+			int nTypes = IEvent.Type.values().length;
+			int type = rand.nextInt(nTypes + 1) - 1;
+			int nWrites = rand.nextInt(4);
+			IFlight[] written = new IFlight[nWrites];
+			int[] indices = new int[nWrites];
+			IFlight.Param[] ps = new IFlight.Param[nWrites];
+			int[] values = new int[nWrites];
+			for(int w=0;w<nWrites;w++){
+				indices[w] = w == 0 && flight >= 0 ? flight :
+					rand.nextInt(flights.length);
+				written[w] = flights[indices[w]];
+				ps[w] = params[rand.nextInt(params.length)];
+				values[w] = w == 2 ? Integer.MIN_VALUE + rand.nextInt(10) :
+					time + rand.nextInt(7200) - 600;
+			}
+			WritingEvent e = new WritingEvent(node < 0 ? null : nodes[node],
+				flight < 0 ? null : flights[flight],
+				type < 0 ? null : IEvent.Type.values()[type],
+				IEvent.Cmd.values()[rand.nextInt(IEvent.Cmd.values().length)],
+				time,written,ps,values);
+			events.add(e);
+			flightIndices.add(indices);
+			writer.startEvent(e);
+			e.processEvent(null);
+			writer.endEvent();
+		}
+		assertTrue(writer.getNumRecords() == events.size());
+		writer.close();
+		// Not logged once closed, and the flights let go of the writer.
+		flights[0].set(IFlight.Param.ACT_IN_TIME,1);
+		for(IFlight f : flights)assertTrue(((Flight)f).getEventLog() == null);
+		assertTrue(file.length() < 16L*events.size() +
+			4L*flights.length*params.length);
+
+		final List<INode> nodeList = Arrays.asList(nodes);
+		final List<IFlight> flightList = Arrays.asList(flights);
+		final int[] count = {0};
+		final int[][] state = new int[flights.length][];
+		for(int f=0;f<flights.length;f++)state[f] = initial[f].clone();
+		EventLogReader reader = new EventLogReader(file);
+		assertTrue(reader.getNumNodes() == nodes.length);
+		assertTrue(reader.getNumFlights() == flights.length);
+		for(int f=0;f<flights.length;f++){
+			for(int p=0;p<params.length;p++){
+				assertTrue(reader.getParam(f,params[p]) == initial[f][p]);
+			}
+		}
+		long n = reader.replay(new IEventLogListener(){
+			public void eventLogged(EventLogReader.Record r,
+				EventLogReader rd){
+				WritingEvent e = events.get(count[0]);
+				int[] indices = flightIndices.get(count[0]);
+				count[0]++;
+				assertTrue(r.getTime() == e.getTime());
+				assertTrue(r.getType() == e.getType());
+				assertTrue(r.getMessage() == e.getMessage());
+				assertTrue(r.getNode() == nodeList.indexOf(e.getNode()));
+				assertTrue(r.getFlight() == flightList.indexOf(e.getFlight()));
+				assertTrue(r.getNumWrites() == indices.length);
+				for(int w=0;w<indices.length;w++){
+					assertTrue(r.getWriteFlight(w) == indices[w]);
+					assertTrue(r.getWriteParam(w) == e.ps[w]);
+					assertTrue(r.getWriteValue(w) == e.values[w]);
+					state[indices[w]][e.ps[w].ordinal()] = e.values[w];
+				}
+				for(int f : indices){
+					for(int p=0;p<params.length;p++){
+						assertTrue(rd.getParam(f,params[p]) == state[f][p]);
+					}
+				}
+			}
+		});
+		assertTrue(n == events.size() && count[0] == events.size());
+		for(int f=1;f<flights.length;f++){
+			for(int p=0;p<params.length;p++){
+				assertTrue(reader.getParam(f,params[p]) ==
+					flights[f].get(params[p]));
+			}
+		}
+
+		boolean thrown = false;
+		try{
+			reader.replay();
+		}catch(IllegalStateException ise){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * Test that a writer whose header can't be written, as on a full disk,
+	 * is closed and leaves the flights untold of it.
+	 */
+	@Test
+	public void testFailedHeader(){
+		File full = new File("/dev/full");
+		if(!full.exists()){
+			System.err.println("EventLogTest: no /dev/full, skipped.");
+			return;
+		}
+		// Header bigger than the buffer, so some of it is flushed.
+		IFlight[] flights = new IFlight[2000];
+		for(int f=0;f<flights.length;f++){
+			int[] ps = new int[params.length];
+			Arrays.fill(ps,1000000 + f);
+			flights[f] = new Flight(ps);
+		}
+		ISimElements se = new SimElements("20080710","20080710",flights,
+			new INode[]{new DummyNode()});
+		boolean thrown = false;
+		try{
+			new EventLogWriter(full,se);
+		}catch(IOException ioe){
+			thrown = true;
+		}
+		assertTrue(thrown);
+		for(IFlight f : flights){
+			assertTrue(((Flight)f).getEventLog() == null);
+			assertTrue(((Flight)f).getEventLogIndex() == -1);
+		}
+		flights[0].set(IFlight.Param.ACT_IN_TIME,1);
+		assertTrue(flights[0].get(IFlight.Param.ACT_IN_TIME) == 1);
+	}
+
+	/**
+	 * Test that a log cut short, or a file that is not a log, can't be
+	 * read.
+	 */
+	@Test
+	public void testBadLogs() throws IOException {
+		IFlight[] flights = {new Flight(new int[params.length])};
+		INode[] nodes = {new DummyNode()};
+		ISimElements se = new SimElements("20080710","20080710",flights,nodes);
+		EventLogWriter writer = new EventLogWriter(file,se);
+		for(int i=0;i<10;i++){
+			writer.startEvent(new DummyEvent(nodes[0],flights[0],
+				IEvent.Cmd.DEP,i));
+			flights[0].set(IFlight.Param.ACT_OFF_TIME,i);
+			writer.endEvent();
+		}
+		writer.close();
+		assertTrue(new EventLogReader(file).replay() == 10);
+
+		// Cut short.
+		byte[] b = new byte[(int)file.length()];
+		FileInputStream fis = new FileInputStream(file);
+		assertTrue(fis.read(b) == b.length);
+		fis.close();
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(b,0,b.length - 5);
+		fos.close();
+		boolean thrown = false;
+		try{
+			new EventLogReader(file).replay();
+		}catch(IOException ioe){
+			thrown = true;
+		}
+		assertTrue(thrown);
+
+		// Not a log.
+		fos = new FileOutputStream(file);
+		fos.write(new byte[]{1,2,3,4,5,6,7,8});
+		fos.close();
+		thrown = false;
+		try{
+			new EventLogReader(file);
+		}catch(IOException ioe){
+			thrown = true;
+		}
+		assertTrue(thrown);
+
+		// No event started.
+		writer = new EventLogWriter(file,se);
+		thrown = false;
+		try{
+			writer.endEvent();
+		}catch(IllegalStateException ise){
+			thrown = true;
+		}
+		assertTrue(thrown);
+		writer.close();
+	}
+}
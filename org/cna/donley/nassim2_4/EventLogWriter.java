@@ -0,0 +1,257 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes a compact binary log of the events of a sim run, from which
+ * metrics such as queue lengths or runway use can be computed after the
+ * run by an {@link EventLogReader}, without running the sim again.
+ * <p>
+ * Each record is an event: its time, type, message, node and flight, and
+ * the flight params written while it was processed, which may be of other
+ * flights, such as the top of a runway queue or the next leg.  Writes are
+ * seen by the {@link Flight} objects, which tell the writer of each.  The
+ * initial params of all the flights are in the header, so a reader can
+ * follow the params of every flight through the run.
+ * <p>
+ * Numbers are varints, seven bits to a byte with the high bit set on all
+ * but the last, and signed ones are zigzag encoded.  Times are deltas from
+ * the last record, flights deltas from the last record's or event's
+ * flight, and param values deltas from their old values.  Nodes and
+ * flights are indices in the arrays of the {@link ISimElements}, -1 for
+ * none.  The layout is:
+ * <pre>
+ *   int MAGIC, int VERSION (big endian)
+ *   varint numbers of event types, messages, params, nodes and flights
+ *   for each flight, for each param: zigzag initial value
+ *   for each record:
+ *     byte type*8 + message (7 for none), zigzag time delta,
+ *     varint node + 1, zigzag flight delta, varint number of writes,
+ *     for each write: zigzag flight delta from the event's flight,
+ *       varint param, zigzag value delta
+ *   byte END, varint number of records
+ * </pre>
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class EventLogWriter
+{
+	/**
+	 * Magic number at the start of an event log, "NSEL".
+	 */
+	public static final int MAGIC = 0x4E53454C;
+
+	/**
+	 * Version of the layout.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Suffix of event log files.
+	 */
+	public static final String SUFFIX = ".evl";
+
+	/**
+	 * Type or message of an event that has none.
+	 */
+	static final int NONE = 7;
+
+	/**
+	 * Marks the end of the records.
+	 */
+	static final int END = 0xFF;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "EventLogWriter";
+
+	private static final int BUFFER_SIZE = 64*1024;
+
+	private final OutputStream out;
+	private final ISimElements simElements;
+	private final byte[] buf = new byte[BUFFER_SIZE];
+	private int pos = 0;
+	private final Map<INode,Integer> nodes = new IdentityHashMap<INode,Integer>();
+
+	private IEvent event = null;
+	private int lastTime = 0, lastFlight = -1;
+	private long numRecords = 0;
+
+	/** Param writes of the event, by flight, param and value delta. */
+	private int numWrites = 0;
+	private int[] writes = new int[3*16];
+
+	private boolean closed = false;
+
+	/**
+	 * Constructor.  Writes the header and then has the flights tell the
+	 * writer of their param writes.  Should be called before the run, once
+	 * the flights have been created.
+	 * @param fileNPath Output file and path.
+	 * @param simElements Flights and nodes of the sim.
+	 * @throws IOException if the file can't be written, in which case the
+	 *   file is closed and no flight tells the writer of its writes.
+	 */
+	public EventLogWriter(File fileNPath, ISimElements simElements)
+		throws IOException {
+		this.simElements = simElements;
+		out = new FileOutputStream(fileNPath);
+		try{
+			INode[] ns = simElements.getNodes();
+			for(int i=0;i<ns.length;i++)nodes.put(ns[i],i);
+			IFlight[] flights = simElements.getFlights();
+			IFlight.Param[] params = IFlight.Param.values();
+			writeInt(MAGIC);
+			writeInt(VERSION);
+			writeVarint(IEvent.Type.values().length);
+			writeVarint(IEvent.Cmd.values().length);
+			writeVarint(params.length);
+			writeVarint(ns.length);
+			writeVarint(flights.length);
+			for(int f=0;f<flights.length;f++){
+				for(IFlight.Param p : params)writeZigzag(flights[f].get(p));
+			}
+		}catch(IOException ioe){
+			closed = true;
+			out.close();
+			throw ioe;
+		}
+		IFlight[] flights = simElements.getFlights();
+		for(int f=0;f<flights.length;f++){
+			if(flights[f] instanceof Flight){
+				((Flight)flights[f]).setEventLog(this,f);
+			}
+		}
+	}
+
+	private void flush() throws IOException {
+		out.write(buf,0,pos);
+		pos = 0;
+	}
+
+	private void writeByte(int b) throws IOException {
+		if(pos == buf.length)flush();
+		buf[pos++] = (byte)b;
+	}
+
+	private void writeInt(int v) throws IOException {
+		for(int s=24;s>=0;s-=8)writeByte(v >>> s);
+	}
+
+	private void writeVarint(int v) throws IOException {
+		while((v & ~0x7F) != 0){
+			writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		writeByte(v);
+	}
+
+	private void writeZigzag(int v) throws IOException {
+		writeVarint((v << 1) ^ (v >> 31));
+	}
+
+	/**
+	 * Called by a {@link Flight} when a param is written.
+	 * @param index Index of the flight.
+	 * @param p Param.
+	 * @param oldValue Value before the write.
+	 * @param value Value written.
+	 */
+	void paramWritten(int index, IFlight.Param p, int oldValue, int value){
+		if(closed)return;
+		if(3*numWrites == writes.length){
+			writes = Arrays.copyOf(writes,2*writes.length);
+		}
+		writes[3*numWrites] = index;
+		writes[3*numWrites+1] = p.ordinal();
+		writes[3*numWrites+2] = value - oldValue;
+		numWrites++;
+	}
+
+	/**
+	 * Index of a flight in the log.
+	 */
+	private static int index(IFlight f){
+		return f instanceof Flight ? ((Flight)f).getEventLogIndex() : -1;
+	}
+
+	/**
+	 * Starts the record of an event, before it is processed.
+	 * @param e The event.
+	 */
+	public void startEvent(IEvent e){
+		event = e;
+	}
+
+	/**
+	 * Writes the record of the event, once it has been processed.
+	 * @throws IOException if it can't be written.
+	 */
+	public void endEvent() throws IOException {
+		if(event == null){
+			final String method = className + ".endEvent()";
+			throw new IllegalStateException(method + ": no event was started.");
+		}
+		IEvent.Type type = event.getType();
+		IEvent.Cmd cmd = event.getMessage();
+		writeByte(8*(type == null ? NONE : type.ordinal()) +
+			(cmd == null ? NONE : cmd.ordinal()));
+		writeZigzag(event.getTime() - lastTime);
+		lastTime = event.getTime();
+		Integer node = event.getNode() == null ? null : nodes.get(event.getNode());
+		writeVarint(node == null ? 0 : node + 1);
+		int flight = index(event.getFlight());
+		writeZigzag(flight - lastFlight);
+		lastFlight = flight;
+		writeVarint(numWrites);
+		for(int w=0;w<numWrites;w++){
+			writeZigzag(writes[3*w] - flight);
+			writeVarint(writes[3*w+1]);
+			writeZigzag(writes[3*w+2]);
+		}
+		numWrites = 0;
+		numRecords++;
+		event = null;
+	}
+
+	/**
+	 * @return Number of records written.
+	 */
+	public long getNumRecords(){return numRecords;}
+
+	/**
+	 * Writes the end of the log and closes the file.  The flights still
+	 * held by the {@link ISimElements} no longer tell the writer of their
+	 * param writes, so they don't keep it and its buffer; those released
+	 * while streaming the output are no longer held by the sim.
+	 * @throws IOException if it can't be written.
+	 */
+	public void close() throws IOException {
+		if(closed)return;
+		closed = true;
+		for(IFlight f : simElements.getFlights()){
+			if(f instanceof Flight && ((Flight)f).getEventLog() == this){
+				((Flight)f).setEventLog(null,((Flight)f).getEventLogIndex());
+			}
+		}
+		try{
+			writeByte(END);
+			long n = numRecords;
+			while((n & ~0x7FL) != 0){
+				writeByte((int)(n & 0x7F) | 0x80);
+				n >>>= 7;
+			}
+			writeByte((int)n);
+			flush();
+		}finally{
+			out.close();
+		}
+	}
+}
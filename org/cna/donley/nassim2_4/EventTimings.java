@@ -0,0 +1,129 @@
+package org.cna.donley.nassim2_4;
+
+import java.util.Formatter;
+
+/**
+ * Times of the events of a run, in a {@link LatencyHistogram} for each
+ * {@link IEvent.Type} and {@link IEvent.Cmd}, e.g., runway departures or
+ * the holds of {@link HoldEvent}, and one for the polls of the main queue.
+ * The report tells whether the runway capacity math, the hold extraction
+ * or the queue operations take the time of a scenario.  Used by
+ * {@link NasSimEventDriven#run()} if the "timeEvents" property is
+ * <code>true</code>.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class EventTimings
+{
+	private static final IEvent.Type[] types = IEvent.Type.values();
+	private static final IEvent.Cmd[] cmds = IEvent.Cmd.values();
+
+	/** Histograms of the processing of the events, by type and cmd. */
+	private final LatencyHistogram[][] process =
+		new LatencyHistogram[types.length][cmds.length];
+
+	/** Histogram of the polls of the main queue. */
+	private final LatencyHistogram poll = new LatencyHistogram();
+
+	/**
+	 * Constructor.
+	 */
+	public EventTimings(){
+		for(int t=0;t<types.length;t++){
+			for(int c=0;c<cmds.length;c++)process[t][c] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Records the processing of an event.
+	 * @param event Event.
+	 * @param nanos Time of {@link IEvent#processEvent(IQueue)}.  Units:
+	 *   nanoseconds
+	 */
+	public void recordProcess(IEvent event, long nanos){
+		IEvent.Cmd cmd = event.getMessage();
+		if(cmd == null)cmd = IEvent.Cmd.BOGUS;
+		process[event.getType().ordinal()][cmd.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Records a poll of the main queue.
+	 * @param nanos Time of the poll.  Units: nanoseconds
+	 */
+	public void recordPoll(long nanos){
+		poll.record(nanos);
+	}
+
+	/**
+	 * @param type Type of event.
+	 * @param cmd Message of the event.
+	 * @return Histogram of the processing of the events.
+	 */
+	public LatencyHistogram getHistogram(IEvent.Type type, IEvent.Cmd cmd){
+		return process[type.ordinal()][cmd.ordinal()];
+	}
+
+	/**
+	 * @param type Type of event.
+	 * @return Histogram of the processing of the events of all messages.
+	 */
+	public LatencyHistogram getHistogram(IEvent.Type type){
+		LatencyHistogram h = new LatencyHistogram();
+		for(LatencyHistogram hc : process[type.ordinal()])h.merge(hc);
+		return h;
+	}
+
+	/**
+	 * @return Histogram of the polls of the main queue.
+	 */
+	public LatencyHistogram getPollHistogram(){return poll;}
+
+	/**
+	 * @return Number of events processed.
+	 */
+	public long getNumEvents(){
+		long n = 0;
+		for(LatencyHistogram[] ht : process){
+			for(LatencyHistogram h : ht)n += h.getCount();
+		}
+		return n;
+	}
+
+	/**
+	 * Reports the count, p50, p99, p99.9 and max of each type and message
+	 * of event with any, and of each type, with its share of the time of
+	 * processing the events, then the same for the polls of the main queue,
+	 * whose share is of the total.  Times are in microseconds, except the
+	 * totals, which are in milliseconds.
+	 * @return the report, one line per row.
+	 */
+	public String report(){
+		long processTotal = 0;
+		for(LatencyHistogram[] ht : process){
+			for(LatencyHistogram h : ht)processTotal += h.getTotal();
+		}
+		Formatter f = new Formatter();
+		f.format("%-8s %-8s %10s %9s %9s %9s %9s %10s %6s%n","type","cmd",
+			"count","p50 us","p99 us","p99.9 us","max us","total ms","share");
+		for(IEvent.Type type : types){
+			int nCmds = 0;
+			for(IEvent.Cmd cmd : cmds){
+				LatencyHistogram h = getHistogram(type,cmd);
+				if(h.getCount() == 0)continue;
+				row(f,type.toString(),cmd.toString(),h,processTotal);
+				nCmds++;
+			}
+			if(nCmds > 1)row(f,type.toString(),"all",getHistogram(type),processTotal);
+		}
+		row(f,"queue","poll",poll,processTotal + poll.getTotal());
+		return f.toString();
+	}
+
+	private static void row(Formatter f, String type, String cmd,
+		LatencyHistogram h, long total){
+		f.format("%-8s %-8s %10d %9.2f %9.2f %9.2f %9.2f %10.1f %5.1f%%%n",
+			type,cmd,h.getCount(),h.getQuantile(0.5)/1.e3,h.getQuantile(0.99)/1.e3,
+			h.getQuantile(0.999)/1.e3,h.getMax()/1.e3,h.getTotal()/1.e6,
+			total > 0 ? 100.*h.getTotal()/total : 0.);
+	}
+}
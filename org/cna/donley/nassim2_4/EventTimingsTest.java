@@ -0,0 +1,109 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of the event timings of a run and their histograms.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class EventTimingsTest
+{
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+	}
+
+	/**
+	 * Test that the quantiles of a histogram are within its accuracy, and
+	 * the count, total and max exact.
+	 */
+	@Test
+	public void testHistogram(){
+		LatencyHistogram h = new LatencyHistogram();
+		assertTrue(h.getQuantile(0.5) == 0 && h.getCount() == 0);
+		Random rand = new Random(11L);
+		long[] values = new long[100000];
+		long total = 0;
+		for(int i=0;i<values.length;i++){
+			// Log uniform over 10 ns to 10 ms.
+			values[i] = (long)Math.exp(Math.log(10.) + rand.nextDouble()*Math.log(1.e6));
+			h.record(values[i]);
+			total += values[i];
+		}
+		h.record(-5);
+		values = Arrays.copyOf(values,values.length + 1);
+		Arrays.sort(values);
+		assertTrue(h.getCount() == values.length);
+		assertTrue(h.getTotal() == total);
+		assertTrue(h.getMax() == values[values.length-1]);
+		for(double q : new double[]{0.,0.01,0.5,0.9,0.99,0.999,1.}){
+			long exact = values[(int)Math.max(0,Math.ceil(q*values.length) - 1)];
+			long est = h.getQuantile(q);
+			assertTrue(Math.abs(est - exact) <=
+				exact/LatencyHistogram.SUB_BUCKETS + 1);
+		}
+		// Small values are exact.
+		LatencyHistogram s = new LatencyHistogram();
+		for(int i=0;i<10;i++)s.record(i);
+		assertTrue(s.getQuantile(0.5) == 4);
+		s.merge(h);
+		assertTrue(s.getCount() == h.getCount() + 10);
+		assertTrue(s.getMax() == h.getMax());
+		boolean thrown = false;
+		try{
+			h.getQuantile(1.5);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * Test that a timed run times every event and poll, by type and
+	 * message, and reports them.
+	 */
+	@Test
+	public void testRun() throws IOException {
+		File dir = File.createTempFile("eventTimings","");
+		assertTrue(dir.delete() && dir.mkdir());
+		try{
+			Properties p = new Properties();
+			p.setProperty("timeEvents","true");
+			NasSimEventDriven sim = new NasSimEventDriven(
+				EngineBenchmark.writeDay(dir,2000,3L,p));
+			sim.initialize();
+			sim.run();
+			EventTimings t = sim.getEventTimings();
+			assertTrue(t.getNumEvents() == sim.getNumEvents());
+			assertTrue(t.getPollHistogram().getCount() == sim.getNumEvents());
+			for(IEvent.Type type : new IEvent.Type[]{IEvent.Type.TERMINAL,
+				IEvent.Type.TAXIWAY,IEvent.Type.RUNWAY,IEvent.Type.FIX}){
+				for(IEvent.Cmd cmd : new IEvent.Cmd[]{IEvent.Cmd.DEP,IEvent.Cmd.ARR}){
+					LatencyHistogram h = t.getHistogram(type,cmd);
+					assertTrue(h.getCount() > 0);
+					assertTrue(h.getQuantile(0.5) <= h.getQuantile(0.99));
+					assertTrue(h.getQuantile(0.999) <= h.getMax());
+				}
+				assertTrue(t.getHistogram(type).getCount() ==
+					t.getHistogram(type,IEvent.Cmd.DEP).getCount() +
+					t.getHistogram(type,IEvent.Cmd.ARR).getCount());
+			}
+			String report = t.report();
+			assertTrue(report.startsWith("type"));
+			assertTrue(report.contains("RUNWAY   DEP"));
+			assertTrue(report.contains("queue    poll"));
+		}finally{
+			for(File f : dir.listFiles())f.delete();
+			dir.delete();
+		}
+	}
+}
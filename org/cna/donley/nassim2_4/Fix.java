@@ -36,6 +36,15 @@ public class Fix implements INode
 	 */
 	private int lastTime = 0;
 	/**
+	 * Number of planes that have traversed this fix.
+	 */
+	private int numServed = 0;
+	/**
+	 * Total time the planes that traversed this fix waited in its queue.
+	 * Units: seconds.
+	 */
+	private long totalWait = 0;
+	/**
      * Measures used to order flights in the fix queue.
      */
     private IFlight.Param measure = null;
@@ -133,7 +142,22 @@ public class Fix implements INode
     public void computeNextTime(int time){
     	lastTime = time;
     	nextTime = lastTime + minTimeSpacing;
+    	numServed++;
     }
+    /**
+     * Adds the time a plane waited in the queue before traversing this fix.
+     * @param wait Time in the queue.  Units: seconds.
+     */
+    public void addWait(int wait){totalWait += wait;}
+    /**
+     * @return Number of planes that have traversed this fix.
+     */
+    public int getNumServed(){return numServed;}
+    /**
+     * @return Total time the planes that traversed this fix waited in its
+     *   queue.  Units: seconds.
+     */
+    public long getTotalWait(){return totalWait;}
     
     //--------------------------------------------------------------------------
     // Methods for testing only
@@ -86,6 +86,7 @@ public class FixEvent implements IEvent
     			// Set fix delay and override runway off time.
 				int fixDelay = time - fTop.get(IFlight.Param.ACT_OFF_TIME);
 				fTop.set(IFlight.Param.DEP_FIX_DELAY, fixDelay);
+				node.addWait(fixDelay);
 				fTop.set(IFlight.Param.ACT_OFF_TIME, time);
 				
 				// Compute next off time for fix.
@@ -155,6 +156,7 @@ public class FixEvent implements IEvent
     			// open that is.  Compute arr fix delay.
     			int fixDelay = time - fTop.get(IFlight.Param.CALC_ON_TIME);
     			fTop.set(IFlight.Param.ARR_FIX_DELAY,fixDelay);
+    			node.addWait(fixDelay);
     			// Also set act_on_time even though it will be overridden in
     			// RunwayEvent.
     			fTop.set(IFlight.Param.ACT_ON_TIME, time);
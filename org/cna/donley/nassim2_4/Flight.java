@@ -33,6 +33,21 @@ public class Flight implements IFlight
 	 */
 	private IRoute flightRoute;
 	
+	/**
+	 * Event log told of param writes while the sim writes one;
+	 * <code>null</code> if not.
+	 */
+	private EventLogWriter eventLog = null;
+	/**
+	 * Index of the flight in the event log.
+	 */
+	private int eventLogIndex = -1;
+	/**
+	 * Index of the flight in the flights array of the {@link SimElements}
+	 * holding it; -1 if none.
+	 */
+	private int elementIndex = -1;
+	
 	
 	/** 
 	 * Private default constructor.
@@ -75,8 +90,44 @@ public class Flight implements IFlight
 	 * @param value Value of parameter.
 	 */
     public void set(Param p, int value){
+    	if(eventLog != null){
+    		eventLog.paramWritten(eventLogIndex,p,params[p.ordinal()],value);
+    	}
     	params[p.ordinal()] = value;
     }
+    
+    /**
+     * Has the flight tell an event log of its param writes.
+     * @param log The log; <code>null</code> for none.
+     * @param index Index of the flight in the log.
+     */
+    void setEventLog(EventLogWriter log, int index){
+    	eventLog = log;
+    	eventLogIndex = index;
+    }
+    
+    /**
+     * @return Event log told of param writes; <code>null</code> if none.
+     */
+    EventLogWriter getEventLog(){return eventLog;}
+    
+    /**
+     * @return Index of the flight in the event log; -1 if it has never
+     *   been in one.
+     */
+    int getEventLogIndex(){return eventLogIndex;}
+    /**
+     * @param index Index of the flight in the flights array of the
+     *   {@link SimElements} holding it.
+     */
+    void setElementIndex(int index){elementIndex = index;}
+    
+    /**
+     * @return Index of the flight in the flights array of the
+     *   {@link SimElements} holding it; -1 if none.
+     */
+    int getElementIndex(){return elementIndex;}
+    
     /**
      * Sets the flight route, which is the list of nodes the flight
      * traverses.  Includes taxiways and terminals.
@@ -0,0 +1,346 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reader of the columnar binary flight output file written by
+ * {@link FlightColumnWriter}.  The file is memory mapped and each column
+ * of a row group is a view into the mapping, so loading a day's results
+ * doesn't parse any text.
+ * <p>
+ * The file has the same fields as the comma separated flight output, see
+ * {@link Column}, each stored as an int.  The airport, carrier, equipment
+ * type and fix columns hold indices into dictionaries kept in the file,
+ * which are the {@link Nas} name arrays of the run; a missing name is -1.
+ * The layout is:
+ * <pre>
+ *   int MAGIC, int VERSION
+ *   row groups: for each column, nRows ints
+ *   footer:
+ *     int number of columns, int number of row groups
+ *     for each row group: long offset, int nRows,
+ *       for each column: int min, int max
+ *     for each dictionary: int size, then the names
+ *     base day, forecast day
+ *   long footer offset, int MAGIC
+ * </pre>
+ * Strings are an int byte length followed by UTF-8 bytes, a length of -1
+ * being <code>null</code>.  All numbers are big-endian.  The min and max
+ * of each column of a row group let a reader skip groups, for example
+ * those with no flights in a time window.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class FlightColumnFile
+{
+	/**
+	 * Dictionaries the name columns are encoded with.
+	 */
+	public enum Dictionary {AIRPORT,CARRIER,EQUIP_TYPE,DEP_FIX,ARR_FIX};
+
+	/**
+	 * Columns of the file, in the order of the fields of the comma
+	 * separated flight output.
+	 */
+	public enum Column {
+		ITIN_NUM(IFlight.Param.ITIN_NUM),LEG_NUM(IFlight.Param.LEG_NUM),
+		SCHED_ID(IFlight.Param.SCHED_ID),
+		CARRIER(IFlight.Param.CARRIER,Dictionary.CARRIER),
+		EQUIP_TYPE(IFlight.Param.EQUIP_TYPE,Dictionary.EQUIP_TYPE),
+		DEP_APRT(IFlight.Param.DEP_APRT,Dictionary.AIRPORT),
+		ARR_APRT(IFlight.Param.ARR_APRT,Dictionary.AIRPORT),
+		SCHED_OUT_TIME(IFlight.Param.SCHED_OUT_TIME),
+		ACT_OUT_TIME(IFlight.Param.ACT_OUT_TIME),
+		CALC_OFF_TIME(IFlight.Param.CALC_OFF_TIME),
+		ACT_OFF_TIME(IFlight.Param.ACT_OFF_TIME),
+		CALC_ON_TIME(IFlight.Param.CALC_ON_TIME),
+		ACT_ON_TIME(IFlight.Param.ACT_ON_TIME),
+		SCHED_IN_TIME(IFlight.Param.SCHED_IN_TIME),
+		CALC_IN_TIME(IFlight.Param.CALC_IN_TIME),
+		ACT_IN_TIME(IFlight.Param.ACT_IN_TIME),
+		ACT_AIR_TIME(IFlight.Param.ACT_AIR_TIME),
+		TURN_TIME(IFlight.Param.TURN_TIME),
+		PUSHBACK_TIME(IFlight.Param.PUSHBACK_TIME),
+		TAXI_OUT_TIME(IFlight.Param.TAXI_OUT_TIME),
+		TAXI_IN_TIME(IFlight.Param.TAXI_IN_TIME),
+		// Delays are computed from the times.
+		GATE_OUT_DELAY(null),DEP_DELAY(null),ARR_DELAY(null),
+		TAXI_IN_DELAY(null),
+		DEP_FIX(IFlight.Param.DEP_FIX,Dictionary.DEP_FIX),
+		DEP_FIX_DELAY(IFlight.Param.DEP_FIX_DELAY),
+		ARR_FIX(IFlight.Param.ARR_FIX,Dictionary.ARR_FIX),
+		ARR_FIX_DELAY(IFlight.Param.ARR_FIX_DELAY);
+
+		/** Flight parameter of the column; <code>null</code> if computed. */
+		private final IFlight.Param param;
+		/** Dictionary of a name column; <code>null</code> if not one. */
+		private final Dictionary dictionary;
+
+		private Column(IFlight.Param param){this(param,null);}
+		private Column(IFlight.Param param, Dictionary dictionary){
+			this.param = param;
+			this.dictionary = dictionary;
+		}
+
+		/**
+		 * @return the dictionary of a name column or <code>null</code> if
+		 *   the column is not a name.
+		 */
+		public Dictionary getDictionary(){return dictionary;}
+
+		/**
+		 * Gets the value of this column for a flight.
+		 * @param f Flight.
+		 * @return value.
+		 */
+		public int get(IFlight f){
+			if(param != null)return f.get(param);
+			switch(this){
+			case GATE_OUT_DELAY:
+				return f.get(IFlight.Param.ACT_OUT_TIME) -
+					f.get(IFlight.Param.SCHED_OUT_TIME);
+			case DEP_DELAY:
+				return f.get(IFlight.Param.ACT_OFF_TIME) -
+					f.get(IFlight.Param.CALC_OFF_TIME);
+			case ARR_DELAY:
+				return f.get(IFlight.Param.ACT_ON_TIME) -
+					f.get(IFlight.Param.CALC_ON_TIME);
+			default:
+				return f.get(IFlight.Param.ACT_IN_TIME) -
+					f.get(IFlight.Param.CALC_IN_TIME);
+			}
+		}
+	};
+
+	/**
+	 * First and last int of the file.
+	 */
+	public static final int MAGIC = 0x4E534346;
+
+	/**
+	 * Version of the format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Usual file suffix.
+	 */
+	public static final String SUFFIX = ".ncf";
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "FlightColumnFile";
+
+	private final MappedByteBuffer map;
+	private final long[] groupOffsets;
+	private final int[] groupRows;
+	private final int[][] groupMins, groupMaxs;
+	private final String[][] dictionaries;
+	private final String baseDay, forecastDay;
+	private final int numRows;
+
+	/**
+	 * Opens and maps a file.
+	 * @param fileNPath File and path.
+	 * @throws IOException if the file can't be read or is not a flight
+	 *   column file.
+	 */
+	public FlightColumnFile(File fileNPath) throws IOException {
+		final String method = className + ".FlightColumnFile()";
+		RandomAccessFile raf = new RandomAccessFile(fileNPath,"r");
+		try{
+			FileChannel ch = raf.getChannel();
+			long size = ch.size();
+			if(size > Integer.MAX_VALUE){
+				throw new IOException(method + ": file, " + fileNPath +
+					", is too large to map.");
+			}
+			if(size < 20){
+				throw new IOException(method + ": file, " + fileNPath +
+					", is not a flight column file.");
+			}
+			map = ch.map(FileChannel.MapMode.READ_ONLY,0,size);
+		}finally{
+			// The mapping stays valid.
+			raf.close();
+		}
+		int end = map.capacity();
+		if(map.getInt(0) != MAGIC || map.getInt(end - 4) != MAGIC){
+			throw new IOException(method + ": file, " + fileNPath +
+				", is not a flight column file.");
+		}
+		if(map.getInt(4) != VERSION){
+			throw new IOException(method + ": file, " + fileNPath +
+				", has unknown version: " + map.getInt(4));
+		}
+
+		ByteBuffer bb = map.duplicate();
+		bb.position((int)map.getLong(end - 12));
+		int nCols = bb.getInt();
+		if(nCols != Column.values().length){
+			throw new IOException(method + ": file, " + fileNPath +
+				", has " + nCols + " columns.");
+		}
+		int nGroups = bb.getInt();
+		groupOffsets = new long[nGroups];
+		groupRows = new int[nGroups];
+		groupMins = new int[nGroups][nCols];
+		groupMaxs = new int[nGroups][nCols];
+		int n = 0;
+		for(int g=0;g<nGroups;g++){
+			groupOffsets[g] = bb.getLong();
+			groupRows[g] = bb.getInt();
+			n += groupRows[g];
+			for(int c=0;c<nCols;c++){
+				groupMins[g][c] = bb.getInt();
+				groupMaxs[g][c] = bb.getInt();
+			}
+		}
+		numRows = n;
+		dictionaries = new String[Dictionary.values().length][];
+		for(int d=0;d<dictionaries.length;d++){
+			dictionaries[d] = new String[bb.getInt()];
+			for(int i=0;i<dictionaries[d].length;i++){
+				dictionaries[d][i] = getString(bb);
+			}
+		}
+		baseDay = getString(bb);
+		forecastDay = getString(bb);
+	}
+
+	/**
+	 * Checks if a file starts like a flight column file.
+	 * @param fileNPath File and path.
+	 * @return <code>true</code> if it does; <code>false</code> if not or
+	 *   if it can't be read.
+	 */
+	public static boolean isColumnFile(File fileNPath){
+		FileInputStream fis = null;
+		try{
+			fis = new FileInputStream(fileNPath);
+			byte[] b = new byte[4];
+			if(fis.read(b) != 4)return false;
+			return ByteBuffer.wrap(b).getInt() == MAGIC;
+		}catch(IOException ioe){
+			return false;
+		}finally{
+			try{
+				if(fis != null)fis.close();
+			}catch(IOException ioe){}
+		}
+	}
+
+	private static String getString(ByteBuffer bb){
+		int len = bb.getInt();
+		if(len < 0)return null;
+		byte[] b = new byte[len];
+		bb.get(b);
+		try{
+			return new String(b,"UTF-8");
+		}catch(UnsupportedEncodingException uee){
+			throw new IllegalStateException(uee);
+		}
+	}
+
+	/**
+	 * @return Total number of rows.
+	 */
+	public int getNumRows(){return numRows;}
+	/**
+	 * @return Number of row groups.
+	 */
+	public int getNumRowGroups(){return groupRows.length;}
+	/**
+	 * @param group Row group.
+	 * @return Number of rows in the group.
+	 */
+	public int getNumRows(int group){return groupRows[group];}
+	/**
+	 * @param group Row group.
+	 * @param col Column.
+	 * @return Smallest value of the column in the group.
+	 */
+	public int getMin(int group, Column col){
+		return groupMins[group][col.ordinal()];
+	}
+	/**
+	 * @param group Row group.
+	 * @param col Column.
+	 * @return Largest value of the column in the group.
+	 */
+	public int getMax(int group, Column col){
+		return groupMaxs[group][col.ordinal()];
+	}
+	/**
+	 * @return Base day of the run.
+	 */
+	public String getBaseDay(){return baseDay;}
+	/**
+	 * @return Forecast day of the run.
+	 */
+	public String getForecastDay(){return forecastDay;}
+
+	/**
+	 * Returns the column of a row group as a read-only view of the mapped
+	 * file.  Nothing is copied.
+	 * @param group Row group.
+	 * @param col Column.
+	 * @return Column values.
+	 */
+	public IntBuffer getColumn(int group, Column col){
+		ByteBuffer bb = map.duplicate();
+		int pos = (int)groupOffsets[group] + 4*groupRows[group]*col.ordinal();
+		bb.position(pos);
+		bb.limit(pos + 4*groupRows[group]);
+		return bb.slice().asIntBuffer();
+	}
+
+	/**
+	 * Reads all of a column, over all row groups.
+	 * @param col Column.
+	 * @return Column values.
+	 */
+	public int[] readColumn(Column col){
+		int[] values = new int[numRows];
+		int n = 0;
+		for(int g=0;g<groupRows.length;g++){
+			getColumn(g,col).get(values,n,groupRows[g]);
+			n += groupRows[g];
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the dictionary of a name column.
+	 * @param col Column.
+	 * @return the names, indexed by the column values.
+	 */
+	public String[] getDictionary(Column col){
+		if(col.getDictionary() == null){
+			final String method = className + ".getDictionary()";
+			throw new IllegalArgumentException(method + ": column, " + col +
+				", is not a name.");
+		}
+		return dictionaries[col.getDictionary().ordinal()];
+	}
+
+	/**
+	 * Decodes a value of a name column.
+	 * @param col Column.
+	 * @param value Column value.
+	 * @return the name; an empty string if the value is negative.
+	 */
+	public String getName(Column col, int value){
+		if(value < 0)return "";
+		return getDictionary(col)[value];
+	}
+}
@@ -0,0 +1,161 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the FlightColumnWriter and FlightColumnFile classes.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class FlightColumnFileTest
+{
+	private File outFile = null;
+
+	@Before
+	public void setUp() throws IOException {
+		Nas.destroyInstance();
+		Nas.createInstance(new String[]{"ATL","BOS","ORD"},
+			new String[]{"AAL","DAL"},new String[]{"B737","A320"},
+			new String[][]{{"DEPA","DEPB"},{"ARRA"}});
+		outFile = File.createTempFile("flightColumns", FlightColumnFile.SUFFIX);
+	}
+
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+		outFile.delete();
+	}
+
+	/**
+	 * Creates flights with random values and names, some missing.
+	 */
+	static IFlight[] createFlights(int n, long seed){
+		Random rand = new Random(seed);
+		int nPars = IFlight.Param.values().length;
+		IFlight[] flights = new IFlight[n];
+		for(int i=0;i<n;i++){
+			int[] pars = new int[nPars];
+			for(int j=0;j<nPars;j++)pars[j] = rand.nextInt(100000) - 100;
+			pars[IFlight.Param.SCHED_ID.ordinal()] = rand.nextInt(10) - 1;
+			pars[IFlight.Param.CARRIER.ordinal()] = rand.nextInt(3) - 1;
+			pars[IFlight.Param.EQUIP_TYPE.ordinal()] = rand.nextInt(3) - 1;
+			pars[IFlight.Param.DEP_APRT.ordinal()] = rand.nextInt(3);
+			pars[IFlight.Param.ARR_APRT.ordinal()] = rand.nextInt(3);
+			pars[IFlight.Param.DEP_FIX.ordinal()] = rand.nextInt(3) - 1;
+			pars[IFlight.Param.ARR_FIX.ordinal()] = rand.nextInt(2) - 1;
+			flights[i] = new Flight(pars);
+		}
+		return flights;
+	}
+
+	/**
+	 * Test that what is written is read back, over several row groups.
+	 */
+	@Test
+	public void testWriteNRead() throws IOException {
+		int n = 2*FlightColumnWriter.ROW_GROUP_SIZE + 5;
+		IFlight[] flights = createFlights(n,3L);
+		FlightColumnWriter fcw = new FlightColumnWriter(outFile,
+			Nas.getInstance(),"20080710","20080711");
+		for(IFlight f : flights)fcw.write(f);
+		fcw.close();
+		assertTrue(FlightColumnFile.isColumnFile(outFile));
+
+		FlightColumnFile fcf = new FlightColumnFile(outFile);
+		assertTrue(fcf.getNumRows() == n);
+		assertTrue(fcf.getNumRowGroups() == 3);
+		assertTrue(fcf.getNumRows(2) == 5);
+		assertTrue(fcf.getBaseDay().equals("20080710"));
+		assertTrue(fcf.getForecastDay().equals("20080711"));
+		for(FlightColumnFile.Column col : FlightColumnFile.Column.values()){
+			int[] values = fcf.readColumn(col);
+			for(int i=0;i<n;i++){
+				assertTrue(values[i] == col.get(flights[i]));
+			}
+			// Row group statistics.
+			int first = 0;
+			for(int g=0;g<fcf.getNumRowGroups();g++){
+				IntBuffer ib = fcf.getColumn(g,col);
+				assertTrue(ib.limit() == fcf.getNumRows(g));
+				int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+				for(int i=0;i<ib.limit();i++){
+					assertTrue(ib.get(i) == values[first + i]);
+					min = Math.min(min,ib.get(i));
+					max = Math.max(max,ib.get(i));
+				}
+				assertTrue(fcf.getMin(g,col) == min);
+				assertTrue(fcf.getMax(g,col) == max);
+				first += ib.limit();
+			}
+		}
+		// Names.
+		Nas nas = Nas.getInstance();
+		int[] carriers = fcf.readColumn(FlightColumnFile.Column.CARRIER);
+		int[] fixes = fcf.readColumn(FlightColumnFile.Column.DEP_FIX);
+		for(int i=0;i<n;i++){
+			String c = fcf.getName(FlightColumnFile.Column.CARRIER,carriers[i]);
+			if(carriers[i] < 0)assertTrue(c.equals(""));
+			else assertTrue(c.equals(nas.getCarrierFromIndex(carriers[i])));
+			String fx = fcf.getName(FlightColumnFile.Column.DEP_FIX,fixes[i]);
+			if(fixes[i] < 0)assertTrue(fx.equals(""));
+			else assertTrue(fx.equals(
+				nas.getFixNameFromIndex(Nas.Ad.DEP,fixes[i])));
+		}
+		assertTrue(fcf.getDictionary(FlightColumnFile.Column.ARR_APRT).length
+			== 3);
+	}
+
+	/**
+	 * Test of a file with no flights.
+	 */
+	@Test
+	public void testEmpty() throws IOException {
+		new FlightColumnWriter(outFile,Nas.getInstance(),null,null).close();
+		FlightColumnFile fcf = new FlightColumnFile(outFile);
+		assertTrue(fcf.getNumRows() == 0 && fcf.getNumRowGroups() == 0);
+		assertTrue(fcf.getBaseDay() == null);
+		assertTrue(fcf.readColumn(FlightColumnFile.Column.ACT_IN_TIME).length
+			== 0);
+	}
+
+	/**
+	 * Test that a text file is not taken for a column file.
+	 */
+	@Test
+	public void testNotColumnFile() throws IOException {
+		PrintWriter pw = new PrintWriter(outFile);
+		pw.println("#");
+		pw.println("#Flight output for base day, 20080710, and forecast day, " +
+			"20080710");
+		pw.close();
+		assertTrue(!FlightColumnFile.isColumnFile(outFile));
+		assertTrue(!FlightColumnFile.isColumnFile(new File(outFile.getPath() +
+			".missing")));
+		boolean thrown = false;
+		try{
+			new FlightColumnFile(outFile);
+		}catch(IOException ioe){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * Test of exception for a column that is not a name.
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testGetDictionaryNotName() throws IOException {
+		new FlightColumnWriter(outFile,Nas.getInstance(),null,null).close();
+		new FlightColumnFile(outFile).getDictionary(
+			FlightColumnFile.Column.ACT_IN_TIME);
+	}
+}
@@ -0,0 +1,237 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the flight output in the columnar binary format read by
+ * {@link FlightColumnFile}.  Flights are buffered a row group at a time;
+ * when the group is full each column is written out as a block of ints
+ * and the group's min and max values are kept for the footer, which is
+ * written by {@link #close()}.
+ * <p>
+ * Not thread safe.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class FlightColumnWriter implements IFlightWriter
+{
+	/**
+	 * Number of rows in a full row group.
+	 */
+	public static final int ROW_GROUP_SIZE = 32*1024;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "FlightColumnWriter";
+
+	private static final FlightColumnFile.Column[] columns =
+		FlightColumnFile.Column.values();
+
+	/**
+	 * Names, indexed by {@link FlightColumnFile.Dictionary}.
+	 */
+	private final String[][] dictionaries;
+	private final String baseDay, forecastDay;
+
+	private final FileOutputStream fos;
+	private final FileChannel channel;
+
+	/**
+	 * Values of the current row group, by column.
+	 */
+	private final int[][] values = new int[columns.length][ROW_GROUP_SIZE];
+	private int nRows = 0;
+	private final ByteBuffer groupBuf =
+		ByteBuffer.allocate(4*columns.length*ROW_GROUP_SIZE);
+
+	/**
+	 * Row group offsets, sizes, and min and max values of each column.
+	 */
+	private final List<Long> groupOffsets = new ArrayList<Long>();
+	private final List<Integer> groupRows = new ArrayList<Integer>();
+	private final List<int[]> groupMins = new ArrayList<int[]>();
+	private final List<int[]> groupMaxs = new ArrayList<int[]>();
+
+	/**
+	 * Position in the file. Units: bytes
+	 */
+	private long position = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * Constructor.  Opens the file, replacing any existing one, and writes
+	 * its header.
+	 * @param outputFileNPath Output file and path.
+	 * @param nas Instance of {@link Nas}.  Its names are the dictionaries.
+	 * @param baseDay Base day.
+	 * @param forecastDay Forecast day.
+	 * @throws IOException if the file can't be opened.
+	 */
+	public FlightColumnWriter(File outputFileNPath, Nas nas, String baseDay,
+		String forecastDay) throws IOException {
+		if(nas == null){
+			final String method = className + ".FlightColumnWriter()";
+			throw new IllegalArgumentException(method + ": Nas is null.");
+		}
+		dictionaries = new String[FlightColumnFile.Dictionary.values().length][];
+		String[] aprts = new String[nas.getNumAirports()];
+		for(int i=0;i<aprts.length;i++)aprts[i] = nas.getAirportFromIndex(i);
+		String[] carriers = new String[nas.getNumCarriers()];
+		for(int i=0;i<carriers.length;i++){
+			carriers[i] = nas.getCarrierFromIndex(i);
+		}
+		String[] equipTypes = new String[nas.getNumEquipTypes()];
+		for(int i=0;i<equipTypes.length;i++){
+			equipTypes[i] = nas.getEquipTypeFromIndex(i);
+		}
+		String[] depFixes = new String[nas.getNumFixes(Nas.Ad.DEP)];
+		for(int i=0;i<depFixes.length;i++){
+			depFixes[i] = nas.getFixNameFromIndex(Nas.Ad.DEP,i);
+		}
+		String[] arrFixes = new String[nas.getNumFixes(Nas.Ad.ARR)];
+		for(int i=0;i<arrFixes.length;i++){
+			arrFixes[i] = nas.getFixNameFromIndex(Nas.Ad.ARR,i);
+		}
+		dictionaries[FlightColumnFile.Dictionary.AIRPORT.ordinal()] = aprts;
+		dictionaries[FlightColumnFile.Dictionary.CARRIER.ordinal()] = carriers;
+		dictionaries[FlightColumnFile.Dictionary.EQUIP_TYPE.ordinal()] =
+			equipTypes;
+		dictionaries[FlightColumnFile.Dictionary.DEP_FIX.ordinal()] = depFixes;
+		dictionaries[FlightColumnFile.Dictionary.ARR_FIX.ordinal()] = arrFixes;
+		this.baseDay = baseDay;
+		this.forecastDay = forecastDay;
+
+		fos = new FileOutputStream(outputFileNPath);
+		channel = fos.getChannel();
+		ByteBuffer bb = ByteBuffer.allocate(8);
+		bb.putInt(FlightColumnFile.MAGIC);
+		bb.putInt(FlightColumnFile.VERSION);
+		bb.flip();
+		writeFully(bb);
+	}
+
+	/**
+	 * Adds the row for a flight.
+	 * @param f Flight.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public void write(IFlight f) throws IOException {
+		for(int c=0;c<columns.length;c++){
+			values[c][nRows] = columns[c].get(f);
+		}
+		nRows++;
+		if(nRows == ROW_GROUP_SIZE)writeGroup();
+	}
+
+	/**
+	 * Writes out the current row group.
+	 */
+	private void writeGroup() throws IOException {
+		int[] mins = new int[columns.length];
+		int[] maxs = new int[columns.length];
+		groupBuf.clear();
+		IntBuffer ib = groupBuf.asIntBuffer();
+		for(int c=0;c<columns.length;c++){
+			int[] v = values[c];
+			int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+			for(int i=0;i<nRows;i++){
+				if(v[i] < min)min = v[i];
+				if(v[i] > max)max = v[i];
+			}
+			mins[c] = min;
+			maxs[c] = max;
+			ib.put(v,0,nRows);
+		}
+		groupBuf.limit(4*ib.position());
+		groupOffsets.add(position);
+		groupRows.add(nRows);
+		groupMins.add(mins);
+		groupMaxs.add(maxs);
+		writeFully(groupBuf);
+		nRows = 0;
+	}
+
+	private void writeFully(ByteBuffer bb) throws IOException {
+		position += bb.remaining();
+		while(bb.hasRemaining())channel.write(bb);
+	}
+
+	/**
+	 * Writes the last row group and the footer, and closes the file.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public void close() throws IOException {
+		if(closed)return;
+		closed = true;
+		try{
+			if(nRows > 0)writeGroup();
+			writeFooter();
+		}finally{
+			fos.close();
+		}
+	}
+
+	private void writeFooter() throws IOException {
+		int nGroups = groupRows.size();
+		int size = 8 + nGroups*(12 + 8*columns.length) + 8 + 4 +
+			stringSize(baseDay) + stringSize(forecastDay);
+		for(String[] d : dictionaries){
+			size += 4;
+			for(String s : d)size += stringSize(s);
+		}
+		long footerOffset = position;
+		ByteBuffer bb = ByteBuffer.allocate(size);
+		bb.putInt(columns.length);
+		bb.putInt(nGroups);
+		for(int g=0;g<nGroups;g++){
+			bb.putLong(groupOffsets.get(g));
+			bb.putInt(groupRows.get(g));
+			for(int c=0;c<columns.length;c++){
+				bb.putInt(groupMins.get(g)[c]);
+				bb.putInt(groupMaxs.get(g)[c]);
+			}
+		}
+		for(String[] d : dictionaries){
+			bb.putInt(d.length);
+			for(String s : d)putString(bb,s);
+		}
+		putString(bb,baseDay);
+		putString(bb,forecastDay);
+		bb.putLong(footerOffset);
+		bb.putInt(FlightColumnFile.MAGIC);
+		bb.flip();
+		writeFully(bb);
+	}
+
+	private static byte[] encode(String s){
+		try{
+			return s.getBytes("UTF-8");
+		}catch(UnsupportedEncodingException uee){
+			throw new IllegalStateException(uee);
+		}
+	}
+
+	private static int stringSize(String s){
+		return 4 + (s == null ? 0 : encode(s).length);
+	}
+
+	private static void putString(ByteBuffer bb, String s){
+		if(s == null){
+			bb.putInt(-1);
+		} else {
+			byte[] b = encode(s);
+			bb.putInt(b.length);
+			bb.put(b);
+		}
+	}
+}
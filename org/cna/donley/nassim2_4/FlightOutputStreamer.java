@@ -0,0 +1,179 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the flight output lines while the sim runs, as each leg
+ * completes, rather than all at the end.  Completed legs are put on a
+ * queue and written by one or more {@link IFlightWriter} objects, such as
+ * a {@link FlightOutputWriter}, on a background thread, so the output I/O
+ * overlaps with the simulation.
+ * <p>
+ * Once a leg is queued, its route is released, as is the reference to it
+ * from its next leg and from the {@link ISimElements} container, so that
+ * it can be garbage collected once written.  Memory is then bounded by
+ * the legs that are still flying or yet to fly, instead of all the legs
+ * of the run.  Lines are written in the order the legs complete, not in
+ * the order of the flights array.
+ * <p>
+ * The queue is bounded, so if the writer falls behind the sim waits for
+ * it.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class FlightOutputStreamer implements ILegListener
+{
+	/**
+	 * Maximum number of legs waiting to be written.
+	 */
+	public static final int QUEUE_SIZE = 64*1024;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "FlightOutputStreamer";
+
+	/**
+	 * Put on the queue to tell the writer thread to finish.
+	 */
+	private static final IFlight END = new Flight(
+		new int[IFlight.Param.values().length]);
+
+	private final IFlightWriter[] writers;
+	private final ISimElements simElements;
+	private final BlockingQueue<IFlight> queue =
+		new ArrayBlockingQueue<IFlight>(QUEUE_SIZE);
+	private final Thread thread;
+
+	/**
+	 * First exception from the writer thread, if any.
+	 */
+	private volatile IOException error = null;
+
+	/**
+	 * Number of legs queued.
+	 */
+	private int numLegs = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * Constructor.  Starts the writer thread.  The file header should
+	 * already have been written.
+	 * @param writer Writes the lines.  Closed by {@link #close()}.
+	 * @param simElements Container from which completed legs are released.
+	 *   May be <code>null</code> if there is none.
+	 */
+	public FlightOutputStreamer(IFlightWriter writer,
+		ISimElements simElements){
+		this(new IFlightWriter[]{writer},simElements);
+	}
+
+	/**
+	 * Constructor for more than one writer, each of which is given every
+	 * leg.  Starts the writer thread.
+	 * @param writers Write the legs.  Closed by {@link #close()}.
+	 * @param simElements Container from which completed legs are released.
+	 *   May be <code>null</code> if there is none.
+	 */
+	public FlightOutputStreamer(IFlightWriter[] writers,
+		ISimElements simElements){
+		final String method = className + ".FlightOutputStreamer()";
+		if(writers == null || writers.length == 0){
+			throw new IllegalArgumentException(method + ": no writers.");
+		}
+		for(IFlightWriter w : writers){
+			if(w == null){
+				throw new IllegalArgumentException(method + ": writer is null.");
+			}
+		}
+		this.writers = writers.clone();
+		this.simElements = simElements;
+		thread = new Thread(new Runnable(){
+			public void run(){
+				drain();
+			}
+		},"flight-output");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Writes legs off the queue until the end marker.  After an error,
+	 * legs are still taken off so the sim doesn't block.
+	 */
+	private void drain(){
+		try{
+			IFlight leg = null;
+			while((leg = queue.take()) != END){
+				if(error != null)continue;
+				try{
+					for(IFlightWriter w : writers)w.write(leg);
+				}catch(IOException ioe){
+					error = ioe;
+				}
+			}
+		}catch(InterruptedException ie){
+			error = new IOException(className + ".drain(): interrupted.");
+		}
+	}
+
+	/**
+	 * Queues a completed leg to be written and releases it.
+	 * @param leg The completed leg.
+	 * @param time Sim time at which it completed.
+	 */
+	public void legCompleted(IFlight leg, int time){
+		final String method = className + ".legCompleted()";
+		if(closed){
+			throw new IllegalStateException(method + ": streamer is closed.");
+		}
+		try{
+			queue.put(leg);
+		}catch(InterruptedException ie){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(method + ": interrupted.");
+		}
+		numLegs++;
+		// Nothing in the sim needs these once the leg is in.
+		leg.setRoute(null);
+		IFlight next = leg.getNextLeg();
+		if(next != null)next.setPrevLeg(null);
+		if(simElements != null)simElements.releaseFlight(leg);
+	}
+
+	/**
+	 * @return Number of legs queued so far.
+	 */
+	public int getNumLegs(){return numLegs;}
+
+	/**
+	 * Waits for the queued legs to be written and closes the writer.
+	 * @throws IOException if there was a problem writing.
+	 */
+	public void close() throws IOException {
+		if(closed)return;
+		closed = true;
+		try{
+			queue.put(END);
+			thread.join();
+		}catch(InterruptedException ie){
+			Thread.currentThread().interrupt();
+			thread.interrupt();
+			if(error == null){
+				error = new IOException(className + ".close(): interrupted.");
+			}
+		}finally{
+			for(IFlightWriter w : writers){
+				try{
+					w.close();
+				}catch(IOException ioe){
+					if(error == null)error = ioe;
+				}
+			}
+		}
+		if(error != null)throw error;
+	}
+}
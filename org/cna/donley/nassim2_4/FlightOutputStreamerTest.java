@@ -0,0 +1,115 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the FlightOutputStreamer class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class FlightOutputStreamerTest
+{
+	private File outFile = null, refFile = null;
+
+	@Before
+	public void setUp() throws IOException {
+		Nas.destroyInstance();
+		Nas.createInstance(new String[]{"ATL","BOS"},new String[]{"AAL"},
+			new String[]{"B737"},new String[][]{{"DEPA"},{"ARRA"}});
+		outFile = File.createTempFile("flightStream", ".csv");
+		refFile = File.createTempFile("flightStreamRef", ".csv");
+	}
+
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+		outFile.delete();
+		refFile.delete();
+	}
+
+	private static List<String> readLines(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		String line = null;
+		while((line = br.readLine()) != null)lines.add(line);
+		br.close();
+		return lines;
+	}
+
+	/**
+	 * Test that completed legs are written in the order they complete
+	 * and are released.
+	 */
+	@Test
+	public void testLegCompleted() throws IOException {
+		int n = 3*FlightOutputStreamer.QUEUE_SIZE/2;
+		IFlight[] flights = new IFlight[n];
+		for(int i=0;i<n;i++){
+			int[] pars = new int[IFlight.Param.values().length];
+			pars[IFlight.Param.ITIN_NUM.ordinal()] = i/2;
+			pars[IFlight.Param.LEG_NUM.ordinal()] = i%2 + 1;
+			pars[IFlight.Param.ACT_IN_TIME.ordinal()] = 7*i;
+			pars[IFlight.Param.DEP_APRT.ordinal()] = i%2;
+			pars[IFlight.Param.ARR_APRT.ordinal()] = (i+1)%2;
+			pars[IFlight.Param.DEP_FIX.ordinal()] = -1;
+			pars[IFlight.Param.ARR_FIX.ordinal()] = -1;
+			flights[i] = new Flight(pars);
+			flights[i].setRoute(new Route(new ArrayList<INode>()));
+			if(i%2 == 1){
+				flights[i-1].setNextLeg(flights[i]);
+				flights[i].setPrevLeg(flights[i-1]);
+			}
+		}
+		IFlight[] held = flights.clone();
+		SimElements se = new SimElements("20080710","20080710",held,
+			new INode[0]);
+
+		FlightOutputWriter ref = new FlightOutputWriter(refFile,
+			Nas.getInstance());
+		FlightOutputWriter fow = new FlightOutputWriter(outFile,
+			Nas.getInstance());
+		fow.writeHeader("20080710","20080710");
+		ref.writeHeader("20080710","20080710");
+		FlightOutputStreamer fos = new FlightOutputStreamer(fow,se);
+		for(int i=0;i<n;i++){
+			fos.legCompleted(flights[i],flights[i].get(
+				IFlight.Param.ACT_IN_TIME));
+			ref.write(flights[i]);
+			assertTrue(flights[i].getRoute() == null);
+			assertTrue(held[i] == null);
+			if(i%2 == 0)assertTrue(flights[i+1].getPrevLeg() == null);
+		}
+		assertTrue(fos.getNumLegs() == n);
+		fos.close();
+		ref.close();
+		assertTrue(readLines(refFile).equals(readLines(outFile)));
+
+		// Closed.
+		boolean thrown = false;
+		try{
+			fos.legCompleted(flights[0],0);
+		}catch(IllegalStateException ise){
+			thrown = true;
+		}
+		assertTrue(thrown);
+		fos.close();
+	}
+
+	/**
+	 * Test of exception if the writer is null.
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullWriter(){
+		new FlightOutputStreamer((IFlightWriter)null,null);
+	}
+}
@@ -0,0 +1,347 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes the flight output file, one comma separated line per flight leg.
+ * The airport, carrier, equipment type and fix names are encoded to bytes
+ * once, when the writer is created, and the int fields are formatted
+ * straight into a reusable byte buffer, so writing a line creates no
+ * objects.  The buffer is written through a {@link FileChannel} in large
+ * chunks.  The output is the same, byte for byte, as printing each line
+ * with a <code>PrintWriter</code>.
+ * <p>
+ * An array of flights can also be formatted in parallel, see
+ * {@link #write(IFlight[], int)}, where blocks of flights are formatted
+ * on a pool of threads and written in order as they complete.
+ * <p>
+ * Not thread safe.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class FlightOutputWriter implements IFlightWriter
+{
+	/**
+	 * Line format of the output file, written as part of the header.
+	 */
+	public static final String LINE_FORMAT = "#itin_num,leg_num,sched_id," +
+		"carrier,equip_type,dep_aprt,arr_aprt,sched_out_time,act_out_time," +
+		"calc_off_time,act_off_time,calc_on_time,act_on_time,sched_in_time," +
+		"calc_in_time,act_in_time,act_air_time,turn_time,pushback_time," +
+		"taxi_out_time,taxi_in_time,gate_out_delay,dep_delay,arr_delay," +
+		"taxi_in_delay,dep_fix,dep_fix_delay,arr_fix,arr_fix_delay";
+
+	/**
+	 * Size at which the buffer is written out. Units: bytes
+	 */
+	public static final int FLUSH_SIZE = 256*1024;
+
+	/**
+	 * Number of flights in a block formatted by one thread.
+	 */
+	public static final int BLOCK_SIZE = 16*1024;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "FlightOutputWriter";
+
+	/**
+	 * Growable byte buffer a line is formatted into.
+	 */
+	private static final class Buf {
+		byte[] b;
+		int len = 0;
+		Buf(int size){b = new byte[size];}
+		void ensure(int n){
+			if(len + n > b.length){
+				byte[] nb = new byte[Math.max(2*b.length,len+n)];
+				System.arraycopy(b,0,nb,0,len);
+				b = nb;
+			}
+		}
+	}
+
+	/**
+	 * Encoded names, indexed by the {@link Nas} indices.
+	 */
+	private final byte[][] aprts, carriers, equipTypes, depFixes, arrFixes;
+
+	/**
+	 * Line separator, as for <code>PrintWriter.println()</code>.
+	 */
+	private final byte[] eol;
+
+	/**
+	 * Upper bound on the length of a line. Units: bytes
+	 */
+	private final int maxLineLength;
+
+	private final FileOutputStream fos;
+	private final FileChannel channel;
+	private final Buf buf = new Buf(FLUSH_SIZE + 1024);
+
+	/**
+	 * Constructor.  Opens the file, replacing any existing one, and encodes
+	 * the names in the {@link Nas} object.
+	 * @param outputFileNPath Output file and path.
+	 * @param nas Instance of {@link Nas}.
+	 * @throws IOException if the file can't be opened.
+	 */
+	public FlightOutputWriter(File outputFileNPath, Nas nas)
+		throws IOException {
+		if(nas == null){
+			final String method = className + ".FlightOutputWriter()";
+			throw new IllegalArgumentException(method + ": Nas is null.");
+		}
+		aprts = new byte[nas.getNumAirports()][];
+		for(int i=0;i<aprts.length;i++){
+			aprts[i] = encode(nas.getAirportFromIndex(i));
+		}
+		carriers = new byte[nas.getNumCarriers()][];
+		for(int i=0;i<carriers.length;i++){
+			carriers[i] = encode(nas.getCarrierFromIndex(i));
+		}
+		equipTypes = new byte[nas.getNumEquipTypes()][];
+		for(int i=0;i<equipTypes.length;i++){
+			equipTypes[i] = encode(nas.getEquipTypeFromIndex(i));
+		}
+		depFixes = new byte[nas.getNumFixes(Nas.Ad.DEP)][];
+		for(int i=0;i<depFixes.length;i++){
+			depFixes[i] = encode(nas.getFixNameFromIndex(Nas.Ad.DEP,i));
+		}
+		arrFixes = new byte[nas.getNumFixes(Nas.Ad.ARR)][];
+		for(int i=0;i<arrFixes.length;i++){
+			arrFixes[i] = encode(nas.getFixNameFromIndex(Nas.Ad.ARR,i));
+		}
+		eol = encode(System.getProperty("line.separator"));
+		int maxName = 0;
+		byte[][][] dicts = {aprts,carriers,equipTypes,depFixes,arrFixes};
+		for(byte[][] d : dicts){
+			for(byte[] n : d)maxName = Math.max(maxName,n.length);
+		}
+		// 23 ints of at most 11 chars, 6 names and 28 commas.
+		maxLineLength = 23*11 + 6*maxName + 28 + eol.length;
+
+		fos = new FileOutputStream(outputFileNPath);
+		channel = fos.getChannel();
+	}
+
+	/**
+	 * Encodes a name, as a <code>PrintWriter</code> would.
+	 */
+	private static byte[] encode(String s){
+		return String.valueOf(s).getBytes();
+	}
+
+	/**
+	 * Writes the file header.
+	 * @param baseDay Base day.
+	 * @param forecastDay Forecast day.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public void writeHeader(String baseDay, String forecastDay)
+		throws IOException {
+		String nl = System.getProperty("line.separator");
+		String header = "#" + nl + "#Flight output for base day, " + baseDay +
+			", and forecast day, " + forecastDay + nl + "# line format:" + nl +
+			LINE_FORMAT + nl;
+		byte[] b = header.getBytes();
+		buf.ensure(b.length);
+		System.arraycopy(b,0,buf.b,buf.len,b.length);
+		buf.len += b.length;
+		flushIfFull();
+	}
+
+	/**
+	 * Writes the line for a flight.
+	 * @param f Flight.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public void write(IFlight f) throws IOException {
+		formatLine(f,buf);
+		flushIfFull();
+	}
+
+	/**
+	 * Writes the lines for an array of flights, in order.  Blocks of
+	 * flights are formatted in parallel and written as they complete.
+	 * @param flights Flights.
+	 * @param nThreads Number of threads to format with.  If one, all is
+	 *   done on the calling thread.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public void write(final IFlight[] flights, int nThreads)
+		throws IOException {
+		final String method = className + ".write()";
+		int nBlocks = (flights.length + BLOCK_SIZE - 1)/BLOCK_SIZE;
+		if(nThreads <= 1 || nBlocks <= 1){
+			for(IFlight f : flights)write(f);
+			return;
+		}
+		ExecutorService exec = Executors.newFixedThreadPool(nThreads);
+		try{
+			// Keep a few blocks ahead of the writer per thread.
+			int window = 2*nThreads;
+			LinkedList<Future<Buf>> pending = new LinkedList<Future<Buf>>();
+			int next = 0;
+			for(int k=0;k<nBlocks;k++){
+				while(next < nBlocks && pending.size() < window){
+					final int from = next*BLOCK_SIZE;
+					final int to = Math.min(flights.length,from + BLOCK_SIZE);
+					pending.add(exec.submit(new Callable<Buf>(){
+						public Buf call(){
+							Buf b = new Buf(maxLineLength*(to - from));
+							for(int i=from;i<to;i++)formatLine(flights[i],b);
+							return b;
+						}
+					}));
+					next++;
+				}
+				Buf b = pending.removeFirst().get();
+				flush();
+				writeFully(b.b,b.len);
+			}
+		}catch(InterruptedException ie){
+			throw new IOException(method + ": interrupted.");
+		}catch(ExecutionException ee){
+			Throwable cause = ee.getCause();
+			if(cause instanceof RuntimeException)throw (RuntimeException)cause;
+			throw new IOException(method + ": " + cause);
+		}finally{
+			exec.shutdownNow();
+		}
+	}
+
+	/**
+	 * Formats the line for a flight into a buffer.
+	 */
+	private void formatLine(IFlight f, Buf b){
+		b.ensure(maxLineLength);
+		int schedOutTime = f.get(IFlight.Param.SCHED_OUT_TIME);
+		int actOutTime   = f.get(IFlight.Param.ACT_OUT_TIME);
+		int calcOffTime  = f.get(IFlight.Param.CALC_OFF_TIME);
+		int actOffTime   = f.get(IFlight.Param.ACT_OFF_TIME);
+		int calcOnTime   = f.get(IFlight.Param.CALC_ON_TIME);
+		int actOnTime    = f.get(IFlight.Param.ACT_ON_TIME);
+		int calcInTime   = f.get(IFlight.Param.CALC_IN_TIME);
+		int actInTime    = f.get(IFlight.Param.ACT_IN_TIME);
+
+		putInt(b,f.get(IFlight.Param.ITIN_NUM));
+		putInt(b,f.get(IFlight.Param.LEG_NUM));
+		putInt(b,f.get(IFlight.Param.SCHED_ID));
+		putName(b,carriers,f.get(IFlight.Param.CARRIER));
+		putName(b,equipTypes,f.get(IFlight.Param.EQUIP_TYPE));
+		putName(b,aprts,f.get(IFlight.Param.DEP_APRT));
+		putName(b,aprts,f.get(IFlight.Param.ARR_APRT));
+		putInt(b,schedOutTime);
+		putInt(b,actOutTime);
+		putInt(b,calcOffTime);
+		putInt(b,actOffTime);
+		putInt(b,calcOnTime);
+		putInt(b,actOnTime);
+		putInt(b,f.get(IFlight.Param.SCHED_IN_TIME));
+		putInt(b,calcInTime);
+		putInt(b,actInTime);
+		putInt(b,f.get(IFlight.Param.ACT_AIR_TIME));
+		putInt(b,f.get(IFlight.Param.TURN_TIME));
+		putInt(b,f.get(IFlight.Param.PUSHBACK_TIME));
+		putInt(b,f.get(IFlight.Param.TAXI_OUT_TIME));
+		putInt(b,f.get(IFlight.Param.TAXI_IN_TIME));
+		// Gate out, departure, arrival and taxi-in delays.
+		putInt(b,actOutTime - schedOutTime);
+		putInt(b,actOffTime - calcOffTime);
+		putInt(b,actOnTime - calcOnTime);
+		putInt(b,actInTime - calcInTime);
+		putName(b,depFixes,f.get(IFlight.Param.DEP_FIX));
+		putInt(b,f.get(IFlight.Param.DEP_FIX_DELAY));
+		putName(b,arrFixes,f.get(IFlight.Param.ARR_FIX));
+		putInt(b,f.get(IFlight.Param.ARR_FIX_DELAY));
+		// Replace the last comma with the end of line.
+		b.len--;
+		System.arraycopy(eol,0,b.b,b.len,eol.length);
+		b.len += eol.length;
+	}
+
+	/**
+	 * Appends a name and a comma.  A negative index is an empty name.
+	 */
+	private static void putName(Buf b, byte[][] names, int indx){
+		if(indx >= 0){
+			byte[] n = names[indx];
+			System.arraycopy(n,0,b.b,b.len,n.length);
+			b.len += n.length;
+		}
+		b.b[b.len++] = ',';
+	}
+
+	/**
+	 * Appends an int in decimal and a comma.
+	 */
+	private static void putInt(Buf b, int v){
+		byte[] a = b.b;
+		if(v < 0){
+			a[b.len++] = '-';
+			if(v == Integer.MIN_VALUE){
+				// Can't be negated.
+				a[b.len++] = '2';
+				v = -(v + 2000000000);
+			} else {
+				v = -v;
+			}
+		}
+		// Count digits then fill from the right.
+		int n = 1;
+		for(int t=v;t>=10;t/=10)n++;
+		int end = b.len + n;
+		for(int i=end-1;i>=b.len;i--){
+			a[i] = (byte)('0' + v%10);
+			v /= 10;
+		}
+		b.len = end;
+		a[b.len++] = ',';
+	}
+
+	/**
+	 * Writes the buffer out if it is past the flush size.
+	 */
+	private void flushIfFull() throws IOException {
+		if(buf.len >= FLUSH_SIZE)flush();
+	}
+
+	/**
+	 * Writes out everything formatted so far.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public void flush() throws IOException {
+		writeFully(buf.b,buf.len);
+		buf.len = 0;
+	}
+
+	private void writeFully(byte[] b, int len) throws IOException {
+		ByteBuffer bb = ByteBuffer.wrap(b,0,len);
+		while(bb.hasRemaining())channel.write(bb);
+	}
+
+	/**
+	 * Writes out everything formatted so far and closes the file.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public void close() throws IOException {
+		try{
+			flush();
+		}finally{
+			fos.close();
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the FlightOutputWriter class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class FlightOutputWriterTest
+{
+	private File outFile = null, refFile = null;
+
+	@Before
+	public void setUp() throws IOException {
+		Nas.destroyInstance();
+		String[][] fixes = {{"DEPA","DEPBB"},{"ARRA","ARRBB","ARRCCC"}};
+		Nas.createInstance(new String[]{"ATL","BOS","ORD"},
+			new String[]{"AAL","DAL"},new String[]{"B737","A320","CRJ9"},
+			fixes);
+		outFile = File.createTempFile("flightOutput", ".csv");
+		refFile = File.createTempFile("flightOutputRef", ".csv");
+	}
+
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+		outFile.delete();
+		refFile.delete();
+	}
+
+	/**
+	 * Creates flights with random times and names, including missing
+	 * names and extreme values.
+	 */
+	private static IFlight[] createFlights(int n, long seed){
+		Random rand = new Random(seed);
+		int nPars = IFlight.Param.values().length;
+		int[] extremes = {0,-1,-10,9,10,Integer.MAX_VALUE,Integer.MIN_VALUE};
+		IFlight[] flights = new IFlight[n];
+		for(int i=0;i<n;i++){
+			int[] pars = new int[nPars];
+			for(int j=0;j<nPars;j++){
+				pars[j] = i%11 == 0 ? extremes[(i+j)%extremes.length] :
+					rand.nextInt(200000) - 1000;
+			}
+			pars[IFlight.Param.CARRIER.ordinal()] = rand.nextInt(3) - 1;
+			pars[IFlight.Param.EQUIP_TYPE.ordinal()] = rand.nextInt(4) - 1;
+			pars[IFlight.Param.DEP_APRT.ordinal()] = rand.nextInt(4) - 1;
+			pars[IFlight.Param.ARR_APRT.ordinal()] = rand.nextInt(4) - 1;
+			pars[IFlight.Param.DEP_FIX.ordinal()] = rand.nextInt(3) - 1;
+			pars[IFlight.Param.ARR_FIX.ordinal()] = rand.nextInt(4) - 1;
+			flights[i] = new Flight(pars);
+		}
+		return flights;
+	}
+
+	/**
+	 * Writes the file the way NasSimEventDriven did with a PrintWriter.
+	 */
+	private static void writeReference(File file, IFlight[] flights)
+		throws IOException {
+		Nas nas = Nas.getInstance();
+		PrintWriter pw = new PrintWriter(file);
+		pw.println("#");
+		pw.println("#Flight output for base day, 20080710, and forecast day, " +
+			"20080710");
+		pw.println("# line format:");
+		pw.println(FlightOutputWriter.LINE_FORMAT);
+		for(IFlight f : flights){
+			int depAprt = f.get(IFlight.Param.DEP_APRT);
+			int arrAprt = f.get(IFlight.Param.ARR_APRT);
+			int carrier = f.get(IFlight.Param.CARRIER);
+			int equipType = f.get(IFlight.Param.EQUIP_TYPE);
+			int depFix = f.get(IFlight.Param.DEP_FIX);
+			int arrFix = f.get(IFlight.Param.ARR_FIX);
+			String com = ",";
+			pw.println(f.get(IFlight.Param.ITIN_NUM) + com +
+				f.get(IFlight.Param.LEG_NUM) + com +
+				f.get(IFlight.Param.SCHED_ID) + com +
+				(carrier >= 0 ? nas.getCarrierFromIndex(carrier) : "") + com +
+				(equipType >= 0 ? nas.getEquipTypeFromIndex(equipType) : "") +
+				com + (depAprt >= 0 ? nas.getAirportFromIndex(depAprt) : "") +
+				com + (arrAprt >= 0 ? nas.getAirportFromIndex(arrAprt) : "") +
+				com + f.get(IFlight.Param.SCHED_OUT_TIME) + com +
+				f.get(IFlight.Param.ACT_OUT_TIME) + com +
+				f.get(IFlight.Param.CALC_OFF_TIME) + com +
+				f.get(IFlight.Param.ACT_OFF_TIME) + com +
+				f.get(IFlight.Param.CALC_ON_TIME) + com +
+				f.get(IFlight.Param.ACT_ON_TIME) + com +
+				f.get(IFlight.Param.SCHED_IN_TIME) + com +
+				f.get(IFlight.Param.CALC_IN_TIME) + com +
+				f.get(IFlight.Param.ACT_IN_TIME) + com +
+				f.get(IFlight.Param.ACT_AIR_TIME) + com +
+				f.get(IFlight.Param.TURN_TIME) + com +
+				f.get(IFlight.Param.PUSHBACK_TIME) + com +
+				f.get(IFlight.Param.TAXI_OUT_TIME) + com +
+				f.get(IFlight.Param.TAXI_IN_TIME) + com +
+				(f.get(IFlight.Param.ACT_OUT_TIME) -
+					f.get(IFlight.Param.SCHED_OUT_TIME)) + com +
+				(f.get(IFlight.Param.ACT_OFF_TIME) -
+					f.get(IFlight.Param.CALC_OFF_TIME)) + com +
+				(f.get(IFlight.Param.ACT_ON_TIME) -
+					f.get(IFlight.Param.CALC_ON_TIME)) + com +
+				(f.get(IFlight.Param.ACT_IN_TIME) -
+					f.get(IFlight.Param.CALC_IN_TIME)) + com +
+				(depFix >= 0 ? nas.getFixNameFromIndex(Nas.Ad.DEP,depFix) : "") +
+				com + f.get(IFlight.Param.DEP_FIX_DELAY) + com +
+				(arrFix >= 0 ? nas.getFixNameFromIndex(Nas.Ad.ARR,arrFix) : "") +
+				com + f.get(IFlight.Param.ARR_FIX_DELAY));
+		}
+		pw.close();
+	}
+
+	private static byte[] readAll(File file) throws IOException {
+		InputStream is = new FileInputStream(file);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] b = new byte[8192];
+		int n = 0;
+		while((n = is.read(b)) >= 0)bos.write(b,0,n);
+		is.close();
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Test that flights written one at a time give the same file as the
+	 * PrintWriter did.
+	 */
+	@Test
+	public void testWriteFlights() throws IOException {
+		IFlight[] flights = createFlights(5000,1L);
+		writeReference(refFile,flights);
+		FlightOutputWriter fow =
+			new FlightOutputWriter(outFile,Nas.getInstance());
+		fow.writeHeader("20080710","20080710");
+		for(IFlight f : flights)fow.write(f);
+		fow.close();
+		assertTrue(Arrays.equals(readAll(refFile),readAll(outFile)));
+	}
+
+	/**
+	 * Test that flights formatted in parallel are written in order.
+	 */
+	@Test
+	public void testWriteParallel() throws IOException {
+		IFlight[] flights = createFlights(
+			3*FlightOutputWriter.BLOCK_SIZE + 17,2L);
+		writeReference(refFile,flights);
+		byte[] ref = readAll(refFile);
+		int[] nThreads = {1,2,4};
+		for(int n : nThreads){
+			FlightOutputWriter fow =
+				new FlightOutputWriter(outFile,Nas.getInstance());
+			fow.writeHeader("20080710","20080710");
+			fow.write(flights,n);
+			fow.close();
+			assertTrue(Arrays.equals(ref,readAll(outFile)));
+		}
+	}
+
+	/**
+	 * Test of exception if the Nas is null.
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullNas() throws IOException {
+		new FlightOutputWriter(outFile,null);
+	}
+}
@@ -0,0 +1,197 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Checks that a change to the engine doesn't change the results, by
+ * comparing the {@link RunFingerprint}s of runs of synthetic days made by
+ * the {@link ScenarioGenerator}.  Each day is run with the baseline sim
+ * properties and then with an alternative configuration, given as sim
+ * properties, e.g., "streamOutput=true"; with no alternative, the baseline
+ * is run twice, which checks that runs repeat.  A golden file of the
+ * baseline fingerprints, made before the change, also checks the baseline
+ * after it.  The harness stops at the first day that drifts and tells the
+ * sim time of the first epoch that differs.
+ * <p>
+ * Usage: GoldenRunHarness [-flights n] [-seeds n] [-golden file]
+ *   [key=value ...]
+ * <br>
+ * Exits with status 1 if any run drifts.  The golden file is written if
+ * it doesn't exist.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class GoldenRunHarness
+{
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "GoldenRunHarness";
+
+	/** Default number of flights of a day. */
+	public static final int DEFAULT_NUM_FLIGHTS = 5000;
+
+	/** Default number of days, with seeds from {@link EngineBenchmark#SEED}. */
+	public static final int DEFAULT_NUM_SEEDS = 3;
+
+	/**
+	 * Main method.
+	 * @param args See the class description.
+	 */
+	public static void main(String[] args){
+		int nFlights = DEFAULT_NUM_FLIGHTS, nSeeds = DEFAULT_NUM_SEEDS;
+		File golden = null;
+		Properties alt = new Properties();
+		try{
+			for(int i=0;i<args.length;i++){
+				if(args[i].equals("-flights"))nFlights = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-seeds"))nSeeds = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-golden"))golden = new File(args[++i]);
+				else {
+					int k = args[i].indexOf('=');
+					if(k <= 0)throw new IllegalArgumentException(args[i]);
+					alt.setProperty(args[i].substring(0,k),args[i].substring(k+1));
+				}
+			}
+		}catch(RuntimeException re){
+			System.err.println("Usage: " + className + " [-flights n] " +
+				"[-seeds n] [-golden file] [key=value ...]");
+			System.exit(2);
+		}
+
+		try{
+			List<String> goldenLines = null;
+			if(golden != null && golden.exists())goldenLines = readLines(golden);
+			List<String> lines = new ArrayList<String>();
+			for(int i=0;i<nSeeds;i++){
+				long seed = EngineBenchmark.SEED + i;
+				RunFingerprint base = runDay(nFlights,seed,null);
+				System.out.println("flights: " + nFlights + ", seed: " + seed +
+					", baseline: " + base);
+				String key = nFlights + " " + seed + " ";
+				lines.add(key + base.format());
+				if(goldenLines != null){
+					RunFingerprint g = findGolden(goldenLines,key);
+					if(g == null){
+						System.out.println("  no golden run");
+					}else if(!check("golden",g,base)){
+						System.exit(1);
+					}
+				}
+				RunFingerprint other = runDay(nFlights,seed,alt);
+				if(!check(alt.isEmpty() ? "repeat" : alt.toString(),base,other)){
+					System.exit(1);
+				}
+			}
+			if(golden != null && goldenLines == null){
+				PrintWriter pw = new PrintWriter(golden);
+				for(String line : lines)pw.println(line);
+				pw.close();
+				System.out.println("wrote " + golden);
+			}
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Prints the comparison of two runs.
+	 * @return <code>true</code> if they are the same.
+	 */
+	private static boolean check(String name, RunFingerprint expected,
+		RunFingerprint actual){
+		String drift = describeDrift(expected,actual);
+		System.out.println("  " + name + ": " + actual +
+			(drift == null ? ", same" : ", DRIFT, " + drift));
+		return drift == null;
+	}
+
+	/**
+	 * Describes how two runs differ.
+	 * @param expected Fingerprint of the baseline run.
+	 * @param actual Fingerprint of the other run.
+	 * @return <code>null</code> if they are the same; if not, the sim time
+	 *   of the first epoch that differs and its number of legs in each.
+	 */
+	public static String describeDrift(RunFingerprint expected,
+		RunFingerprint actual){
+		int t = expected.firstDivergence(actual);
+		if(t == Integer.MAX_VALUE)return null;
+		return "first differs in the epoch at sim time " + t + " s, legs " +
+			numLegsAt(expected,t) + " vs " + numLegsAt(actual,t);
+	}
+
+	private static int numLegsAt(RunFingerprint f, int t){
+		int e = (t - f.getStartTime())/RunFingerprint.EPOCH_SECS;
+		if(t < f.getStartTime() || e >= f.getNumEpochs())return 0;
+		return f.getNumLegs(e);
+	}
+
+	/**
+	 * Runs a synthetic day and fingerprints the results.  The files of the
+	 * run are written to a temp directory, which is deleted after it.
+	 * @param nFlights Number of flights.
+	 * @param seed Seed of the scenario.
+	 * @param simProps Sim properties to add, e.g., an alternative
+	 *   configuration; may be <code>null</code>.
+	 * @return the fingerprint.
+	 * @throws IOException if the files can't be written.
+	 */
+	public static RunFingerprint runDay(int nFlights, long seed,
+		Properties simProps) throws IOException {
+		File dir = File.createTempFile("goldenRun","");
+		if(!dir.delete() || !dir.mkdir()){
+			throw new IOException(className + ": can't create " + dir);
+		}
+		try{
+			Properties p = new Properties();
+			p.setProperty("registerProgressMBean","false");
+			if(simProps != null)p.putAll(simProps);
+			p.setProperty("computeFingerprint","true");
+			NasSimEventDriven sim = new NasSimEventDriven(
+				EngineBenchmark.writeDay(dir,nFlights,seed,p));
+			sim.initialize();
+			sim.run();
+			if(!sim.processOutput()){
+				throw new IOException(className + ": output of the run failed.");
+			}
+			return sim.getFingerprint();
+		}finally{
+			Nas.destroyInstance();
+			File[] files = dir.listFiles();
+			for(int i=0;files != null && i<files.length;i++)files[i].delete();
+			dir.delete();
+		}
+	}
+
+	private static RunFingerprint findGolden(List<String> lines, String key){
+		for(String line : lines){
+			if(line.startsWith(key)){
+				return RunFingerprint.parse(line.substring(key.length()));
+			}
+		}
+		return null;
+	}
+
+	private static List<String> readLines(File f) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new FileReader(f));
+		try{
+			String line;
+			while((line = br.readLine()) != null){
+				if(line.trim().length() > 0)lines.add(line.trim());
+			}
+		}finally{
+			br.close();
+		}
+		return lines;
+	}
+}
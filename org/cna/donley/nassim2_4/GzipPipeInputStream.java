@@ -0,0 +1,231 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An input stream over a gzip compressed file where the inflating is done
+ * on a separate thread.  The inflater thread fills fixed size chunks and
+ * hands them to the reader through a bounded queue, then gets them back
+ * through a second queue once they have been read, so the only memory
+ * used is the fixed pool of chunks.  The point is that inflating and
+ * parsing overlap, so that a compressed input file can be read about as
+ * fast as an uncompressed one.
+ * <p>
+ * Any exception on the inflater thread is handed to the reader and thrown
+ * by the next read after the data before it has been consumed.  The stream
+ * is meant to be read by one thread only.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class GzipPipeInputStream extends InputStream
+{
+	/**
+	 * Default size of a chunk of inflated data. Units: bytes
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 64*1024;
+	/**
+	 * Default number of chunks in the pipeline.
+	 */
+	public static final int DEFAULT_NUM_CHUNKS = 8;
+
+	/**
+	 * Chunk of inflated data.
+	 */
+	private static final class Chunk {
+		final byte[] buf;
+		int len = 0;
+		Chunk(int size){buf = new byte[size];}
+	}
+
+	/**
+	 * Marks the end of the inflated data, or an error.
+	 */
+	private static final Chunk EOF = new Chunk(0);
+
+	/**
+	 * Chunks filled by the inflater thread, waiting to be read.
+	 */
+	private final BlockingQueue<Chunk> full;
+	/**
+	 * Chunks that have been read, waiting to be filled.
+	 */
+	private final BlockingQueue<Chunk> empty;
+	/**
+	 * Inflater thread.
+	 */
+	private final Thread inflater;
+	/**
+	 * Exception thrown on the inflater thread, if any.
+	 */
+	private volatile IOException error = null;
+	/**
+	 * Set once the stream has been closed.
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * Chunk being read and the read position in it.
+	 */
+	private Chunk cur = null;
+	private int pos = 0;
+
+	/**
+	 * Constructor.  Opens the file and starts the inflater thread with
+	 * the default chunk size and number of chunks.
+	 * @param gzFileNPath gzip compressed file and path.
+	 * @throws IOException if the file can't be opened or isn't gzip format.
+	 */
+	public GzipPipeInputStream(File gzFileNPath) throws IOException {
+		this(gzFileNPath,DEFAULT_CHUNK_SIZE,DEFAULT_NUM_CHUNKS);
+	}
+
+	/**
+	 * Constructor.  Opens the file and starts the inflater thread.
+	 * @param gzFileNPath gzip compressed file and path.
+	 * @param chunkSize Size of each chunk of inflated data. Units: bytes
+	 * @param numChunks Number of chunks in the pipeline.  Bounds how far
+	 *   the inflater thread can run ahead of the reader.
+	 * @throws IOException if the file can't be opened or isn't gzip format.
+	 */
+	public GzipPipeInputStream(File gzFileNPath, int chunkSize,
+		int numChunks) throws IOException {
+		if(chunkSize <= 0 || numChunks <= 0){
+			final String method = this.getClass().getName();
+			throw new IllegalArgumentException(method + ": chunkSize and " +
+				"numChunks must be positive.");
+		}
+		// Opened here so that a missing or corrupt file is reported to
+		// the caller rather than on the inflater thread.
+		final InputStream gz = new GZIPInputStream(
+			new FileInputStream(gzFileNPath),chunkSize);
+
+		// One extra slot in the full queue for the EOF marker, so the
+		// inflater never blocks putting it.
+		full  = new ArrayBlockingQueue<Chunk>(numChunks+1);
+		empty = new ArrayBlockingQueue<Chunk>(numChunks);
+		for(int i=0;i<numChunks;i++)empty.add(new Chunk(chunkSize));
+
+		inflater = new Thread(new Runnable(){
+			public void run(){inflate(gz);}
+		}, "gunzip-" + gzFileNPath.getName());
+		inflater.setDaemon(true);
+		inflater.start();
+	}
+
+	/**
+	 * Run by the inflater thread.  Fills chunks until the end of the
+	 * compressed stream, an error or the stream is closed.
+	 * @param gz Compressed input stream.
+	 */
+	private void inflate(InputStream gz){
+		try{
+			boolean done = false;
+			while(!done && !closed){
+				Chunk c = empty.take();
+				int n = 0, r = 0;
+				while(n < c.buf.length &&
+					(r = gz.read(c.buf,n,c.buf.length-n)) >= 0){
+					n += r;
+				}
+				done = r < 0;
+				c.len = n;
+				if(n > 0)full.put(c);
+			}
+		}catch(IOException ioe){
+			error = ioe;
+		}catch(InterruptedException ie){
+			// Closed by the reader.
+		}finally{
+			try{
+				gz.close();
+			}catch(IOException ioe){}
+			full.offer(EOF);
+		}
+	}
+
+	/**
+	 * Makes the next chunk current.
+	 * @return <code>true</code> if there is data; <code>false</code> at the
+	 *   end of the stream.
+	 * @throws IOException if there was an error on the inflater thread.
+	 */
+	private boolean nextChunk() throws IOException {
+		if(cur == EOF){
+			if(error != null)throw error;
+			return false;
+		}
+		if(cur != null)empty.offer(cur);
+		try{
+			cur = full.take();
+		}catch(InterruptedException ie){
+			cur = null;
+			throw new InterruptedIOException(this.getClass().getName() +
+				": interrupted waiting for inflated data.");
+		}
+		pos = 0;
+		if(cur == EOF){
+			if(error != null)throw error;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Throws an exception if the stream has been closed.
+	 * @throws IOException if the stream has been closed.
+	 */
+	private void ensureOpen() throws IOException {
+		if(closed){
+			throw new IOException(this.getClass().getName() +
+				": stream closed.");
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		ensureOpen();
+		if(cur == null || pos >= cur.len){
+			if(!nextChunk())return -1;
+		}
+		return cur.buf[pos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(off < 0 || len < 0 || len > b.length - off){
+			throw new IndexOutOfBoundsException();
+		}
+		ensureOpen();
+		if(len == 0)return 0;
+		if(cur == null || pos >= cur.len){
+			if(!nextChunk())return -1;
+		}
+		int n = Math.min(len,cur.len - pos);
+		System.arraycopy(cur.buf,pos,b,off,n);
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (cur == null || cur == EOF) ? 0 : cur.len - pos;
+	}
+
+	/**
+	 * Stops the inflater thread and closes the compressed file.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed)return;
+		closed = true;
+		inflater.interrupt();
+		full.clear();
+	}
+}
@@ -0,0 +1,163 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the GzipPipeInputStream class and the reading of
+ * compressed input files by the NaspacBridge.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class GzipPipeInputStreamTest
+{
+	/**
+	 * Writes a file of numbered lines, and a compressed copy of it.
+	 */
+	private static File[] writeFiles(int nLines) throws IOException {
+		File plain = File.createTempFile("gzPipe", ".txt");
+		File gz = new File(plain.getPath() + NaspacBridge.GZIP_SUFFIX);
+		PrintWriter pw = new PrintWriter(plain);
+		PrintWriter pwGz = new PrintWriter(
+			new GZIPOutputStream(new FileOutputStream(gz)));
+		for(int i=0;i<nLines;i++){
+			pw.println("AP    " + i + " VMC");
+			pwGz.println("AP    " + i + " VMC");
+		}
+		pw.close();
+		pwGz.close();
+		File[] files = {plain,gz};
+		return files;
+	}
+
+	/**
+	 * Test that the inflated bytes are the same as the original, for
+	 * chunk sizes smaller and larger than the file.
+	 */
+	@Test
+	public void testRead() throws IOException {
+		File[] files = writeFiles(10000);
+		int[] chunkSizes = {1,7,1024,1024*1024};
+		for(int k=0;k<chunkSizes.length;k++){
+			InputStream is = new java.io.FileInputStream(files[0]);
+			InputStream gis =
+				new GzipPipeInputStream(files[1],chunkSizes[k],3);
+			int b = 0, count = 0;
+			// Alternate single byte and bulk reads.
+			byte[] buf = new byte[100];
+			while((b = gis.read()) >= 0){
+				assertTrue(b == is.read());
+				count++;
+				int n = gis.read(buf,0,buf.length);
+				if(n < 0)break;
+				for(int i=0;i<n;i++){
+					assertTrue(buf[i] == (byte)is.read());
+				}
+				count += n;
+			}
+			assertTrue(is.read() < 0);
+			assertTrue(count == files[0].length());
+			// Stays at end.
+			assertTrue(gis.read() < 0);
+			gis.close();
+			is.close();
+		}
+		files[0].delete();
+		files[1].delete();
+	}
+
+	/**
+	 * Test that closing before the end stops the inflater.
+	 */
+	@Test
+	public void testEarlyClose() throws IOException {
+		File[] files = writeFiles(100000);
+		GzipPipeInputStream gis = new GzipPipeInputStream(files[1],512,2);
+		assertTrue(gis.read() >= 0);
+		gis.close();
+		boolean thrown = false;
+		try{
+			gis.read();
+		}catch(IOException ioe){
+			thrown = true;
+		}
+		assertTrue(thrown);
+		files[0].delete();
+		files[1].delete();
+	}
+
+	/**
+	 * Test that a corrupt compressed file is reported to the reader.
+	 */
+	@Test
+	public void testCorruptFile() throws IOException {
+		File[] files = writeFiles(100000);
+		// Truncate the compressed file.
+		byte[] bytes = new byte[(int)files[1].length()/2];
+		java.io.FileInputStream fis = new java.io.FileInputStream(files[1]);
+		int n = 0;
+		while(n < bytes.length)n += fis.read(bytes,n,bytes.length-n);
+		fis.close();
+		FileOutputStream fos = new FileOutputStream(files[1]);
+		fos.write(bytes);
+		fos.close();
+
+		InputStream gis = new GzipPipeInputStream(files[1]);
+		boolean thrown = false;
+		try{
+			byte[] buf = new byte[4096];
+			while(gis.read(buf,0,buf.length) >= 0);
+		}catch(IOException ioe){
+			thrown = true;
+		}
+		assertTrue(thrown);
+		gis.close();
+		files[0].delete();
+		files[1].delete();
+	}
+
+	/**
+	 * Test of NaspacBridge.openReader(), both for a name ending in ".gz"
+	 * and for a plain name where only the compressed file exists.
+	 */
+	@Test
+	public void testOpenReader() throws IOException {
+		File[] files = writeFiles(1000);
+		BufferedReader br = NaspacBridge.openReader(files[1]);
+		int count = 0;
+		String line = null;
+		while((line = br.readLine()) != null){
+			assertTrue(line.equals("AP    " + count + " VMC"));
+			count++;
+		}
+		br.close();
+		assertTrue(count == 1000);
+
+		// Only the compressed file.
+		File plain = new File(files[0].getPath());
+		assertTrue(files[0].delete());
+		br = NaspacBridge.openReader(plain);
+		count = 0;
+		while((line = br.readLine()) != null)count++;
+		br.close();
+		assertTrue(count == 1000);
+
+		// Neither.
+		assertTrue(files[1].delete());
+		boolean thrown = false;
+		try{
+			NaspacBridge.openReader(plain);
+		}catch(java.io.FileNotFoundException fnfe){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+}
@@ -67,11 +67,14 @@ public class HoldEvent implements IEvent
 		this.timeHold  = timeHold;
 	}
 	/**
-	 * Executes the event.  Holds flights in the given queue.
+	 * Executes the event.  Holds flights in the given queue.  Recorded as a
+	 * {@link JfrHoldEvent} when Flight Recorder is recording.
 	 * @param queue Queue from which event originated.  Will be used
 	 *   to put any events created from this one.
 	 */
     public void processEvent(IQueue<IEvent> queue){
+    	JfrHoldEvent jfr = new JfrHoldEvent();
+    	jfr.begin();
     	// List of events that need to delay times.
     	List<IEvent> list = new ArrayList<IEvent>();
     	// List of events to be put back in the queue.
@@ -130,6 +133,7 @@ public class HoldEvent implements IEvent
 			}
 			extraTime += count;
     	}
+		int extracted = list.size() + putbackList.size();
 		// First, put back events in the queue that aren't delayed.
 		for(IEvent e : putbackList){
 			queue.add(e);
@@ -162,6 +166,17 @@ public class HoldEvent implements IEvent
 			time++;// add one second each time as that is the min time
 				   // to order them.	
 		}
+		
+		jfr.end();
+		if(jfr.shouldCommit()){
+			jfr.typeHeld = typeToHold.name();
+			jfr.message = message.name();
+			jfr.simTime = this.time;
+			jfr.holdTime = timeHold;
+			jfr.extracted = extracted;
+			jfr.held = list.size();
+			jfr.commit();
+		}
 		list.clear();// not necessary, but whatever.
     }
     
@@ -0,0 +1,23 @@
+package org.cna.donley.nassim2_4;
+
+/**
+ * Interface for objects that compute something from the records of an
+ * event log as it is replayed by an {@link EventLogReader}, such as queue
+ * lengths or runway use.
+ * <p>
+ * Called in the order of the events of the run.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+
+public interface IEventLogListener
+{
+	/**
+	 * Called for each record of the log.
+	 * @param record The record.  The same object is given for each
+	 *   record.
+	 * @param reader The reader, from which the params of any flight, as of
+	 *   this record, may be had.
+	 */
+	public void eventLogged(EventLogReader.Record record, EventLogReader reader);
+}
@@ -0,0 +1,26 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.IOException;
+
+/**
+ * Interface for objects that write the flight output, one record per
+ * flight leg.  Any header is written when the writer is created.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+
+public interface IFlightWriter
+{
+	/**
+	 * Writes the record for a flight.
+	 * @param f Flight.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public void write(IFlight f) throws IOException;
+
+	/**
+	 * Writes out anything not yet written and closes the file.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public void close() throws IOException;
+}
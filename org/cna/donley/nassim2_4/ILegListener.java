@@ -0,0 +1,24 @@
+package org.cna.donley.nassim2_4;
+
+/**
+ * Interface for objects that want to know when a flight leg is complete,
+ * that is, when it has parked at its arrival {@link Terminal} and its
+ * actual in time has been set.  No more events are created for a leg
+ * after it is complete, except that its next leg has been released.
+ * <p>
+ * Called on the simulation thread, in event order, so implementations
+ * should return quickly.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+
+public interface ILegListener
+{
+	/**
+	 * Called when a leg is complete.
+	 * @param leg The completed leg.
+	 * @param time Sim time at which it completed.  Same as its actual
+	 *   in time.
+	 */
+	public void legCompleted(IFlight leg, int time);
+}
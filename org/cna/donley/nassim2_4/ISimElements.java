@@ -41,4 +41,12 @@ public interface ISimElements
      * @return {@link INode} array.
      */
     public INode[] getNodes();
+    /**
+     * Releases a flight, so that the container no longer holds on to it.
+     * Its element in the flights array is set to <code>null</code>.  Used
+     * when flights are written out as they complete.
+     * @param flight Flight to release.  Nothing is done if it is not
+     *   held.
+     */
+    public void releaseFlight(IFlight flight);
 }
@@ -0,0 +1,586 @@
+package org.cna.donley.nassim2_4;
+
+import org.cna.donley.jdbc.SQLDate2;
+import org.cna.donley.utils.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Benchmark of reading the NASPAC input files.  Compares reading a file
+ * as is, reading a gzip compressed copy of it through
+ * {@link NaspacBridge#openReader(File)}, which inflates on a separate
+ * thread, and reading the compressed copy inflating on the reading thread.
+ * Each line is split on white space as the bridge readers do, so the
+ * parse work is there to overlap with.
+ * <p>
+ * Usage: <code>InputBenchmark nReps file1 [file2 ...]</code>.  Compressed
+ * copies are written to the temp directory and deleted at the end.  Run
+ * it on the machine and disk the archived scenarios live on, since that
+ * is what decides whether the read or the inflate is the bottleneck.  The
+ * first repetition is a warm-up and is not counted.
+ * <p>
+ * With <code>-readers</code> it instead compares the change capacity, ASPM
+ * rate and pareto curve readers with the versions they replaced, see
+ * {@link #benchmarkReaders(int, int)}.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class InputBenchmark
+{
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "InputBenchmark";
+
+	/**
+	 * Ways of reading a file.
+	 */
+	public enum Mode {PLAIN,GZIP_PIPE,GZIP_INLINE}
+
+	/**
+	 * Main method.
+	 * @param args Number of repetitions followed by the input files.
+	 */
+	public static void main(String[] args){
+		final String method = className + ".main()";
+		if(args.length < 2){
+			System.err.println("Usage: " + className + " nReps file1 [file2 ...]");
+			System.err.println("   or: " + className + " -readers nReps [nAprts]");
+			System.exit(-1);
+		}
+		if(args[0].equals("-readers")){
+			try{
+				benchmarkReaders(Integer.valueOf(args[1]),
+					args.length > 2 ? Integer.valueOf(args[2]) : 500);
+			}catch(IOException ioe){
+				ioe.printStackTrace();
+				System.exit(-1);
+			}
+			return;
+		}
+		int nReps = Integer.valueOf(args[0]);
+		File[] files = new File[args.length-1];
+		File[] gzFiles = new File[files.length];
+		try{
+			for(int i=0;i<files.length;i++){
+				files[i] = new File(args[i+1]);
+				gzFiles[i] = File.createTempFile(files[i].getName() + "_",
+					NaspacBridge.GZIP_SUFFIX);
+				gzFiles[i].deleteOnExit();
+				compress(files[i],gzFiles[i]);
+				System.out.println(method + ": " + files[i] + ": " +
+					files[i].length() + " bytes, compressed: " +
+					gzFiles[i].length() + " bytes.");
+			}
+			for(Mode mode : Mode.values()){
+				File[] in = mode == Mode.PLAIN ? files : gzFiles;
+				long[] times = new long[nReps];
+				long nLines = 0;
+				for(int rep=0;rep<=nReps;rep++){
+					long start = System.nanoTime();
+					nLines = 0;
+					for(int i=0;i<in.length;i++){
+						nLines += readNSplit(in[i],mode);
+					}
+					// First pass is the warm up.
+					if(rep > 0)times[rep-1] = System.nanoTime() - start;
+				}
+				System.out.println(mode + ": lines: " + nLines +
+					", " + summarize(times));
+			}
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			System.exit(-1);
+		}finally{
+			for(int i=0;i<gzFiles.length;i++){
+				if(gzFiles[i] != null)gzFiles[i].delete();
+			}
+		}
+	}
+
+	/**
+	 * Reads a file line by line, splitting each line on white space.
+	 * @param fileNPath File to read.
+	 * @param mode How to read it.
+	 * @return number of lines read.
+	 * @throws IOException if there is a problem reading the file.
+	 */
+	public static long readNSplit(File fileNPath, Mode mode)
+		throws IOException {
+		BufferedReader br = null;
+		long nLines = 0;
+		try{
+			if(mode == Mode.GZIP_INLINE){
+				br = new BufferedReader(new InputStreamReader(
+					new GZIPInputStream(new FileInputStream(fileNPath),
+					GzipPipeInputStream.DEFAULT_CHUNK_SIZE)));
+			} else {
+				br = NaspacBridge.openReader(fileNPath);
+			}
+			String line = null;
+			String whiteSpace = "\\s+";
+			while((line = br.readLine()) != null){
+				StringUtils.splitLine(line,whiteSpace);
+				nLines++;
+			}
+		}finally{
+			if(br != null)br.close();
+		}
+		return nLines;
+	}
+
+	/**
+	 * Writes a gzip compressed copy of a file.
+	 * @param inFileNPath File to compress.
+	 * @param gzFileNPath Compressed file.
+	 * @throws IOException if there is a problem reading or writing.
+	 */
+	public static void compress(File inFileNPath, File gzFileNPath)
+		throws IOException {
+		InputStream is = null;
+		OutputStream os = null;
+		try{
+			is = new FileInputStream(inFileNPath);
+			os = new GZIPOutputStream(new FileOutputStream(gzFileNPath));
+			byte[] buf = new byte[GzipPipeInputStream.DEFAULT_CHUNK_SIZE];
+			int n = 0;
+			while((n = is.read(buf)) >= 0)os.write(buf,0,n);
+		}finally{
+			if(is != null)is.close();
+			if(os != null)os.close();
+		}
+	}
+
+	/**
+	 * Summarizes a set of timings.
+	 * @param times Elapsed times.  Units: nanoseconds
+	 * @return Min, median and max elapsed times in milliseconds.
+	 */
+	public static String summarize(long[] times){
+		long[] t = times.clone();
+		Arrays.sort(t);
+		double toMs = 1.e-6;
+		return String.format("reps: %d, min: %.1f ms, median: %.1f ms, " +
+			"max: %.1f ms", t.length, t[0]*toMs, t[t.length/2]*toMs,
+			t[t.length-1]*toMs);
+	}
+
+	/**
+	 * Compares the single pass change capacity, ASPM rate and pareto curve
+	 * readers in {@link NaspacBridge} with the two pass, split based
+	 * readers they replaced, which are kept below for this purpose.  The
+	 * input files are written to the temp directory for a given number of
+	 * airports, with a change report and an ASPM rate for every airport
+	 * every quarter hour over the 33 hour simulation day, which is what
+	 * the largest scenarios have.  The results of the two versions are
+	 * checked to be the same.
+	 * @param nReps Number of timed repetitions.
+	 * @param nAprts Number of airports.
+	 * @throws IOException if there is a problem writing or reading a file.
+	 */
+	public static void benchmarkReaders(int nReps, int nAprts)
+		throws IOException {
+		final String method = className + ".benchmarkReaders()";
+		final String dayStr = "2008-07-10 00:00:00";
+		final int nQtrHrs = 33*4;
+		String[] aprts = new String[nAprts];
+		for(int i=0;i<nAprts;i++)aprts[i] = String.format("K%03d",i);
+		Nas.destroyInstance();
+		Nas.createInstance(aprts,new String[]{"AAL"},new String[]{"B733"},null);
+		final Nas nas = Nas.getInstance();
+		final SQLDate2 baseDay = new SQLDate2(dayStr,SQLDate2.Element.ss);
+		Nas.Mc[] mcs = Nas.Mc.values();
+
+		final File changeCapFile = File.createTempFile("changeCap",".txt");
+		final File aspmFile = File.createTempFile("aspm",".txt");
+		final File paretoFile = File.createTempFile("pareto",".txt");
+		try{
+			PrintWriter pw = new PrintWriter(changeCapFile);
+			for(int t=0;t<nQtrHrs;t++){
+				pw.println("CHANGE " + 900*t + ";");
+				for(int i=0;i<nAprts;i++){
+					pw.println("AP    " + aprts[i] + " " +
+						mcs[(i+t)%mcs.length].name());
+				}
+			}
+			pw.close();
+			pw = new PrintWriter(aspmFile);
+			pw.println("# aprt,time,adr,aar");
+			for(int i=0;i<nAprts;i++){
+				for(int t=0;t<nQtrHrs;t++){
+					pw.println(aprts[i] + "," + String.format(
+						"2008-07-%02d %02d:%02d:00",10+t/96,(t/4)%24,15*(t%4)) +
+						"," + (40+(i+t)%30) + "," + (44+(i+2*t)%30));
+				}
+			}
+			pw.close();
+			pw = new PrintWriter(paretoFile);
+			for(int i=0;i<4;i++)pw.println("# header");
+			int nPts = 12;
+			for(int i=0;i<nAprts;i++){
+				for(Nas.Mc mc : mcs){
+					StringBuilder sb = new StringBuilder(aprts[i] + " " +
+						mc.name() + " " + nPts);
+					for(int k=0;k<nPts;k++){
+						sb.append(" " + (60.+i%7-5*k) + " " + (5.*k+i%3));
+					}
+					pw.println(sb.toString());
+				}
+			}
+			pw.close();
+			System.out.println(method + ": airports: " + nAprts +
+				", change cap: " + changeCapFile.length() + " bytes, aspm: " +
+				aspmFile.length() + " bytes, pareto: " + paretoFile.length() +
+				" bytes.");
+
+			// Check the results are the same.
+			boolean same = Arrays.deepEquals(
+				NaspacBridge.readChangeCapacities(nas,changeCapFile),
+				readChangeCapacitiesTwoPass(nas,changeCapFile,null)) &&
+				Arrays.deepEquals(
+				NaspacBridge.readAspmAcceptanceRates(nas,baseDay,aspmFile),
+				readAspmAcceptanceRatesTwoPass(nas,baseDay,aspmFile,null)) &&
+				Arrays.deepEquals(
+				NaspacBridge.readParetoCurves(nas,paretoFile),
+				readParetoCurvesTwoPass(nas,paretoFile,null));
+			System.out.println(method + ": results the same: " + same);
+
+			String[] names = {"changeCap two pass","changeCap single pass",
+				"aspm two pass","aspm single pass","pareto two pass",
+				"pareto single pass"};
+			for(int k=0;k<names.length;k++){
+				long[] times = new long[nReps];
+				for(int rep=0;rep<=nReps;rep++){
+					long start = System.nanoTime();
+					switch(k){
+					case 0: readChangeCapacitiesTwoPass(nas,changeCapFile,null);
+						break;
+					case 1: NaspacBridge.readChangeCapacities(nas,changeCapFile);
+						break;
+					case 2: readAspmAcceptanceRatesTwoPass(nas,baseDay,aspmFile,
+						null); break;
+					case 3: NaspacBridge.readAspmAcceptanceRates(nas,baseDay,
+						aspmFile); break;
+					case 4: readParetoCurvesTwoPass(nas,paretoFile,null); break;
+					default: NaspacBridge.readParetoCurves(nas,paretoFile);
+					}
+					// First pass is the warm up.
+					if(rep > 0)times[rep-1] = System.nanoTime() - start;
+				}
+				System.out.println(names[k] + ": " + summarize(times));
+			}
+		}finally{
+			changeCapFile.delete();
+			aspmFile.delete();
+			paretoFile.delete();
+		}
+	}
+
+	/**
+	 * Same as the modeled airport check in {@link NaspacBridge}.
+	 */
+	private static boolean isModeled(BitSet modeledAprts, int aprtIndx){
+		return modeledAprts == null || 
+			(aprtIndx >= 0 && modeledAprts.get(aprtIndx));
+	}
+
+	//-------------------------------------------------------------------------
+	// The readers as they were before the single pass LineTokenizer versions,
+	// kept to compare against.
+	//-------------------------------------------------------------------------
+
+	static int[][][] readChangeCapacitiesTwoPass(Nas nas, 
+		File changeCapFileNPath, BitSet modeledAprts){
+		if(nas == null){
+			final String method = className + ".readChangeCapacities()";
+			throw new IllegalArgumentException(method + ": input Nas object"
+				+ " is null.");
+		}
+		int numAprts = nas.getNumAirports();
+		int[][][] changeCaps = new int[numAprts][][];
+		
+		BufferedReader br = null;
+		try {
+			// First open the file and count how many entries for each 
+			// airport.
+			br = NaspacBridge.openReader(changeCapFileNPath);
+			int[] numEntries = new int[numAprts];
+			String line = null;
+			String aprt = null;
+			int aprtIndx = 0;
+			while((line = br.readLine()) != null){
+				if(line.length() > 4 && line.substring(0,2).equals("AP")){
+					aprt = line.substring(6,10).trim();
+					aprtIndx = nas.getAirportIndex(aprt);
+					if(isModeled(modeledAprts,aprtIndx))numEntries[aprtIndx]++;
+				}	
+			}
+			br.close();
+			for(int i=0;i<numAprts;i++){
+				int num = numEntries[i];
+				if(num > 0) changeCaps[i] = new int[num][2];
+				else changeCaps[i] = null;
+			}
+			// Read file again.
+			for(int i=0;i<numEntries.length;i++){
+				numEntries[i] = 0;
+			}
+			br = NaspacBridge.openReader(changeCapFileNPath);
+			String ac = null, tStr = null;
+			int count=0,time=0,acIndx = 0;
+			while((line = br.readLine()) != null){
+				
+				if(line.length() > 6 && line.substring(0,2).equals("AP")){
+					aprt = line.substring(6,10).trim();
+					aprtIndx = nas.getAirportIndex(aprt);
+					// Skip airports that are not modeled.
+					if(!isModeled(modeledAprts,aprtIndx))continue;
+					ac   = line.substring(10,line.length()).trim();
+					acIndx = nas.getMcIndex(ac);
+					count = numEntries[aprtIndx];
+					
+					changeCaps[aprtIndx][count][0] = time ;
+					changeCaps[aprtIndx][count][1] = acIndx;
+					numEntries[aprtIndx]++;                
+				}else if(line.length() > 6 && line.substring(0,6).equals("CHANGE")){
+					tStr = line.substring(7,line.length());
+					time=Integer.valueOf(tStr.substring(0,tStr.length()-1));
+				}
+			}
+			
+		}catch(FileNotFoundException fnfe){
+			fnfe.printStackTrace();
+			return null;
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return null;
+		}finally {
+			try{
+				br.close();
+			}catch(IOException ioe){}
+		}	
+		return changeCaps;	
+	}
+
+	static int[][][] readAspmAcceptanceRatesTwoPass(Nas nas, 
+		SQLDate2 baseDay, File acceptRatesFileNPath, BitSet modeledAprts){
+		final String method = className + ".readHistoricalAcceptanceRates()";
+		
+		int[][][] rates = new int[nas.getNumAirports()][][];
+		// null out all array elements.  Any airport for which there is
+		// no data will have a null array.
+		for(int i=0;i<rates.length;i++)rates[i] = null;
+		
+		BufferedReader br = null;
+		try{
+			//-----------------------------------------------------------------
+			// Do checks on data and set up arrays.
+			//-----------------------------------------------------------------
+			// Do some checks, but mostly just rely on natural exceptions to catch 
+			// things.
+			br = NaspacBridge.openReader(acceptRatesFileNPath);
+			String line = null;
+			int nSkip = 0;
+			while((line = br.readLine()) != null){
+				if(line.trim().charAt(0) != '#')break;
+				nSkip++;
+			}
+			br.close();
+			br = NaspacBridge.openReader(acceptRatesFileNPath);
+			for(int i=0;i<nSkip;i++)br.readLine();
+			
+			// Read data for the first airport to get number of times.
+			// Read data for other airports to make sure they all have
+			// the same number of times.
+			String aprt = null;
+			String[] ss = null;
+			String comma = ",";
+			int aprtIndx = -1;
+			int lastAprtIndx = Integer.MAX_VALUE;
+			int aprtCount = 0,timeCount=0,count=0;
+			int firstAprtIndx = -1;
+			boolean firstAprtFound = false;
+			while((line = br.readLine()) != null){
+				
+				// Only the airport is needed to check the layout.
+				aprt = line.substring(0,line.indexOf(comma)).trim();
+				aprtIndx = nas.getAirportIndex(aprt);
+				
+				// Do calc for first airport
+				if(firstAprtFound == false){
+					firstAprtFound = true;
+					firstAprtIndx = aprtIndx;
+				}
+				if(aprtIndx == firstAprtIndx){
+					timeCount++;
+				}
+				// Count airports.
+				if(aprtIndx != lastAprtIndx){
+					lastAprtIndx = aprtIndx;
+					aprtCount++;
+				}
+				// Count all lines.
+				count++;
+			}
+			br.close();
+			if(aprtCount*timeCount != count){
+				throw new IllegalArgumentException(method + ": total number of " +
+					" times not equal to the num aprts * num times from first " +
+					" airport in file: " + acceptRatesFileNPath);
+			}
+			
+			//-------------------------------------------------------------------
+			// Extract data from file.
+			//-------------------------------------------------------------------
+			br = NaspacBridge.openReader(acceptRatesFileNPath);
+			for(int i=0;i<nSkip;i++) br.readLine();
+			
+			aprtCount = 0; 
+			lastAprtIndx = Integer.MAX_VALUE;
+			while((line = br.readLine()) != null){
+				aprt = line.substring(0,line.indexOf(comma)).trim();
+				aprtIndx = nas.getAirportIndex(aprt);
+				// Skip airports that are not modeled.
+				if(!isModeled(modeledAprts,aprtIndx))continue;
+				ss = line.split(comma);
+				
+				// Check for new airport.
+				if(aprtIndx != lastAprtIndx){
+					lastAprtIndx = aprtIndx;
+					rates[aprtIndx] = new int[timeCount][2];
+					// reset array count.
+					count = 0;
+					// Check if start time for data is correct. 
+					SQLDate2 date = 
+						new SQLDate2(ss[1].trim(),SQLDate2.Element.ss);
+					if(!date.equals(baseDay)){
+						throw new IllegalArgumentException(method + ": starting " +
+							"time for airport: " + aprt + ", is not the base day " +
+							"time: " + baseDay);
+					}
+				}
+				rates[aprtIndx][count][Nas.Ad.DEP.ordinal()] = 
+					Integer.valueOf(ss[2].trim())/4;
+				rates[aprtIndx][count][Nas.Ad.ARR.ordinal()] = 
+					Integer.valueOf(ss[3].trim())/4;
+				                
+				count++;
+			}
+			br.close();
+				
+		}catch(FileNotFoundException fnfe){
+			fnfe.printStackTrace();
+			return null;
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return null;
+		}finally {
+			try{
+				br.close();
+			}catch(IOException ioe){}
+		}	
+		return rates;
+	}
+
+	static double[][][][] readParetoCurvesTwoPass(Nas nas, File paretoFile,
+		BitSet modeledAprts){
+		int nAprts = nas.getNumAirports();
+		double[][][][] curves = new double[nAprts][][][];
+		
+		// null out curves.  Is done so that a null value indicates
+		// that the curve is not present.  Yes, I know that Java does
+		// this automatically, but I'm making sure.
+		for(int i=0;i<nAprts;i++){
+			curves[i] = null;
+		}
+		
+		BufferedReader br = null;
+		try{
+			br = NaspacBridge.openReader(paretoFile);
+			String line = null;
+			String[] ss = null;
+			String whiteSpace = "\\s+";
+			
+			// Skip first 4 lines;
+			int nSkip = 4;
+			for(int i=0;i<nSkip;i++) br.readLine();
+
+			// Now count lines to see how many there are.
+			// If line count is not consistent with number of airports,
+			// then return null.  It is assumed that if an airport 
+			// has a missing capacity curve, then a default was loaded
+			// by the ChangeFileGenerator class.
+			int count = 0;
+			while((line = br.readLine()) != null){
+				count++;
+			}
+			br.close();
+			if(count%(Nas.Mc.values().length) != 0){
+				final String method = className + ".readParetoCurves()";
+				throw new IllegalArgumentException(method + ": number of" +
+					" lines in pareto file isn't consistent with the number "+
+					" of airports in the file.");
+			}
+			
+			// Now read file for real.
+			br = NaspacBridge.openReader(paretoFile);
+			for(int i=0;i<nSkip;i++) br.readLine();
+			String aprtCond = null, aprt = null;
+			int numPts = 0;
+			int lastAprtIndx = Integer.MAX_VALUE;
+			while((line = br.readLine()) != null){
+				// Add it to the airport if the airport is in the list
+				// and is modeled.  If not, then we don't care about that 
+				// airport, so don't bother parsing the rest of the line.
+				String tLine = line.trim();
+				int end = 0;
+				while(end < tLine.length() && 
+					!Character.isWhitespace(tLine.charAt(end)))end++;
+				aprt = tLine.substring(0,end);
+				int indxAprt = nas.getAirportIndex(aprt);
+				if(indxAprt >= 0 && isModeled(modeledAprts,indxAprt)){
+					ss = StringUtils.splitLine(line,whiteSpace);
+					aprtCond = ss[1];
+					numPts = Integer.valueOf(ss[2].trim());
+					double[][] cs  = new double[numPts][2];
+					int indx = 0;
+					for(int i=3;i<3+2*numPts;i+=2){
+						cs[indx][Nas.Ad.ARR.ordinal()] = Double.valueOf(ss[i].trim())/4.;
+						cs[indx][Nas.Ad.DEP.ordinal()] = Double.valueOf(ss[i+1].trim())/4.;	
+						indx++;
+					}
+					if(indxAprt != lastAprtIndx){
+						// create array if this is the first pass at the airport.
+						curves[indxAprt] = new double[Nas.Mc.values().length][][];
+						lastAprtIndx = indxAprt;
+					}
+					curves[indxAprt][nas.getMcIndex(aprtCond)] = cs;
+				}
+			}
+		}catch(FileNotFoundException fnfe){
+			fnfe.printStackTrace();
+			return null;
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return null;
+		}finally {
+			try{
+				br.close();
+			}catch(IOException ioe){}
+		}	
+		return curves;
+	}
+}
@@ -0,0 +1,120 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the Flight Recorder events of the sim.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class JfrEventsTest
+{
+	private static final String prefix = "org.cna.donley.nassim2_4.";
+	private static final String[] names = {"ProcessEvent","QueueDepth",
+		"NodeQueueDepth","HoldProgram","LoaderStage"};
+
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+	}
+
+	private static List<RecordedEvent> select(List<RecordedEvent> events,
+		String name){
+		List<RecordedEvent> list = new ArrayList<RecordedEvent>();
+		for(RecordedEvent e : events){
+			if(e.getEventType().getName().equals(prefix + name))list.add(e);
+		}
+		return list;
+	}
+
+	/**
+	 * Test that a recorded run has the sampled events, the queue depths,
+	 * the hold programs and the loader stages.
+	 */
+	@Test
+	public void testRecording() throws IOException {
+		Recording r = new Recording();
+		for(String name : names){
+			r.enable(prefix + name).withThreshold(Duration.ZERO);
+		}
+		r.start();
+		EngineBenchmark.Bench b = EngineBenchmark.benchDay(3000);
+		b.setUp();
+		long numEvents = b.run();
+		// A hold of the departures of a runway with ten of each in the queue.
+		Runway rw = new Runway(0,0,false,null,null,null,null);
+		IQueue<IEvent> queue = new EventQueue();
+		for(int i=0;i<20;i++){
+			int[] pars = new int[IFlight.Param.values().length];
+			pars[IFlight.Param.CALC_OFF_TIME.ordinal()] = 20 - i;
+			queue.add(new RunwayEvent(rw,new Flight(pars),i%2 == 0 ?
+				IEvent.Cmd.DEP : IEvent.Cmd.ARR,1000 + 10*i));
+		}
+		new HoldEvent(IEvent.Type.RUNWAY,rw,IEvent.Cmd.HOLD_DEP,
+			IFlight.Param.CALC_OFF_TIME,1000,1500).processEvent(queue);
+		JfrLoaderStageEvent stage = JfrLoaderStageEvent.start("test","first");
+		stage = stage.next("second");
+		stage.finish();
+		r.stop();
+		File f = File.createTempFile("nassim",".jfr");
+		r.dump(f.toPath());
+		r.close();
+		List<RecordedEvent> events = RecordingFile.readAllEvents(f.toPath());
+		f.delete();
+
+		// One in the default 100 is sampled.
+		List<RecordedEvent> list = select(events,"ProcessEvent");
+		assertTrue(list.size() == numEvents/100);
+		for(RecordedEvent e : list){
+			assertTrue(e.getInt("sampleInterval") == 100);
+			assertTrue(e.getString("eventType") != null);
+		}
+
+		// One a quarter hour, though not read in order.
+		list = select(events,"QueueDepth");
+		assertTrue(list.size() > 24);
+		int[] times = new int[list.size()];
+		for(int i=0;i<times.length;i++)times[i] = list.get(i).getInt("simTime");
+		Arrays.sort(times);
+		for(int i=1;i<times.length;i++){
+			assertTrue(times[i]/900 > times[i-1]/900);
+		}
+		for(RecordedEvent e : select(events,"NodeQueueDepth")){
+			assertTrue(e.getInt("depth") > 0);
+			assertTrue(e.getString("nodeKind").equals("Runway") ||
+				e.getString("nodeKind").equals("Fix"));
+		}
+
+		list = select(events,"HoldProgram");
+		assertTrue(list.size() == 1);
+		assertTrue(list.get(0).getInt("held") == 10);
+		assertTrue(list.get(0).getInt("extracted") == 20);
+		assertTrue(list.get(0).getInt("holdTime") == 1500);
+
+		// Those of the test, and those of generating the day.
+		List<String> stages = new ArrayList<String>();
+		List<String> generated = new ArrayList<String>();
+		for(RecordedEvent e : select(events,"LoaderStage")){
+			if(e.getString("loader").equals("test")){
+				stages.add(e.getString("stage"));
+			} else if(e.getString("loader").equals("ScenarioGenerator")){
+				generated.add(e.getString("stage"));
+			}
+		}
+		assertTrue(stages.equals(Arrays.asList("first","second")));
+		assertTrue(generated.contains("flights") && generated.contains("routes"));
+	}
+}
@@ -0,0 +1,49 @@
+package org.cna.donley.nassim2_4;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a hold program, i.e., the processing of a
+ * {@link HoldEvent}, which pulls sim events out of the main queue to
+ * find those to hold and puts them all back.  Its duration is that of
+ * the processing.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+@Name("org.cna.donley.nassim2_4.HoldProgram")
+@Label("Hold Program")
+@Category({"NasSim","Engine"})
+@Description("Processing of a hold event.")
+@StackTrace(false)
+public class JfrHoldEvent extends jdk.jfr.Event
+{
+	@Label("Type Held")
+	@Description("Type of the sim events held, e.g., RUNWAY.")
+	String typeHeld;
+
+	@Label("Message")
+	@Description("HOLD_DEP or HOLD_ARR.")
+	String message;
+
+	@Label("Sim Time")
+	@Description("Time of the hold event.  Units: seconds from midnight " +
+		"of the base day.")
+	int simTime;
+
+	@Label("Hold Time")
+	@Description("Time the held events are moved to.  Units: seconds from " +
+		"midnight of the base day.")
+	int holdTime;
+
+	@Label("Extracted")
+	@Description("Number of sim events taken out of the main queue.")
+	int extracted;
+
+	@Label("Held")
+	@Description("Number of sim events held.")
+	int held;
+}
@@ -0,0 +1,66 @@
+package org.cna.donley.nassim2_4;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a stage of loading the sim inputs, e.g., the
+ * flights or the capacities in {@link NaspacBridge#initialize()}.  A loader
+ * goes through its stages with {@link #start(String, String)} and
+ * {@link #next(String)}, and ends the last with {@link #finish()}.  Each
+ * stage is also a phase of the {@link PhaseProfiler} of the thread, if
+ * one is started.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+@Name("org.cna.donley.nassim2_4.LoaderStage")
+@Label("Loader Stage")
+@Category({"NasSim","Loader"})
+@Description("A stage of loading the sim inputs.")
+@StackTrace(false)
+public class JfrLoaderStageEvent extends jdk.jfr.Event
+{
+	@Label("Loader")
+	@Description("Class doing the loading.")
+	String loader;
+
+	@Label("Stage")
+	String stage;
+
+	/**
+	 * Starts a stage.
+	 * @param loader Class doing the loading.
+	 * @param stage Name of the stage.
+	 * @return the event.
+	 */
+	static JfrLoaderStageEvent start(String loader, String stage){
+		JfrLoaderStageEvent e = new JfrLoaderStageEvent();
+		e.loader = loader;
+		e.stage = stage;
+		PhaseProfiler.enter(stage);
+		e.begin();
+		return e;
+	}
+
+	/**
+	 * Ends this stage and starts the next one.
+	 * @param nextStage Name of the next stage.
+	 * @return the event of the next stage.
+	 */
+	JfrLoaderStageEvent next(String nextStage){
+		finish();
+		return start(loader,nextStage);
+	}
+
+	/**
+	 * Ends this stage and commits it, if it is being recorded.
+	 */
+	void finish(){
+		end();
+		if(shouldCommit())commit();
+		PhaseProfiler.exit(stage);
+	}
+}
@@ -0,0 +1,91 @@
+package org.cna.donley.nassim2_4;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for the depth of a runway or fix queue, taken with
+ * the {@link JfrQueueDepthEvent}.  Only queues with flights in them are
+ * recorded.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+@Name("org.cna.donley.nassim2_4.NodeQueueDepth")
+@Label("Node Queue Depth")
+@Category({"NasSim","Engine"})
+@Description("Depth of a non-empty runway or fix queue at a quarter hour " +
+	"of sim time.")
+@StackTrace(false)
+public class JfrNodeQueueEvent extends jdk.jfr.Event
+{
+	@Label("Sim Time")
+	@Description("Units: seconds from midnight of the base day.")
+	int simTime;
+
+	@Label("Node Kind")
+	@Description("Runway or Fix.")
+	String nodeKind;
+
+	@Label("Node")
+	@Description("Airport of the runway or name of the fix.")
+	String node;
+
+	@Label("Direction")
+	@Description("DEP or ARR.")
+	String direction;
+
+	@Label("Depth")
+	@Description("Number of flights in the queue.")
+	int depth;
+
+	@Label("Held")
+	@Description("Whether a hold event is pending for the queue.")
+	boolean held;
+
+	/**
+	 * Commits the depths of the non-empty runway and fix queues, if they
+	 * are being recorded.
+	 * @param simTime Sim time.  Units: seconds
+	 * @param nodes Network nodes.
+	 */
+	static void record(int simTime, INode[] nodes){
+		if(!new JfrNodeQueueEvent().isEnabled())return;
+		Nas nas = Nas.getInstance();
+		for(INode n : nodes){
+			if(n instanceof Runway){
+				Runway r = (Runway)n;
+				for(Nas.Ad ad : Nas.Ad.values()){
+					int depth = r.getQueue(ad).size();
+					if(depth > 0){
+						record(simTime,"Runway",
+							nas.getAirportFromIndex(r.getAirport()),ad,depth,
+							r.getQueueHoldStatus(ad));
+					}
+				}
+			} else if(n instanceof Fix){
+				Fix f = (Fix)n;
+				int depth = f.getQueue().size();
+				if(depth > 0){
+					record(simTime,"Fix",nas.getFixNameFromIndex(f.getFixType(),
+						f.getName()),f.getFixType(),depth,f.getQueueHoldStatus());
+				}
+			}
+		}
+	}
+
+	private static void record(int simTime, String nodeKind, String node,
+		Nas.Ad ad, int depth, boolean held){
+		JfrNodeQueueEvent e = new JfrNodeQueueEvent();
+		if(!e.shouldCommit())return;
+		e.simTime = simTime;
+		e.nodeKind = nodeKind;
+		e.node = node;
+		e.direction = ad.name();
+		e.depth = depth;
+		e.held = held;
+		e.commit();
+	}
+}
@@ -0,0 +1,62 @@
+package org.cna.donley.nassim2_4;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for the processing of a sim event by
+ * {@link NasSimEventDriven#run()}.  Only one sim event in
+ * "jfrSampleInterval" is timed, so the cost is small even when recording;
+ * when not recording the event object is never committed and costs next
+ * to nothing.  See nassim.jfc for the settings.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+@Name("org.cna.donley.nassim2_4.ProcessEvent")
+@Label("Sim Event Processed")
+@Category({"NasSim","Engine"})
+@Description("Processing of a sampled sim event.")
+@StackTrace(false)
+public class JfrProcessEvent extends jdk.jfr.Event
+{
+	@Label("Event Type")
+	@Description("Type of the sim event, e.g., RUNWAY.")
+	String eventType;
+
+	@Label("Message")
+	@Description("Message of the sim event, e.g., DEP.")
+	String message;
+
+	@Label("Node Kind")
+	@Description("Class of the node of the sim event.")
+	String nodeKind;
+
+	@Label("Sim Time")
+	@Description("Time of the sim event.  Units: seconds from midnight " +
+		"of the base day.")
+	int simTime;
+
+	@Label("Sample Interval")
+	@Description("One sim event in this many is recorded.")
+	int sampleInterval;
+
+	/**
+	 * Ends the event and commits it, if it is being recorded.
+	 * @param e The sim event that was processed.
+	 * @param interval Sample interval.
+	 */
+	void finish(IEvent e, int interval){
+		end();
+		if(!shouldCommit())return;
+		eventType = e.getType() == null ? null : e.getType().name();
+		message = e.getMessage() == null ? null : e.getMessage().name();
+		nodeKind = e.getNode() == null ? null :
+			e.getNode().getClass().getSimpleName();
+		simTime = e.getTime();
+		sampleInterval = interval;
+		commit();
+	}
+}
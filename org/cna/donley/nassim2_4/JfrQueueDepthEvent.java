@@ -0,0 +1,54 @@
+package org.cna.donley.nassim2_4;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for the depth of the main event queue, taken by
+ * {@link NasSimEventDriven#run()} at each quarter hour of sim time.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+@Name("org.cna.donley.nassim2_4.QueueDepth")
+@Label("Main Queue Depth")
+@Category({"NasSim","Engine"})
+@Description("Depth of the main event queue at a quarter hour of sim time.")
+@StackTrace(false)
+public class JfrQueueDepthEvent extends jdk.jfr.Event
+{
+	@Label("Sim Time")
+	@Description("Units: seconds from midnight of the base day.")
+	int simTime;
+
+	@Label("Depth")
+	@Description("Number of sim events in the main queue.")
+	int depth;
+
+	@Label("Events Processed")
+	@Description("Number of sim events processed so far in the run.")
+	long eventsProcessed;
+
+	/**
+	 * Commits the depth of the main queue and, as
+	 * {@link JfrNodeQueueEvent}s, those of the runway and fix queues, if
+	 * they are being recorded.
+	 * @param simTime Sim time.  Units: seconds
+	 * @param mainQueue Main event queue.
+	 * @param eventsProcessed Sim events processed so far.
+	 * @param nodes Network nodes.
+	 */
+	static void record(int simTime, IQueue<IEvent> mainQueue,
+		long eventsProcessed, INode[] nodes){
+		JfrQueueDepthEvent e = new JfrQueueDepthEvent();
+		if(e.shouldCommit()){
+			e.simTime = simTime;
+			e.depth = mainQueue.size();
+			e.eventsProcessed = eventsProcessed;
+			e.commit();
+		}
+		JfrNodeQueueEvent.record(simTime,nodes);
+	}
+}
@@ -0,0 +1,109 @@
+package org.cna.donley.nassim2_4;
+
+/**
+ * Histogram of durations in nanoseconds, cheap enough to record every
+ * event of a run.  Like {@link QuantileSketch}, the buckets grow
+ * geometrically, but they are found from the bits of the value instead of
+ * a logarithm: each power of two is split into {@link #SUB_BUCKETS}
+ * buckets, so a quantile is within 1/{@link #SUB_BUCKETS} of the true
+ * value, relative to its size, and values below {@link #SUB_BUCKETS} are
+ * exact.  The buckets are allocated up front, so recording never
+ * allocates.  The count, total and max are exact.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class LatencyHistogram
+{
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "LatencyHistogram";
+
+	/** Bits of a value below its leading bit that pick the bucket. */
+	private static final int SUB_BITS = 4;
+
+	/** Buckets of each power of two. */
+	public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/** Buckets of all positive longs. */
+	private static final int NUM_BUCKETS = (64 - SUB_BITS)*SUB_BUCKETS;
+
+	private final long[] counts = new long[NUM_BUCKETS];
+	private long count = 0, total = 0, max = 0;
+
+	/**
+	 * Records a duration.  Negative durations, which a clock that went back
+	 * might give, are recorded as zero.
+	 * @param nanos Duration.  Units: nanoseconds
+	 */
+	public void record(long nanos){
+		if(nanos < 0)nanos = 0;
+		counts[bucket(nanos)]++;
+		count++;
+		total += nanos;
+		if(nanos > max)max = nanos;
+	}
+
+	private static int bucket(long v){
+		if(v < SUB_BUCKETS)return (int)v;
+		int e = 63 - Long.numberOfLeadingZeros(v);
+		int sub = (int)(v >>> (e - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (e - SUB_BITS + 1)*SUB_BUCKETS + sub;
+	}
+
+	/** Smallest value of a bucket. */
+	private static long lowerBound(int k){
+		if(k < SUB_BUCKETS)return k;
+		int e = k/SUB_BUCKETS + SUB_BITS - 1;
+		return (long)(SUB_BUCKETS + k%SUB_BUCKETS) << (e - SUB_BITS);
+	}
+
+	/** Number of values of a bucket. */
+	private static long width(int k){
+		if(k < SUB_BUCKETS)return 1;
+		return 1L << (k/SUB_BUCKETS - 1);
+	}
+
+	/**
+	 * Adds the counts of another histogram to this one.
+	 * @param other Another histogram.
+	 */
+	public void merge(LatencyHistogram other){
+		for(int k=0;k<NUM_BUCKETS;k++)counts[k] += other.counts[k];
+		count += other.count;
+		total += other.total;
+		max = Math.max(max,other.max);
+	}
+
+	/** @return Number of durations recorded. */
+	public long getCount(){return count;}
+	/** @return Sum of the durations.  Units: nanoseconds */
+	public long getTotal(){return total;}
+	/** @return Longest duration.  Units: nanoseconds */
+	public long getMax(){return max;}
+
+	/**
+	 * Estimates a quantile, as the middle of its bucket, but no more than
+	 * the max.
+	 * @param q Quantile, between 0 and 1.  For example, 0.99 for the 99th
+	 *   percentile.
+	 * @return the estimate; 0 if nothing was recorded.  Units: nanoseconds
+	 */
+	public long getQuantile(double q){
+		if(q < 0. || q > 1.){
+			final String method = className + ".getQuantile()";
+			throw new IllegalArgumentException(method + ": quantile, " + q +
+				", is not between 0 and 1.");
+		}
+		if(count == 0)return 0;
+		long rank = Math.max(1,(long)Math.ceil(q*count));
+		long n = 0;
+		for(int k=0;k<NUM_BUCKETS;k++){
+			n += counts[k];
+			if(n >= rank){
+				return Math.min(max,lowerBound(k) + (width(k) - 1)/2);
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,399 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a character stream a line at a time into a single growable buffer
+ * and splits each line into fields without regular expressions or per line
+ * allocations.  The fields are held as start and end offsets into the
+ * buffer; a <code>String</code> is only created when a caller asks for
+ * one, and integer fields are parsed in place.  It is meant for the big
+ * input files, where <code>readLine()</code> followed by
+ * <code>split()</code> creates several objects for every line.
+ * <p>
+ * Fields are separated either by runs of white space, in which case
+ * leading and trailing white space on the line is ignored as in
+ * <code>StringUtils.splitLine(line,"\\s+")</code>, or by a single
+ * delimiter character, in which case each field is trimmed of white space.
+ * Lines end with "\n", "\r" or "\r\n", as for
+ * {@link java.io.BufferedReader#readLine()}.
+ * <p>
+ * The contents of the current line are only valid until the next call of
+ * {@link #next()}.  Not thread safe.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class LineTokenizer
+{
+	/**
+	 * Delimiter value meaning fields are separated by runs of white space.
+	 */
+	public static final char WHITE_SPACE = 0;
+	/**
+	 * Initial size of the buffer. Units: chars
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64*1024;
+
+	private final Reader in;
+	private final char delim;
+
+	/** Buffer, grown if a line doesn't fit. */
+	private char[] buf;
+	/** End of the valid chars in the buffer. */
+	private int limit = 0;
+	/** Start of the next line in the buffer. */
+	private int pos = 0;
+	/** Set once the stream has been read to the end. */
+	private boolean eof = false;
+	/** Set if the last line ended with "\r", so a leading "\n" is skipped. */
+	private boolean skipLF = false;
+
+	/** Current line. */
+	private int lineStart = 0, lineEnd = 0;
+	/** Number of lines read so far. */
+	private long lineNumber = 0;
+
+	/** Fields of the current line, set on first use. */
+	private boolean tokenized = false;
+	private int numFields = 0;
+	private int[] fieldStart = new int[16];
+	private int[] fieldEnd = new int[16];
+
+	/**
+	 * Constructor.
+	 * @param in Stream to read.
+	 * @param delim Field delimiter or {@link #WHITE_SPACE}.
+	 */
+	public LineTokenizer(Reader in, char delim){
+		this(in,delim,DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * @param in Stream to read.
+	 * @param delim Field delimiter or {@link #WHITE_SPACE}.
+	 * @param bufferSize Initial size of the buffer. Units: chars
+	 */
+	public LineTokenizer(Reader in, char delim, int bufferSize){
+		if(in == null || bufferSize <= 0){
+			final String method = this.getClass().getName();
+			throw new IllegalArgumentException(method + ": reader is null " +
+				"or buffer size is not positive.");
+		}
+		this.in = in;
+		this.delim = delim;
+		buf = new char[bufferSize];
+	}
+
+	/**
+	 * Moves to the next line.
+	 * @return <code>true</code> if there is a line; <code>false</code> at
+	 *   the end of the stream.
+	 * @throws IOException if the stream can't be read.
+	 */
+	public boolean next() throws IOException {
+		tokenized = false;
+		int scan = pos;
+		while(true){
+			if(skipLF){
+				if(scan == limit && !fill())return false;
+				// fill() may have moved the line start.
+				scan = pos;
+				if(buf[scan] == '\n'){
+					scan++;
+					pos = scan;
+				}
+				skipLF = false;
+			}
+			while(scan < limit){
+				char c = buf[scan];
+				if(c == '\n' || c == '\r'){
+					lineStart = pos;
+					lineEnd = scan;
+					pos = scan + 1;
+					if(c == '\r'){
+						if(pos < limit){
+							if(buf[pos] == '\n')pos++;
+						} else {
+							skipLF = true;
+						}
+					}
+					lineNumber++;
+					return true;
+				}
+				scan++;
+			}
+			// No end of line in the buffer.
+			int scanned = scan - pos;
+			if(!fill()){
+				if(scanned == 0)return false;
+				// Last line has no end of line.
+				lineStart = pos;
+				lineEnd = pos + scanned;
+				pos = lineEnd;
+				lineNumber++;
+				return true;
+			}
+			scan = pos + scanned;
+		}
+	}
+
+	/**
+	 * Moves the unread part of the buffer to the front, growing the buffer
+	 * if it is all unread, and reads more chars.
+	 * @return <code>false</code> if at the end of the stream.
+	 */
+	private boolean fill() throws IOException {
+		if(eof)return false;
+		int unread = limit - pos;
+		if(unread == buf.length){
+			char[] b = new char[2*buf.length];
+			System.arraycopy(buf,pos,b,0,unread);
+			buf = b;
+		} else if(pos > 0){
+			System.arraycopy(buf,pos,buf,0,unread);
+		}
+		pos = 0;
+		limit = unread;
+		int n = 0;
+		while((n = in.read(buf,limit,buf.length-limit)) == 0);
+		if(n < 0){
+			eof = true;
+			return false;
+		}
+		limit += n;
+		return true;
+	}
+
+	/**
+	 * Splits the current line into fields.
+	 */
+	private void tokenize(){
+		numFields = 0;
+		int i = lineStart;
+		if(delim == WHITE_SPACE){
+			while(true){
+				while(i < lineEnd && Character.isWhitespace(buf[i]))i++;
+				if(i == lineEnd)break;
+				int start = i;
+				while(i < lineEnd && !Character.isWhitespace(buf[i]))i++;
+				addField(start,i);
+			}
+		} else {
+			int start = i;
+			while(true){
+				while(i < lineEnd && buf[i] != delim)i++;
+				// Trim the field.
+				int s = start, e = i;
+				while(s < e && Character.isWhitespace(buf[s]))s++;
+				while(e > s && Character.isWhitespace(buf[e-1]))e--;
+				addField(s,e);
+				if(i == lineEnd)break;
+				start = ++i;
+			}
+		}
+		tokenized = true;
+	}
+
+	private void addField(int start, int end){
+		if(numFields == fieldStart.length){
+			int[] s = new int[2*numFields];
+			int[] e = new int[2*numFields];
+			System.arraycopy(fieldStart,0,s,0,numFields);
+			System.arraycopy(fieldEnd,0,e,0,numFields);
+			fieldStart = s;
+			fieldEnd = e;
+		}
+		fieldStart[numFields] = start;
+		fieldEnd[numFields] = end;
+		numFields++;
+	}
+
+	/**
+	 * Checks a field index, splitting the line first if needed.
+	 */
+	private void checkField(int i){
+		if(!tokenized)tokenize();
+		if(i < 0 || i >= numFields){
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+	}
+
+	/**
+	 * @return Number of lines read so far, i.e., the number of the current
+	 *   line, counting from one.
+	 */
+	public long getLineNumber(){
+		return lineNumber;
+	}
+
+	/**
+	 * @return Length of the current line.
+	 */
+	public int length(){
+		return lineEnd - lineStart;
+	}
+
+	/**
+	 * @param i Index in the current line.
+	 * @return Character at that index.
+	 */
+	public char charAt(int i){
+		if(i < 0 || i >= lineEnd - lineStart){
+			throw new StringIndexOutOfBoundsException(i);
+		}
+		return buf[lineStart+i];
+	}
+
+	/**
+	 * @param prefix Prefix
+	 * @return <code>true</code> if the current line starts with the prefix.
+	 */
+	public boolean startsWith(String prefix){
+		if(prefix.length() > lineEnd - lineStart)return false;
+		for(int i=0;i<prefix.length();i++){
+			if(buf[lineStart+i] != prefix.charAt(i))return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return The first character of the current line that is not white
+	 *   space, or -1 if the line is blank.
+	 */
+	public int firstNonWhiteSpace(){
+		for(int i=lineStart;i<lineEnd;i++){
+			if(!Character.isWhitespace(buf[i]))return buf[i];
+		}
+		return -1;
+	}
+
+	/**
+	 * Same as <code>String.substring()</code> on the current line.
+	 * @param from Start index.
+	 * @param to End index, exclusive.
+	 * @return the substring.
+	 */
+	public String substring(int from, int to){
+		if(from < 0 || to > lineEnd - lineStart || from > to){
+			throw new StringIndexOutOfBoundsException("from: " + from +
+				", to: " + to + ", length: " + (lineEnd - lineStart));
+		}
+		return new String(buf,lineStart+from,to-from);
+	}
+
+	/**
+	 * Parses an integer from part of the current line.  Same as
+	 * <code>Integer.parseInt(substring(from,to))</code>.
+	 * @param from Start index.
+	 * @param to End index, exclusive.
+	 * @return the value.
+	 */
+	public int parseInt(int from, int to){
+		if(from < 0 || to > lineEnd - lineStart || from > to){
+			throw new StringIndexOutOfBoundsException("from: " + from +
+				", to: " + to + ", length: " + (lineEnd - lineStart));
+		}
+		return parseIntAt(lineStart+from,lineStart+to);
+	}
+
+	/**
+	 * Parses a decimal integer from the buffer without creating a string.
+	 */
+	private int parseIntAt(int start, int end){
+		int i = start;
+		boolean neg = false;
+		if(i < end && (buf[i] == '-' || buf[i] == '+')){
+			neg = buf[i] == '-';
+			i++;
+		}
+		if(i == end)throw numberFormat(start,end);
+		// Accumulate negatively so that Integer.MIN_VALUE parses.
+		long v = 0;
+		for(;i<end;i++){
+			int d = buf[i] - '0';
+			if(d < 0 || d > 9)throw numberFormat(start,end);
+			v = 10*v - d;
+			if(v < Integer.MIN_VALUE)throw numberFormat(start,end);
+		}
+		if(!neg){
+			if(v == Integer.MIN_VALUE)throw numberFormat(start,end);
+			v = -v;
+		}
+		return (int)v;
+	}
+
+	private NumberFormatException numberFormat(int start, int end){
+		return new NumberFormatException("For input string: \"" +
+			new String(buf,start,end-start) + "\"");
+	}
+
+	/**
+	 * @return The current line as a string.
+	 */
+	public String line(){
+		return new String(buf,lineStart,lineEnd-lineStart);
+	}
+
+	/**
+	 * @return Number of fields in the current line.
+	 */
+	public int numFields(){
+		if(!tokenized)tokenize();
+		return numFields;
+	}
+
+	/**
+	 * @param i Field index.
+	 * @return The field as a string.
+	 */
+	public String field(int i){
+		checkField(i);
+		return new String(buf,fieldStart[i],fieldEnd[i]-fieldStart[i]);
+	}
+
+	/**
+	 * @param i Field index.
+	 * @param s String to compare to.
+	 * @return <code>true</code> if the field is equal to the string.
+	 */
+	public boolean fieldEquals(int i, String s){
+		checkField(i);
+		int len = fieldEnd[i] - fieldStart[i];
+		if(len != s.length())return false;
+		for(int k=0;k<len;k++){
+			if(buf[fieldStart[i]+k] != s.charAt(k))return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Parses a field as an integer, the same as
+	 * <code>Integer.parseInt(field(i))</code>.
+	 * @param i Field index.
+	 * @return the value.
+	 */
+	public int intField(int i){
+		checkField(i);
+		return parseIntAt(fieldStart[i],fieldEnd[i]);
+	}
+
+	/**
+	 * Parses a field as a double, the same as
+	 * <code>Double.parseDouble(field(i))</code>.
+	 * @param i Field index.
+	 * @return the value.
+	 */
+	public double doubleField(int i){
+		return Double.parseDouble(field(i));
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 * @throws IOException if the stream can't be closed.
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+}
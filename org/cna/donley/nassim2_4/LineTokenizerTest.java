@@ -0,0 +1,136 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the LineTokenizer class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class LineTokenizerTest
+{
+	/**
+	 * Test that the lines are the same as from BufferedReader.readLine(),
+	 * for all line endings and for buffers smaller than a line.
+	 */
+	@Test
+	public void testLines() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		String[] eols = {"\n","\r\n","\r"};
+		for(int i=0;i<500;i++){
+			for(int k=0;k<i%40;k++)sb.append((char)('a' + k%26));
+			sb.append(eols[i%eols.length]);
+			if(i%17 == 0)sb.append(eols[(i+1)%eols.length]);
+		}
+		sb.append("no end of line");
+		String text = sb.toString();
+		int[] bufferSizes = {1,2,3,16,LineTokenizer.DEFAULT_BUFFER_SIZE};
+		for(int k=0;k<bufferSizes.length;k++){
+			BufferedReader br = new BufferedReader(new StringReader(text));
+			LineTokenizer lt = new LineTokenizer(new StringReader(text),',',
+				bufferSizes[k]);
+			String line = null;
+			long count = 0;
+			while((line = br.readLine()) != null){
+				assertTrue(lt.next());
+				assertTrue(lt.line().equals(line));
+				assertTrue(lt.length() == line.length());
+				count++;
+				assertTrue(lt.getLineNumber() == count);
+			}
+			assertTrue(!lt.next());
+			assertTrue(!lt.next());
+			lt.close();
+		}
+	}
+
+	/**
+	 * Test of splitting on white space.
+	 */
+	@Test
+	public void testWhiteSpaceFields() throws IOException {
+		LineTokenizer lt = new LineTokenizer(new StringReader(
+			"  ATL  VMC\t3 1.5 -2 \n\n   \nAP    DSM IMC"),
+			LineTokenizer.WHITE_SPACE);
+		assertTrue(lt.next());
+		assertTrue(lt.numFields() == 5);
+		assertTrue(lt.field(0).equals("ATL"));
+		assertTrue(lt.fieldEquals(1,"VMC"));
+		assertTrue(!lt.fieldEquals(1,"VM"));
+		assertTrue(lt.intField(2) == 3);
+		assertTrue(lt.doubleField(3) == 1.5);
+		assertTrue(lt.intField(4) == -2);
+		assertTrue(lt.firstNonWhiteSpace() == 'A');
+		assertTrue(lt.next());
+		assertTrue(lt.numFields() == 0);
+		assertTrue(lt.next());
+		assertTrue(lt.numFields() == 0);
+		assertTrue(lt.firstNonWhiteSpace() == -1);
+		assertTrue(lt.next());
+		assertTrue(lt.startsWith("AP"));
+		assertTrue(!lt.startsWith("APX   DSM IMC ..."));
+		assertTrue(lt.substring(6,10).trim().equals("DSM"));
+		assertTrue(lt.numFields() == 3);
+		boolean thrown = false;
+		try{
+			lt.field(3);
+		}catch(ArrayIndexOutOfBoundsException e){
+			thrown = true;
+		}
+		assertTrue(thrown);
+		assertTrue(!lt.next());
+	}
+
+	/**
+	 * Test of splitting on a delimiter.  Fields are trimmed and empty
+	 * fields are kept.
+	 */
+	@Test
+	public void testDelimitedFields() throws IOException {
+		LineTokenizer lt = new LineTokenizer(new StringReader(
+			"ATL , 2008-07-10 00:00:00,120,,  \nCHANGE 527;"),',');
+		assertTrue(lt.next());
+		assertTrue(lt.numFields() == 5);
+		assertTrue(lt.field(0).equals("ATL"));
+		assertTrue(lt.field(1).equals("2008-07-10 00:00:00"));
+		assertTrue(lt.intField(2) == 120);
+		assertTrue(lt.field(3).equals(""));
+		assertTrue(lt.field(4).equals(""));
+		assertTrue(lt.next());
+		assertTrue(lt.parseInt(7,lt.length()-1) == 527);
+	}
+
+	/**
+	 * Test that integers parse as Integer.parseInt() does.
+	 */
+	@Test
+	public void testIntField() throws IOException {
+		String[] good = {"0","-0","+7","2147483647","-2147483648","0012"};
+		String[] bad = {"","-","2147483648","-2147483649","1.5","12a"};
+		StringBuilder sb = new StringBuilder();
+		for(String s : good)sb.append(s + ",");
+		sb.append("\n");
+		for(String s : bad)sb.append(s + ",");
+		LineTokenizer lt = new LineTokenizer(new StringReader(sb.toString()),
+			',');
+		assertTrue(lt.next());
+		for(int i=0;i<good.length;i++){
+			assertTrue(lt.intField(i) == Integer.parseInt(good[i]));
+		}
+		assertTrue(lt.next());
+		for(int i=0;i<bad.length;i++){
+			boolean thrown = false;
+			try{
+				lt.intField(i);
+			}catch(NumberFormatException nfe){
+				thrown = true;
+			}
+			assertTrue(thrown);
+		}
+	}
+}
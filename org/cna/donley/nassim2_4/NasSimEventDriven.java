@@ -9,8 +9,10 @@ import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
-import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Properties;
 import java.util.PriorityQueue;
 import java.util.Queue;
@@ -48,6 +50,103 @@ public class NasSimEventDriven implements ISimulation
 	 */
 	private int time = 0;
 	
+	/**
+	 * Number of events processed by the last run.
+	 */
+	private long numEvents = 0;
+	
+	/**
+	 * Cache of the inputs read by the NASPAC bridge, shared by all
+	 * simulations in the process.  Used if the "useReloadCache" property
+	 * is <code>true</code>.
+	 */
+	private static final ReloadCache reloadCache = new ReloadCache();
+	
+	/**
+	 * Writes the flight output as legs complete.  Used if the
+	 * "streamOutput" property is <code>true</code>; <code>null</code> if
+	 * the output is written after the run.
+	 */
+	private FlightOutputStreamer streamer = null;
+	
+	/**
+	 * Delay totals of the legs completed so far, when streaming.  Elements
+	 * are given by the <code>DELAY_</code> indices.
+	 */
+	private final int[] delayTotals = new int[NUM_DELAY_TOTALS];
+	
+	/**
+	 * Delay statistics by airport, carrier, hour and fix, aggregated as
+	 * legs complete.  Used if the "aggregateDelays" property is
+	 * <code>true</code>; <code>null</code> if not.
+	 */
+	private DelayAggregator delayAggregator = null;
+	
+	/**
+	 * Logs the events of the run, for analysis after it.  Used if the
+	 * "writeEventLog" property is <code>true</code>; <code>null</code> if
+	 * not.
+	 */
+	private EventLogWriter eventLog = null;
+	
+	/**
+	 * One event in this many is timed as a {@link JfrProcessEvent} when
+	 * Flight Recorder is recording.  Given by the "jfrSampleInterval"
+	 * property.
+	 */
+	private int jfrSampleInterval = 100;
+	
+	/**
+	 * Sim time between the {@link JfrQueueDepthEvent}s.  Units: seconds
+	 */
+	private static final int JFR_DEPTH_INTERVAL = 900;
+	
+	/**
+	 * Progress of the run, registered as an MBean.  Used if the
+	 * "registerProgressMBean" property is <code>true</code>, the default;
+	 * <code>null</code> if not.
+	 */
+	private SimProgress progress = null;
+	
+	/**
+	 * Quarter hour series of the runway and fix queues, written after the
+	 * run.  Used if the "writeQueueSeries" property is <code>true</code>;
+	 * <code>null</code> if not.
+	 */
+	private NodeQueueSeries queueSeries = null;
+	
+	/**
+	 * Folds the legs into the fingerprint as they complete, since
+	 * streaming releases them.  Used if the "computeFingerprint" property
+	 * is <code>true</code>; <code>null</code> if not.
+	 */
+	private RunFingerprint.Builder fingerprinter = null;
+	
+	/**
+	 * Fingerprint of the results of the last run; <code>null</code> if not
+	 * computed.
+	 */
+	private RunFingerprint fingerprint = null;
+	
+	/**
+	 * Times of the events of the last run.  Used if the "timeEvents"
+	 * property is <code>true</code>; <code>null</code> if not.
+	 */
+	private EventTimings eventTimings = null;
+	
+	/**
+	 * Profile of the phases of the last run, from the start of
+	 * {@link #initialize()} to the end of {@link #processOutput()}.  Used
+	 * if the "profilePhases" property is <code>true</code>;
+	 * <code>null</code> if not.
+	 */
+	private PhaseProfiler phaseProfiler = null;
+	
+	/** Indices of the delay totals and the count of legs in them. */
+	private static final int DELAY_GATE_OUT = 0, DELAY_DEP = 1, DELAY_ARR = 2,
+		DELAY_TAXI_IN = 3, DELAY_DEP_FIX = 4, DELAY_ARR_FIX = 5, 
+		DELAY_COUNT = 6, NUM_DELAY_TOTALS = 7;
+	
 	/**
 	 * Set up loggers.
 	 */
@@ -166,9 +265,19 @@ public class NasSimEventDriven implements ISimulation
 	/**
 	 * Initializes the simulation.  Reads in data from files, creates
 	 * sim elements such as the node network and flight objects. It also
-	 * creates the initial events and adds these events to queue.
+	 * creates the initial events and adds these events to queue.  If the
+	 * "profilePhases" property is <code>true</code>, the phases from here
+	 * to the end of {@link #processOutput()}, which must be called on the
+	 * same thread, are profiled, including the stages of the loader.
 	 */
 	public void initialize(){
+		if(phaseProfiler != null)phaseProfiler.stop();
+		phaseProfiler = null;
+		if(Boolean.valueOf(props.getProperty("profilePhases","false"))){
+			phaseProfiler = PhaseProfiler.start(props.getProperty("bridgeType"));
+			PhaseProfiler.enter("initialize");
+		}
+		
 		// Read naspac preprocessor and other file stuff and
 		// create Nas singleton.  Returns an object that contains
 		// all the flights and network nodes.
@@ -178,22 +287,45 @@ public class NasSimEventDriven implements ISimulation
 		String bridgeType = props.getProperty("bridgeType");
 		ISimInitializer si = null;
 		
+		PhaseProfiler.enter("loader");
 		if(bridgeType.toLowerCase().equals("naspac")){
 			File naspacPropsFileNPath = new File(baseDir + File.separator +
 				subDir + File.separator + bridgePropsFile);
-			si = new NaspacBridge(naspacPropsFileNPath);
+			// With the reload cache, a rerun in the same process only reads
+			// the inputs that have changed.
+			boolean useCache = Boolean.valueOf(
+				props.getProperty("useReloadCache","false"));
+			si = new NaspacBridge(naspacPropsFileNPath,
+				useCache ? reloadCache : null);
+			simElements = si.initialize();
+		} else if(bridgeType.toLowerCase().equals("schedule")){
+			File schedPropsFileNPath = new File(baseDir + File.separator +
+				subDir + File.separator + bridgePropsFile);
+			si = new ScheduleBridge(schedPropsFileNPath);
+			simElements = si.initialize();
+		} else if(bridgeType.toLowerCase().equals("synthetic")){
+			// Generated scenario; the bridge props are the generator's.
+			File genPropsFileNPath = new File(baseDir + File.separator +
+				subDir + File.separator + bridgePropsFile);
+			si = new ScenarioGenerator(genPropsFileNPath);
 			simElements = si.initialize();
 		} else{
 			final String method = className + ".initialize()";
 			throw new IllegalArgumentException(method + ": bridge type, " +
 				bridgeType + ", has not yet been implemented");
 		}
+		PhaseProfiler.exit("loader");
+		if(phaseProfiler != null){
+			phaseProfiler.setRunName(simElements.getForecastDay() + "_" +
+				simElements.getBaseDay());
+		}
 		
 		// Grab the {@link Nas} singleton.
 		Nas nas = Nas.getInstance();
 		
 		// Create events for all first leg departing flights and
 		// add them to the queue.
+		PhaseProfiler.enter("seedEvents");
 		IFlight[] flights = simElements.getFlights();
 		for(IFlight fl : flights){
 			// Only first legs.
@@ -211,156 +343,366 @@ public class NasSimEventDriven implements ISimulation
 				}
 			}
 		}
+		PhaseProfiler.exit("seedEvents");
+		
+		// Output, statistics and instruments of the run.
+		PhaseProfiler.enter("setup");
+		// Objects told as each leg completes.
+		List<ILegListener> listeners = new ArrayList<ILegListener>();
+		
+		// Fingerprint of the results, told first, before a leg is released.
+		fingerprinter = null;
+		if(Boolean.valueOf(props.getProperty("computeFingerprint","false"))){
+			fingerprinter = new RunFingerprint.Builder(simElements.getFlights());
+			listeners.add(fingerprinter);
+		}
+		fingerprint = null;
+		
+		// Write legs out as they complete instead of after the run.
+		if(Boolean.valueOf(props.getProperty("streamOutput","false")) &&
+			startOutputStream()){
+			Arrays.fill(delayTotals,0);
+			listeners.add(new ILegListener(){
+				public void legCompleted(IFlight leg, int time){
+					addDelays(leg,delayTotals);
+					streamer.legCompleted(leg,time);
+				}
+			});
+		}
+		
+		// Aggregate delay statistics as legs complete.
+		delayAggregator = null;
+		if(Boolean.valueOf(props.getProperty("aggregateDelays","false"))){
+			delayAggregator = new DelayAggregator(nas);
+			listeners.add(delayAggregator);
+		}
+		
+		// Live progress for JMX consoles.
+		if(progress != null)progress.unregister();
+		progress = null;
+		if(Boolean.valueOf(props.getProperty("registerProgressMBean","true"))){
+			progress = new SimProgress(simElements,Integer.valueOf(
+				props.getProperty("progressTopN","5").trim()));
+			progress.register();
+			listeners.add(progress);
+		}
+		setLegListeners(listeners);
+		
+		// Log the events of the run.
+		eventLog = null;
+		if(Boolean.valueOf(props.getProperty("writeEventLog","false"))){
+			File logFileNPath = getOutputFile(
+				props.getProperty("eventLogFilePrefix","eventLog"),
+				EventLogWriter.SUFFIX);
+			try{
+				eventLog = new EventLogWriter(logFileNPath,simElements);
+			}catch(IOException ioe){
+				ioe.printStackTrace();
+			}
+		}
+		
+		// Queue series of the runways and fixes.
+		queueSeries = null;
+		if(Boolean.valueOf(props.getProperty("writeQueueSeries","false"))){
+			queueSeries = new NodeQueueSeries(simElements,
+				NodeQueueSeries.DEFAULT_NUM_EPOCHS);
+		}
+		
+		// Times of the events.
+		eventTimings = null;
+		if(Boolean.valueOf(props.getProperty("timeEvents","false"))){
+			eventTimings = new EventTimings();
+		}
+		
+		// Flight Recorder sampling.
+		jfrSampleInterval = Math.max(1,Integer.valueOf(
+			props.getProperty("jfrSampleInterval","100").trim()));
+		PhaseProfiler.exit("setup");
+		PhaseProfiler.exit("initialize");
+	}
+	
+	/**
+	 * Has the terminals tell a list of listeners as each leg completes.
+	 * @param listeners Leg listeners.  If empty, the terminals have none.
+	 */
+	private void setLegListeners(List<ILegListener> listeners){
+		ILegListener listener = null;
+		if(listeners.size() == 1){
+			listener = listeners.get(0);
+		} else if(listeners.size() > 1){
+			final ILegListener[] ls = 
+				listeners.toArray(new ILegListener[listeners.size()]);
+			listener = new ILegListener(){
+				public void legCompleted(IFlight leg, int time){
+					for(ILegListener l : ls)l.legCompleted(leg,time);
+				}
+			};
+		}
+		for(INode n : simElements.getNodes()){
+			if(n instanceof Terminal)((Terminal)n).setLegListener(listener);
+		}
+	}
+	
+	/**
+	 * Opens the flight output files and starts a 
+	 * {@link FlightOutputStreamer} to write to them.
+	 * @return <code>true</code> if successful; <code>false</code> if a file
+	 *   can't be opened, in which case the output is written after the
+	 *   run instead.
+	 */
+	private boolean startOutputStream(){
+		IFlightWriter[] writers = null;
+		try{
+			writers = openFlightWriters();
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return false;
+		}
+		streamer = new FlightOutputStreamer(writers,simElements);
+		return true;
+	}
+	
+	/**
+	 * Opens the writers of the flight output, as given by the
+	 * "flightOutputFormat" property: "csv" (the default) for the comma
+	 * separated file, "columnar" for the binary {@link FlightColumnFile},
+	 * or "both".  The header of the comma separated file is written.
+	 * @return the writers.
+	 * @throws IOException if a file can't be opened.  Any already opened
+	 *   are closed.
+	 */
+	private IFlightWriter[] openFlightWriters() throws IOException {
+		String format = props.getProperty("flightOutputFormat","csv").trim().
+			toLowerCase();
+		boolean csv = format.equals("csv") || format.equals("both");
+		boolean columnar = format.equals("columnar") || format.equals("both");
+		if(!csv && !columnar){
+			final String method = className + ".openFlightWriters()";
+			throw new IllegalArgumentException(method + ": flight output " +
+				"format, " + format + ", has not yet been implemented");
+		}
+		String suffix = props.getProperty("flightOutputFileSuffix");
+		Nas nas = Nas.getInstance();
+		FlightOutputWriter fow = null;
+		try{
+			if(csv){
+				fow = new FlightOutputWriter(getFlightOutputFile(suffix),nas);
+				fow.writeHeader(simElements.getBaseDay(),
+					simElements.getForecastDay());
+			}
+			if(!columnar)return new IFlightWriter[]{fow};
+			FlightColumnWriter fcw = new FlightColumnWriter(
+				getFlightOutputFile(FlightColumnFile.SUFFIX),nas,
+				simElements.getBaseDay(),simElements.getForecastDay());
+			if(!csv)return new IFlightWriter[]{fcw};
+			return new IFlightWriter[]{fow,fcw};
+		}catch(IOException ioe){
+			if(fow != null)fow.close();
+			throw ioe;
+		}
+	}
+	
+	/**
+	 * Returns the flight output file and path, from the properties.
+	 * @param suffix File suffix.
+	 * @return the file.
+	 */
+	private File getFlightOutputFile(String suffix){
+		return getOutputFile(props.getProperty("flightOutputFilePrefix"),
+			suffix);
+	}
+	
+	/**
+	 * Returns a file and path in the output directory, named for the
+	 * base and forecast days.
+	 * @param prefix File prefix.
+	 * @param suffix File suffix.
+	 * @return the file.
+	 */
+	private File getOutputFile(String prefix, String suffix){
+		String baseDir = props.getProperty("baseDir");
+		String subDir = props.getProperty("subDir");
+		String outputDir = props.getProperty("outputDir");
+		String baseDay = simElements.getBaseDay();
+		String forecastDay = simElements.getForecastDay();
+		String outputFile = prefix + "_" + forecastDay + "_" + baseDay + suffix;
+		return new File(baseDir + File.separator + subDir + File.separator + 
+			outputDir + File.separator + outputFile);
+	}
+	
+	/**
+	 * Adds the delays of a flight to the totals.  Only non-VFR flights
+	 * are counted.
+	 * @param f Flight.
+	 * @param totals Delay totals, indexed by the <code>DELAY_</code>
+	 *   indices.
+	 */
+	private static void addDelays(IFlight f, int[] totals){
+		// Average only non-VFR flights.
+		if(f.get(IFlight.Param.SCHED_ID) < 0)return;
+		totals[DELAY_GATE_OUT] += f.get(IFlight.Param.ACT_OUT_TIME) -
+			f.get(IFlight.Param.SCHED_OUT_TIME);
+		totals[DELAY_DEP] += f.get(IFlight.Param.ACT_OFF_TIME) -
+			f.get(IFlight.Param.CALC_OFF_TIME);
+		totals[DELAY_ARR] += f.get(IFlight.Param.ACT_ON_TIME) -
+			f.get(IFlight.Param.CALC_ON_TIME);
+		totals[DELAY_TAXI_IN] += f.get(IFlight.Param.ACT_IN_TIME) -
+			f.get(IFlight.Param.CALC_IN_TIME);
+		totals[DELAY_DEP_FIX] += f.get(IFlight.Param.DEP_FIX_DELAY);
+		totals[DELAY_ARR_FIX] += f.get(IFlight.Param.ARR_FIX_DELAY);
+		totals[DELAY_COUNT]++;
 	}
 	
 	/**
 	 * Runs the simulation by processing events as they exit the
-	 * queue.
+	 * queue.  If an event log is being written, each event is logged, and
+	 * the log is closed at the end; if it can't be written, logging stops
+	 * but the run goes on.  When Flight Recorder is recording, a sample of
+	 * the events is timed and the queue depths are taken each quarter hour
+	 * of sim time; see nassim.jfc.  The progress MBean, if any, is
+	 * updated every {@link SimProgress#UPDATE_INTERVAL} events, and the
+	 * queue series, if any, each quarter hour of sim time.  If the
+	 * "computeFingerprint" property is <code>true</code>, the results are
+	 * fingerprinted as the legs complete.  If the "timeEvents" property is
+	 * <code>true</code>, each event and poll of the main queue is timed,
+	 * and the times are reported at the end.  If the phases are profiled,
+	 * the run is a phase, with the event loop within it.
 	 */
     public void run(){
+    	PhaseProfiler.enter("run");
     	Logger logger = Logger.getLogger(loggerName);
+    	numEvents = 0;
+    	int nextDepthTime = Integer.MIN_VALUE, sample = 0;
+    	int nextSeriesTime = Integer.MIN_VALUE;
+    	INode[] nodes = simElements.getNodes();
+    	final int progressMask = SimProgress.UPDATE_INTERVAL - 1;
+    	if(progress != null)progress.start();
+    	final EventTimings timings = eventTimings;
+    	long tPoll = 0, tProcess = 0;
+    	PhaseProfiler.enter("eventLoop");
     	while(eventQueue.size()>0){
     		// Extract event and process it.
+    		if(timings != null)tPoll = System.nanoTime();
     		IEvent nextEvent = eventQueue.poll();
+    		if(timings != null)timings.recordPoll(System.nanoTime() - tPoll);
     		time = nextEvent.getTime();
+    		numEvents++;
     		logger.info("event time: " + time);
+    		if(queueSeries != null && time >= nextSeriesTime){
+    			nextSeriesTime = nextSeriesTime == Integer.MIN_VALUE ?
+    				queueSeries.start(time) : queueSeries.sample(time);
+    		}
+    		if(time >= nextDepthTime){
+    			JfrQueueDepthEvent.record(time,eventQueue,numEvents,nodes);
+    			nextDepthTime = time - time%JFR_DEPTH_INTERVAL + JFR_DEPTH_INTERVAL;
+    		}
+    		JfrProcessEvent jfr = null;
+    		if(++sample == jfrSampleInterval){
+    			sample = 0;
+    			jfr = new JfrProcessEvent();
+    			jfr.begin();
+    		}
+    		if(eventLog != null)eventLog.startEvent(nextEvent);
+    		if(timings != null)tProcess = System.nanoTime();
     		nextEvent.processEvent(eventQueue);
+    		if(timings != null){
+    			timings.recordProcess(nextEvent,System.nanoTime() - tProcess);
+    		}
+    		if(jfr != null)jfr.finish(nextEvent,jfrSampleInterval);
+    		if(progress != null && (numEvents & progressMask) == 0){
+    			progress.update(time,numEvents,eventQueue.size());
+    		}
+    		if(eventLog != null){
+    			try{
+    				eventLog.endEvent();
+    			}catch(IOException ioe){
+    				ioe.printStackTrace();
+    				closeEventLog();
+    			}
+    		}
     		
     		//if(time == 131796){
     		//	System.out.println("yeah");
     		//}
     		//System.out.flush();
     	}
+    	PhaseProfiler.exit("eventLoop");
+    	if(progress != null)progress.finish(time,numEvents,eventQueue.size());
+    	if(queueSeries != null && nextSeriesTime != Integer.MIN_VALUE){
+    		queueSeries.finish(time);
+    	}
+    	if(fingerprinter != null){
+    		PhaseProfiler.enter("fingerprint");
+    		fingerprint = fingerprinter.finish();
+    		PhaseProfiler.exit("fingerprint");
+    	}
+    	if(timings != null){
+    		System.out.println("event timings:");
+    		System.out.print(timings.report());
+    	}
+    	closeEventLog();
+    	PhaseProfiler.exit("run");
     }
+    
     /**
-     * Produces output, usually to a file, after the sim is run.
+     * Closes the event log, if there is one.
+     */
+    private void closeEventLog(){
+    	if(eventLog == null)return;
+    	try{
+    		eventLog.close();
+    	}catch(IOException ioe){
+    		ioe.printStackTrace();
+    	}
+    	eventLog = null;
+    }
+    /**
+     * Produces output, usually to a file, after the sim is run.  If the
+     * phases are profiled, the profile is then reported, and written as
+     * JSON if the "writePhaseProfile" property is <code>true</code>.
      * @return <code>true</code> if successful; <code>false</code> if not.
      */
     public boolean processOutput(){ 
+    	PhaseProfiler.enter("processOutput");
     	boolean success = true;
-    	String baseDir = props.getProperty("baseDir");
-    	String subDir = props.getProperty("subDir");
-    	String outputDir = props.getProperty("outputDir");
-    	
-    	String baseDay = simElements.getBaseDay();
-		String forecastDay = simElements.getForecastDay();
-		String flightOutputFile = props.getProperty("flightOutputFilePrefix") + 
-			"_" + forecastDay + "_" + baseDay + 
-			props.getProperty("flightOutputFileSuffix");
-    	File flightOutputFileNPath = new File(baseDir + File.separator +
-    		subDir + File.separator + outputDir + File.separator +
-    		flightOutputFile);
-    	
-    	PrintWriter pw = null;
-    	Nas nas = Nas.getInstance();
+    	IFlightWriter[] writers = null;
+    	int[] totals = delayTotals;
     	
     	try{
-    		pw = new PrintWriter(flightOutputFileNPath);
-    		
-    		// File header.
-    		pw.println("#");
-    		pw.println("#Flight output for base day, " + baseDay + ", and forecast day, "+
-    			forecastDay);
-    		pw.println("# line format:");
-    		String lineFormat = "#itin_num,leg_num,sched_id,carrier,equip_type," +
-    			"dep_aprt,arr_aprt,sched_out_time,act_out_time,calc_off_time," +
-    			"act_off_time,calc_on_time,act_on_time,sched_in_time,calc_in_time," +
-    			"act_in_time,act_air_time,turn_time,pushback_time,taxi_out_time," +
-    			"taxi_in_time,gate_out_delay,dep_delay,arr_delay,taxi_in_delay," +
-    			"dep_fix,dep_fix_delay,arr_fix,arr_fix_delay";
-    		pw.println(lineFormat);
-    		
-    		IFlight[] flights = simElements.getFlights();
-    		int itinNum=0,legNum=0,schedId=0,depAprt=0,arrAprt=0;
-    		int carrier=0,equipType=0,schedOutTime=0,actOutTime=0;
-    		int calcOffTime=0,actOffTime=0,actAirTime=0,calcOnTime=0,actOnTime=0;
-    		int schedInTime=0,calcInTime=0,actInTime=0,turnTime=0;
-    		int pushbackTime=0,taxiOutTime=0,taxiInTime=0;
-    		int depFix=0,depFixDelay=0,arrFix=0,arrFixDelay=0;
-    		String depAprtStr=null,arrAprtStr=null,carrierStr=null,equipTypeStr=null;
-    		String depFixStr=null,arrFixStr=null;
-    		int gateOutDelay=0,depDelay=0,arrDelay=0,taxiInDelay=0;
-    		int goDAvg=0,dDAvg=0,aDAvg=0,tIDAvg=0,dfDAvg=0,afDAvg=0;
-    		int count = 0;
-    		for(IFlight f : flights){
-    			
-    			// Flight properties.
-    			itinNum = f.get(IFlight.Param.ITIN_NUM);
-    			legNum  = f.get(IFlight.Param.LEG_NUM);
-    			schedId= f.get(IFlight.Param.SCHED_ID);
-    			depAprt = f.get(IFlight.Param.DEP_APRT);
-    			arrAprt = f.get(IFlight.Param.ARR_APRT);
-    			carrier = f.get(IFlight.Param.CARRIER);
-    			equipType=f.get(IFlight.Param.EQUIP_TYPE);
-    			depFix   = f.get(IFlight.Param.DEP_FIX);
-    			arrFix   = f.get(IFlight.Param.ARR_FIX);
-    			if(depAprt >= 0) depAprtStr = nas.getAirportFromIndex(depAprt);
-    			else depAprtStr = "";
-    			if(arrAprt >= 0) arrAprtStr = nas.getAirportFromIndex(arrAprt);
-    			else arrAprtStr = "";
-    			if(carrier >= 0) carrierStr = nas.getCarrierFromIndex(carrier);
-    			else carrierStr = "";
-    			if(equipType >= 0) equipTypeStr = 
-    				nas.getEquipTypeFromIndex(equipType);
-    			else equipTypeStr = "";
-    			if(depFix >= 0) depFixStr = nas.getFixNameFromIndex(Nas.Ad.DEP, depFix);
-    			else depFixStr = "";
-    			if(arrFix >= 0) arrFixStr = nas.getFixNameFromIndex(Nas.Ad.ARR, arrFix);
-    			else arrFixStr = "";
-    			
-    			// Flight times.
-    			schedOutTime = f.get(IFlight.Param.SCHED_OUT_TIME);
-    			actOutTime   = f.get(IFlight.Param.ACT_OUT_TIME);
-    			calcOffTime  = f.get(IFlight.Param.CALC_OFF_TIME);
-    			actOffTime   = f.get(IFlight.Param.ACT_OFF_TIME);
-    			actAirTime   = f.get(IFlight.Param.ACT_AIR_TIME);
-    			calcOnTime   = f.get(IFlight.Param.CALC_ON_TIME);
-    			actOnTime    = f.get(IFlight.Param.ACT_ON_TIME);
-    			schedInTime  = f.get(IFlight.Param.SCHED_IN_TIME);
-    			calcInTime   = f.get(IFlight.Param.CALC_IN_TIME);
-    			actInTime    = f.get(IFlight.Param.ACT_IN_TIME);
-    			turnTime     = f.get(IFlight.Param.TURN_TIME);
-    			pushbackTime = f.get(IFlight.Param.PUSHBACK_TIME);
-    			taxiOutTime  = f.get(IFlight.Param.TAXI_OUT_TIME);
-    			taxiInTime   = f.get(IFlight.Param.TAXI_IN_TIME);
-    			depFixDelay  = f.get(IFlight.Param.DEP_FIX_DELAY);
-    			arrFixDelay  = f.get(IFlight.Param.ARR_FIX_DELAY);
-    			
-    			gateOutDelay   = actOutTime - schedOutTime;
-    			depDelay       = actOffTime - calcOffTime;
-    			arrDelay       = actOnTime - calcOnTime;
-    			taxiInDelay    = actInTime - calcInTime;
-    			
-    			String com = ",";
-    			pw.println(itinNum + com + legNum + com + schedId + com +
-    				carrierStr + com + equipTypeStr + com + depAprtStr + com + 
-    				arrAprtStr + com + schedOutTime + com + actOutTime + com + 
-    				calcOffTime + com + actOffTime + com + calcOnTime + com + 
-    				actOnTime + com + schedInTime + com + calcInTime + com + 
-    				actInTime + com + actAirTime + com + turnTime + com + 
-    				pushbackTime + com + taxiOutTime + com + taxiInTime + com +
-    				gateOutDelay + com + depDelay + com + arrDelay + com +
-    				taxiInDelay + com + depFixStr + com + depFixDelay + com + 
-    				arrFixStr + com + arrFixDelay);	
-    			
-    			// Average only non-VFR flights.
-    			if(schedId >= 0){
-	    			goDAvg += gateOutDelay;
-	    			dDAvg += depDelay;
-	    			aDAvg += arrDelay;
-	    			tIDAvg+= taxiInDelay;
-	    			dfDAvg += depFixDelay;
-	    			afDAvg += arrFixDelay;
-	    			count++;
-    			}
+    		PhaseProfiler.enter("flightOutput");
+    		if(streamer != null){
+    			// Lines were written as the legs completed.
+    			streamer.close();
+    		} else {
+	    		writers = openFlightWriters();
+	    		
+	    		// Flight lines.  Formatting is spread over the processors.
+	    		IFlight[] flights = simElements.getFlights();
+	    		int nThreads = Runtime.getRuntime().availableProcessors();
+	    		String nThreadsStr = props.getProperty("outputThreads");
+	    		if(nThreadsStr != null && !nThreadsStr.equals("")){
+	    			nThreads = Integer.valueOf(nThreadsStr.trim());
+	    		}
+	    		for(IFlightWriter w : writers){
+	    			if(w instanceof FlightOutputWriter){
+	    				((FlightOutputWriter)w).write(flights,nThreads);
+	    			} else {
+	    				for(IFlight f : flights)w.write(f);
+	    			}
+	    		}
+	    		
+	    		totals = new int[NUM_DELAY_TOTALS];
+	    		for(IFlight f : flights)addDelays(f,totals);
     		}
+    		PhaseProfiler.exit("flightOutput");
     		
-    		goDAvg /= count;
-    		dDAvg  /= count;
-    		aDAvg  /= count;
-    		tIDAvg /= count;
-    		dfDAvg /= count;
-    		afDAvg /= count;
+    		int count = totals[DELAY_COUNT];
+    		int goDAvg = totals[DELAY_GATE_OUT]/count;
+    		int dDAvg  = totals[DELAY_DEP]/count;
+    		int aDAvg  = totals[DELAY_ARR]/count;
+    		int tIDAvg = totals[DELAY_TAXI_IN]/count;
+    		int dfDAvg = totals[DELAY_DEP_FIX]/count;
+    		int afDAvg = totals[DELAY_ARR_FIX]/count;
     		int totalDelay = goDAvg + dDAvg + dfDAvg + afDAvg + aDAvg + tIDAvg;
     		String msg1 = "gateOutDelayAvg: " + goDAvg + ", depDelayAvg: " +
     			dDAvg + ", arrDelayAvg: " + aDAvg;
@@ -369,19 +711,131 @@ public class NasSimEventDriven implements ISimulation
 				", arrFixDelayAvg: " + afDAvg;
     		System.out.println(msg1);
     		System.out.println(msg2);
+    		if(fingerprint != null){
+    			System.out.println("fingerprint: " + fingerprint);
+    		}
     		Logger logger = Logger.getLogger(loggerName);
     		logger.info(msg1);
     		logger.info(msg2);
+    		
+    		// Delay statistics.
+    		if(delayAggregator != null){
+    			PhaseProfiler.enter("delayStats");
+    			DelayStats arr = delayAggregator.get(
+    				DelayAggregator.Group.SYSTEM,0,DelayAggregator.Metric.ARR);
+    			if(arr != null){
+    				String msg3 = "arrDelayP50: " + 
+    					Math.round(arr.getQuantile(0.5)) + ", arrDelayP90: " +
+    					Math.round(arr.getQuantile(0.9)) + ", arrDelayP99: " +
+    					Math.round(arr.getQuantile(0.99));
+    				System.out.println(msg3);
+    				logger.info(msg3);
+    			}
+    			File statsFileNPath = getOutputFile(
+    				props.getProperty("delayStatsFilePrefix","delayStats"),".csv");
+    			if(!delayAggregator.write(statsFileNPath,Nas.getInstance())){
+    				success = false;
+    			}
+    			PhaseProfiler.exit("delayStats");
+    		}
     
-    	}catch(FileNotFoundException fnfe){
-    		fnfe.printStackTrace();
+    	}catch(IOException ioe){
+    		ioe.printStackTrace();
     		success = false;
     	}finally {
-    		pw.close();
+    		streamer = null;
+    		for(int i=0;writers != null && i<writers.length;i++){
+	    		try{
+	    			writers[i].close();
+	    		}catch(IOException ioe){
+	    			ioe.printStackTrace();
+	    			success = false;
+	    		}
+    		}
+    	}
+    	if(queueSeries != null){
+    		PhaseProfiler.enter("queueSeries");
+    		File seriesFileNPath = getOutputFile(
+    			props.getProperty("queueSeriesFilePrefix","queueSeries"),
+    			NodeQueueSeries.SUFFIX);
+    		success &= queueSeries.write(seriesFileNPath);
+    		PhaseProfiler.exit("queueSeries");
+    	}
+    	if(progress != null)progress.unregister();
+    	PhaseProfiler.exit("processOutput");
+    	if(phaseProfiler != null){
+    		phaseProfiler.stop();
+    		System.out.println("phase profile: " + phaseProfiler.getRunName());
+    		System.out.print(phaseProfiler.report());
+    		if(Boolean.valueOf(props.getProperty("writePhaseProfile","false"))){
+    			File profileFileNPath = getOutputFile(
+    				props.getProperty("phaseProfileFilePrefix","phaseProfile"),
+    				PhaseProfiler.SUFFIX);
+    			success &= phaseProfiler.writeJson(profileFileNPath);
+    		}
     	}
     	return success;
     }
     
+    /**
+     * @return Progress of the run; <code>null</code> if the
+     *   "registerProgressMBean" property is not <code>true</code>.
+     */
+    public SimProgress getProgress(){
+    	return progress;
+    }
+    
+    /**
+     * @return Queue series of the runways and fixes of the last run;
+     *   <code>null</code> if the "writeQueueSeries" property is not
+     *   <code>true</code>.
+     */
+    public NodeQueueSeries getQueueSeries(){
+    	return queueSeries;
+    }
+    
+    /**
+     * @return Fingerprint of the results of the last run; <code>null</code>
+     *   if the "computeFingerprint" property is not <code>true</code>.
+     */
+    public RunFingerprint getFingerprint(){
+    	return fingerprint;
+    }
+    
+    /**
+     * @return Times of the events of the last run; <code>null</code> if
+     *   the "timeEvents" property is not <code>true</code>.
+     */
+    public EventTimings getEventTimings(){
+    	return eventTimings;
+    }
+    
+    /**
+     * @return Profile of the phases of the last run; <code>null</code> if
+     *   the "profilePhases" property is not <code>true</code>.
+     */
+    public PhaseProfiler getPhaseProfiler(){
+    	return phaseProfiler;
+    }
+    
+    /**
+     * Returns the delay statistics aggregated during the run, for example
+     * to merge those of several replications.
+     * @return the aggregator; <code>null</code> if the "aggregateDelays"
+     *   property is not <code>true</code>.
+     */
+    public DelayAggregator getDelayAggregator(){
+    	return delayAggregator;
+    }
+    
+    /**
+     * @return Number of events processed by the last run, or so far if it
+     *   is running.
+     */
+    public long getNumEvents(){
+    	return numEvents;
+    }
+    
     /**
      * Adds an {@link IEvent} object to the queue.
      * @param e Event to add to the queue.
@@ -543,6 +997,10 @@ public class NasSimEventDriven implements ISimulation
 	 * @return Simulation properties object.
 	 */
 	public Properties getProperties(){return props;}
+	/**
+	 * @return Elements of the simulation, once initialized.
+	 */
+	public ISimElements getSimElements(){return simElements;}
 	/**
 	 * Returns sim main event queue.
 	 * @return sim main event queue
@@ -0,0 +1,1422 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Analyzes NasSim output in memory, without a database.  Does the same
+ * loads, joins and delay computations as {@link NasSimOutputAnalyzer},
+ * but into {@link ColumnTable}s instead of database tables, using the
+ * parallel joins and groupings of {@link ColumnOps}.  The delay tables are
+ * written to comma separated files named for the "delayTable" and
+ * "delayAprtTable" properties.
+ * <p>
+ * Tables have the same columns as those of {@link NasSimOutputAnalyzer},
+ * with these representations: dates are ints of the form yyyymmdd, times
+ * are int seconds since {@link #EPOCH_DAY}, as are the ASPM "*sec"
+ * fields, and floats are doubles.  Strings are coded by a
+ * {@link StringDictionary}.
+ * <p>
+ * The days are loaded in parallel, using up to the "analysisThreads"
+ * property number of threads, by default the number of processors.  The
+ * airports of the by-airport delays are read from the "airportGroupFile"
+ * property file, one per line; if it is not set, all airports are used.
+ * The output directory is the "localOutputDir" property, by default the
+ * main directory.  If the "writeLocalTables" property is
+ * <code>true</code>, the combined schedule and flight table and the
+ * actual and simulation table are written too.
+ * <p>
+ * For base days with actuals, the ASPM flights are read from the
+ * "aspmFlightDataFile" property file, an extract of the ASPM flight table
+ * with a header line of column names, and matched to the simulated
+ * flights with the band join of {@link ColumnOps}.  Local times of
+ * airports are from the "airportTimeZoneFile" property file; airports not
+ * in it, or all if it is not set, are taken to be on GMT.
+ * <p>
+ * If the "delayStoreFile" property is set, the delay aggregates of each
+ * day are kept in that file as a {@link DelayAggregateStore}, and days
+ * already in it are not loaded again, so adding a day to a study costs
+ * only the loading of that day.  The delay tables are then made from the
+ * store, and the other tables, if written, have only the new days.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class NasSimLocalAnalyzer
+{
+	/**
+	 * Day from which times are counted, as in the ASPM data.  Format:
+	 * yyyymmdd
+	 */
+	public static final int EPOCH_DAY = 19800101;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "NasSimLocalAnalyzer";
+
+	/**
+	 * How a field of an input file is read into a column.
+	 */
+	private static enum Kind {
+		/** Integer. */
+		INT,
+		/** String. */
+		STRING,
+		/** Date, to yyyymmdd. */
+		DATE,
+		/** Date and time, to seconds since {@link #EPOCH_DAY}. */
+		TIME,
+		/** Sim time in seconds, to seconds since {@link #EPOCH_DAY}. */
+		SIM_TIME,
+		/** Float. */
+		DOUBLE,
+		/** Float in seconds, to minutes. */
+		MINUTES,
+		/** Always zero. */
+		ZERO;
+
+		ColumnTable.Type getType(){
+			switch(this){
+			case STRING: return ColumnTable.Type.STRING;
+			case DOUBLE: case MINUTES: case ZERO: return ColumnTable.Type.DOUBLE;
+			default: return ColumnTable.Type.INT;
+			}
+		}
+	};
+
+	/**
+	 * Columns of the flight output table after the base and forecast days,
+	 * as in {@link NasSimOutputAnalyzer#createFlightOutputTable(Properties, boolean, String, String, File, String)}.
+	 */
+	private static final String[] flightCols = {"itinerary_number","leg_num",
+		"schedule_id","carrier","etms_ac_type","dep_aprt","arr_aprt",
+		"sched_out_time","sim_out_time","calc_off_time","sim_off_time",
+		"calc_on_time","sim_on_time","sched_in_time","calc_in_time",
+		"sim_in_time","sim_airborne_time","turn_time","pushback_time",
+		"taxi_out_time","taxi_in_time","gate_out_delay","dep_delay",
+		"airborne_delay","arr_delay","taxi_in_delay","dep_fix",
+		"dep_fix_delay","arr_fix","arr_fix_delay"};
+	private static final Kind[] flightKinds = {Kind.INT,Kind.INT,Kind.INT,
+		Kind.STRING,Kind.STRING,Kind.STRING,Kind.STRING,
+		Kind.SIM_TIME,Kind.SIM_TIME,Kind.SIM_TIME,Kind.SIM_TIME,
+		Kind.SIM_TIME,Kind.SIM_TIME,Kind.SIM_TIME,Kind.SIM_TIME,
+		Kind.SIM_TIME,Kind.MINUTES,Kind.MINUTES,Kind.MINUTES,
+		Kind.MINUTES,Kind.MINUTES,Kind.MINUTES,Kind.MINUTES,
+		Kind.ZERO,Kind.MINUTES,Kind.MINUTES,Kind.STRING,
+		Kind.MINUTES,Kind.STRING,Kind.MINUTES};
+	/** Field of each column in a flight output file line. */
+	private static final int[] flightFields = {0,1,2,3,4,5,6,
+		7,8,9,10,11,12,13,14,15,16,17,18,19,20,21,22,-1,23,24,25,26,27,28};
+
+	/**
+	 * Columns of the schedule table after the base and forecast days, as
+	 * in {@link NasSimOutputAnalyzer#createScheduleTable(Properties, boolean, String, String, File, String)}.
+	 */
+	private static final String[] schedCols = {"id_num","act_date","acid",
+		"flight_index","out_time","off_time","on_time","in_time",
+		"filed_altitude","filed_airspeed","etms_departure_airport",
+		"etms_arrival_airport","dept_cntry_code","arr_cntry_code",
+		"etms_aircraft_type","physical_class","etms_user_class","flew_flag",
+		"airspace_code","dept_icao_code","arr_icao_code","atop_user_class",
+		"bada_type","bada_type_source","sched_flag"};
+	private static final Kind[] schedKinds = {Kind.INT,Kind.DATE,Kind.STRING,
+		Kind.INT,Kind.TIME,Kind.TIME,Kind.TIME,Kind.TIME,
+		Kind.DOUBLE,Kind.DOUBLE,Kind.STRING,
+		Kind.STRING,Kind.INT,Kind.INT,
+		Kind.STRING,Kind.STRING,Kind.STRING,Kind.INT,
+		Kind.INT,Kind.STRING,Kind.STRING,Kind.STRING,
+		Kind.STRING,Kind.STRING,Kind.STRING};
+	/** Field of each column in a schedule file line. */
+	private static final int[] schedFields = {0,1,2,3,5,7,9,11,12,13,14,15,
+		19,23,24,25,26,27,28,29,30,31,32,33,34};
+
+	/**
+	 * Columns of the schedule table in the combined schedule and flight
+	 * table, and their names there, as in
+	 * {@link NasSimOutputAnalyzer#combineSchedNFlightTables(Properties, String, String, String)}.
+	 */
+	private static final String[] sNFSchedCols = {"base_day","forecast_day",
+		"act_date","id_num","acid","flight_index","out_time","off_time",
+		"on_time","in_time","filed_altitude","filed_airspeed",
+		"etms_departure_airport","etms_arrival_airport","dept_cntry_code",
+		"arr_cntry_code","etms_aircraft_type","physical_class",
+		"etms_user_class","flew_flag","airspace_code","dept_icao_code",
+		"arr_icao_code","atop_user_class","bada_type","bada_type_source",
+		"sched_flag"};
+	private static final String[] sNFSchedNames = {"base_day","forecast_day",
+		"act_date","id_num","acid","flight_index","out_time","off_time",
+		"on_time","in_time","filed_altitude","filed_airspeed",
+		"dep_aprt","arr_aprt","dept_cntry_code",
+		"arr_cntry_code","etms_ac_type","physical_class",
+		"etms_user_class","flew_flag","airspace_code","dept_icao_code",
+		"arr_icao_code","atop_user_class","bada_ac_type","bada_ac_type_source",
+		"sched_flag"};
+	/** Columns of the flight output table in the combined table. */
+	private static final String[] sNFFlightCols = {"itinerary_number",
+		"leg_num","carrier","sim_out_time","calc_off_time","sim_off_time",
+		"calc_on_time","sim_on_time","calc_in_time","sim_in_time",
+		"sim_airborne_time","turn_time","pushback_time","taxi_out_time",
+		"taxi_in_time","gate_out_delay","dep_delay","airborne_delay",
+		"arr_delay","taxi_in_delay","dep_fix","dep_fix_delay","arr_fix",
+		"arr_fix_delay"};
+
+	/**
+	 * Columns of the combined schedule and flight table in the actual and
+	 * simulation table, and their names there, as in
+	 * {@link NasSimOutputAnalyzer#combineActualNSimulationTables(Properties, String, String, String)}.
+	 */
+	private static final String[] aNSSimCols = {"base_day","forecast_day",
+		"act_date","itinerary_number","leg_num","id_num","acid",
+		"flight_index","etms_ac_type","dep_aprt","arr_aprt","out_time",
+		"in_time","sim_out_time","sim_off_time","sim_on_time","sim_in_time",
+		"gate_out_delay","dep_delay","airborne_delay","arr_delay",
+		"sim_airborne_time","turn_time","pushback_time","taxi_out_time",
+		"taxi_in_time","dep_fix","dep_fix_delay","arr_fix","arr_fix_delay"};
+	private static final String[] aNSSimNames = {"base_day","forecast_day",
+		"act_date","itin_num","leg_num","id_num","ac_id",
+		"flight_index","etms_ac_type","dep_aprt","arr_aprt","out_time",
+		"in_time","sim_out_time","sim_off_time","sim_on_time","sim_in_time",
+		"gate_out_delay","dep_delay","airborne_delay","arr_delay",
+		"sim_airborne_time","turn_time","pushback_time","taxi_out_time",
+		"taxi_in_time","dep_fix","dep_fix_delay","arr_fix","arr_fix_delay"};
+
+	/**
+	 * ASPM columns of the actual and simulation table.  Times are in
+	 * seconds since {@link #EPOCH_DAY} and the others in minutes.
+	 */
+	public static final String[] ASPM_COLS = {"actoutsec","actoffsec",
+		"actonsec","actinsec","nomto","actair","fpete","nomti","dlaedct"};
+
+	/**
+	 * Names of the system-wide delays, as in
+	 * {@link NasSimOutputAnalyzer#computeDelaysSystemwide(Properties, boolean, String, String, String, String)}.
+	 */
+	public static final String[] SYSTEM_DELAYS = {"delay_act",
+		"delay_act_depNair","delay_sim1","delay_sim2","delay_sim3",
+		"delay_sim4"};
+
+	/**
+	 * Names of the airport delays, as in
+	 * {@link NasSimOutputAnalyzer#computeDelaysByAirport(Properties, boolean, String, String, String, String, String, String)}.
+	 */
+	public static final String[] AIRPORT_DELAYS = {"delay_act",
+		"delay_act_depNair","delay_act_edctNair","delay_sim1","delay_sim2",
+		"delay_sim3","delay_sim4","delay_sim5"};
+
+	/**
+	 * Main method to run the analyzer.
+	 * @param args Properties file and path, then pairs of base and
+	 *   forecast days, or "-actual" and base days with ASPM actuals.
+	 *   Format: yyyymmdd
+	 */
+	public static void main(String[] args){
+		final String method = className + ".main()";
+		boolean actual = args.length > 1 && args[1].equals("-actual");
+		if(actual ? args.length < 3 : args.length < 3 || args.length % 2 == 0){
+			System.err.println(method + ": Usage: " + className +
+				" <properties file and path> <base day <YYYYMMDD>> " +
+				"<forecast day <YYYYMMDD>> [<base day> <forecast day> ...]");
+			System.err.println("   or: " + className +
+				" <properties file and path> -actual <base day <YYYYMMDD>> " +
+				"[<base day> ...]");
+			System.exit(-1);
+		}
+		Properties props = new Properties();
+		if(!readModelInputProperties(new File(args[0]),props)){
+			System.err.println(method + ": error reading properties file. Exit.");
+			System.exit(-1);
+		}
+		boolean success;
+		if(actual){
+			success = analyzeSimWithActualBaseDays(props,
+				Arrays.copyOfRange(args,2,args.length));
+		} else {
+			String[][] days = new String[(args.length-1)/2][];
+			for(int i=0;i<days.length;i++){
+				days[i] = new String[]{args[1+2*i],args[2+2*i]};
+			}
+			success = analyzeSimDays(props,days);
+		}
+		if(!success){
+			System.err.println(method + ": failure of analyze method.  Exit.");
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Same as {@link NasSimOutputAnalyzer#analyzeSimDays(Properties, boolean, String[][])}
+	 * except that it is done in memory and the delay tables are written to
+	 * files.  There are no actual delays, so those columns are empty.
+	 * @param props Class properties.
+	 * @param baseNForecastDays Array of days to use, each a pair of base
+	 *   and forecast days.  Format is "yyyymmdd".
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public static boolean analyzeSimDays(Properties props,
+		String[][] baseNForecastDays){
+		final String method = className + ".analyzeSimDays()";
+		String mainPath = props.getProperty("baseDir") + File.separator +
+			props.getProperty("mainSubDir");
+		String flightPath = mainPath + File.separator +
+			props.getProperty("flightOutputSubDir") + File.separator +
+			props.getProperty("flightOutputFilePrefix");
+		String schedPath = mainPath + File.separator +
+			props.getProperty("schedSubDir") + File.separator +
+			props.getProperty("schedFilePrefix");
+		DelayAggregateStore store = null;
+		String[][] days = baseNForecastDays;
+		if(hasDelayStore(props)){
+			store = readDelayStore(props);
+			if(store == null)return false;
+			days = store.getMissingDays(baseNForecastDays);
+		}
+		File[][] files = new File[days.length][2];
+		for(int d=0;d<days.length;d++){
+			String baseDay = days[d][0];
+			String forecastDay = days[d][1];
+			files[d][0] = new File(flightPath + forecastDay +
+				props.getProperty("flightOutputFileSuffix"));
+			files[d][1] = new File(schedPath + forecastDay + "_" + baseDay +
+				props.getProperty("schedFileSuffix"));
+		}
+		int nThreads = getNumThreads(props);
+		StringDictionary dict = new StringDictionary();
+
+		ColumnTable sNF = null, aNS = null;
+		if(days.length > 0){
+			sNF = loadSchedNFlights(days,files,dict,nThreads);
+			if(sNF == null){
+				System.err.println(method + ": Error loading files.");
+				return false;
+			}
+			aNS = createBogusActualNSimulationTable(sNF);
+		}
+		return writeDelayTables(props,mainPath,baseNForecastDays,sNF,aNS,
+			store,dict,nThreads);
+	}
+
+	/**
+	 * Same as {@link NasSimOutputAnalyzer#analyzeSimWithActualBaseDays(Properties, boolean, String[])}
+	 * except that it is done in memory, with the ASPM flights read from the
+	 * "aspmFlightDataFile" property file, and the delay tables are written
+	 * to files.  The forecast day of each base day is the base day.
+	 * @param props Class properties.
+	 * @param baseDays Array of base days to use.  Format is "yyyymmdd".
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public static boolean analyzeSimWithActualBaseDays(Properties props,
+		String[] baseDays){
+		final String method = className + ".analyzeSimWithActualBaseDays()";
+		String mainPath = props.getProperty("baseDir") + File.separator +
+			props.getProperty("mainSubDir");
+		String flightPath = mainPath + File.separator +
+			props.getProperty("flightOutputSubDir") + File.separator +
+			props.getProperty("flightOutputFilePrefix");
+		String schedPath = mainPath + File.separator +
+			props.getProperty("schedSubDir") + File.separator +
+			props.getProperty("schedFilePrefix");
+		String aspmFile = props.getProperty("aspmFlightDataFile");
+		if(aspmFile == null || aspmFile.length() == 0){
+			System.err.println(method + ": aspmFlightDataFile is not set.");
+			return false;
+		}
+		String[][] allDays = new String[baseDays.length][];
+		for(int d=0;d<baseDays.length;d++){
+			allDays[d] = new String[]{baseDays[d],baseDays[d]};
+		}
+		DelayAggregateStore store = null;
+		String[][] days = allDays;
+		if(hasDelayStore(props)){
+			store = readDelayStore(props);
+			if(store == null)return false;
+			days = store.getMissingDays(allDays);
+		}
+		int nThreads = getNumThreads(props);
+		StringDictionary dict = new StringDictionary();
+		if(days.length == 0){
+			return writeDelayTables(props,mainPath,allDays,null,null,store,
+				dict,nThreads);
+		}
+
+		File[][] files = new File[days.length][2];
+		for(int d=0;d<days.length;d++){
+			String baseDay = days[d][0];
+			String forecastDay = days[d][1];
+			files[d][0] = new File(flightPath + forecastDay + "_" + baseDay +
+				props.getProperty("flightOutputFileSuffix"));
+			files[d][1] = new File(schedPath + forecastDay + "_" + baseDay +
+				props.getProperty("schedFileSuffix"));
+		}
+
+		ColumnTable sNF = loadSchedNFlights(days,files,dict,nThreads);
+		if(sNF == null){
+			System.err.println(method + ": Error loading files.");
+			return false;
+		}
+		Map<String,TimeZone> zones = new HashMap<String,TimeZone>();
+		String zoneFile = props.getProperty("airportTimeZoneFile");
+		if(zoneFile != null && zoneFile.length() > 0){
+			zones = readAirportTimeZones(new File(zoneFile));
+			if(zones == null)return false;
+		}
+		ColumnTable aspm = null;
+		try{
+			aspm = readAspmFlights(new File(aspmFile),dict);
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return false;
+		}
+		long start = System.currentTimeMillis();
+		ColumnTable aNS = combineActualNSimulationTables(sNF,aspm,zones,nThreads);
+		System.out.println(method + ": matched " + aNS.getNumRows() + " of " +
+			aspm.getNumRows() + " ASPM flights in " +
+			(System.currentTimeMillis() - start) + " ms.");
+		return writeDelayTables(props,mainPath,allDays,sNF,aNS,store,dict,
+			nThreads);
+	}
+
+	/**
+	 * Loads the flight output and schedule files of several days and joins
+	 * them.
+	 * @return the combined schedule and flight table; <code>null</code>
+	 *   if a file couldn't be read.
+	 */
+	private static ColumnTable loadSchedNFlights(String[][] days,
+		File[][] files, StringDictionary dict, int nThreads){
+		final String method = className + ".loadSchedNFlights()";
+		long start = System.currentTimeMillis();
+		ColumnTable[] tables = loadDays(days,files,dict,nThreads);
+		if(tables == null)return null;
+		System.out.println(method + ": loaded " + tables[0].getNumRows() +
+			" flights and " + tables[1].getNumRows() + " scheduled flights in " +
+			(System.currentTimeMillis() - start) + " ms.");
+		return combineSchedNFlightTables(tables[1],tables[0],nThreads);
+	}
+
+	/**
+	 * @return <code>true</code> if the "delayStoreFile" property is set.
+	 */
+	private static boolean hasDelayStore(Properties props){
+		String storeFile = props.getProperty("delayStoreFile");
+		return storeFile != null && storeFile.length() > 0;
+	}
+
+	/**
+	 * Reads the "delayStoreFile" property store, or makes an empty one if
+	 * the file doesn't exist yet.
+	 * @return the store; <code>null</code> if it can't be read.
+	 */
+	private static DelayAggregateStore readDelayStore(Properties props){
+		final String method = className + ".readDelayStore()";
+		File storeFile = new File(props.getProperty("delayStoreFile"));
+		if(!storeFile.exists())return new DelayAggregateStore();
+		DelayAggregateStore store = DelayAggregateStore.read(storeFile);
+		if(store == null){
+			System.err.println(method + ": Error reading " + storeFile + ".");
+		} else {
+			System.out.println(method + ": read " + store.getNumDays() +
+				" days of delay aggregates from " + storeFile + ".");
+		}
+		return store;
+	}
+
+	/**
+	 * Computes the delay tables and writes them, and the other tables if
+	 * asked, to the output directory.  With a delay store, the new days
+	 * are added to it, it is written back, and the delay tables are made
+	 * from it.
+	 * @param days All the days of the delay tables.
+	 * @param sNF Combined schedule and flight table of the new days;
+	 *   <code>null</code> if there are none.
+	 * @param aNS Actual and simulation table of the new days;
+	 *   <code>null</code> if there are none.
+	 * @param store Delay store; <code>null</code> if none, in which case
+	 *   the tables have all the days.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	static boolean writeDelayTables(Properties props, String mainPath,
+		String[][] days, ColumnTable sNF, ColumnTable aNS,
+		DelayAggregateStore store, StringDictionary dict, int nThreads){
+		final String method = className + ".writeDelayTables()";
+		String outputDir = props.getProperty("localOutputDir",mainPath);
+		Set<String> airports = null;
+		String aprtFile = props.getProperty("airportGroupFile");
+		if(aprtFile != null && aprtFile.length() > 0){
+			airports = readAirportGroup(new File(aprtFile));
+			if(airports == null)return false;
+		}
+		ColumnTable delays = null, delaysAprt = null;
+		if(store != null){
+			if(aNS != null){
+				store.add(aNS);
+				File storeFile = new File(props.getProperty("delayStoreFile"));
+				if(!store.write(storeFile)){
+					System.err.println(method + ": Error writing " + storeFile + ".");
+					return false;
+				}
+			}
+			delays = store.getDelaysSystemwide(days,dict);
+			delaysAprt = store.getDelaysByAirport(days,airports,dict);
+		} else {
+			delays = computeDelaysSystemwide(aNS,nThreads);
+			delaysAprt = computeDelaysByAirport(aNS,airports,nThreads);
+		}
+
+		boolean success = true;
+		if(!delays.write(new File(outputDir,
+			props.getProperty("delayTable") + ".csv")))success = false;
+		if(!delaysAprt.write(new File(outputDir,
+			props.getProperty("delayAprtTable") + ".csv")))success = false;
+		if(aNS != null &&
+			Boolean.valueOf(props.getProperty("writeLocalTables","false"))){
+			if(!sNF.write(new File(outputDir,
+				props.getProperty("schedNFlightOutputTable") + ".csv"))){
+				success = false;
+			}
+			if(!aNS.write(new File(outputDir,
+				props.getProperty("actNSimTable") + ".csv")))success = false;
+		}
+		if(success){
+			System.out.println(method + ": wrote " + delays.getNumRows() +
+				" system and " + delaysAprt.getNumRows() + " airport delays" +
+				" to " + outputDir + ".");
+		}
+		return success;
+	}
+
+	/**
+	 * @return Number of threads from the "analysisThreads" property.
+	 */
+	static int getNumThreads(Properties props){
+		int nThreads = Runtime.getRuntime().availableProcessors();
+		String nThreadsStr = props.getProperty("analysisThreads");
+		if(nThreadsStr != null && nThreadsStr.length() > 0){
+			nThreads = Integer.valueOf(nThreadsStr.trim());
+		}
+		return Math.max(1,nThreads);
+	}
+
+	/**
+	 * Loads the flight output and schedule files of several days in
+	 * parallel.
+	 * @param days Base and forecast day of each day.
+	 * @param files Flight output and schedule file of each day.
+	 * @param dict Dictionary of the tables.
+	 * @param nThreads Number of threads.
+	 * @return the flight output table and the schedule table of all the
+	 *   days; <code>null</code> if a file couldn't be read.
+	 */
+	static ColumnTable[] loadDays(final String[][] days, final File[][] files,
+		final StringDictionary dict, int nThreads){
+		ExecutorService exec = Executors.newFixedThreadPool(
+			Math.max(1,Math.min(nThreads,2*days.length)));
+		try{
+			List<Future<ColumnTable>> flights = new ArrayList<Future<ColumnTable>>();
+			List<Future<ColumnTable>> scheds = new ArrayList<Future<ColumnTable>>();
+			for(int d=0;d<days.length;d++){
+				final String baseDay = days[d][0], forecastDay = days[d][1];
+				final File flightFile = files[d][0], schedFile = files[d][1];
+				flights.add(exec.submit(new Callable<ColumnTable>(){
+					public ColumnTable call() throws IOException {
+						return readFlightOutput(flightFile,baseDay,forecastDay,dict);
+					}
+				}));
+				scheds.add(exec.submit(new Callable<ColumnTable>(){
+					public ColumnTable call() throws IOException {
+						return readSchedule(schedFile,baseDay,forecastDay,dict);
+					}
+				}));
+			}
+			List<ColumnTable> f = new ArrayList<ColumnTable>();
+			List<ColumnTable> s = new ArrayList<ColumnTable>();
+			for(Future<ColumnTable> t : flights)f.add(t.get());
+			for(Future<ColumnTable> t : scheds)s.add(t.get());
+			return new ColumnTable[]{ColumnTable.concat(f),ColumnTable.concat(s)};
+		}catch(InterruptedException ie){
+			ie.printStackTrace();
+			return null;
+		}catch(ExecutionException ee){
+			ee.printStackTrace();
+			return null;
+		}finally{
+			exec.shutdown();
+		}
+	}
+
+	//---------------------------------------------------------------------
+	// Dates and times.
+	//---------------------------------------------------------------------
+
+	/**
+	 * Days since 0000-03-01 of a date in the proleptic Gregorian calendar.
+	 */
+	private static int days(int y, int m, int d){
+		if(m <= 2)y--;
+		int era = (y >= 0 ? y : y - 399)/400;
+		int yoe = y - era*400;
+		int doy = (153*(m + (m > 2 ? -3 : 9)) + 2)/5 + d - 1;
+		int doe = yoe*365 + yoe/4 - yoe/100 + doy;
+		return era*146097 + doe;
+	}
+
+	private static final int epochDays =
+		days(EPOCH_DAY/10000,EPOCH_DAY/100 % 100,EPOCH_DAY % 100);
+
+	/**
+	 * Seconds from {@link #EPOCH_DAY} to the start of a day.
+	 * @param yyyymmdd Day.
+	 * @return the seconds.
+	 */
+	public static int toSeconds(int yyyymmdd){
+		return 86400*(days(yyyymmdd/10000,yyyymmdd/100 % 100,yyyymmdd % 100) -
+			epochDays);
+	}
+
+	/**
+	 * Date of a number of days since 0000-03-01; the inverse of
+	 * {@link #days(int, int, int)}.
+	 * @return the date.  Format: yyyymmdd
+	 */
+	private static int civil(int z){
+		int era = (z >= 0 ? z : z - 146096)/146097;
+		int doe = z - era*146097;
+		int yoe = (doe - doe/1460 + doe/36524 - doe/146096)/365;
+		int doy = doe - (365*yoe + yoe/4 - yoe/100);
+		int mp = (5*doy + 2)/153;
+		int d = doy - (153*mp + 2)/5 + 1;
+		int m = mp + (mp < 10 ? 3 : -9);
+		int y = yoe + era*400 + (m <= 2 ? 1 : 0);
+		return 10000*y + 100*m + d;
+	}
+
+	/**
+	 * Day of a time.
+	 * @param secs Seconds since {@link #EPOCH_DAY}.
+	 * @return the day.  Format: yyyymmdd
+	 */
+	public static int toDate(int secs){
+		int day = secs >= 0 ? secs/86400 : (secs + 1)/86400 - 1;
+		return civil(epochDays + day);
+	}
+
+	/** Milliseconds from 1970-01-01 to {@link #EPOCH_DAY}. */
+	private static final long epochMillis =
+		86400000L*(epochDays - days(1970,1,1));
+
+	/**
+	 * Local time at an airport, as <code>airport.convert_to_airport_time</code>
+	 * does in the database.
+	 * @param secs Seconds since {@link #EPOCH_DAY}, GMT.
+	 * @param zone Time zone of the airport.
+	 * @return seconds since {@link #EPOCH_DAY}, local.
+	 */
+	public static int toLocalSeconds(int secs, TimeZone zone){
+		return secs + zone.getOffset(epochMillis + 1000L*secs)/1000;
+	}
+
+	/**
+	 * Reads the digits of a date or time, such as "2008-07-10 13:05:00" or
+	 * "20080710".
+	 * @return the digits: at least 8, up to 14, padded with zeros.
+	 */
+	private static long digits(String s){
+		long v = 0;
+		int n = 0;
+		for(int i=0;i<s.length() && n<14;i++){
+			char c = s.charAt(i);
+			if(c >= '0' && c <= '9'){
+				v = 10*v + (c - '0');
+				n++;
+			}
+		}
+		if(n < 8){
+			final String method = className + ".digits()";
+			throw new IllegalArgumentException(method + ": " + s +
+				" is not a date.");
+		}
+		for(;n<14;n++)v *= 10;
+		return v;
+	}
+
+	/**
+	 * Parses a date, such as "2008-07-10" or "20080710", and any time of
+	 * day after it.
+	 * @param s The date.
+	 * @return the day.  Format: yyyymmdd
+	 */
+	public static int parseDate(String s){
+		return (int)(digits(s)/1000000L);
+	}
+
+	/**
+	 * Parses a date and time, such as "2008-07-10 13:05:00", without
+	 * regard to time zone.
+	 * @param s The date and time.
+	 * @return seconds since {@link #EPOCH_DAY}.
+	 */
+	public static int parseSeconds(String s){
+		long v = digits(s);
+		int hms = (int)(v % 1000000L);
+		return toSeconds((int)(v/1000000L)) + 3600*(hms/10000) +
+			60*(hms/100 % 100) + hms % 100;
+	}
+
+	//---------------------------------------------------------------------
+	// Loads.
+	//---------------------------------------------------------------------
+
+	private static Object newColumn(Kind kind, int n){
+		return kind.getType() == ColumnTable.Type.DOUBLE ?
+			new double[n] : new int[n];
+	}
+
+	/**
+	 * Sets a value of a column from a field of a file.
+	 */
+	private static void set(Object col, Kind kind, int row, String field,
+		int baseSecs, StringDictionary dict){
+		String f = field == null ? "" : field.trim();
+		switch(kind){
+		case STRING:
+			((int[])col)[row] = dict.getCode(field);
+			break;
+		case DOUBLE:
+			((double[])col)[row] = f.length() == 0 ? Double.NaN :
+				Float.parseFloat(f);
+			break;
+		case MINUTES:
+			((double[])col)[row] = f.length() == 0 ? Double.NaN :
+				Float.parseFloat(f)/60.f;
+			break;
+		case ZERO:
+			((double[])col)[row] = 0.;
+			break;
+		default:
+			int v = ColumnTable.NULL;
+			if(f.length() > 0){
+				switch(kind){
+				case DATE: v = parseDate(f); break;
+				case TIME: v = parseSeconds(f); break;
+				case SIM_TIME: v = baseSecs + Integer.parseInt(f); break;
+				default: v = Integer.parseInt(f);
+				}
+			}
+			((int[])col)[row] = v;
+		}
+	}
+
+	/**
+	 * Creates a table for a day with base and forecast day columns and
+	 * the columns of the given kinds.
+	 */
+	private static ColumnTable newTable(int n, int baseDay, int forecastDay,
+		String[] cols, Object[] data, Kind[] kinds, StringDictionary dict){
+		ColumnTable t = new ColumnTable(n,dict);
+		int[] b = new int[n], f = new int[n];
+		Arrays.fill(b,baseDay);
+		Arrays.fill(f,forecastDay);
+		t.addColumn("base_day",ColumnTable.Type.INT,b);
+		t.addColumn("forecast_day",ColumnTable.Type.INT,f);
+		for(int c=0;c<cols.length;c++){
+			t.addColumn(cols[c],kinds[c].getType(),data[c]);
+		}
+		return t;
+	}
+
+	/**
+	 * Reads the same flights and fields as
+	 * {@link NasSimOutputAnalyzer#createFlightOutputTable(Properties, boolean, String, String, File, String)}
+	 * from a comma separated or columnar flight output file.
+	 * @param flightsFileNPath Flight output file and path.
+	 * @param baseDay Base day.  Format: yyyymmdd
+	 * @param forecastDay Forecast day.  Format: yyyymmdd
+	 * @param dict Dictionary of the string columns.
+	 * @return the table.
+	 * @throws IOException if the file can't be read.
+	 */
+	public static ColumnTable readFlightOutput(File flightsFileNPath,
+		String baseDay, String forecastDay, StringDictionary dict)
+		throws IOException {
+		int base = parseDate(baseDay);
+		int baseSecs = toSeconds(base);
+		if(FlightColumnFile.isColumnFile(flightsFileNPath)){
+			return readFlightOutput(new FlightColumnFile(flightsFileNPath),
+				base,parseDate(forecastDay),dict);
+		}
+
+		// Count the good flights, then read them.  As for the table, a
+		// flight must have an itinerary number, be non-VFR and have a
+		// scheduled gate out time.
+		BufferedReader br = null;
+		int n = 0;
+		try{
+			br = new BufferedReader(new FileReader(flightsFileNPath));
+			String line = br.readLine();// skip the first line.
+			while((line = br.readLine()) != null){
+				if(isGoodFlight(line))n++;
+			}
+			br.close();
+
+			Object[] data = new Object[flightCols.length];
+			for(int c=0;c<data.length;c++)data[c] = newColumn(flightKinds[c],n);
+			br = new BufferedReader(new FileReader(flightsFileNPath));
+			line = br.readLine();
+			int row = 0;
+			while((line = br.readLine()) != null){
+				if(!isGoodFlight(line))continue;
+				String[] ss = line.split(",",-1);
+				for(int c=0;c<data.length;c++){
+					String field = flightFields[c] < 0 ? null : ss[flightFields[c]];
+					set(data[c],flightKinds[c],row,field,baseSecs,dict);
+				}
+				row++;
+			}
+			return newTable(n,base,parseDate(forecastDay),flightCols,data,
+				flightKinds,dict);
+		}finally{
+			if(br != null)br.close();
+		}
+	}
+
+	private static boolean isGoodFlight(String line){
+		if(line.length() == 0 || line.charAt(0) == '#')return false;
+		String[] ss = line.split(",",9);
+		return !(ss[0].equals("") || Integer.valueOf(ss[2].trim()) < 0 ||
+			ss[7].equals(""));
+	}
+
+	/**
+	 * Reads the flight output table from a columnar file.  Only non-VFR
+	 * flights are kept, and row groups of only VFR flights are skipped.
+	 */
+	private static ColumnTable readFlightOutput(FlightColumnFile fcf,
+		int base, int forecast, StringDictionary dict){
+		FlightColumnFile.Column[] cols = FlightColumnFile.Column.values();
+		int n = 0;
+		for(int g=0;g<fcf.getNumRowGroups();g++){
+			if(fcf.getMax(g,FlightColumnFile.Column.SCHED_ID) < 0)continue;
+			IntBuffer ids = fcf.getColumn(g,FlightColumnFile.Column.SCHED_ID);
+			for(int i=0;i<ids.limit();i++)if(ids.get(i) >= 0)n++;
+		}
+		int baseSecs = toSeconds(base);
+		Object[] data = new Object[flightCols.length];
+		for(int c=0;c<data.length;c++)data[c] = newColumn(flightKinds[c],n);
+		IntBuffer[] buf = new IntBuffer[cols.length];
+		int row = 0;
+		for(int g=0;g<fcf.getNumRowGroups();g++){
+			if(fcf.getMax(g,FlightColumnFile.Column.SCHED_ID) < 0)continue;
+			for(int k=0;k<cols.length;k++)buf[k] = fcf.getColumn(g,cols[k]);
+			IntBuffer ids = buf[FlightColumnFile.Column.SCHED_ID.ordinal()];
+			for(int i=0;i<fcf.getNumRows(g);i++){
+				if(ids.get(i) < 0)continue;
+				for(int c=0;c<data.length;c++){
+					int k = flightFields[c];
+					if(k < 0){
+						((double[])data[c])[row] = 0.;
+						continue;
+					}
+					int v = buf[k].get(i);
+					switch(flightKinds[c]){
+					case STRING:
+						((int[])data[c])[row] = dict.getCode(fcf.getName(cols[k],v));
+						break;
+					case SIM_TIME:
+						((int[])data[c])[row] = baseSecs + v;
+						break;
+					case MINUTES:
+						((double[])data[c])[row] = v/60.f;
+						break;
+					default:
+						((int[])data[c])[row] = v;
+					}
+				}
+				row++;
+			}
+		}
+		return newTable(n,base,forecast,flightCols,data,flightKinds,dict);
+	}
+
+	/**
+	 * Reads the same flights and fields as
+	 * {@link NasSimOutputAnalyzer#createScheduleTable(Properties, boolean, String, String, File, String)}
+	 * from a schedule file.
+	 * @param schedFileNPath Schedule file and path.
+	 * @param baseDay Base day.  Format: yyyymmdd
+	 * @param forecastDay Forecast day.  Format: yyyymmdd
+	 * @param dict Dictionary of the string columns.
+	 * @return the table.
+	 * @throws IOException if the file can't be read.
+	 */
+	public static ColumnTable readSchedule(File schedFileNPath, String baseDay,
+		String forecastDay, StringDictionary dict) throws IOException {
+		BufferedReader br = null;
+		try{
+			// Flights with a negative id number are VFR flights that aren't
+			// in the flight output file.
+			br = new BufferedReader(new FileReader(schedFileNPath));
+			String line = null;
+			int n = 0;
+			while((line = br.readLine()) != null){
+				if(isScheduledFlight(line))n++;
+			}
+			br.close();
+
+			Object[] data = new Object[schedCols.length];
+			for(int c=0;c<data.length;c++)data[c] = newColumn(schedKinds[c],n);
+			br = new BufferedReader(new FileReader(schedFileNPath));
+			int row = 0;
+			while((line = br.readLine()) != null){
+				if(!isScheduledFlight(line))continue;
+				String[] ss = line.split(",",-1);
+				for(int c=0;c<data.length;c++){
+					set(data[c],schedKinds[c],row,ss[schedFields[c]],0,dict);
+				}
+				row++;
+			}
+			return newTable(n,parseDate(baseDay),parseDate(forecastDay),
+				schedCols,data,schedKinds,dict);
+		}finally{
+			if(br != null)br.close();
+		}
+	}
+
+	private static boolean isScheduledFlight(String line){
+		String s = line.trim();
+		if(s.length() == 0 || s.charAt(0) == '#')return false;
+		int comma = s.indexOf(',');
+		return Integer.parseInt(comma < 0 ? s : s.substring(0,comma).trim()) >= 0;
+	}
+
+	/**
+	 * Reads a group of airports, one per line, from the first comma
+	 * separated field.  Lines starting with "#" are comments.
+	 * @param fileNPath File and path.
+	 * @return the airports; <code>null</code> if the file can't be read.
+	 */
+	public static Set<String> readAirportGroup(File fileNPath){
+		Set<String> airports = new HashSet<String>();
+		BufferedReader br = null;
+		try{
+			br = new BufferedReader(new FileReader(fileNPath));
+			String line = null;
+			while((line = br.readLine()) != null){
+				line = line.trim();
+				if(line.length() == 0 || line.charAt(0) == '#')continue;
+				airports.add(line.split(",")[0].trim());
+			}
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return null;
+		}finally{
+			try{
+				if(br != null)br.close();
+			}catch(IOException ioe){
+				ioe.printStackTrace();
+			}
+		}
+		return airports;
+	}
+
+	/**
+	 * Columns of an ASPM flight file, as in the ASPM flight table.  The
+	 * "*sec" fields are seconds since {@link #EPOCH_DAY}, GMT, and the
+	 * others are in minutes.
+	 */
+	private static final String[] aspmCols = {"dep_yyyymm","dep_day",
+		"dep_hour","faacarrier","dep_locid","arr_locid","fpdepsec","tailno",
+		"schoutsec","actoutsec","actoffsec","actonsec","actinsec","nomto",
+		"actair","fpete","nomti","dlaedct"};
+	private static final Kind[] aspmKinds = {Kind.INT,Kind.INT,
+		Kind.INT,Kind.STRING,Kind.STRING,Kind.STRING,Kind.INT,Kind.STRING,
+		Kind.INT,Kind.DOUBLE,Kind.DOUBLE,Kind.DOUBLE,Kind.DOUBLE,Kind.DOUBLE,
+		Kind.DOUBLE,Kind.DOUBLE,Kind.DOUBLE,Kind.DOUBLE};
+
+	/**
+	 * Reads ASPM flights from a comma separated extract of the ASPM flight
+	 * table.  The first line has the column names, in any order and case,
+	 * and may start with "#"; other columns are ignored.  Integers may be
+	 * written as floats, as Oracle exports numbers.
+	 * @param fileNPath ASPM file and path.
+	 * @param dict Dictionary of the string columns.
+	 * @return the table.
+	 * @throws IOException if the file can't be read.
+	 */
+	public static ColumnTable readAspmFlights(File fileNPath,
+		StringDictionary dict) throws IOException {
+		final String method = className + ".readAspmFlights()";
+		BufferedReader br = null;
+		try{
+			br = new BufferedReader(new FileReader(fileNPath));
+			String line = br.readLine();
+			if(line == null){
+				throw new IllegalArgumentException(method + ": " + fileNPath +
+					" is empty.");
+			}
+			if(line.startsWith("#"))line = line.substring(1);
+			String[] header = line.split(",",-1);
+			int[] fields = new int[aspmCols.length];
+			for(int c=0;c<aspmCols.length;c++){
+				fields[c] = -1;
+				for(int f=0;f<header.length;f++){
+					if(header[f].trim().equalsIgnoreCase(aspmCols[c]))fields[c] = f;
+				}
+				if(fields[c] < 0){
+					throw new IllegalArgumentException(method + ": " + fileNPath +
+						" has no " + aspmCols[c] + " column.");
+				}
+			}
+			List<String> lines = new ArrayList<String>();
+			while((line = br.readLine()) != null){
+				if(line.trim().length() > 0)lines.add(line);
+			}
+			int n = lines.size();
+			Object[] data = new Object[aspmCols.length];
+			for(int c=0;c<data.length;c++)data[c] = newColumn(aspmKinds[c],n);
+			for(int row=0;row<n;row++){
+				String[] ss = lines.get(row).split(",",-1);
+				for(int c=0;c<data.length;c++){
+					String f = ss[fields[c]].trim();
+					// Seconds since 1980 need more digits than a float has.
+					if(aspmKinds[c] == Kind.INT){
+						((int[])data[c])[row] = f.length() == 0 ? ColumnTable.NULL :
+							(int)Math.round(Double.parseDouble(f));
+					} else if(aspmKinds[c] == Kind.DOUBLE){
+						((double[])data[c])[row] = f.length() == 0 ? Double.NaN :
+							Double.parseDouble(f);
+					} else {
+						set(data[c],aspmKinds[c],row,f,0,dict);
+					}
+				}
+			}
+			ColumnTable t = new ColumnTable(n,dict);
+			for(int c=0;c<aspmCols.length;c++){
+				t.addColumn(aspmCols[c],aspmKinds[c].getType(),data[c]);
+			}
+			return t;
+		}finally{
+			if(br != null)br.close();
+		}
+	}
+
+	/**
+	 * Reads the time zones of airports, one per line as "airport,zone",
+	 * where the zone is a Java time zone id, such as "America/New_York",
+	 * or a fixed offset from GMT in hours, such as "-5".  Lines starting
+	 * with "#" are comments.
+	 * @param fileNPath File and path.
+	 * @return the zones by airport; <code>null</code> if the file can't be
+	 *   read.
+	 */
+	public static Map<String,TimeZone> readAirportTimeZones(File fileNPath){
+		final String method = className + ".readAirportTimeZones()";
+		Map<String,TimeZone> zones = new HashMap<String,TimeZone>();
+		BufferedReader br = null;
+		try{
+			br = new BufferedReader(new FileReader(fileNPath));
+			String line = null;
+			while((line = br.readLine()) != null){
+				line = line.trim();
+				if(line.length() == 0 || line.charAt(0) == '#')continue;
+				String[] ss = line.split(",");
+				if(ss.length < 2){
+					throw new IllegalArgumentException(method + ": bad line: " +
+						line);
+				}
+				String zone = ss[1].trim();
+				TimeZone tz = null;
+				if(zone.matches("[-+]?[0-9.]+")){
+					int offset = (int)Math.round(3600000.*Double.parseDouble(zone));
+					tz = new SimpleTimeZone(offset,zone);
+				} else {
+					tz = TimeZone.getTimeZone(zone);
+				}
+				zones.put(ss[0].trim(),tz);
+			}
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return null;
+		}finally{
+			try{
+				if(br != null)br.close();
+			}catch(IOException ioe){
+				ioe.printStackTrace();
+			}
+		}
+		return zones;
+	}
+
+	//---------------------------------------------------------------------
+	// Joins.
+	//---------------------------------------------------------------------
+
+	/**
+	 * Same as {@link NasSimOutputAnalyzer#combineSchedNFlightTables(Properties, String, String, String)}:
+	 * joins the schedule and flight output tables on the days, schedule id,
+	 * airports and aircraft type.
+	 * @param sched Schedule table.
+	 * @param flights Flight output table.
+	 * @param nThreads Number of threads.
+	 * @return the combined table, ordered by base day, forecast day, act
+	 *   date, id number, aircraft id and flight index.
+	 */
+	public static ColumnTable combineSchedNFlightTables(ColumnTable sched,
+		ColumnTable flights, int nThreads){
+		int[][] rows = ColumnOps.hashJoin(
+			flights.getKeys("base_day","forecast_day","schedule_id",
+				"dep_aprt","arr_aprt","etms_ac_type"),
+			sched.getKeys("base_day","forecast_day","id_num",
+				"etms_departure_airport","etms_arrival_airport",
+				"etms_aircraft_type"),nThreads);
+		ColumnTable t = sched.select(rows[1],sNFSchedCols,sNFSchedNames);
+		t.addColumns(flights.select(rows[0],sNFFlightCols,null));
+		return t.select(t.sortOrder("base_day","forecast_day","act_date",
+			"id_num","acid","flight_index"));
+	}
+
+	/**
+	 * Gets the rows of the combined schedule and flight table whose
+	 * aircraft ids start with a three letter carrier, as ASPM does.
+	 * @param sNF Combined schedule and flight table.
+	 * @return the rows.
+	 */
+	static int[] getCarrierFlights(ColumnTable sNF){
+		StringDictionary dict = sNF.getDictionary();
+		int[] acids = sNF.getInts("acid");
+		// Check each aircraft id once.
+		byte[] ok = new byte[dict.size()];
+		int[] rows = new int[acids.length];
+		int n = 0;
+		for(int i=0;i<acids.length;i++){
+			int code = acids[i];
+			if(code == ColumnTable.NULL)continue;
+			if(ok[code] == 0){
+				String s = dict.getName(code);
+				boolean b = s.length() >= 3;
+				for(int j=0;j<3 && b;j++)b = s.charAt(j) >= 'A' && s.charAt(j) <= 'Z';
+				ok[code] = (byte)(b ? 1 : 2);
+			}
+			if(ok[code] == 1)rows[n++] = i;
+		}
+		return Arrays.copyOf(rows,n);
+	}
+
+	/**
+	 * Creates the simulation columns of the actual and simulation table
+	 * for some rows of the combined schedule and flight table: those of
+	 * the combined table, plus the carrier, "sim_in_time_sec" and
+	 * "gate_in_delay", the sim gate in time less the scheduled one.
+	 * Units: minutes
+	 * @param sNF Combined schedule and flight table.
+	 * @param rows Rows.
+	 * @param carriers Carrier of each row.
+	 * @return the table.
+	 */
+	static ColumnTable createSimColumns(ColumnTable sNF, int[] rows,
+		int[] carriers){
+		ColumnTable t = sNF.select(rows,aNSSimCols,aNSSimNames);
+		int n = rows.length;
+		t.addColumn("faacarrier",ColumnTable.Type.STRING,carriers);
+		t.addColumn("sim_in_time_sec",ColumnTable.Type.INT,
+			t.getInts("sim_in_time").clone());
+		int[] simIn = t.getInts("sim_in_time"), in = t.getInts("in_time");
+		double[] gateIn = new double[n];
+		for(int i=0;i<n;i++){
+			gateIn[i] = simIn[i] == ColumnTable.NULL || in[i] == ColumnTable.NULL ?
+				Double.NaN : (simIn[i] - in[i])/60.;
+		}
+		t.addColumn("gate_in_delay",ColumnTable.Type.DOUBLE,gateIn);
+		return t;
+	}
+
+	/**
+	 * Same as {@link NasSimOutputAnalyzer#createBogusActualNSimulationTables(Properties, String, String)}:
+	 * creates an actual and simulation table with null ASPM columns, so the
+	 * delays can be computed for days without actuals.
+	 * @param sNF Combined schedule and flight table.
+	 * @return the table.
+	 */
+	public static ColumnTable createBogusActualNSimulationTable(ColumnTable sNF){
+		StringDictionary dict = sNF.getDictionary();
+		int[] rows = getCarrierFlights(sNF);
+		int n = rows.length;
+		int[] acids = sNF.getInts("acid");
+		int[] carriers = new int[n];
+		for(int i=0;i<n;i++){
+			carriers[i] = dict.getCode(dict.getName(acids[rows[i]]).substring(0,3));
+		}
+		ColumnTable t = createSimColumns(sNF,rows,carriers);
+		int[] tailNos = new int[n];
+		Arrays.fill(tailNos,ColumnTable.NULL);
+		t.addColumn("tailno",ColumnTable.Type.STRING,tailNos);
+		t.addColumn("schoutsec",ColumnTable.Type.INT,
+			t.getInts("out_time").clone());
+		for(String col : ASPM_COLS){
+			double[] v = new double[n];
+			Arrays.fill(v,Double.NaN);
+			t.addColumn(col,ColumnTable.Type.DOUBLE,v);
+		}
+		return t;
+	}
+
+	/**
+	 * Same as {@link NasSimOutputAnalyzer#combineActualNSimulationTables(Properties, String, String, String)}:
+	 * matches the carrier flights of the combined schedule and flight table
+	 * to ASPM flights on the local year and month, day and hour of the
+	 * scheduled gate out time at the departure airport, the carrier, the
+	 * airports and a scheduled gate out time within 10 seconds.
+	 * @param sNF Combined schedule and flight table.
+	 * @param aspm ASPM flight table, as from
+	 *   {@link #readAspmFlights(File, StringDictionary)}, with the same
+	 *   dictionary.
+	 * @param zones Time zones of the departure airports; those not in it
+	 *   are GMT.
+	 * @param nThreads Number of threads.
+	 * @return the actual and simulation table, ordered by base day,
+	 *   forecast day, act date, aircraft id, flight index and id number.
+	 */
+	public static ColumnTable combineActualNSimulationTables(ColumnTable sNF,
+		ColumnTable aspm, Map<String,TimeZone> zones, int nThreads){
+		StringDictionary dict = sNF.getDictionary();
+		int[] rows = getCarrierFlights(sNF);
+		int n = rows.length;
+		int[] outTimes = sNF.getInts("out_time"), deps = sNF.getInts("dep_aprt");
+		int[] carriers = sNF.getInts("carrier");
+		int[] yyyymm = new int[n], day = new int[n], hour = new int[n];
+		int[] carrier = new int[n], dep = new int[n], arr = new int[n];
+		int[] fpdepsec = new int[n];
+		int[] arrs = sNF.getInts("arr_aprt");
+		TimeZone gmt = TimeZone.getTimeZone("GMT");
+		Map<Integer,TimeZone> depZones = new HashMap<Integer,TimeZone>();
+		for(int i=0;i<n;i++){
+			int r = rows[i];
+			carrier[i] = carriers[r];
+			dep[i] = deps[r];
+			arr[i] = arrs[r];
+			fpdepsec[i] = outTimes[r];
+			if(outTimes[r] == ColumnTable.NULL){
+				yyyymm[i] = day[i] = hour[i] = ColumnTable.NULL;
+				continue;
+			}
+			TimeZone tz = depZones.get(dep[i]);
+			if(tz == null){
+				String a = dict.getName(dep[i]);
+				tz = a == null ? null : zones.get(a.trim());
+				if(tz == null)tz = gmt;
+				depZones.put(dep[i],tz);
+			}
+			int local = toLocalSeconds(outTimes[r],tz);
+			int date = toDate(local);
+			yyyymm[i] = date/100;
+			day[i] = date % 100;
+			hour[i] = (local - toSeconds(date))/3600;
+		}
+		int[][] matches = ColumnOps.bandJoin(
+			new int[][]{yyyymm,day,hour,carrier,dep,arr},fpdepsec,
+			aspm.getKeys("dep_yyyymm","dep_day","dep_hour","faacarrier",
+				"dep_locid","arr_locid"),aspm.getInts("fpdepsec"),10,nThreads);
+
+		int m = matches[0].length;
+		int[] simRows = new int[m], simCarriers = new int[m];
+		for(int j=0;j<m;j++){
+			simRows[j] = rows[matches[0][j]];
+			simCarriers[j] = carrier[matches[0][j]];
+		}
+		ColumnTable t = createSimColumns(sNF,simRows,simCarriers);
+		String[] cols = new String[2 + ASPM_COLS.length];
+		cols[0] = "tailno";
+		cols[1] = "schoutsec";
+		System.arraycopy(ASPM_COLS,0,cols,2,ASPM_COLS.length);
+		t.addColumns(aspm.select(matches[1],cols,null));
+		return t.select(t.sortOrder("base_day","forecast_day","act_date",
+			"ac_id","flight_index","id_num"));
+	}
+
+	//---------------------------------------------------------------------
+	// Delays.
+	//---------------------------------------------------------------------
+
+	private static double[] toDoubles(int[] v){
+		double[] d = new double[v.length];
+		for(int i=0;i<v.length;i++){
+			d[i] = v[i] == ColumnTable.NULL ? Double.NaN : v[i];
+		}
+		return d;
+	}
+
+	/**
+	 * Computes a delay of each row of an actual and simulation table, null
+	 * if any of its terms are.  Units: minutes
+	 */
+	static double[] computeDelay(ColumnTable aNS, String delay){
+		int n = aNS.getNumRows();
+		double[] d = new double[n];
+		double[] schOut = toDoubles(aNS.getInts("schoutsec"));
+		double[] nomto = aNS.getDoubles("nomto"), fpete = aNS.getDoubles("fpete");
+		double[] nomti = aNS.getDoubles("nomti"), actair = aNS.getDoubles("actair");
+		double[] depDelay = aNS.getDoubles("dep_delay");
+		double[] airDelay = aNS.getDoubles("airborne_delay");
+		if(delay.equals("delay_act")){
+			double[] actIn = aNS.getDoubles("actinsec");
+			for(int i=0;i<n;i++){
+				d[i] = actIn[i]/60. - (schOut[i]/60. + nomto[i] + fpete[i] + nomti[i]);
+			}
+		} else if(delay.equals("delay_act_depNair")){
+			double[] actOff = aNS.getDoubles("actoffsec");
+			double[] actOut = aNS.getDoubles("actoutsec");
+			for(int i=0;i<n;i++){
+				d[i] = actair[i] - fpete[i] + actOff[i]/60. - actOut[i]/60. - nomto[i];
+			}
+		} else if(delay.equals("delay_act_edctNair")){
+			double[] edct = aNS.getDoubles("dlaedct");
+			for(int i=0;i<n;i++)d[i] = actair[i] - fpete[i] + edct[i];
+		} else if(delay.equals("delay_sim1")){
+			double[] simIn = toDoubles(aNS.getInts("sim_in_time_sec"));
+			for(int i=0;i<n;i++){
+				d[i] = simIn[i]/60. - (schOut[i]/60. + nomto[i] + fpete[i] + nomti[i]);
+			}
+		} else if(delay.equals("delay_sim2")){
+			for(int i=0;i<n;i++)d[i] = depDelay[i] + airDelay[i];
+		} else if(delay.equals("delay_sim3")){
+			double[] gateOut = aNS.getDoubles("gate_out_delay");
+			for(int i=0;i<n;i++)d[i] = gateOut[i] + depDelay[i] + airDelay[i];
+		} else if(delay.equals("delay_sim4")){
+			System.arraycopy(aNS.getDoubles("gate_in_delay"),0,d,0,n);
+		} else {
+			System.arraycopy(airDelay,0,d,0,n);
+		}
+		return d;
+	}
+
+	/**
+	 * Groups an actual and simulation table and averages delays, as
+	 * <code>sum(delay)/count(*)</code>.
+	 */
+	private static ColumnTable computeDelays(ColumnTable aNS, String[] keyCols,
+		String[] delayNames, int nThreads){
+		double[][] values = new double[delayNames.length][];
+		for(int k=0;k<delayNames.length;k++){
+			values[k] = computeDelay(aNS,delayNames[k]);
+		}
+		ColumnOps.Groups groups =
+			ColumnOps.groupBy(aNS.getKeys(keyCols),values,nThreads);
+		int n = groups.getNumGroups();
+		ColumnTable t = new ColumnTable(n,aNS.getDictionary());
+		for(int k=0;k<keyCols.length;k++){
+			int[] keys = new int[n];
+			for(int g=0;g<n;g++)keys[g] = groups.getKey(g,k);
+			t.addColumn(keyCols[k],aNS.getType(keyCols[k]),keys);
+		}
+		for(int k=0;k<delayNames.length;k++){
+			double[] avgs = new double[n];
+			for(int g=0;g<n;g++)avgs[g] = groups.getAverage(g,k);
+			t.addColumn(delayNames[k],ColumnTable.Type.DOUBLE,avgs);
+		}
+		return t.select(t.sortOrder(keyCols));
+	}
+
+	/**
+	 * Same as {@link NasSimOutputAnalyzer#computeDelaysSystemwide(Properties, boolean, String, String, String, String)}
+	 * for all the days of an actual and simulation table.
+	 * @param aNS Actual and simulation table.
+	 * @param nThreads Number of threads.
+	 * @return table of the {@link #SYSTEM_DELAYS} by base and forecast
+	 *   day.  Units: minutes
+	 */
+	public static ColumnTable computeDelaysSystemwide(ColumnTable aNS,
+		int nThreads){
+		return computeDelays(aNS,new String[]{"base_day","forecast_day"},
+			SYSTEM_DELAYS,nThreads);
+	}
+
+	/**
+	 * Same as {@link NasSimOutputAnalyzer#computeDelaysByAirport(Properties, boolean, String, String, String, String, String, String)}
+	 * for all the days of an actual and simulation table.
+	 * @param aNS Actual and simulation table.
+	 * @param airports Arrival airports to compute delays for;
+	 *   <code>null</code> for all.
+	 * @param nThreads Number of threads.
+	 * @return table of the {@link #AIRPORT_DELAYS} by base day, forecast
+	 *   day and arrival airport.  Units: minutes
+	 */
+	public static ColumnTable computeDelaysByAirport(ColumnTable aNS,
+		Set<String> airports, int nThreads){
+		ColumnTable t = aNS;
+		if(airports != null){
+			StringDictionary dict = aNS.getDictionary();
+			int[] arr = aNS.getInts("arr_aprt");
+			int[] rows = new int[arr.length];
+			int n = 0;
+			for(int i=0;i<arr.length;i++){
+				String a = dict.getName(arr[i]);
+				if(a != null && airports.contains(a.trim()))rows[n++] = i;
+			}
+			t = aNS.select(Arrays.copyOf(rows,n));
+		}
+		return computeDelays(t,new String[]{"base_day","forecast_day",
+			"arr_aprt"},AIRPORT_DELAYS,nThreads);
+	}
+
+	/**
+	 * Reads the analyzer properties from a file.  Only the file and
+	 * table name properties are needed, not the database ones.
+	 * @param propsFileNPath The properties file and where it is.
+	 * @param props Properties to read into.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public static boolean readModelInputProperties(File propsFileNPath,
+		Properties props){
+		final String method = className + ".readModelInputProperties()";
+		FileInputStream fis = null;
+		try{
+			fis = new FileInputStream(propsFileNPath);
+			props.load(fis);
+		}catch(FileNotFoundException fnfe){
+			fnfe.printStackTrace();
+			return false;
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return false;
+		}finally{
+			try{
+				if(fis != null)fis.close();
+			}catch(IOException ioe){
+				ioe.printStackTrace();
+			}
+		}
+		String[] propertyNames = {"baseDir","mainSubDir","delayTable",
+			"delayAprtTable","schedNFlightOutputTable","actNSimTable",
+			"schedSubDir","schedFilePrefix","schedFileSuffix",
+			"flightOutputSubDir","flightOutputFilePrefix",
+			"flightOutputFileSuffix"};
+		boolean success = true;
+		for(String name : propertyNames){
+			String prop = props.getProperty(name);
+			if(prop == null || prop.equals("")){
+				success = false;
+				System.err.println("Warning: " + method + ": " + name +
+					" is not set.");
+			}
+		}
+		return success;
+	}
+}
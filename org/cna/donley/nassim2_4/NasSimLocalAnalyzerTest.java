@@ -0,0 +1,422 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the NasSimLocalAnalyzer class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class NasSimLocalAnalyzerTest
+{
+	private File dir = null;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("localAnalyzer","");
+		dir.delete();
+		dir.mkdir();
+	}
+
+	@After
+	public void tearDown(){
+		File[] files = dir.listFiles();
+		if(files != null)for(File f : files)f.delete();
+		dir.delete();
+		Nas.destroyInstance();
+	}
+
+	/**
+	 * Test of the date and time conversions.
+	 */
+	@Test
+	public void testTimes(){
+		assertTrue(NasSimLocalAnalyzer.toSeconds(19800101) == 0);
+		assertTrue(NasSimLocalAnalyzer.toSeconds(19791231) == -86400);
+		assertTrue(NasSimLocalAnalyzer.toSeconds(20000301) == 7365*86400);
+		assertTrue(NasSimLocalAnalyzer.toSeconds(20080710) == 900115200);
+		assertTrue(NasSimLocalAnalyzer.parseDate("2008-07-10") == 20080710);
+		assertTrue(NasSimLocalAnalyzer.parseDate("20080710") == 20080710);
+		assertTrue(NasSimLocalAnalyzer.parseDate("2008-07-10 13:05:00") == 20080710);
+		assertTrue(NasSimLocalAnalyzer.parseSeconds("2008-07-10 13:05:09") ==
+			900115200 + 13*3600 + 5*60 + 9);
+		assertTrue(NasSimLocalAnalyzer.parseSeconds("20080710") == 900115200);
+		assertTrue(NasSimLocalAnalyzer.toDate(0) == 19800101);
+		assertTrue(NasSimLocalAnalyzer.toDate(-1) == 19791231);
+		assertTrue(NasSimLocalAnalyzer.toDate(7365*86400) == 20000301);
+		assertTrue(NasSimLocalAnalyzer.toDate(900115200 + 86399) == 20080710);
+		// Daylight time in July, standard in January.
+		TimeZone ny = TimeZone.getTimeZone("America/New_York");
+		assertTrue(NasSimLocalAnalyzer.toLocalSeconds(900144000,ny) ==
+			900144000 - 4*3600);
+		int jan = NasSimLocalAnalyzer.toSeconds(20080110);
+		assertTrue(NasSimLocalAnalyzer.toLocalSeconds(jan,ny) == jan - 5*3600);
+		boolean thrown = false;
+		try{
+			NasSimLocalAnalyzer.parseDate("7/10/08");
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * A flight output line.  Times are sim seconds and delays seconds.
+	 */
+	private static String flightLine(int id, String carrier, String acType,
+		String dep, String arr, int schedOut, int simIn, int gateOutDelay,
+		int depDelay){
+		int[] times = {schedOut,schedOut + gateOutDelay,schedOut + 600,
+			schedOut + 600 + depDelay,schedOut + 6000,schedOut + 6000,
+			schedOut + 7200,schedOut + 6600,simIn};
+		StringBuilder sb = new StringBuilder(id + ",1," + id + "," + carrier +
+			"," + acType + "," + dep + "," + arr);
+		for(int t : times)sb.append(",").append(t);
+		sb.append(",5400,1800,300,600,300");
+		sb.append(",").append(gateOutDelay).append(",").append(depDelay);
+		sb.append(",60,0,DEPA,0,ARRA,30");
+		return sb.toString();
+	}
+
+	/**
+	 * A schedule line.  Fields not read are "x".
+	 */
+	private static String schedLine(int id, String acId, String acType,
+		String dep, String arr, String out, String in){
+		String[] ss = new String[35];
+		for(int i=0;i<ss.length;i++)ss[i] = "x";
+		ss[0] = String.valueOf(id);
+		ss[1] = "2008-07-10";
+		ss[2] = acId;
+		ss[3] = "1";
+		ss[5] = out;
+		ss[7] = "";
+		ss[9] = "";
+		ss[11] = in;
+		ss[12] = "350";
+		ss[13] = "";
+		ss[14] = dep;
+		ss[15] = arr;
+		ss[19] = "1";
+		ss[23] = "1";
+		ss[24] = acType;
+		ss[27] = "1";
+		ss[28] = "0";
+		ss[34] = "";
+		StringBuilder sb = new StringBuilder(ss[0]);
+		for(int i=1;i<ss.length;i++)sb.append(",").append(ss[i]);
+		return sb.toString();
+	}
+
+	private static void writeLines(File file, List<String> lines)
+		throws IOException {
+		PrintWriter pw = new PrintWriter(file);
+		for(String s : lines)pw.println(s);
+		pw.close();
+	}
+
+	private static List<String[]> readLines(File file) throws IOException {
+		List<String[]> lines = new ArrayList<String[]>();
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		String line = null;
+		while((line = br.readLine()) != null){
+			if(!line.startsWith("#"))lines.add(line.split(",",-1));
+		}
+		br.close();
+		return lines;
+	}
+
+	/**
+	 * Writes the files of a day.  Two flights are matched and have a
+	 * carrier; the others are VFR, not in the schedule, a general aviation
+	 * flight or of a different aircraft type.
+	 */
+	private void writeDay(String baseDay, String forecastDay)
+		throws IOException {
+		List<String> flights = new ArrayList<String>();
+		flights.add("#itin_num,...");
+		flights.add(flightLine(1,"AAL","B737","ATL","BOS",28800,36600,120,300));
+		flights.add(flightLine(2,"DAL","B737","BOS","ATL",28800,37200,60,600));
+		flights.add(flightLine(3,"","C172","ATL","BOS",28800,40000,0,0));
+		flights.add(flightLine(4,"AAL","B737","ATL","BOS",28800,40000,0,0));
+		flights.add(flightLine(-1,"","C172","ATL","",28800,40000,0,0));
+		flights.add(flightLine(5,"AAL","B737","ATL","ORD",28800,40000,0,0));
+		writeLines(new File(dir,"flightOutput_" + forecastDay + ".csv"),flights);
+
+		List<String> sched = new ArrayList<String>();
+		sched.add("# schedule");
+		sched.add(schedLine(1,"AAL100","B737","ATL","BOS",
+			"2008-07-10 08:00:00","2008-07-10 10:00:00"));
+		sched.add(schedLine(2,"DAL200","B737","BOS","ATL",
+			"2008-07-10 08:00:00","2008-07-10 10:00:00"));
+		sched.add(schedLine(3,"N123AB","C172","ATL","BOS",
+			"2008-07-10 08:00:00","2008-07-10 10:00:00"));
+		sched.add(schedLine(-1,"N456CD","C172","ATL","",
+			"2008-07-10 08:00:00",""));
+		sched.add(schedLine(5,"AAL500","A320","ATL","ORD",
+			"2008-07-10 08:00:00","2008-07-10 10:00:00"));
+		writeLines(new File(dir,"schedule_" + forecastDay + "_" + baseDay +
+			".txt"),sched);
+	}
+
+	private Properties createProps(){
+		Properties props = new Properties();
+		props.setProperty("baseDir",dir.getParent());
+		props.setProperty("mainSubDir",dir.getName());
+		props.setProperty("flightOutputSubDir",".");
+		props.setProperty("flightOutputFilePrefix","flightOutput_");
+		props.setProperty("flightOutputFileSuffix",".csv");
+		props.setProperty("schedSubDir",".");
+		props.setProperty("schedFilePrefix","schedule_");
+		props.setProperty("schedFileSuffix",".txt");
+		props.setProperty("delayTable","delay");
+		props.setProperty("delayAprtTable","delayAprt");
+		props.setProperty("schedNFlightOutputTable","schedNFlight");
+		props.setProperty("actNSimTable","actNSim");
+		props.setProperty("analysisThreads","2");
+		return props;
+	}
+
+	/**
+	 * Test of the whole analysis for two days.
+	 */
+	@Test
+	public void testAnalyzeSimDays() throws IOException {
+		writeDay("20080710","20080710");
+		writeDay("20080710","20080711");
+		File aprtFile = new File(dir,"oep.txt");
+		List<String> aprts = new ArrayList<String>();
+		aprts.add("# group");
+		aprts.add("BOS ,Y");
+		writeLines(aprtFile,aprts);
+		Properties props = createProps();
+		props.setProperty("airportGroupFile",aprtFile.getPath());
+		props.setProperty("writeLocalTables","true");
+		String[][] days = {{"20080710","20080711"},{"20080710","20080710"}};
+		assertTrue(NasSimLocalAnalyzer.analyzeSimDays(props,days));
+
+		// System-wide, sorted by day.  No actuals.
+		List<String[]> delays = readLines(new File(dir,"delay.csv"));
+		assertTrue(delays.size() == 2);
+		String[] forecastDays = {"20080710","20080711"};
+		for(int d=0;d<2;d++){
+			String[] ss = delays.get(d);
+			assertTrue(ss[0].equals("20080710") && ss[1].equals(forecastDays[d]));
+			assertTrue(ss[2].equals("") && ss[3].equals("") && ss[4].equals(""));
+			// Dep, gate out + dep and gate in delays.
+			assertTrue(Float.valueOf(ss[5]) == 7.5f);
+			assertTrue(Float.valueOf(ss[6]) == 9.f);
+			assertTrue(Float.valueOf(ss[7]) == 15.f);
+		}
+
+		// Only BOS.
+		List<String[]> delaysAprt = readLines(new File(dir,"delayAprt.csv"));
+		assertTrue(delaysAprt.size() == 2);
+		for(String[] ss : delaysAprt){
+			assertTrue(ss[2].equals("BOS"));
+			assertTrue(Float.valueOf(ss[7]) == 5.f);
+			assertTrue(Float.valueOf(ss[8]) == 7.f);
+			assertTrue(Float.valueOf(ss[9]) == 10.f);
+			assertTrue(Float.valueOf(ss[10]) == 0.f);
+		}
+
+		// Joined flights 1, 2 and 3, of which 3 is not a carrier flight.
+		assertTrue(readLines(new File(dir,"schedNFlight.csv")).size() == 6);
+		assertTrue(readLines(new File(dir,"actNSim.csv")).size() == 4);
+
+		// All airports.
+		props.remove("airportGroupFile");
+		props.setProperty("analysisThreads","1");
+		assertTrue(NasSimLocalAnalyzer.analyzeSimDays(props,days));
+		delaysAprt = readLines(new File(dir,"delayAprt.csv"));
+		assertTrue(delaysAprt.size() == 4);
+		assertTrue(delaysAprt.get(0)[2].equals("ATL"));
+		assertTrue(Float.valueOf(delaysAprt.get(0)[9]) == 20.f);
+		assertTrue(delaysAprt.get(1)[2].equals("BOS"));
+
+		// Missing files.
+		days[0][1] = "20080712";
+		assertTrue(!NasSimLocalAnalyzer.analyzeSimDays(props,days));
+	}
+
+	/**
+	 * Test that with a delay store, days already in it are not loaded
+	 * again and the delay tables are the same as without.
+	 */
+	@Test
+	public void testAnalyzeSimDaysWithStore() throws IOException {
+		writeDay("20080710","20080710");
+		writeDay("20080710","20080711");
+		Properties props = createProps();
+		String[][] days = {{"20080710","20080711"},{"20080710","20080710"}};
+		assertTrue(NasSimLocalAnalyzer.analyzeSimDays(props,days));
+		List<String[]> delays = readLines(new File(dir,"delay.csv"));
+		List<String[]> delaysAprt = readLines(new File(dir,"delayAprt.csv"));
+
+		File storeFile = new File(dir,"delayStore.bin");
+		props.setProperty("delayStoreFile",storeFile.getPath());
+		String[][] first = {days[1]};
+		assertTrue(NasSimLocalAnalyzer.analyzeSimDays(props,first));
+		assertTrue(readLines(new File(dir,"delay.csv")).size() == 1);
+		// The first day's files aren't needed any more.
+		assertTrue(new File(dir,"flightOutput_20080710.csv").delete());
+		assertTrue(NasSimLocalAnalyzer.analyzeSimDays(props,days));
+		DelayAggregateStore store = DelayAggregateStore.read(storeFile);
+		assertTrue(store.getNumDays() == 2);
+		List<String[]> storeDelays = readLines(new File(dir,"delay.csv"));
+		List<String[]> storeDelaysAprt = readLines(new File(dir,"delayAprt.csv"));
+		assertTrue(storeDelays.size() == delays.size());
+		for(int i=0;i<delays.size();i++){
+			assertTrue(Arrays.equals(storeDelays.get(i),delays.get(i)));
+		}
+		assertTrue(storeDelaysAprt.size() == delaysAprt.size());
+		for(int i=0;i<delaysAprt.size();i++){
+			assertTrue(Arrays.equals(storeDelaysAprt.get(i),delaysAprt.get(i)));
+		}
+
+		// Nothing new to load.
+		assertTrue(NasSimLocalAnalyzer.analyzeSimDays(props,days));
+		assertTrue(readLines(new File(dir,"delay.csv")).size() == 2);
+	}
+
+	/**
+	 * Test of the analysis of a base day with ASPM actuals.  Both carrier
+	 * flights leave at 08:00 GMT, 04:00 local at ATL and, with a fixed
+	 * offset, 03:00 at BOS.
+	 */
+	@Test
+	public void testAnalyzeSimWithActualBaseDays() throws IOException {
+		writeDay("20080710","20080710");
+		assertTrue(new File(dir,"flightOutput_20080710.csv").renameTo(
+			new File(dir,"flightOutput_20080710_20080710.csv")));
+		File zoneFile = new File(dir,"zones.txt");
+		List<String> zones = new ArrayList<String>();
+		zones.add("# airport, zone");
+		zones.add("ATL,America/New_York");
+		zones.add("BOS,-5");
+		writeLines(zoneFile,zones);
+
+		int out = NasSimLocalAnalyzer.toSeconds(20080710) + 8*3600;
+		File aspmFile = new File(dir,"aspm.csv");
+		List<String> aspm = new ArrayList<String>();
+		aspm.add("#FAACARRIER,FLTNO,DEP_LOCID,ARR_LOCID,DEP_YYYYMM,DEP_DAY," +
+			"DEP_HOUR,FPDEPSEC,TAILNO,SCHOUTSEC,ACTOUTSEC,ACTOFFSEC,ACTONSEC," +
+			"ACTINSEC,NOMTO,ACTAIR,FPETE,NOMTI,DLAEDCT");
+		// Matches, within 10 seconds.
+		aspm.add("AAL,100,ATL,BOS,200807,10,4," + (out + 9) + ".0,N100AA," +
+			out + "," + (out + 60) + "," + (out + 960) + ",," +
+			(out + 135*60) + ",10,110,100,5,3");
+		// 10 seconds off.
+		aspm.add("AAL,100,ATL,BOS,200807,10,4," + (out + 10) + ",N101AA," +
+			out + ",,,,,,,,,");
+		// Matches, with few actuals.
+		aspm.add("DAL,200,BOS,ATL,200807,10,3," + (out - 9) + ",N200DL," +
+			out + ",,,," + (out + 125*60) + ",10,,100,5,");
+		// GMT hour.
+		aspm.add("DAL,200,BOS,ATL,200807,10,8," + out + ",N201DL," +
+			out + ",,,,,,,,,");
+		writeLines(aspmFile,aspm);
+
+		Properties props = createProps();
+		props.setProperty("writeLocalTables","true");
+		String[] days = {"20080710"};
+		assertTrue(!NasSimLocalAnalyzer.analyzeSimWithActualBaseDays(props,days));
+		props.setProperty("aspmFlightDataFile",aspmFile.getPath());
+		props.setProperty("airportTimeZoneFile",zoneFile.getPath());
+		assertTrue(NasSimLocalAnalyzer.analyzeSimWithActualBaseDays(props,days));
+
+		List<String[]> aNS = readLines(new File(dir,"actNSim.csv"));
+		assertTrue(aNS.size() == 2);
+		assertTrue(aNS.get(0)[6].equals("AAL100"));
+		assertTrue(aNS.get(1)[6].equals("DAL200"));
+
+		List<String[]> delays = readLines(new File(dir,"delay.csv"));
+		assertTrue(delays.size() == 1);
+		String[] ss = delays.get(0);
+		assertTrue(Float.valueOf(ss[2]) == 15.f);
+		assertTrue(Float.valueOf(ss[3]) == 7.5f);
+		assertTrue(Float.valueOf(ss[4]) == 20.f);
+		assertTrue(Float.valueOf(ss[5]) == 7.5f);
+
+		List<String[]> delaysAprt = readLines(new File(dir,"delayAprt.csv"));
+		assertTrue(delaysAprt.size() == 2);
+		ss = delaysAprt.get(0);
+		assertTrue(ss[2].equals("ATL") && Float.valueOf(ss[3]) == 10.f);
+		assertTrue(ss[4].equals("") && ss[5].equals(""));
+		ss = delaysAprt.get(1);
+		assertTrue(ss[2].equals("BOS") && Float.valueOf(ss[3]) == 20.f);
+		assertTrue(Float.valueOf(ss[4]) == 15.f && Float.valueOf(ss[5]) == 13.f);
+		assertTrue(Float.valueOf(ss[6]) == 15.f);
+
+		// All airports on GMT: only the last ASPM flight matches.
+		props.remove("airportTimeZoneFile");
+		assertTrue(NasSimLocalAnalyzer.analyzeSimWithActualBaseDays(props,days));
+		aNS = readLines(new File(dir,"actNSim.csv"));
+		assertTrue(aNS.size() == 1 && aNS.get(0)[6].equals("DAL200"));
+	}
+
+	/**
+	 * Test that a columnar flight output file is read the same as a comma
+	 * separated one.
+	 */
+	@Test
+	public void testReadColumnarFlightOutput() throws IOException {
+		Nas.destroyInstance();
+		Nas.createInstance(new String[]{"ATL","BOS","ORD"},
+			new String[]{"AAL","DAL"},new String[]{"B737","A320"},
+			new String[][]{{"DEPA","DEPB"},{"ARRA"}});
+		IFlight[] flights = FlightColumnFileTest.createFlights(
+			FlightColumnWriter.ROW_GROUP_SIZE + 100,4L);
+		File csv = new File(dir,"flights.csv");
+		File ncf = new File(dir,"flights" + FlightColumnFile.SUFFIX);
+		FlightOutputWriter fow = new FlightOutputWriter(csv,Nas.getInstance());
+		fow.writeHeader("20080710","20080711");
+		FlightColumnWriter fcw = new FlightColumnWriter(ncf,Nas.getInstance(),
+			"20080710","20080711");
+		for(IFlight f : flights){
+			fow.write(f);
+			fcw.write(f);
+		}
+		fow.close();
+		fcw.close();
+
+		StringDictionary dict = new StringDictionary();
+		ColumnTable a = NasSimLocalAnalyzer.readFlightOutput(csv,"20080710",
+			"20080711",dict);
+		ColumnTable b = NasSimLocalAnalyzer.readFlightOutput(ncf,"20080710",
+			"20080711",dict);
+		int n = 0;
+		for(IFlight f : flights)if(f.get(IFlight.Param.SCHED_ID) >= 0)n++;
+		assertTrue(a.getNumRows() == n && b.getNumRows() == n);
+		String[] cols = a.getColumnNames();
+		assertTrue(cols.length == 32);
+		for(String col : cols){
+			if(a.getType(col) == ColumnTable.Type.DOUBLE){
+				double[] x = a.getDoubles(col), y = b.getDoubles(col);
+				for(int i=0;i<n;i++)assertTrue(x[i] == y[i]);
+			} else {
+				int[] x = a.getInts(col), y = b.getInts(col);
+				for(int i=0;i<n;i++)assertTrue(x[i] == y[i]);
+			}
+		}
+		assertTrue(a.getInts("forecast_day")[0] == 20080711);
+		assertTrue(a.getInts("sim_in_time")[0] ==
+			NasSimLocalAnalyzer.toSeconds(20080710) +
+			flights[0].get(IFlight.Param.ACT_IN_TIME) ||
+			flights[0].get(IFlight.Param.SCHED_ID) < 0);
+	}
+}
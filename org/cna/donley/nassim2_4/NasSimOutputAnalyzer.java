@@ -17,6 +17,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.IntBuffer;
 
 /**
  * Class processes the NasSim output flight file(s), and computes the total
@@ -31,6 +32,8 @@ import java.io.IOException;
  * baseDay and forecastDay params using the Properties.getProperty(String) 
  * method.  See the corresponding JUnit test program for examples.
  * <p>
+ * {@link NasSimLocalAnalyzer} does the same analysis in memory, without a
+ * database.
  * 
  * @author James Donley &lt;donleyj@cna.org&gt;
  * @version $Id: FlightSimOutputAnalyzer.java 1 2009-09-28 00:00:00EST donley $
@@ -121,42 +124,31 @@ public class NasSimOutputAnalyzer
 		String schedSubDir   = props.getProperty("schedSubDir");
 		String schedFilePrefix = props.getProperty("schedFilePrefix");
 		String schedFileSuffix = props.getProperty("schedFileSuffix");
-		File schedFileNPath= null;
 		
 		// FlightOutput files.
 		String flightSubDir   = props.getProperty("flightOutputSubDir");
 		String flightFilePrefix = props.getProperty("flightOutputFilePrefix");
 		String flightFileSuffix = props.getProperty("flightOutputFileSuffix");
-		File flightFileNPath= null;
 
-		// Dump all flight output and schedules data into tables.
-		boolean createFnSTables = createTables;
+		// Dump all flight output and schedules data into tables, up to
+		// the "concurrentDays" property number of days at once.
+		String[][] days = new String[baseDays.length][];
+		File[] flightFiles = new File[baseDays.length];
+		File[] schedFiles = new File[baseDays.length];
 		for(int fIndx=0;fIndx<baseDays.length;fIndx++){
 			String baseDay     = baseDays[fIndx];
 			String forecastDay = baseDay;
-			System.out.println("base day: " + baseDay + ", forecast day: " + forecastDay);
-		
-		    // Create table of relevant stuff in flights file.
-		    flightFileNPath = new File(mainPath + File.separator + flightSubDir +
+			days[fIndx] = new String[]{baseDay,forecastDay};
+		    flightFiles[fIndx] = new File(mainPath + File.separator + flightSubDir +
 		        File.separator + flightFilePrefix + forecastDay + "_" + baseDay +
 		        flightFileSuffix);
-	    	if(!createFlightOutputTable(props, createFnSTables, baseDay, forecastDay,
-	    			flightFileNPath, flightOutputTable)){
-	    		System.err.println(method + ": Error in createFlightOutputTable. Exit.");
-				return false;
-	    	}
-	    	
-	    	// Create table of relevant stuff in schedule input file.
-	    	schedFileNPath = new File(mainPath + File.separator + schedSubDir +
+	    	schedFiles[fIndx] = new File(mainPath + File.separator + schedSubDir +
 				File.separator + schedFilePrefix + 
 				forecastDay + "_" + baseDay + schedFileSuffix);
-	    	if(!createScheduleTable(props,createFnSTables,baseDay,forecastDay,
-	    		schedFileNPath,schedTable)){
-	    		System.err.println(method + ": Error in createScheduleTable. Exit.");
-				return false;
-	    	}
-	    	// only create the tables once.
-	    	if(createFnSTables)createFnSTables = false;
+		}
+		if(!loadFlightNScheduleTables(props,createTables,days,flightFiles,
+			schedFiles,flightOutputTable,schedTable,method)){
+			return false;
 		}
 		if(createTables){
 			System.out.println(method + ": created and populated tables: " + flightOutputTable +
@@ -167,12 +159,15 @@ public class NasSimOutputAnalyzer
 		}
 		
     	// Join the two tables on the id number.  Always do this.
+    	long start = System.currentTimeMillis();
     	if(!combineSchedNFlightTables(props,schedTable,
     		flightOutputTable,schedNFlightTable)){
     		System.err.println(method + ": Error in combineSchedNFlightTables. Exit.");
 			return false;
     	}
-		System.out.println(method + ": created table: " + schedNFlightTable);
+		System.out.println(method + ": created table: " + schedNFlightTable +
+			" in " + (System.currentTimeMillis() - start) + " ms.");
+		start = System.currentTimeMillis();
 	    	
     	// With the above table, query the ASPM database, and create
     	// a combo of the two tables, ready for computing delays and
@@ -183,7 +178,8 @@ public class NasSimOutputAnalyzer
 			return false;
     	}
     	System.out.println(method + ": created combined ASPM and " +
-    			"schedNFlight table," + actNSimTable + ".");
+    			"schedNFlight table," + actNSimTable + " in " +
+    			(System.currentTimeMillis() - start) + " ms.");
 	    	
     	// Compute delays for all dates.
     	// Do this every time.
@@ -267,40 +263,28 @@ public class NasSimOutputAnalyzer
 		String schedSubDir   = props.getProperty("schedSubDir");
 		String schedFilePrefix = props.getProperty("schedFilePrefix");
 		String schedFileSuffix = props.getProperty("schedFileSuffix");
-		File schedFileNPath= null;
 		
 		// FlightOutput files.
 		String flightSubDir   = props.getProperty("flightOutputSubDir");
 		String flightFilePrefix = props.getProperty("flightOutputFilePrefix");
 		String flightFileSuffix = props.getProperty("flightOutputFileSuffix");
-		File flightFileNPath= null;
 		
-		// Dump all flight output and schedules data into tables.
-		boolean createFnSTables = createTables;
+		// Dump all flight output and schedules data into tables, up to
+		// the "concurrentDays" property number of days at once.
+		File[] flightFiles = new File[baseNForecastDays.length];
+		File[] schedFiles = new File[baseNForecastDays.length];
 		for(int fIndx=0;fIndx<baseNForecastDays.length;fIndx++){
 			String baseDay     = baseNForecastDays[fIndx][0];
 			String forecastDay = baseNForecastDays[fIndx][1];
-		
-		    // Create table of relevant stuff in flights file.
-		    flightFileNPath = new File(mainPath + File.separator + flightSubDir +
+		    flightFiles[fIndx] = new File(mainPath + File.separator + flightSubDir +
 		        File.separator + flightFilePrefix + forecastDay + flightFileSuffix);
-	    	if(!createFlightOutputTable(props, createFnSTables, baseDay, forecastDay,
-	    			flightFileNPath, flightOutputTable)){
-	    		System.err.println(method + ": Error in createFlightOutputTable. Exit.");
-				return false;
-	    	}
-	    	
-	    	// Create table of relevant stuff in schedule input file.
-	    	schedFileNPath = new File(mainPath + File.separator + schedSubDir +
+	    	schedFiles[fIndx] = new File(mainPath + File.separator + schedSubDir +
 				File.separator + schedFilePrefix + 
 				forecastDay + "_" + baseDay + schedFileSuffix);
-	    	if(!createScheduleTable(props,createFnSTables,baseDay,forecastDay,
-	    		schedFileNPath,schedTable)){
-	    		System.err.println(method + ": Error in createScheduleTable. Exit.");
-	    		return false;
-	    	}
-	    	// only create the tables once.
-	    	if(createFnSTables)createFnSTables = false;
+		}
+		if(!loadFlightNScheduleTables(props,createTables,baseNForecastDays,
+			flightFiles,schedFiles,flightOutputTable,schedTable,method)){
+			return false;
 		}
 		if(createTables){
 			System.out.println(method + ": created and populated tables: " + flightOutputTable +
@@ -312,12 +296,15 @@ public class NasSimOutputAnalyzer
 		
     	// Join the two tables on the id number.
 		// Do this every time.
+    	long start = System.currentTimeMillis();
     	if(!combineSchedNFlightTables(props,schedTable,
     		flightOutputTable,schedNFlightTable)){
     		System.err.println(method + ": Error in combineSchedNFlightTables. Exit.");
     		return false;
     	}
-		System.out.println(method + ": created table: " + schedNFlightTable);
+		System.out.println(method + ": created table: " + schedNFlightTable +
+			" in " + (System.currentTimeMillis() - start) + " ms.");
+		start = System.currentTimeMillis();
 	    	
     	// With the above table, create a bogus Act + Sim table, so can use
 		// the usual methods for computing system delays.
@@ -328,7 +315,8 @@ public class NasSimOutputAnalyzer
     		return false;
     	}
     	System.out.println(method + ": created bogus actual and " +
-    			"schedNFlight table," + actNSimTable + ".");
+    			"schedNFlight table," + actNSimTable + " in " +
+    			(System.currentTimeMillis() - start) + " ms.");
 	    	
     	// Compute delays for all dates.  Create table if necessary.
     	boolean createDelTables = createTables;
@@ -361,9 +349,70 @@ public class NasSimOutputAnalyzer
     	
 	}// End of analyze.
 	
+	/**
+	 * Loads the flight output and schedule files of several days into
+	 * their tables with a {@link DayPipeline}, with up to the
+	 * "concurrentDays" property number of days at once, by default one.
+	 * The tables are created by the first day, if asked, before the other
+	 * days are loaded.  Rows are only added, and the tables made from them
+	 * are ordered, so the results are the same as loading one day at a
+	 * time.  Each day in progress uses up to the "loadConnections"
+	 * property number of connections.
+	 * @param props Class properties.
+	 * @param createTables If <code>true</code> then create the tables.
+	 * @param days Base and forecast day of each day.  Format: yyyymmdd
+	 * @param flightFiles Flight output file of each day.
+	 * @param schedFiles Schedule file of each day.
+	 * @param flightOutputTable Flight output table.
+	 * @param schedTable Schedule table.
+	 * @param method Calling method, for progress.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	private static boolean loadFlightNScheduleTables(final Properties props,
+			final boolean createTables, final String[][] days,
+			final File[] flightFiles, final File[] schedFiles,
+			final String flightOutputTable, final String schedTable,
+			final String method){
+		int concurrentDays = 1;
+		String s = props.getProperty("concurrentDays");
+		if(s != null && s.length() > 0)concurrentDays = Integer.valueOf(s.trim());
+		String[] names = new String[days.length];
+		for(int d=0;d<days.length;d++){
+			names[d] = days[d][0] + "/" + days[d][1];
+		}
+		DayPipeline pipeline = new DayPipeline(method,names,
+			Math.max(1,concurrentDays));
+		pipeline.addStage("flight output",new DayPipeline.Stage(){
+			public boolean run(int d){
+				if(!createFlightOutputTable(props,createTables && d == 0,
+					days[d][0],days[d][1],flightFiles[d],flightOutputTable)){
+		    		System.err.println(method + ": Error in createFlightOutputTable. Exit.");
+		    		return false;
+				}
+				return true;
+			}
+		});
+		pipeline.addStage("schedule",new DayPipeline.Stage(){
+			public boolean run(int d){
+				if(!createScheduleTable(props,createTables && d == 0,
+					days[d][0],days[d][1],schedFiles[d],schedTable)){
+		    		System.err.println(method + ": Error in createScheduleTable. Exit.");
+		    		return false;
+				}
+				return true;
+			}
+		});
+		return pipeline.run();
+	}
+	
 	/**
 	 * Creates a table of important fields in an NasSim flightOutput*.csv
-	 * output file, which is input to this method.
+	 * output file, which is input to this method.  The file may also be a
+	 * columnar {@link FlightColumnFile}, in which case it is read with
+	 * {@link #readFlightOutputColumns(FlightColumnFile, Timestamp, Timestamp)}
+	 * instead of being parsed.  The rows are inserted in batches by a
+	 * {@link TableLoader}, using the "loadBatchSize" and "loadConnections"
+	 * properties.
 	 * @param props
 	 * @param createTable If <code>true</code> then create the table and 
 	 *   and destroy the old one if it exists; if not, then not.
@@ -426,36 +475,21 @@ public class NasSimOutputAnalyzer
 			" arr_fix_delay FLOAT" +
 		")";
 		
-    	// Input flights file and path.
-    	BufferedReader br = null;
     	Connection conn   = null;
     	
     	try{
-    		br = new BufferedReader(new FileReader(flightsFileNPath));
-    		
-    		// Determine how many rows of good data are in file.
-    		// Data is comma separated.  Keep empty entries and
-    		// often fields are not populated.
-    		String line = null;
-    		String[] ss = null;
-    		String comma = ",";
-    		int nFlightsGood = 0;
-    		line = br.readLine();// skip the first line.
-			while((line = br.readLine()) != null){
-				// Skip comments.
-				if(line.charAt(0) != '#'){
-					// Make sure flight has an itinerary number,
-					// is a non-VFR flight and the scheduled gate out times is 
-					// present.
-					ss = line.split(comma);
-					int fId = Integer.valueOf(ss[2].trim());
-					if(!(ss[0].equals("") || fId < 0 || ss[7].equals(""))){
-						nFlightsGood++;
-					}
-				}
-			}
-			br.close();
+    		Timestamp baseDate=null,forecastDate=null;
+    		baseDate = (new SQLDate2(baseDay,SQLDate2.Element.dd)).getAsTimestamp();
+			forecastDate = (new SQLDate2(forecastDay,SQLDate2.Element.dd)).getAsTimestamp();
 			
+    		// A columnar file is read straight into the table data.
+    		Object[][] data = null;
+    		boolean columnar = FlightColumnFile.isColumnFile(flightsFileNPath);
+    		if(columnar){
+    			data = readFlightOutputColumns(
+    				new FlightColumnFile(flightsFileNPath),baseDate,forecastDate);
+    		}
+    		
 			// Create table if necessary.
 			boolean commitFlag = true;
 			boolean succCT = true;
@@ -477,100 +511,19 @@ public class NasSimOutputAnalyzer
 				JDBCManager.close(stmt);
 			}
 			
-			// Both the insert string and the column types must be
-			// consistent with the create table string above.
+			// The column types must be consistent with the create table
+			// string above.
 			int[] colType = 
 				JDBCManager.createColTypesFromCreateTableStr(tableFields);
-			Object[][] data = new Object[nFlightsGood][colType.length];
-			String insertRowStr = 
-				JDBCManager.createInsertRowStrForPrepStmt(flightOutputTable,colType.length);
 			
-			//---------------------------------------------------------
-			// loop over all flights.                                --
-			//---------------------------------------------------------
-    		br = new BufferedReader(new FileReader(flightsFileNPath));
-    		
-    		String depAirport=null,arrAirport=null,carrier=null;
-    		Integer itinNum=null,legNum=null,schedId=null;
-    		Float airborneTime = 0.f,turnTime=0.f,pushbackTime=0.f;
-    		Float taxiInTime=0.f,taxiOutTime=0.f;
-    		Float gateOutDelay=0.f,depDelay=0.f;
-    		Float airDelay=0.f,arrDelay=0.f,taxiInDelay=0.f;
-    		String etmsAcType=null;
-    		String depFix=null,arrFix=null;
-    		Float depFixDelay=null,arrFixDelay=null;
-    		
-    		Timestamp baseDate=null,forecastDate=null;
-    		baseDate = (new SQLDate2(baseDay,SQLDate2.Element.dd)).getAsTimestamp();
-			forecastDate = (new SQLDate2(forecastDay,SQLDate2.Element.dd)).getAsTimestamp();
-			
-		    line = br.readLine();// skip the first line.
-		    int flight=0;
-			while((line = br.readLine()) != null){
-				// Skip comments.
-				if(line.charAt(0) != '#'){
-					
-				   	// Extract all elements from the line. Don't remove empty 
-					// strings because often fields are not populated.
-					ss = line.split(comma);
-						
-					// Pull out the ones I want. Only take flights
-					// that have flown, which at least is indicated by
-					// the itinerary number being present. and have
-					// scheduled gate out times.
-					int fId = Integer.valueOf(ss[2].trim());
-					if(!(ss[0].equals("") || fId < 0 || ss[7].equals("") )){
-						
-						data[flight][0] = baseDate;
-						data[flight][1] = forecastDate;
-						data[flight][2] = itinNum  = new Integer(ss[0]);
-						if(ss[1].equals(""))legNum = null;
-						else legNum   = new Integer(ss[1]);
-						data[flight][3] = legNum;
-						if(ss[2].equals(""))schedId = null;
-						else schedId  = new Integer(ss[2]);
-						data[flight][4] = schedId;
-						data[flight][5] = carrier = ss[3];
-						data[flight][6] = etmsAcType = ss[4];
-						data[flight][7] = depAirport =ss[5];
-						data[flight][8] = arrAirport =ss[6];
-						// Get some times. 
-						int timeInSecs = 0;
-						SQLDate2 date = null;
-						for(int i=0;i<9;i++){
-							timeInSecs = Integer.valueOf(ss[7+i].trim());
-							date = new SQLDate2(baseDate);
-							date.addTime(SQLDate2.Element.ss, timeInSecs);
-							data[flight][9+i] = date.getAsTimestamp();
-						}
-						data[flight][18] = airborneTime = new Float(ss[16])/60.f;
-						data[flight][19] = turnTime = new Float(ss[17])/60.f;
-						data[flight][20] = pushbackTime = new Float(ss[18])/60.f;
-						data[flight][21] = taxiOutTime = new Float(ss[19])/60.f;
-						data[flight][22] = taxiInTime = new Float(ss[20])/60.f;
-						data[flight][23] = gateOutDelay = new Float(ss[21])/60.f;
-						data[flight][24] = depDelay= new Float(ss[22])/60.f;
-						data[flight][25] = airDelay = new Float(0.f);
-						data[flight][26] = arrDelay = new Float(ss[23])/60.f;
-						data[flight][27] = taxiInDelay  = new Float(ss[24])/60.f;
- 
-						data[flight][28] = depFix = ss[25];
-						data[flight][29] = depFixDelay = new Float(ss[26])/60.f;
-						data[flight][30] = arrFix = ss[27];
-						data[flight][31] = arrFixDelay = new Float(ss[28])/60.f;
-						
-						flight++;
-					}
-				}
-			}	
-	    	br.close();
-	    	
-			// Write to table.  Commit all changes as they happen.
+			// Write to table in batches.  Commit each as it is done.
 	    	if(succCT){
-		    	if(!JDBCManager.populateTable(conn,commitFlag,
-		    			flightOutputTable,insertRowStr,data,colType)){
-		    		success = false;
-		    	}
+	    		TableLoader loader = TableLoader.create(props);
+	    		boolean succLoad = columnar ?
+	    			loader.loadRows(data,colType,flightOutputTable) :
+	    			loader.loadFlightOutput(flightsFileNPath,baseDate,
+	    				forecastDate,flightOutputTable);
+	    		if(!succLoad)success = false;
 	    	}
 	    	
 		}catch(SQLException e){
@@ -588,10 +541,83 @@ public class NasSimOutputAnalyzer
 		return success;
 	}
 	
+	/**
+	 * Reads the rows of the flight output table, see 
+	 * {@link #createFlightOutputTable(Properties, boolean, String, String, File, String)},
+	 * from a columnar flight output file.  The columns are read from the
+	 * memory mapped file; nothing is parsed.  As for the comma separated
+	 * file, only non-VFR flights are kept.  Row groups with only VFR 
+	 * flights are skipped using their statistics.
+	 * @param fcf The columnar flight output file.
+	 * @param baseDate Base date of the flights.
+	 * @param forecastDate Forecast date of the flights.
+	 * @return table rows, one per flight.
+	 */
+	public static Object[][] readFlightOutputColumns(FlightColumnFile fcf,
+			Timestamp baseDate, Timestamp forecastDate){
+		FlightColumnFile.Column[] cols = FlightColumnFile.Column.values();
+		final int schedIdCol = FlightColumnFile.Column.SCHED_ID.ordinal();
+		
+		// Count the good flights.
+		int nFlightsGood = 0;
+		for(int g=0;g<fcf.getNumRowGroups();g++){
+			if(fcf.getMax(g,FlightColumnFile.Column.SCHED_ID) < 0)continue;
+			IntBuffer ids = fcf.getColumn(g,FlightColumnFile.Column.SCHED_ID);
+			for(int i=0;i<ids.limit();i++){
+				if(ids.get(i) >= 0)nFlightsGood++;
+			}
+		}
+		
+		Object[][] data = new Object[nFlightsGood][];
+		IntBuffer[] c = new IntBuffer[cols.length];
+		long baseMillis = baseDate.getTime();
+		int flight = 0;
+		for(int g=0;g<fcf.getNumRowGroups();g++){
+			if(fcf.getMax(g,FlightColumnFile.Column.SCHED_ID) < 0)continue;
+			for(int k=0;k<cols.length;k++)c[k] = fcf.getColumn(g,cols[k]);
+			for(int i=0;i<fcf.getNumRows(g);i++){
+				if(c[schedIdCol].get(i) < 0)continue;
+				Object[] row = new Object[32];
+				row[0] = baseDate;
+				row[1] = forecastDate;
+				// Itinerary number through arrival airport.
+				for(int k=0;k<7;k++){
+					if(cols[k].getDictionary() == null){
+						row[2+k] = Integer.valueOf(c[k].get(i));
+					} else {
+						row[2+k] = fcf.getName(cols[k],c[k].get(i));
+					}
+				}
+				// Times, in seconds from the base date.
+				for(int k=0;k<9;k++){
+					row[9+k] = new Timestamp(baseMillis + 1000L*c[7+k].get(i));
+				}
+				// Times and delays in minutes, then the airborne delay,
+				// which is not computed.
+				for(int k=0;k<7;k++){
+					row[18+k] = Float.valueOf(c[16+k].get(i)/60.f);
+				}
+				row[25] = Float.valueOf(0.f);
+				for(int k=0;k<2;k++){
+					row[26+k] = Float.valueOf(c[23+k].get(i)/60.f);
+				}
+				// Fixes.
+				for(int k=0;k<2;k++){
+					row[28+2*k] = fcf.getName(cols[25+2*k],c[25+2*k].get(i));
+					row[29+2*k] = Float.valueOf(c[26+2*k].get(i)/60.f);
+				}
+				data[flight++] = row;
+			}
+		}
+		return data;
+	}
+	
 	
 	/**
 	 * Creates a table of important fields in a simulation schedule*.txt
-	 * input file.
+	 * input file.  The rows are inserted in batches by a
+	 * {@link TableLoader}, using the "loadBatchSize" and "loadConnections"
+	 * properties.
 	 * @param props
 	 * @param createTable If <code>true</code> then create the table and 
 	 *   and destroy the old one if it exists; if not, then not.
@@ -648,37 +674,9 @@ public class NasSimOutputAnalyzer
 			" sched_flag VARCHAR(5) " +
 			")";
 		
-    	// Input flights file and path.
-    	BufferedReader br = null;
     	Connection conn   = null;
     	
     	try{
-    		br = new BufferedReader(new FileReader(schedFileNPath));
-    		
-    		// Determine how many rows of good data are in file.
-    		// Data is comma separated.  Keep empty entries and
-    		// often fields are not populated.  Ignore flights
-    		// with a negative id_num since they won't be in the
-    		// flight_output file anyways.
-    		String line = null;
-    		String[] ss = null;
-    		String comma = ",";
-    		char beginCommentChar='#';
-    		int nFlightsGood = 0;
-    		// Skip all beginning lines that start with "#".
-    		nFlightsGood = 0; // last line read was good.
-			while((line = br.readLine()) != null){
-				// Skip all comment lines, i.e., that begin with "#".
-				if(line.trim().charAt(0)!= beginCommentChar){
-					ss = line.split(comma);
-					// Make sure flight has a positive id number.
-					if(!(Integer.valueOf(ss[0]) < 0)){
-						nFlightsGood++;
-					}
-				}
-			}
-			br.close();
-			
 			// Set up table. The id_num links a flight in this file to
 			// one, schedule_id, in the flight_output file.
 			// In ETMS, a flight is uniquely specified by the act_date, ac_id
@@ -708,98 +706,14 @@ public class NasSimOutputAnalyzer
 				JDBCManager.close(stmt);
 			}
 
-			// Get column types and insert string.  Must be consistent with
-			// table fields described above.
-			int[] colType = 
-				JDBCManager.createColTypesFromCreateTableStr(tableFields);
-			Object[][] data = new Object[nFlightsGood][colType.length];
-			String insertRowStr = 
-				JDBCManager.createInsertRowStrForPrepStmt(schedTable,colType.length);
-			
-			//---------------------------------------------------------
-			// loop over all flights.                                --
-			//---------------------------------------------------------
-    		br = new BufferedReader(new FileReader(schedFileNPath));
-    		String acId,depAirport,arrAirport;
-    		Integer idNum=null,fltIndx=null,depCntryCode=null,arrCntryCode=null;
-    		Timestamp outTime=null,offTime=null,onTime=null,inTime=null;
-    		Timestamp actDate=null,baseDate=null,forecastDate=null;
-    		Float airspeed=null,altitude=null;
-    		String etmsAcType=null,physClass=null,etmsUserClass=null;
-    		Integer flewFlag=null,airspaceCode=null;
-    		String depIcaoCode=null,arrIcaoCode=null,atopUserClass=null;
-    		String badaType=null,badaTypeSource=null,schedFlag=null;
-    		
-    		baseDate = (new SQLDate2(baseDay,SQLDate2.Element.dd)).getAsTimestamp();
-			forecastDate = (new SQLDate2(forecastDay,SQLDate2.Element.dd)).getAsTimestamp();
-		    
-		    int flight=0;
-			while((line = br.readLine()) != null){
-				if(line.trim().charAt(0)!= beginCommentChar){
-				   	// Extract all elements from the line. Don't remove empty 
-					// strings because often fields are not populated.
-					ss = line.split(comma);
-						
-					// Pull out the ones I want. Only take flights
-					// with a positive id number since only those are in
-					// the flight_output file.  The reason for this is that
-					// those with a negative number are added VFR flights that
-					// don't have a schedule because they don't travel from one
-					// airport to another, e.g., they are helicopters.  As such they
-					// increase the demand at airports, yet don't have "delay", so 
-					// are not counted.
-					if(!(Integer.valueOf(ss[0]) < 0)){
-					
-						data[flight][0] = baseDate;
-						data[flight][1] = forecastDate;
-						data[flight][2] = idNum   = new Integer(ss[0]);
-						data[flight][3] = actDate = (new SQLDate2(ss[1],SQLDate2.Element.dd)).getAsTimestamp();
-						data[flight][4] = acId    = ss[2];
-						data[flight][5] = fltIndx = new Integer(ss[3]);
-						if(ss[5].equals("")) outTime = null;
-						else outTime = (new SQLDate2(ss[5],SQLDate2.Element.ss)).getAsTimestamp();
-						data[flight][6] = outTime;
-						if(ss[7].equals("")) offTime = null;
-						else offTime = (new SQLDate2(ss[7],SQLDate2.Element.ss)).getAsTimestamp();	
-						data[flight][7] = offTime;
-						if(ss[9].equals("")) onTime = null;
-						else onTime  = (new SQLDate2(ss[9],SQLDate2.Element.ss)).getAsTimestamp();
-						data[flight][8] = onTime;
-						if(ss[11].equals("")) inTime = null;
-						else inTime  = (new SQLDate2(ss[11],SQLDate2.Element.ss)).getAsTimestamp();					
-						data[flight][9] = inTime;
-						if(ss[12].equals("")) altitude = null;
-						else altitude= new Float(ss[12]);
-						data[flight][10]= altitude;
-						if(ss[13].equals("")) airspeed = null;
-						else airspeed= new Float(ss[13]);
-						data[flight][11]= airspeed;
-						data[flight][12] = depAirport=ss[14];
-						data[flight][13] = arrAirport=ss[15];
-						data[flight][14] = depCntryCode = new Integer(ss[19]);
-						data[flight][15] = arrCntryCode = new Integer(ss[23]);
-						data[flight][16] = etmsAcType   = ss[24];
-						data[flight][17] = physClass    = ss[25];
-						data[flight][18] = etmsUserClass= ss[26];
-						data[flight][19] = flewFlag     = new Integer(ss[27]);
-						data[flight][20] = airspaceCode = new Integer(ss[28]);
-						data[flight][21] = depIcaoCode  = ss[29];
-						data[flight][22] = arrIcaoCode  = ss[30];
-						data[flight][23] = atopUserClass= ss[31];
-						data[flight][24] = badaType     = ss[32];
-						data[flight][25] = badaTypeSource=ss[33];
-						data[flight][26] = schedFlag    = ss[34];
-						
-						flight++;
-					}
-				}
-			}	
-	    	br.close();
-	    	
-			// Write to table.  Commit all changes as they happen.
+			// Write to table in batches.  Commit each as it is done.
+			Timestamp baseDate = 
+				(new SQLDate2(baseDay,SQLDate2.Element.dd)).getAsTimestamp();
+			Timestamp forecastDate = 
+				(new SQLDate2(forecastDay,SQLDate2.Element.dd)).getAsTimestamp();
 	    	if(succCT){
-		    	if(!JDBCManager.populateTable(conn,commitFlag,
-		    			schedTable,insertRowStr,data,colType)){
+	    		if(!TableLoader.create(props).loadSchedule(schedFileNPath,
+	    			baseDate,forecastDate,schedTable)){
 		    		success = false;
 		    	}
 	    	}
@@ -807,12 +721,6 @@ public class NasSimOutputAnalyzer
 		}catch(SQLException e){
 			e.printStackTrace();
 			success = false;
-		} catch(FileNotFoundException fnfe){
-			fnfe.printStackTrace();
-			success = false;
-		} catch(IOException ioe){
-			ioe.printStackTrace();
-			success = false;
 		} finally{ 
 			   JDBCManager.close(conn);    	
 		}	
@@ -829,5 +829,65 @@ public final class NasSimOutputAnalyzerTest
 	    }
 	    return baseNForecastDays;
     }
+    
+    /**
+     * Test of readFlightOutputColumns().  Rows are made from the non-VFR
+     * flights of a columnar flight output file.
+     */
+    @Test
+    public void testReadFlightOutputColumns() throws java.io.IOException {
+    	Nas.destroyInstance();
+    	Nas.createInstance(new String[]{"ATL","BOS","ORD"},
+			new String[]{"AAL","DAL"},new String[]{"B737","A320"},
+			new String[][]{{"DEPA","DEPB"},{"ARRA"}});
+    	File file = File.createTempFile("flightColumns",
+    		FlightColumnFile.SUFFIX);
+    	try{
+	    	IFlight[] flights = FlightColumnFileTest.createFlights(
+	    		FlightColumnWriter.ROW_GROUP_SIZE + 100,5L);
+	    	FlightColumnWriter fcw = new FlightColumnWriter(file,
+	    		Nas.getInstance(),"20080710","20080710");
+	    	for(IFlight f : flights)fcw.write(f);
+	    	fcw.close();
+	    	
+	    	java.sql.Timestamp baseDate = new java.sql.Timestamp(0L);
+	    	java.sql.Timestamp forecastDate = new java.sql.Timestamp(1000L);
+	    	Object[][] data = NasSimOutputAnalyzer.readFlightOutputColumns(
+	    		new FlightColumnFile(file),baseDate,forecastDate);
+	    	Nas nas = Nas.getInstance();
+	    	int row = 0;
+	    	for(IFlight f : flights){
+	    		if(f.get(IFlight.Param.SCHED_ID) < 0)continue;
+	    		Object[] d = data[row++];
+	    		assertTrue(d.length == 32);
+	    		assertTrue(d[0] == baseDate && d[1] == forecastDate);
+	    		assertTrue(d[2].equals(f.get(IFlight.Param.ITIN_NUM)));
+	    		assertTrue(d[4].equals(f.get(IFlight.Param.SCHED_ID)));
+	    		int carrier = f.get(IFlight.Param.CARRIER);
+	    		assertTrue(d[5].equals(carrier < 0 ? "" :
+	    			nas.getCarrierFromIndex(carrier)));
+	    		assertTrue(d[8].equals(nas.getAirportFromIndex(
+	    			f.get(IFlight.Param.ARR_APRT))));
+	    		SQLDate2 date = new SQLDate2(baseDate);
+	    		date.addTime(SQLDate2.Element.ss,
+	    			f.get(IFlight.Param.ACT_IN_TIME));
+	    		assertTrue(d[17].equals(date.getAsTimestamp()));
+	    		assertTrue(d[18].equals(
+	    			f.get(IFlight.Param.ACT_AIR_TIME)/60.f));
+	    		assertTrue(d[25].equals(0.f));
+	    		assertTrue(d[26].equals((f.get(IFlight.Param.ACT_ON_TIME) -
+	    			f.get(IFlight.Param.CALC_ON_TIME))/60.f));
+	    		int arrFix = f.get(IFlight.Param.ARR_FIX);
+	    		assertTrue(d[30].equals(arrFix < 0 ? "" :
+	    			nas.getFixNameFromIndex(Nas.Ad.ARR,arrFix)));
+	    		assertTrue(d[31].equals(
+	    			f.get(IFlight.Param.ARR_FIX_DELAY)/60.f));
+	    	}
+	    	assertTrue(row == data.length);
+    	}finally{
+    		file.delete();
+    		Nas.destroyInstance();
+    	}
+    }
 
 }
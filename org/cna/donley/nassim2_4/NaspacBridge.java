@@ -4,7 +4,9 @@ import org.cna.donley.jdbc.SQLDate2;
 import org.cna.donley.utils.StringUtils;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.List;
@@ -15,6 +17,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
 
 
 /**
@@ -54,6 +58,32 @@ public class NaspacBridge implements ISimInitializer
 	 */
 	private static String className = null;
 	
+	/**
+	 * Suffix of gzip compressed input files.
+	 */
+	public static final String GZIP_SUFFIX = ".gz";
+	
+	/**
+	 * Cache of the products of reading the input files, or 
+	 * <code>null</code> if everything is read every time.
+	 */
+	private ReloadCache cache = null;
+	
+	/**
+	 * Keys of the products in the reload cache.  The called rates and
+	 * nominal taxi times keys have the base day appended since the 
+	 * products depend on it as well as on the files.
+	 */
+	private static final String NAMES_KEY = "names";
+	private static final String MODELED_APRTS_KEY = "modeledAirports";
+	private static final String FLIGHTS_KEY = "flights";
+	private static final String PARETO_KEY = "paretoCurves";
+	private static final String CHANGE_CAPS_KEY = "changeCapacities";
+	private static final String CALLED_RATES_KEY = "calledRates_";
+	private static final String FIX_DELAYS_KEY = "fixDelays";
+	private static final String NOM_TAXI_TIMES_KEY = "nomTaxiTimes_";
+	private static final String EST_ON_N_OFF_TIMES_KEY = "estOnNOffTimes";
+	
 	/**
 	 * Constructor.  Takes a properties file of data specific to this
 	 * bridge and stores it in the local properties file.
@@ -61,7 +91,23 @@ public class NaspacBridge implements ISimInitializer
 	 *   properties file.
 	 */
 	public NaspacBridge(File naspacPropsFileNPath){
+		this(naspacPropsFileNPath,null);
+	}
+	
+	/**
+	 * Constructor.  Same as {@link #NaspacBridge(File)} except that the
+	 * products of reading the input files are kept in a cache, so that
+	 * if the bridge is created and initialized again with the same cache,
+	 * only the inputs that have changed since are read again, along with
+	 * what depends on them.  For example, if only the change capacity
+	 * file is edited, only it is read again and the runways rebuilt.
+	 * @param naspacPropsFileNPath File and path of the Naspac bridge
+	 *   properties file.
+	 * @param cache Reload cache, or <code>null</code> for none.
+	 */
+	public NaspacBridge(File naspacPropsFileNPath, ReloadCache cache){
 		className = this.getClass().getName();
+		this.cache = cache;
 		props = new Properties();
 		if(!readModelInputProperties(naspacPropsFileNPath,props)){
 			final String method = this.getClass().getName();
@@ -82,6 +128,9 @@ public class NaspacBridge implements ISimInitializer
 	 *   of {@link INode} NAS nodes, and the base and forecast simulation days.
 	 *   They are set up to reflect the NAS that the NASPAC core uses, 
 	 *   though right now only airport nodes are considered.
+	 *   If the bridge has a {@link ReloadCache}, inputs that haven't changed
+	 *   since the last initialization with that cache are not read again,
+	 *   though the flights and nodes are always new objects.
 	 */
 	public ISimElements initialize(){
 		final String method = className + ".initialize()";
@@ -94,6 +143,8 @@ public class NaspacBridge implements ISimInitializer
 		//--------------------------------------------------------------------
 		// Get base and forecast days from name of flight schedule file.
 		//--------------------------------------------------------------------
+		// Each stage is a Flight Recorder event.
+		JfrLoaderStageEvent stage = JfrLoaderStageEvent.start(className,"days");
 		String flightSchedSubDir = props.getProperty("flightSchedSubDir");
 		String flightSchedDir = baseDir + File.separator + scenario + 
 			File.separator + flightSchedSubDir;
@@ -114,6 +165,7 @@ public class NaspacBridge implements ISimInitializer
 		//---------------------------------------------------------------------
 		// Create Nas singleton.
 		//---------------------------------------------------------------------
+		stage = stage.next("nas");
 		//Read pre-processor output flight files to get flight and other info.
 		String findCrossingsFileSuffix = props.getProperty("findCrossingsFileSuffix");
 		String vfrFlightsFileSuffix = props.getProperty("vfrFlightsFileSuffix");
@@ -122,13 +174,13 @@ public class NaspacBridge implements ISimInitializer
 		String aircraftInterSubDir = props.getProperty("aircraftInterSubDir");
 		String aircraftInterDir = baseDir + File.separator + scenario +
 			File.separator + aircraftInterSubDir;
-		File findCrossingsFileNPath = new File(aircraftInterDir + 
+		final File findCrossingsFileNPath = new File(aircraftInterDir + 
 			File.separator + findCrossingsFile);
-		File vfrFlightsFileNPath = new File(aircraftInterDir + 
+		final File vfrFlightsFileNPath = new File(aircraftInterDir + 
 			File.separator + vfrFlightsFile);
 		String flightSchedFile = flightSchedFilePrefix + baseDay + "_" +
 			forecastDay + flightSchedFileSuffix;
-		File flightSchedFileNPath = new File(flightSchedDir + File.separator +
+		final File flightSchedFileNPath = new File(flightSchedDir + File.separator +
 			flightSchedFile);
 		
 		// Get the list of airports, air carriers, etms aircraft types and
@@ -138,85 +190,69 @@ public class NaspacBridge implements ISimInitializer
 		// object. Use ETMS instead of BADA because Dan argues that BADA
 		// maps to ETMS types can possibly change over time, while ETMS types
 		// do not.
-		String[] indxToAprtMap = new String[1];
-		String[] indxToCarrierMap = new String[1];
-		String[] indxToEquipTypeMap = new String[1];
-		String[][] indxToFixMap = new String[2][1];
-		List<String> aprtList = new ArrayList<String>();
-		List<String> carrierList = new ArrayList<String>();
-		List<String> etmsEquipList = new ArrayList<String>();
-		List<String> depFixList = new ArrayList<String>();
-		List<String> arrFixList = new ArrayList<String>();
-		List<String> badaEquipList = new ArrayList<String>();
-		
-		if(!readAprtCarrierEquipTypeFromFlightSched(flightSchedFileNPath,
-			aprtList, carrierList,etmsEquipList,badaEquipList)){
-			final String callMethod = className + 
-				".readAprtCarrierEquipTypeFromFlightSched()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
-		}
-		indxToAprtMap      = aprtList.toArray(indxToAprtMap);
-		indxToCarrierMap   = carrierList.toArray(indxToCarrierMap);
-		indxToEquipTypeMap = etmsEquipList.toArray(indxToEquipTypeMap);
-		
-		// Get fix names from FC file because if they aren't in there, then
-		// they aren't needed.
-		if(!readFixNamesFromFCFile(findCrossingsFileNPath,depFixList,arrFixList)){
-			final String callMethod = className + ".readFixNamesFromFCFile()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
-		}
-		indxToFixMap[Nas.Ad.DEP.ordinal()] = 
-			depFixList.toArray(indxToFixMap[Nas.Ad.DEP.ordinal()]);
-		indxToFixMap[Nas.Ad.ARR.ordinal()] = 
-			arrFixList.toArray(indxToFixMap[Nas.Ad.ARR.ordinal()]);
-		
+		String[][] names = load(NAMES_KEY,
+			new File[]{flightSchedFileNPath,findCrossingsFileNPath},
+			new String[0], new ReloadCache.Loader<String[][]>(){
+			public String[][] load(){
+				return readAprtCarrierEquipTypeFixNames(flightSchedFileNPath,
+					findCrossingsFileNPath);
+			}
+		});
+		if(names == null)return null;
+		String[] indxToAprtMap      = names[0];
+		String[] indxToCarrierMap   = names[1];
+		String[] indxToEquipTypeMap = names[2];
+		String[][] indxToFixMap = new String[2][];
+		indxToFixMap[Nas.Ad.DEP.ordinal()] = names[3];
+		indxToFixMap[Nas.Ad.ARR.ordinal()] = names[4];
 		
 		// With airports and other crap create instance of Nas class.
 		Nas.destroyInstance();
 		Nas.createInstance(indxToAprtMap,indxToCarrierMap,indxToEquipTypeMap,
 			indxToFixMap);
-		Nas nas = Nas.getInstance();
+		final Nas nas = Nas.getInstance();
 		
-		//---------------------------------------------------------------------
-		// Create flight, i.e., {@link IFlight}, elements and populate them.
-		//---------------------------------------------------------------------
-		// Open and read the flights files. Are using the find crossings
-		// and VFR flights file from the preprocessor output.
-		if((flights = readFlightsFromFCnVFRFiles(nas, 
-			findCrossingsFileNPath, vfrFlightsFileNPath)) == null){
-			final String callMethod = className +  
-				".readFlightsFromFCnVFRFiles()";
+		//------------------------------------------------------------------
+		// Determine which airports actually should be modeled.
+		//------------------------------------------------------------------
+		stage = stage.next("modeledAirports");
+		// Done up front so that the pareto, change capacity and called rate
+		// readers can skip unmodeled airports as they parse rather than
+		// read everything and pare it afterwards.  A null set means all.
+		String airportsFile = props.getProperty("modeledAirportsFile");
+		String airportsSubDir = props.getProperty("modeledAirportsSubDir");
+		final File aprtsFileNPath = new File(baseDir + File.separator + airportsSubDir+
+			File.separator + airportsFile);
+		int[] modeledAprts = load(MODELED_APRTS_KEY,new File[]{aprtsFileNPath},
+			new String[]{NAMES_KEY}, new ReloadCache.Loader<int[]>(){
+			public int[] load(){
+				return readModeledAirports(nas,aprtsFileNPath);
+			}
+		});
+		if(modeledAprts == null){
+			final String callMethod = className + 
+				".readModeledAirports()";
 			System.err.println(method + ": " + callMethod + " failed.");
 			return null;
 		}
+		final BitSet modeledAprtsSet = 
+			createModeledAirportsSet(nas.getNumAirports(),modeledAprts);
+		String[] aprtDeps = {NAMES_KEY,MODELED_APRTS_KEY};
 		
-		// Add flight ID to flights.  Use the .MAP.Itinerary output
-		// file from the TrajectoryModeler.
+		//---------------------------------------------------------------------
+		// Create flight, i.e., {@link IFlight}, elements and populate them.
+		//---------------------------------------------------------------------
+		stage = stage.next("flights");
+		// Open and read the flights files. Are using the find crossings
+		// and VFR flights file from the preprocessor output.  Add flight ID 
+		// to flights.  Use the .MAP.Itinerary output file from the 
+		// TrajectoryModeler.
 		String itin2FlightMapFileSuffix = 
 			props.getProperty("itin2FlightMapFileSuffix");
-		File itin2FlightMapFileNPath = new File(aircraftInterDir +
+		final File itin2FlightMapFileNPath = new File(aircraftInterDir +
 			File.separator + scenario + itin2FlightMapFileSuffix);
-		if(!addSchedIdsToFlights(itin2FlightMapFileNPath,flights)){
-			final String callMethod = className +  
-				".addSchedIdsToFlights()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
-		}
-		
-		// Add ETMS equipment types to flight objects.
-		if(!addEtmsEquipTypeToFlights(nas,flightSchedFileNPath,flights)){
-			final String callMethod = className + 
-				".addEtmsEquipTypeToFlights()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
-		}
 		
-		//----------------------------------------------------------------------
-		// Read turnaround, pushback, taxi-in and taxi-out data.
-		//----------------------------------------------------------------------
-		// And add them to the flight array.
+		// Turnaround, pushback, taxi-in and taxi-out data files.
 		String turnTimesFilePrefix = props.getProperty("turnTimesFilePrefix");
 		String pushTimesFilePrefix = props.getProperty("pushbackTimesFilePrefix");
 		String taxiInTimesFilePrefix =props.getProperty("taxiInTimesFilePrefix");
@@ -225,113 +261,56 @@ public class NaspacBridge implements ISimInitializer
 		String paramTimesSubDir = props.getProperty("paramTimesSubDir");
 		// Read equip type map file.
 		String equipTypeMapFile = props.getProperty("equipTypeMapFile");
-		File equipTypeMapFileNPath = new File(baseDir + File.separator +
+		final File equipTypeMapFileNPath = new File(baseDir + File.separator +
 			paramTimesSubDir + File.separator + equipTypeMapFile);
-		
-		// Turnaround data
-		String paramTimesFile = turnTimesFilePrefix + baseDay.substring(0,4) +
-			paramTimesFileSuffix;
-		File paramTimesFileNPath = new File(baseDir + File.separator +
-			paramTimesSubDir + File.separator + paramTimesFile);
-		int paramColIndx = 4;// turnaround column
-		IFlight.Param paramName = IFlight.Param.TURN_TIME;
-		int nDef = NaspacBridge.readParamTimesNAddToFlights(
-						nas,paramName,paramTimesFileNPath,
-						equipTypeMapFileNPath,paramColIndx,flights);
-		if(nDef < 0){
-			final String callMethod = className + 
-				".readParamTimesNAddToFlights()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
-		}
-		int avg = 0;
-		for(int i=0;i<flights.length;i++){
-			avg += flights[i].get(IFlight.Param.TURN_TIME);
-		}
-		avg /= flights.length;
-		System.out.println(method + ": turnTimeAvg: " + avg);
-		// Pushback data.
-		paramTimesFile = pushTimesFilePrefix + baseDay.substring(0,4) +
-			paramTimesFileSuffix;
-		paramTimesFileNPath = new File(baseDir + File.separator +
+		String[] paramTimesPrefixes = {turnTimesFilePrefix,pushTimesFilePrefix,
+			taxiInTimesFilePrefix,taxiOutTimesFilePrefix};
+		final File[] paramTimesFileNPaths = new File[paramTimesPrefixes.length];
+		for(int i=0;i<paramTimesPrefixes.length;i++){
+			String paramTimesFile = paramTimesPrefixes[i] + 
+				baseDay.substring(0,4) + paramTimesFileSuffix;
+			paramTimesFileNPaths[i] = new File(baseDir + File.separator +
 				paramTimesSubDir + File.separator + paramTimesFile);
-		paramColIndx = 3;// pushback column
-		paramName = IFlight.Param.PUSHBACK_TIME;
-		nDef = NaspacBridge.readParamTimesNAddToFlights(
-							nas,paramName,paramTimesFileNPath,
-							equipTypeMapFileNPath,paramColIndx,flights);
-		if(nDef < 0){
-			final String callMethod = className + 
-				".readParamTimesNAddToFlights()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
-		}
-		avg = 0;
-		for(int i=0;i<flights.length;i++){
-			avg += flights[i].get(IFlight.Param.PUSHBACK_TIME);
-		}
-		avg /= flights.length;
-		System.out.println(method + ": pushbackTimeAvg: " + avg);
-		// Taxi-In data.
-		paramTimesFile = taxiInTimesFilePrefix + baseDay.substring(0,4) +
-		paramTimesFileSuffix;
-		paramTimesFileNPath = new File(baseDir + File.separator +
-			paramTimesSubDir + File.separator + paramTimesFile);
-		paramColIndx = 1;// taxi-in column
-		paramName = IFlight.Param.TAXI_IN_TIME;
-		nDef = NaspacBridge.readParamTimesNAddToFlights(
-						nas,paramName,paramTimesFileNPath,
-						equipTypeMapFileNPath,paramColIndx,flights);
-		if(nDef < 0){
-			final String callMethod = className + 
-				".readParamTimesNAddToFlights()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
 		}
-		avg = 0;
-		for(int i=0;i<flights.length;i++){
-			avg += flights[i].get(IFlight.Param.TAXI_IN_TIME);
-		}
-		avg /= flights.length;
-		System.out.println(method + ": taxiInTimeAvg: " + avg);
-		// Taxi-out data.
-		paramTimesFile = taxiOutTimesFilePrefix + baseDay.substring(0,4) +
-		paramTimesFileSuffix;
-		paramTimesFileNPath = new File(baseDir + File.separator +
-			paramTimesSubDir + File.separator + paramTimesFile);
-		paramColIndx = 2;// pushback column
-		paramName = IFlight.Param.TAXI_OUT_TIME;
-		nDef = NaspacBridge.readParamTimesNAddToFlights(
-						nas,paramName,paramTimesFileNPath,
-						equipTypeMapFileNPath,paramColIndx,flights);
-		if(nDef < 0){
-			final String callMethod = className + 
-				".readParamTimesNAddToFlights()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
-		}
-		avg = 0;
-		for(int i=0;i<flights.length;i++){
-			avg += flights[i].get(IFlight.Param.TAXI_OUT_TIME);
-		}
-		avg /= flights.length;
-		System.out.println(method + ": taxiOutTimeAvg: " + avg);
+		File[] flightFiles = {findCrossingsFileNPath,vfrFlightsFileNPath,
+			itin2FlightMapFileNPath,flightSchedFileNPath,equipTypeMapFileNPath,
+			paramTimesFileNPaths[0],paramTimesFileNPaths[1],
+			paramTimesFileNPaths[2],paramTimesFileNPaths[3]};
+		// The cached flights are never handed to the sim, which changes
+		// them, so copy them.
+		IFlight[] cachedFlights = load(FLIGHTS_KEY,flightFiles,
+			new String[]{NAMES_KEY}, new ReloadCache.Loader<IFlight[]>(){
+			public IFlight[] load(){
+				return createFlights(nas,findCrossingsFileNPath,
+					vfrFlightsFileNPath,itin2FlightMapFileNPath,
+					flightSchedFileNPath,equipTypeMapFileNPath,
+					paramTimesFileNPaths);
+			}
+		});
+		if(cachedFlights == null)return null;
+		flights = cache == null ? cachedFlights : copyFlights(cachedFlights);
 		// Add routes to flights once network nodes have been created.
 		// See below.
 		
 		//---------------------------------------------------------------------
 		// Read Pareto and change capacity files.
 		//---------------------------------------------------------------------
+		stage = stage.next("capacities");
 		// Read the pareto file. It will implicitly contain the
 		// airports to be modeled, so also determine airports to be
 		// modeled.
 		String paretoFileSubDir = props.getProperty("paretoSubDir");
 		String paretoFileName = props.getProperty("paretoFile");
-		File paretoFile =  new File(baseDir + File.separator + scenario +
+		final File paretoFile =  new File(baseDir + File.separator + scenario +
 			File.separator + paretoFileSubDir + File.separator + paretoFileName);
 		// Get pareto curves.  Need the aprt to index map in {@link Nas}.
 		// This should be the number per qtr hour.
-		double[][][][] paretoCurves = readParetoCurves(nas,paretoFile);	
+		double[][][][] paretoCurves = load(PARETO_KEY,new File[]{paretoFile},
+			aprtDeps, new ReloadCache.Loader<double[][][][]>(){
+			public double[][][][] load(){
+				return readParetoCurves(nas,paretoFile,modeledAprtsSet);
+			}
+		});
 		if(paretoCurves == null){
 			final String callMethod = className + ".readParetoCurves()";
 			System.err.println(method + ": " + callMethod + " failed.");
@@ -344,10 +323,16 @@ public class NaspacBridge implements ISimInitializer
 		String changeCapPrefix = props.getProperty("changeCapPrefix");
 		String changeCapSubDir = props.getProperty("changeCapSubDir");
 		String changeCapFile = changeCapPrefix + baseDay;
-		File changeCapFileNPath = new File(baseDir + File.separator + scenario +
+		final File changeCapFileNPath = new File(baseDir + File.separator + scenario +
 			File.separator + changeCapSubDir + File.separator + changeCapFile);
-		int[][][] changeCapacities = 
-			readChangeCapacities(nas,changeCapFileNPath);	
+		int[][][] changeCapacities = load(CHANGE_CAPS_KEY,
+			new File[]{changeCapFileNPath}, aprtDeps, 
+			new ReloadCache.Loader<int[][][]>(){
+			public int[][][] load(){
+				return readChangeCapacities(nas,changeCapFileNPath,
+					modeledAprtsSet);
+			}
+		});
 		if(changeCapacities == null){
 			final String callMethod = className + 
 				".readChangeCapacities)";
@@ -358,6 +343,7 @@ public class NaspacBridge implements ISimInitializer
 		//------------------------------------------------------------------
 		// Read historical airport acceptance rates.
 		//------------------------------------------------------------------
+		stage = stage.next("calledRates");
 		String acceptRatesSubDir = 
 			props.getProperty("aspmAcceptRatesSubDir");
 		String acceptRatesFilePrefix = 
@@ -367,11 +353,18 @@ public class NaspacBridge implements ISimInitializer
 		String acceptRatesFile = acceptRatesFilePrefix + baseDay +
 			acceptRatesFileSuffix;
 		
-		File acceptRatesFileNPath = new File(baseDir + File.separator +
+		final File acceptRatesFileNPath = new File(baseDir + File.separator +
 			acceptRatesSubDir + File.separator + acceptRatesFile);
 		// Called acceptance rates.  Output should be the number per qtrhour.
-		int[][][] calledRates = readAspmAcceptanceRates(nas,
-			(new SQLDate2(baseDay,SQLDate2.Element.dd)),acceptRatesFileNPath);
+		final SQLDate2 baseDate = new SQLDate2(baseDay,SQLDate2.Element.dd);
+		int[][][] calledRates = load(CALLED_RATES_KEY + baseDay,
+			new File[]{acceptRatesFileNPath}, aprtDeps,
+			new ReloadCache.Loader<int[][][]>(){
+			public int[][][] load(){
+				return readAspmAcceptanceRates(nas,baseDate,
+					acceptRatesFileNPath,modeledAprtsSet);
+			}
+		});
 		if(calledRates == null){
 			final String callMethod = className +  
 				".readAspmAcceptanceRates()";
@@ -391,42 +384,27 @@ public class NaspacBridge implements ISimInitializer
 			return null;
 		}
 		
-		//------------------------------------------------------------------
-		// Pare airport info. Determine which airports actually should be modeled.
-		//------------------------------------------------------------------
-		String airportsFile = props.getProperty("modeledAirportsFile");
-		String airportsSubDir = props.getProperty("modeledAirportsSubDir");
-		File aprtsFileNPath = new File(baseDir + File.separator + airportsSubDir+
-			File.separator + airportsFile);
-		int[] modeledAprts =
-			readModeledAirports(nas,aprtsFileNPath);
-		if(modeledAprts == null){
-			final String callMethod = className + 
-				".readModeledAirports()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
-		}
-		if(!pareAirports(modeledAprts,calledRates,changeCapacities,paretoCurves)){
-			final String callMethod = className + 
-				".pareAirports()";
-			System.err.println(method + ": " + callMethod + " failed.");
-			return null;
-		}
-		
 		//------------------------------------------------------------------
 		// Read fix delay values from files.
 		//------------------------------------------------------------------
+		stage = stage.next("fixDelays");
 		String fixDelaySubDir = props.getProperty("fixDelaySubDir");
 		String depFixDelayFile = props.getProperty("depFixDelayFile");
 		String arrFixDelayFile = props.getProperty("arrFixDelayFile");
 		String fixDelayPath = baseDir + File.separator + scenario +
 			File.separator + fixDelaySubDir;
-		File depFixDelayFileNPath = 
+		final File depFixDelayFileNPath = 
 			new File(fixDelayPath + File.separator + depFixDelayFile);
-		File arrFixDelayFileNPath = 
+		final File arrFixDelayFileNPath = 
 			new File(fixDelayPath + File.separator + arrFixDelayFile);
-		int[][] fixDelays = NaspacBridge.readFixDelaysFromFile(nas,
-			depFixDelayFileNPath,arrFixDelayFileNPath);
+		int[][] fixDelays = load(FIX_DELAYS_KEY,
+			new File[]{depFixDelayFileNPath,arrFixDelayFileNPath},
+			new String[]{NAMES_KEY}, new ReloadCache.Loader<int[][]>(){
+			public int[][] load(){
+				return NaspacBridge.readFixDelaysFromFile(nas,
+					depFixDelayFileNPath,arrFixDelayFileNPath);
+			}
+		});
 		if(fixDelays == null){
 			final String callMethod = className + ".readFixDelays()";
 			System.err.println(method + ": " + callMethod + " failed.");
@@ -436,6 +414,7 @@ public class NaspacBridge implements ISimInitializer
 		//------------------------------------------------------------------
 		// Create network nodes.
 		//------------------------------------------------------------------
+		stage = stage.next("nodes");
 		// First, read in nominal taxi times for the airports and carriers.  If 
 		// an airport has no taxi info, the element is set to null.
 		// It is [aprt][carrier][taxi-in/taxi-out]
@@ -445,10 +424,17 @@ public class NaspacBridge implements ISimInitializer
 		String taxiTimesFileSuffix = props.getProperty("taxiTimesFileSuffix");
 		String year = baseDay.substring(0,4);
 		String taxiTimesFile = taxiTimesFilePrefix + year + taxiTimesFileSuffix;
-		File taxiTimesFileNPath = new File(taxiTimesDir + File.separator +
+		final File taxiTimesFileNPath = new File(taxiTimesDir + File.separator +
 			taxiTimesFile);
-		int[][][] nomTaxiTimes = 
-			readNominalTaxiTimes(nas,baseDay,taxiTimesFileNPath);
+		final String day = baseDay;
+		final String nomTaxiTimesKey = NOM_TAXI_TIMES_KEY + baseDay;
+		final int[][][] nomTaxiTimes = load(nomTaxiTimesKey,
+			new File[]{taxiTimesFileNPath}, new String[]{NAMES_KEY},
+			new ReloadCache.Loader<int[][][]>(){
+			public int[][][] load(){
+				return readNominalTaxiTimes(nas,day,taxiTimesFileNPath);
+			}
+		});
 		if(nomTaxiTimes == null){
 			final String callMethod = className + 
 				".readNominalTaxiTimes()";
@@ -459,8 +445,14 @@ public class NaspacBridge implements ISimInitializer
 		// Now, estimate runway on and off times for all flights.  Will be used 
 		// by the Runway nodes to determine acceptance rates if change 
 		// capacities and pareto curves are used.
-		int[][][] estOnNOffTimes = computeEstimatedOnNOffTimes(nas, 
-		    nomTaxiTimes,flights); 
+		final IFlight[] fl = cachedFlights;
+		int[][][] estOnNOffTimes = load(EST_ON_N_OFF_TIMES_KEY,new File[0],
+			new String[]{nomTaxiTimesKey,FLIGHTS_KEY},
+			new ReloadCache.Loader<int[][][]>(){
+			public int[][][] load(){
+				return computeEstimatedOnNOffTimes(nas,nomTaxiTimes,fl);
+			}
+		});
 		if(estOnNOffTimes == null){
 			final String callMethod = className + 
 				".computeEstimateOnNOffTimes()";
@@ -468,7 +460,8 @@ public class NaspacBridge implements ISimInitializer
 			return null;
 		}
 		
-		// Create network nodes.
+		// Create network nodes.  These hold the sim state, so they are
+		// always created afresh, but are cheap given the arrays above.
 		int numAprts = indxToAprtMap.length;
 		INode[] runways   = new Runway[numAprts];
 		INode[] taxiways  = new Taxiway[numAprts];
@@ -528,6 +521,7 @@ public class NaspacBridge implements ISimInitializer
 		//-----------------------------------------------------------------
 		// Create routes for flights based upon network nodes.
 		//-----------------------------------------------------------------
+		stage = stage.next("routes");
 		// No sectors, so just terminals, taxiways, runways and fixes.
 		if(!createFlightRoutes(flights,terminals,taxiways,runways,depFixes,
 				arrFixes)){
@@ -541,16 +535,180 @@ public class NaspacBridge implements ISimInitializer
 		// Events are not contained because they are destroyed later in the
 		// Sim.
 		ISimElements ie = new SimElements(baseDay,forecastDay,flights,nod);
+		stage.finish();
 		return ie;
 	}
 	
+	/**
+	 * Gets a product through the reload cache, if there is one, or else
+	 * just loads it.  See {@link ReloadCache#get(String, File[], String[], 
+	 * ReloadCache.Loader)}.
+	 */
+	private <T> T load(String key, File[] files, String[] deps,
+		ReloadCache.Loader<T> loader){
+		if(cache == null)return loader.load();
+		return cache.get(key,files,deps,loader);
+	}
+	
+	/**
+	 * Reads the names of the airports, air carriers and ETMS equipment types
+	 * from the flight schedule and the names of the departure and arrival 
+	 * fixes from the find crossings file.  These are the maps needed to 
+	 * create the {@link Nas} singleton.
+	 * @param flightSchedFileNPath Flight schedule file and path.
+	 * @param findCrossingsFileNPath File of IFR flight trajectories.
+	 * @return Array of the airport, carrier, equipment type, departure fix
+	 *   and arrival fix names, in that order, or <code>null</code> if there 
+	 *   is a problem.
+	 */
+	private static String[][] readAprtCarrierEquipTypeFixNames(
+		File flightSchedFileNPath, File findCrossingsFileNPath){
+		final String method = className + ".readAprtCarrierEquipTypeFixNames()";
+		List<String> aprtList = new ArrayList<String>();
+		List<String> carrierList = new ArrayList<String>();
+		List<String> etmsEquipList = new ArrayList<String>();
+		List<String> depFixList = new ArrayList<String>();
+		List<String> arrFixList = new ArrayList<String>();
+		List<String> badaEquipList = new ArrayList<String>();
+		
+		if(!readAprtCarrierEquipTypeFromFlightSched(flightSchedFileNPath,
+			aprtList, carrierList,etmsEquipList,badaEquipList)){
+			final String callMethod = className + 
+				".readAprtCarrierEquipTypeFromFlightSched()";
+			System.err.println(method + ": " + callMethod + " failed.");
+			return null;
+		}
+		
+		// Get fix names from FC file because if they aren't in there, then
+		// they aren't needed.
+		if(!readFixNamesFromFCFile(findCrossingsFileNPath,depFixList,arrFixList)){
+			final String callMethod = className + ".readFixNamesFromFCFile()";
+			System.err.println(method + ": " + callMethod + " failed.");
+			return null;
+		}
+		List<List<String>> lists = new ArrayList<List<String>>();
+		lists.add(aprtList);
+		lists.add(carrierList);
+		lists.add(etmsEquipList);
+		lists.add(depFixList);
+		lists.add(arrFixList);
+		String[][] names = new String[lists.size()][];
+		for(int i=0;i<names.length;i++){
+			names[i] = lists.get(i).toArray(new String[1]);
+		}
+		return names;
+	}
+	
+	/**
+	 * Creates the flights from the find crossings and VFR flight files and
+	 * adds their schedule IDs, ETMS equipment types and turnaround, 
+	 * pushback, taxi-in and taxi-out times.
+	 * @param nas Instance of {@link Nas} object.
+	 * @param findCrossingsFileNPath File of IFR flight trajectories.
+	 * @param vfrFlightsFileNPath File of VFR flights.
+	 * @param itin2FlightMapFileNPath Itinerary to flight ID map file.
+	 * @param flightSchedFileNPath Flight schedule file.
+	 * @param equipTypeMapFileNPath Equipment type map file.
+	 * @param paramTimesFileNPaths Turnaround, pushback, taxi-in and taxi-out
+	 *   times files, in that order.
+	 * @return Array of flights or <code>null</code> if there is a problem.
+	 */
+	private static IFlight[] createFlights(Nas nas,
+		File findCrossingsFileNPath, File vfrFlightsFileNPath,
+		File itin2FlightMapFileNPath, File flightSchedFileNPath, 
+		File equipTypeMapFileNPath, File[] paramTimesFileNPaths){
+		final String method = className + ".createFlights()";
+		IFlight[] flights = null;
+		if((flights = readFlightsFromFCnVFRFiles(nas, 
+			findCrossingsFileNPath, vfrFlightsFileNPath)) == null){
+			final String callMethod = className +  
+				".readFlightsFromFCnVFRFiles()";
+			System.err.println(method + ": " + callMethod + " failed.");
+			return null;
+		}
+		
+		// Add flight ID to flights.
+		if(!addSchedIdsToFlights(itin2FlightMapFileNPath,flights)){
+			final String callMethod = className +  
+				".addSchedIdsToFlights()";
+			System.err.println(method + ": " + callMethod + " failed.");
+			return null;
+		}
+		
+		// Add ETMS equipment types to flight objects.
+		if(!addEtmsEquipTypeToFlights(nas,flightSchedFileNPath,flights)){
+			final String callMethod = className + 
+				".addEtmsEquipTypeToFlights()";
+			System.err.println(method + ": " + callMethod + " failed.");
+			return null;
+		}
+		
+		//----------------------------------------------------------------------
+		// Read turnaround, pushback, taxi-in and taxi-out data.
+		//----------------------------------------------------------------------
+		// And add them to the flight array.
+		int[] paramColIndxs = {4,3,1,2};// turnaround,pushback,taxi-in,taxi-out
+		IFlight.Param[] paramNames = {IFlight.Param.TURN_TIME,
+			IFlight.Param.PUSHBACK_TIME,IFlight.Param.TAXI_IN_TIME,
+			IFlight.Param.TAXI_OUT_TIME};
+		String[] avgNames = {"turnTimeAvg","pushbackTimeAvg","taxiInTimeAvg",
+			"taxiOutTimeAvg"};
+		for(int k=0;k<paramNames.length;k++){
+			int nDef = NaspacBridge.readParamTimesNAddToFlights(
+							nas,paramNames[k],paramTimesFileNPaths[k],
+							equipTypeMapFileNPath,paramColIndxs[k],flights);
+			if(nDef < 0){
+				final String callMethod = className + 
+					".readParamTimesNAddToFlights()";
+				System.err.println(method + ": " + callMethod + " failed.");
+				return null;
+			}
+			int avg = 0;
+			for(int i=0;i<flights.length;i++){
+				avg += flights[i].get(paramNames[k]);
+			}
+			avg /= flights.length;
+			System.out.println(method + ": " + avgNames[k] + ": " + avg);
+		}
+		return flights;
+	}
+	
+	/**
+	 * Copies flights, with their parameters and the links between legs
+	 * but not their routes.
+	 * @param flights Flights to copy.
+	 * @return Copies, in the same order.
+	 */
+	public static IFlight[] copyFlights(IFlight[] flights){
+		IFlight.Param[] params = IFlight.Param.values();
+		Map<IFlight,Integer> indices = new IdentityHashMap<IFlight,Integer>();
+		IFlight[] copies = new IFlight[flights.length];
+		int[] pars = new int[params.length];
+		for(int i=0;i<flights.length;i++){
+			for(int j=0;j<params.length;j++)pars[j] = flights[i].get(params[j]);
+			copies[i] = new Flight(pars);
+			indices.put(flights[i],i);
+		}
+		for(int i=0;i<flights.length;i++){
+			IFlight next = flights[i].getNextLeg();
+			Integer indx = next == null ? null : indices.get(next);
+			if(indx != null){
+				copies[i].setNextLeg(copies[indx]);
+				copies[indx].setPrevLeg(copies[i]);
+			}
+		}
+		return copies;
+	}
+	
 	/**
 	 * Pares the airports to be modeled.  Input list of airports, as indices,
 	 * to model.  Set to null any calledRates, changeCaps or paretoCurves
 	 * if they aren't on the list.  If the modeledAprts array is null or
 	 * the first element is -1, then don't do anything.  This method is
 	 * used if want only a known subset of airports, such as OEP 35, to be
-	 * modeled.
+	 * modeled.  The readers now take the modeled airports directly, see
+	 * {@link #createModeledAirportsSet(int, int[])}, so this is only needed
+	 * for arrays that were read unfiltered.
 	 * @param modeledAprts Array of airports to be modeled.  If null or
 	 *   the only element has value -1, then pare airports.
 	 * @param calledRates Called rates array. First element is aprt index.
@@ -565,52 +723,59 @@ public class NaspacBridge implements ISimInitializer
 		// If want to model all airports then do nothing.
 		if(modeledAprts == null || modeledAprts[0] < 0)return true;
 		
-		// Set to null any called rates for airports that are not modeled.
-		boolean success = false;
-		int count = 0;
+		int numAprts = Math.max(calledRates.length,
+			Math.max(changeCaps.length,paretoCurves.length));
+		BitSet modeled = createModeledAirportsSet(numAprts,modeledAprts);
+		
+		// Set to null any called rates, pareto curves and change capacities 
+		// for airports that are not modeled.
 		for(int i=0;i<calledRates.length;i++){
-			success = false;
-			count = 0;
-			while(!success && count < modeledAprts.length){
-				if(i == modeledAprts[count]){
-					success = true;
-					break;
-				} else count++;
-			}
-			if(!success)calledRates[i] = null;
+			if(!modeled.get(i))calledRates[i] = null;
 		}
-		
-		// Set to null any pareto curves for airports that are not modeled.
-		success = false;
-		count = 0;
 		for(int i=0;i<paretoCurves.length;i++){
-			success = false;
-			count = 0;
-			while(!success && count < modeledAprts.length){
-				if(i == modeledAprts[count]){
-					success = true;
-					break;
-				} else count++;
-			}
-			if(!success)paretoCurves[i] = null;
+			if(!modeled.get(i))paretoCurves[i] = null;
 		}
-		// Set to null any change capacities for airports that are not modeled.
-		success = false;
-		count = 0;
 		for(int i=0;i<changeCaps.length;i++){
-			success = false;
-			count = 0;
-			while(!success && count < modeledAprts.length){
-				if(i == modeledAprts[count]){
-					success = true;
-					break;
-				} else count++;
-			}
-			if(!success)changeCaps[i] = null;
+			if(!modeled.get(i))changeCaps[i] = null;
 		}
 		return true;
 	}
 	
+	/**
+	 * Converts the array of modeled airports returned by 
+	 * {@link #readModeledAirports(Nas, File)} into a set of airport
+	 * indices that the input readers can check in constant time as they
+	 * parse.
+	 * @param numAprts Number of airports in the {@link Nas} singleton.
+	 * @param modeledAprts Array of airport indices to be modeled.  If 
+	 *   <code>null</code> or the first element is -1, then all airports
+	 *   are modeled.
+	 * @return Set of modeled airport indices or <code>null</code> if all
+	 *   airports are to be modeled.
+	 */
+	public static BitSet createModeledAirportsSet(int numAprts, 
+		int[] modeledAprts){
+		if(modeledAprts == null || modeledAprts[0] < 0)return null;
+		BitSet modeled = new BitSet(numAprts);
+		for(int i=0;i<modeledAprts.length;i++){
+			if(modeledAprts[i] >= 0)modeled.set(modeledAprts[i]);
+		}
+		return modeled;
+	}
+	
+	/**
+	 * Checks whether the airport is to be modeled.
+	 * @param modeledAprts Set of modeled airport indices.  If 
+	 *   <code>null</code> all airports are modeled.
+	 * @param aprtIndx Airport index.
+	 * @return <code>true</code> if the airport is modeled; <code>false</code>
+	 *   if not.
+	 */
+	private static boolean isModeled(BitSet modeledAprts, int aprtIndx){
+		return modeledAprts == null || 
+			(aprtIndx >= 0 && modeledAprts.get(aprtIndx));
+	}
+	
 	/**
      * Takes all the flights that are to arrive or depart at this airport and 
      * creates an ordered array of their predicted runway on (arrival) and
@@ -868,14 +1033,14 @@ public class NaspacBridge implements ISimInitializer
 			
 			// Skip all lines at the beginning that begin with "#", i.e.,
 			// are comments.
-			br = new BufferedReader(new FileReader(nomTaxiTimesFileNPath));
+			br = openReader(nomTaxiTimesFileNPath);
 			int nSkip = 0;
 			while((line = br.readLine()) != null){
 				if(line.trim().charAt(0) != '#')break;
 				nSkip++;
 			}
 			br.close();
-			br = new BufferedReader(new FileReader(nomTaxiTimesFileNPath));
+			br = openReader(nomTaxiTimesFileNPath);
 			for(int i=0;i<nSkip;i++)br.readLine();
 			
 			int aprtCount = 0,zzzCount=0; 
@@ -925,7 +1090,7 @@ public class NaspacBridge implements ISimInitializer
 			
 			// Read file and collect data for the proper season.
 			// Always include carrier "ZZZ" as that is an average.
-			br = new BufferedReader(new FileReader(nomTaxiTimesFileNPath));
+			br = openReader(nomTaxiTimesFileNPath);
 			for(int i=0;i<nSkip;i++) br.readLine();
 			
 			aprtCount = 0; 
@@ -1043,46 +1208,63 @@ public class NaspacBridge implements ISimInitializer
 	 */
 	public static int[][][] readAspmAcceptanceRates(Nas nas, 
 		SQLDate2 baseDay, File acceptRatesFileNPath){
+		return readAspmAcceptanceRates(nas,baseDay,acceptRatesFileNPath,null);
+	}
+	
+	/**
+	 * Same as {@link #readAspmAcceptanceRates(Nas, SQLDate2, File)} except
+	 * that lines for airports that are not modeled are skipped before
+	 * they are split and parsed, and their array elements are left 
+	 * <code>null</code>.
+	 * @param nas Nas class instance.
+	 * @param baseDay Base day of the simulation.
+	 * @param acceptRatesFileNPath name and path to file.
+	 * @param modeledAprts Set of modeled airport indices as created by
+	 *   {@link #createModeledAirportsSet(int, int[])}.  If <code>null</code>
+	 *   then all airports are read.
+	 * @return 3D array of called rates or <code>null</code> if an error
+	 *   occurs.
+	 */
+	public static int[][][] readAspmAcceptanceRates(Nas nas, 
+		SQLDate2 baseDay, File acceptRatesFileNPath, BitSet modeledAprts){
 		final String method = className + ".readHistoricalAcceptanceRates()";
 		
-		int[][][] rates = new int[nas.getNumAirports()][][];
+		int numAprts = nas.getNumAirports();
+		int[][][] rates = new int[numAprts][][];
 		// null out all array elements.  Any airport for which there is
 		// no data will have a null array.
 		for(int i=0;i<rates.length;i++)rates[i] = null;
 		
-		BufferedReader br = null;
+		LineTokenizer lt = null;
 		try{
 			//-----------------------------------------------------------------
-			// Do checks on data and set up arrays.
+			// Read the file in one pass.  The rates of each airport are
+			// kept in a growable array until the number of times is known.
 			//-----------------------------------------------------------------
 			// Do some checks, but mostly just rely on natural exceptions to catch 
 			// things.
-			br = new BufferedReader(new FileReader(acceptRatesFileNPath));
-			String line = null;
-			int nSkip = 0;
-			while((line = br.readLine()) != null){
-				if(line.trim().charAt(0) != '#')break;
-				nSkip++;
-			}
-			br.close();
-			br = new BufferedReader(new FileReader(acceptRatesFileNPath));
-			for(int i=0;i<nSkip;i++)br.readLine();
+			lt = new LineTokenizer(openReader(acceptRatesFileNPath),',');
+			int[][] aprtRates = new int[numAprts][];
+			int[] numTimes = new int[numAprts];
 			
 			// Read data for the first airport to get number of times.
-			// Read data for other airports to make sure they all have
+			// Count the other airports and times to make sure they all have
 			// the same number of times.
 			String aprt = null;
-			String[] ss = null;
-			String comma = ",";
 			int aprtIndx = -1;
 			int lastAprtIndx = Integer.MAX_VALUE;
 			int aprtCount = 0,timeCount=0,count=0;
 			int firstAprtIndx = -1;
 			boolean firstAprtFound = false;
-			while((line = br.readLine()) != null){
-				
-				ss = line.split(comma);
-				aprt = ss[0].trim();
+			boolean inHeader = true;
+			while(lt.next()){
+				// Skip the comments at the top of the file.
+				if(inHeader){
+					if(lt.firstNonWhiteSpace() == '#')continue;
+					inHeader = false;
+				}
+				// Only the airport is needed to check the layout.
+				aprt = lt.field(0);
 				aprtIndx = nas.getAirportIndex(aprt);
 				
 				// Do calc for first airport
@@ -1093,57 +1275,67 @@ public class NaspacBridge implements ISimInitializer
 				if(aprtIndx == firstAprtIndx){
 					timeCount++;
 				}
+				// Count all lines.
+				count++;
+				
+				boolean newAprt = aprtIndx != lastAprtIndx;
 				// Count airports.
-				if(aprtIndx != lastAprtIndx){
+				if(newAprt){
 					lastAprtIndx = aprtIndx;
 					aprtCount++;
 				}
-				// Count all lines.
-				count++;
-			}
-			br.close();
-			if(aprtCount*timeCount != count){
-				throw new IllegalArgumentException(method + ": total number of " +
-					" times not equal to the num aprts * num times from first " +
-					" airport in file: " + acceptRatesFileNPath);
-			}
-			
-			//-------------------------------------------------------------------
-			// Extract data from file.
-			//-------------------------------------------------------------------
-			br = new BufferedReader(new FileReader(acceptRatesFileNPath));
-			for(int i=0;i<nSkip;i++) br.readLine();
-			
-			aprtCount = 0; 
-			lastAprtIndx = Integer.MAX_VALUE;
-			while((line = br.readLine()) != null){
-				ss = line.split(comma);
-				aprt = ss[0].trim();
-				aprtIndx = nas.getAirportIndex(aprt);
+				// Skip airports that are not modeled.
+				if(!isModeled(modeledAprts,aprtIndx))continue;
 				
-				// Check for new airport.
-				if(aprtIndx != lastAprtIndx){
-					lastAprtIndx = aprtIndx;
-					rates[aprtIndx] = new int[timeCount][2];
+				if(newAprt){
+					if(aprtRates[aprtIndx] == null){
+						aprtRates[aprtIndx] = new int[2*128];
+					}
 					// reset array count.
-					count = 0;
+					numTimes[aprtIndx] = 0;
 					// Check if start time for data is correct. 
 					SQLDate2 date = 
-						new SQLDate2(ss[1].trim(),SQLDate2.Element.ss);
+						new SQLDate2(lt.field(1),SQLDate2.Element.ss);
 					if(!date.equals(baseDay)){
 						throw new IllegalArgumentException(method + ": starting " +
 							"time for airport: " + aprt + ", is not the base day " +
 							"time: " + baseDay);
 					}
 				}
-				rates[aprtIndx][count][Nas.Ad.DEP.ordinal()] = 
-					Integer.valueOf(ss[2].trim())/4;
-				rates[aprtIndx][count][Nas.Ad.ARR.ordinal()] = 
-					Integer.valueOf(ss[3].trim())/4;
-				                
-				count++;
+				int n = numTimes[aprtIndx];
+				int[] ar = aprtRates[aprtIndx];
+				if(2*n+2 > ar.length){
+					ar = new int[2*ar.length];
+					System.arraycopy(aprtRates[aprtIndx],0,ar,0,2*n);
+					aprtRates[aprtIndx] = ar;
+				}
+				ar[2*n + Nas.Ad.DEP.ordinal()] = lt.intField(2)/4;
+				ar[2*n + Nas.Ad.ARR.ordinal()] = lt.intField(3)/4;
+				numTimes[aprtIndx]++;
+			}
+			if(aprtCount*timeCount != count){
+				throw new IllegalArgumentException(method + ": total number of " +
+					" times not equal to the num aprts * num times from first " +
+					" airport in file: " + acceptRatesFileNPath);
+			}
+			
+			//-------------------------------------------------------------------
+			// Copy the rates into the output array.
+			//-------------------------------------------------------------------
+			for(int i=0;i<numAprts;i++){
+				if(aprtRates[i] == null)continue;
+				if(numTimes[i] > timeCount){
+					throw new IllegalArgumentException(method + ": airport: " +
+						nas.getAirportFromIndex(i) + ", has more than " +
+						timeCount + " times in file: " + acceptRatesFileNPath);
+				}
+				rates[i] = new int[timeCount][2];
+				for(int j=0;j<numTimes[i];j++){
+					rates[i][j][0] = aprtRates[i][2*j];
+					rates[i][j][1] = aprtRates[i][2*j+1];
+				}
+				aprtRates[i] = null;
 			}
-			br.close();
 				
 		}catch(FileNotFoundException fnfe){
 			fnfe.printStackTrace();
@@ -1153,7 +1345,7 @@ public class NaspacBridge implements ISimInitializer
 			return null;
 		}finally {
 			try{
-				br.close();
+				if(lt != null)lt.close();
 			}catch(IOException ioe){}
 		}	
 		return rates;
@@ -1245,7 +1437,7 @@ public class NaspacBridge implements ISimInitializer
 		BufferedReader br = null;
 		try{
 			// IFR flights.
-			br = new BufferedReader(new FileReader(findCrossingsFileNPath));
+			br = openReader(findCrossingsFileNPath);
 			String line = null;
 			String depAprt=null,arrAprt=null,carrier=null,aircraft=null;
 			while((line = br.readLine()) != null){
@@ -1273,7 +1465,7 @@ public class NaspacBridge implements ISimInitializer
 			br.close();
 		
 			// VFR flights.  No carriers or aircraft types in VFR.
-			br = new BufferedReader(new FileReader(vfrFlightsFileNPath));
+			br = openReader(vfrFlightsFileNPath);
 			while((line = br.readLine()) != null){
 				depAprt = line.substring(43,47).trim();
 				aprtList.add(depAprt);
@@ -1369,7 +1561,7 @@ public class NaspacBridge implements ISimInitializer
 		try{
 			// Find how many flights there are. Then create array.
 			// Read FC file.
-			br = new BufferedReader(new FileReader(findCrossingFileNPath));
+			br = openReader(findCrossingFileNPath);
 			int nFlights = 0, numLegs = 0;
 			String line = null;
 			while((line = br.readLine()) != null){
@@ -1384,7 +1576,7 @@ public class NaspacBridge implements ISimInitializer
 			}
 			br.close();
 			// Read VFR file.  Just count the number of lines.
-			br = new BufferedReader(new FileReader(vfrFlightsFileNPath));
+			br = openReader(vfrFlightsFileNPath);
 			while((line = br.readLine()) != null){
 				nFlights++;
 			}
@@ -1395,7 +1587,7 @@ public class NaspacBridge implements ISimInitializer
 			// Load flights from FC file.
 			//-------------------------------------------------------------
 			// Read FC file.
-			br = new BufferedReader(new FileReader(findCrossingFileNPath));
+			br = openReader(findCrossingFileNPath);
 			int itinNum=0,leg=1,airborneTime=0;
 			int schDepTime=0,schArrTime=0,depAprt=0,arrAprt=0;
 			String carrierStr=null,badaTypeStr=null;
@@ -1509,7 +1701,7 @@ public class NaspacBridge implements ISimInitializer
 			// Load flights from the VFR file.
 			//-------------------------------------------------------------------
 			// Read VFR file.  Just count the number of lines.
-			br = new BufferedReader(new FileReader(vfrFlightsFileNPath));
+			br = openReader(vfrFlightsFileNPath);
 			while((line = br.readLine()) != null){
 				itinNum = Integer.valueOf(line.substring(9,14).trim());
 				numLegs  = 1;
@@ -1604,7 +1796,7 @@ public class NaspacBridge implements ISimInitializer
 		final String method = className + ".addIdsToFlights()";
 		BufferedReader br = null;
 		try{
-			br = new BufferedReader(new FileReader(itin2FlightsMapFileNPath));
+			br = openReader(itin2FlightsMapFileNPath);
 			int nSkip = 1; // Skip first 1 line.
 			for(int i=0;i<nSkip;i++) br.readLine();
 			int nFlights = 0, count;
@@ -1694,7 +1886,7 @@ public class NaspacBridge implements ISimInitializer
 			
 			// Read file and store all equip types in a map between those
 			// and the flight ID's.
-			br = new BufferedReader(new FileReader(flightSchedFileNPath));
+			br = openReader(flightSchedFileNPath);
 			int nSkip = 2; // Skip first 2 lines.
 			for(int i=0;i<nSkip;i++) br.readLine();
 			
@@ -1761,6 +1953,24 @@ public class NaspacBridge implements ISimInitializer
 	 *   hour epoch.
 	 */
 	public static double[][][][] readParetoCurves(Nas nas, File paretoFile){
+		return readParetoCurves(nas,paretoFile,null);
+	}
+	
+	/**
+	 * Same as {@link #readParetoCurves(Nas, File)} except that curves for 
+	 * airports that are not modeled are skipped before the line is split
+	 * and the points parsed, and their array elements are left 
+	 * <code>null</code>.
+	 * @param nas Instance of {@link Nas} object.
+	 * @param paretoFile File of pareto curves.
+	 * @param modeledAprts Set of modeled airport indices as created by
+	 *   {@link #createModeledAirportsSet(int, int[])}.  If <code>null</code>
+	 *   then all airports in the {@link Nas} object are read.
+	 * @return array of pareto curves or <code>null</code> if there is a
+	 *   problem with the pareto file.
+	 */
+	public static double[][][][] readParetoCurves(Nas nas, File paretoFile,
+		BitSet modeledAprts){
 		int nAprts = nas.getNumAirports();
 		double[][][][] curves = new double[nAprts][][][];
 		
@@ -1771,56 +1981,42 @@ public class NaspacBridge implements ISimInitializer
 			curves[i] = null;
 		}
 		
-		BufferedReader br = null;
+		LineTokenizer lt = null;
 		try{
-			br = new BufferedReader(new FileReader(paretoFile));
-			String line = null;
-			String[] ss = null;
-			String whiteSpace = "\\s+";
+			lt = new LineTokenizer(openReader(paretoFile),
+				LineTokenizer.WHITE_SPACE);
 			
 			// Skip first 4 lines;
 			int nSkip = 4;
-			for(int i=0;i<nSkip;i++) br.readLine();
+			for(int i=0;i<nSkip;i++) lt.next();
 
-			// Now count lines to see how many there are.
-			// If line count is not consistent with number of airports,
-			// then return null.  It is assumed that if an airport 
+			// Count lines as they are read.  If the line count is not 
+			// consistent with number of airports, then throw an exception
+			// at the end.  It is assumed that if an airport 
 			// has a missing capacity curve, then a default was loaded
 			// by the ChangeFileGenerator class.
 			int count = 0;
-			while((line = br.readLine()) != null){
-				count++;
-			}
-			br.close();
-			if(count%(Nas.Mc.values().length) != 0){
-				final String method = className + ".readParetoCurves()";
-				throw new IllegalArgumentException(method + ": number of" +
-					" lines in pareto file isn't consistent with the number "+
-					" of airports in the file.");
-			}
-			
-			// Now read file for real.
-			br = new BufferedReader(new FileReader(paretoFile));
-			for(int i=0;i<nSkip;i++) br.readLine();
 			String aprtCond = null, aprt = null;
 			int numPts = 0;
 			int lastAprtIndx = Integer.MAX_VALUE;
-			while((line = br.readLine()) != null){
-				ss = StringUtils.splitLine(line,whiteSpace);
-				aprt = ss[0];
-				aprtCond = ss[1];
-				numPts = Integer.valueOf(ss[2].trim());
-				double[][] cs  = new double[numPts][2];
-				int indx = 0;
-				for(int i=3;i<3+2*numPts;i+=2){
-					cs[indx][Nas.Ad.ARR.ordinal()] = Double.valueOf(ss[i].trim())/4.;
-					cs[indx][Nas.Ad.DEP.ordinal()] = Double.valueOf(ss[i+1].trim())/4.;	
-					indx++;
-				}
-				// Add it to the airport if the airport is in the list.
-				// If not, then we don't care about that airport.
-				int indxAprt = -1;
-				if((indxAprt = nas.getAirportIndex(aprt)) >= 0){
+			while(lt.next()){
+				count++;
+				// Add it to the airport if the airport is in the list
+				// and is modeled.  If not, then we don't care about that 
+				// airport, so don't bother parsing the rest of the line.
+				if(lt.numFields() == 0)continue;
+				aprt = lt.field(0);
+				int indxAprt = nas.getAirportIndex(aprt);
+				if(indxAprt >= 0 && isModeled(modeledAprts,indxAprt)){
+					aprtCond = lt.field(1);
+					numPts = lt.intField(2);
+					double[][] cs  = new double[numPts][2];
+					int indx = 0;
+					for(int i=3;i<3+2*numPts;i+=2){
+						cs[indx][Nas.Ad.ARR.ordinal()] = lt.doubleField(i)/4.;
+						cs[indx][Nas.Ad.DEP.ordinal()] = lt.doubleField(i+1)/4.;	
+						indx++;
+					}
 					if(indxAprt != lastAprtIndx){
 						// create array if this is the first pass at the airport.
 						curves[indxAprt] = new double[Nas.Mc.values().length][][];
@@ -1829,6 +2025,12 @@ public class NaspacBridge implements ISimInitializer
 					curves[indxAprt][nas.getMcIndex(aprtCond)] = cs;
 				}
 			}
+			if(count%(Nas.Mc.values().length) != 0){
+				final String method = className + ".readParetoCurves()";
+				throw new IllegalArgumentException(method + ": number of" +
+					" lines in pareto file isn't consistent with the number "+
+					" of airports in the file.");
+			}
 		}catch(FileNotFoundException fnfe){
 			fnfe.printStackTrace();
 			return null;
@@ -1837,7 +2039,7 @@ public class NaspacBridge implements ISimInitializer
 			return null;
 		}finally {
 			try{
-				br.close();
+				if(lt != null)lt.close();
 			}catch(IOException ioe){}
 		}	
 		return curves;
@@ -1845,10 +2047,11 @@ public class NaspacBridge implements ISimInitializer
 	
 	/**
 	 * Reads in a list of airports to model.  This list is not necessarily the
-	 * same as those for which have called rates or pareto curves.  After this
-	 * list is read, any airport not on the list will have its called rates,
-	 * pareto curves and airport conditions set to <code>null</code> to indicate
-	 * that the airport is not modeled.
+	 * same as those for which have called rates or pareto curves.  This
+	 * list is read before the called rates, pareto curves and airport 
+	 * conditions so that any airport not on the list is skipped by those
+	 * readers and left <code>null</code> to indicate that the airport is not
+	 * modeled.
 	 * @param nas Instance of {@link Nas} object.
 	 * @param airportsFileNPath  Name and path to file of airports to be modeled. 
 	 *   Could be aspm77, but usually it's oep35.  If the file has one entry that
@@ -1866,7 +2069,7 @@ public class NaspacBridge implements ISimInitializer
 		BufferedReader br = null;
 		List<String> aprtsList = new ArrayList<String>();
 		try{
-			br = new BufferedReader(new FileReader(airportsFileNPath));
+			br = openReader(airportsFileNPath);
 			String line = null;
 			while((line = br.readLine()) != null){
 				// Add entries to list.  Skip all comments and blank lines.
@@ -1975,7 +2178,7 @@ public class NaspacBridge implements ISimInitializer
 			// There may be more than one equip name with the same index, but 
 			// that is okay.
 			Map<String,Integer> equipMap = new HashMap<String,Integer>();
-			br = new BufferedReader(new FileReader(equipTypeMapFileNPath));
+			br = openReader(equipTypeMapFileNPath);
 			String line = null;
 			String[] ss = null;
 			String comma = ",", equipTypeStr = null;
@@ -1994,7 +2197,7 @@ public class NaspacBridge implements ISimInitializer
 			//------------------------------------------------------------------
 			// Read in param times.
 			//------------------------------------------------------------------
-			br = new BufferedReader(new FileReader(paramTimesFileNPath));
+			br = openReader(paramTimesFileNPath);
 			// A Hash table of turn time specifiers.
 			Map<String,String[]> map = new HashMap<String,String[]>();
 			
@@ -2164,7 +2367,7 @@ public class NaspacBridge implements ISimInitializer
 
 		BufferedReader br = null;
 		try{
-			br = new BufferedReader(new FileReader(flightSchedFileNPath));
+			br = openReader(flightSchedFileNPath);
 			
 			String line = null;
 			String depAprt=null,arrAprt=null,carrier=null;
@@ -2284,7 +2487,7 @@ public class NaspacBridge implements ISimInitializer
 			arrFixList.add(unknownFix);
 			
 			// Read FC file.
-			br = new BufferedReader(new FileReader(findCrossingFileNPath));
+			br = openReader(findCrossingFileNPath);
 			String line = null, begin = null, fix = null;
 			String[] ss = null;
 			String whiteSpace = " ";
@@ -2361,7 +2564,7 @@ public class NaspacBridge implements ISimInitializer
 		BufferedReader br = null;
 		try{
 			// Read dep fix values.
-			br = new BufferedReader(new FileReader(depFixDelayFileNPath));
+			br = openReader(depFixDelayFileNPath);
 			// Skip first six lines.
 			int nSkip = 6;
 			for(int i=0;i<nSkip;i++) br.readLine();
@@ -2392,7 +2595,7 @@ public class NaspacBridge implements ISimInitializer
 			}
 			
 			// Read arr fix values.
-			br = new BufferedReader(new FileReader(arrFixDelayFileNPath));
+			br = openReader(arrFixDelayFileNPath);
 			// Skip first six lines.
 			nSkip = 4;
 			for(int i=0;i<nSkip;i++) br.readLine();
@@ -2476,6 +2679,23 @@ public class NaspacBridge implements ISimInitializer
 	 */
 	public static int[][][] readChangeCapacities(Nas nas, 
 		File changeCapFileNPath){
+		return readChangeCapacities(nas,changeCapFileNPath,null);
+	}
+	
+	/**
+	 * Same as {@link #readChangeCapacities(Nas, File)} except that reports
+	 * for airports that are not modeled are neither counted nor stored, 
+	 * so their array elements are <code>null</code>.
+	 * @param nas Instance of the {@link Nas} object.
+	 * @param changeCapFileNPath
+	 * @param modeledAprts Set of modeled airport indices as created by
+	 *   {@link #createModeledAirportsSet(int, int[])}.  If <code>null</code>
+	 *   then all airports are read.
+	 * @return Array of change capacities or <code>null</code> if there is
+	 *   an error.
+	 */
+	public static int[][][] readChangeCapacities(Nas nas, 
+		File changeCapFileNPath, BitSet modeledAprts){
 		if(nas == null){
 			final String method = className + ".readChangeCapacities()";
 			throw new IllegalArgumentException(method + ": input Nas object"
@@ -2484,50 +2704,53 @@ public class NaspacBridge implements ISimInitializer
 		int numAprts = nas.getNumAirports();
 		int[][][] changeCaps = new int[numAprts][][];
 		
-		BufferedReader br = null;
+		LineTokenizer lt = null;
 		try {
-			// First open the file and count how many entries for each 
-			// airport.
-			br = new BufferedReader(new FileReader(changeCapFileNPath));
+			// Read the file once, keeping the time and condition of each
+			// report in a growable array for the airport.
+			lt = new LineTokenizer(openReader(changeCapFileNPath),
+				LineTokenizer.WHITE_SPACE);
+			int[][] entries = new int[numAprts][];
 			int[] numEntries = new int[numAprts];
-			String line = null;
-			String aprt = null;
-			while((line = br.readLine()) != null){
-				if(line.length() > 4 && line.substring(0,2).equals("AP")){
-					aprt = line.substring(6,10).trim();
-					numEntries[nas.getAirportIndex(aprt)]++;
-				}	
-			}
-			br.close();
-			for(int i=0;i<numAprts;i++){
-				int num = numEntries[i];
-				if(num > 0) changeCaps[i] = new int[num][2];
-				else changeCaps[i] = null;
-			}
-			// Read file again.
-			for(int i=0;i<numEntries.length;i++){
-				numEntries[i] = 0;
-			}
-			br = new BufferedReader(new FileReader(changeCapFileNPath));
-			String ac = null, tStr = null;
-			int aprtIndx=0,count=0,time=0,acIndx = 0;;
-			while((line = br.readLine()) != null){
-				
-				if(line.length() > 6 && line.substring(0,2).equals("AP")){
-					aprt = line.substring(6,10).trim();
-					ac   = line.substring(10,line.length()).trim();
+			String aprt = null, ac = null;
+			int aprtIndx = 0, count = 0, time = 0, acIndx = 0;
+			while(lt.next()){
+				int len = lt.length();
+				if(len > 6 && lt.startsWith("AP")){
+					aprt = lt.substring(6,10).trim();
 					aprtIndx = nas.getAirportIndex(aprt);
+					// Skip airports that are not modeled.
+					if(!isModeled(modeledAprts,aprtIndx))continue;
+					ac   = lt.substring(10,len).trim();
 					acIndx = nas.getMcIndex(ac);
 					count = numEntries[aprtIndx];
-					
-					changeCaps[aprtIndx][count][0] = time ;
-					changeCaps[aprtIndx][count][1] = acIndx;
-					numEntries[aprtIndx]++;                
-				}else if(line.length() > 6 && line.substring(0,6).equals("CHANGE")){
-					tStr = line.substring(7,line.length());
-					time=Integer.valueOf(tStr.substring(0,tStr.length()-1));
+					int[] e = entries[aprtIndx];
+					if(e == null){
+						e = entries[aprtIndx] = new int[2*16];
+					} else if(2*count+2 > e.length){
+						e = new int[2*e.length];
+						System.arraycopy(entries[aprtIndx],0,e,0,2*count);
+						entries[aprtIndx] = e;
+					}
+					e[2*count]   = time;
+					e[2*count+1] = acIndx;
+					numEntries[aprtIndx]++;
+				}else if(len > 6 && lt.startsWith("CHANGE")){
+					time = lt.parseInt(7,len-1);
 				}
 			}
+			for(int i=0;i<numAprts;i++){
+				int num = numEntries[i];
+				if(num > 0){
+					changeCaps[i] = new int[num][2];
+					for(int j=0;j<num;j++){
+						changeCaps[i][j][0] = entries[i][2*j];
+						changeCaps[i][j][1] = entries[i][2*j+1];
+					}
+				}
+				else changeCaps[i] = null;
+				entries[i] = null;
+			}
 			
 		}catch(FileNotFoundException fnfe){
 			fnfe.printStackTrace();
@@ -2537,12 +2760,49 @@ public class NaspacBridge implements ISimInitializer
 			return null;
 		}finally {
 			try{
-				br.close();
+				if(lt != null)lt.close();
 			}catch(IOException ioe){}
 		}	
 		return changeCaps;	
 	}
 	
+	/**
+	 * Opens an input file for reading.  Any input file may be stored gzip
+	 * compressed: if the name ends in ".gz", or the file doesn't exist but 
+	 * one with ".gz" appended does, then the compressed file is read and
+	 * inflated on a separate thread, see {@link GzipPipeInputStream}, so the
+	 * caller never knows the difference.  On a single processor machine the
+	 * inflating is done on the calling thread instead.  Otherwise the file is
+	 * read as is.
+	 * @param fileNPath Input file and path.
+	 * @return Reader of the file.
+	 * @throws FileNotFoundException if neither the file nor its ".gz" 
+	 *   version exists.
+	 * @throws IOException if the compressed file can't be read.
+	 */
+	public static BufferedReader openReader(File fileNPath) 
+		throws IOException {
+		File gzFileNPath = null;
+		if(fileNPath.getName().endsWith(GZIP_SUFFIX)){
+			gzFileNPath = fileNPath;
+		} else if(!fileNPath.exists()){
+			File f = new File(fileNPath.getPath() + GZIP_SUFFIX);
+			if(f.exists())gzFileNPath = f;
+		}
+		if(gzFileNPath == null){
+			return new BufferedReader(new FileReader(fileNPath));
+		}
+		// With one processor there is nothing to overlap with, so just
+		// inflate on this thread.
+		if(Runtime.getRuntime().availableProcessors() < 2){
+			return new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(new FileInputStream(gzFileNPath),
+				GzipPipeInputStream.DEFAULT_CHUNK_SIZE)));
+		}
+		return new BufferedReader(new InputStreamReader(
+			new GzipPipeInputStream(gzFileNPath)));
+	}
+	
 	/**
 	 * Reads the model input properties from a file.  The input properties
 	 * are those that are needed to create the bridge.  If needed
@@ -5,9 +5,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.FileReader;
 import java.io.BufferedReader;
+import java.io.PrintWriter;
 import java.util.Properties;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.BitSet;
 
 import org.cna.donley.jdbc.SQLDate2;
 import org.junit.Test;
@@ -622,6 +624,184 @@ public class NaspacBridgeTest
     	}	
     }
     
+    /**
+     * Test of createModeledAirportsSet() and of the pareto and change
+     * capacity readers skipping airports that are not modeled.
+     */
+    @Test
+    public void testReadersSkipUnmodeledAirports(){
+    	String[] indxToAprtMap = {"ATL","DSM","PIE","VNY"};
+		String[] indxToCarrierMap = {"AAL","COA"};
+		String[] indxToEquipTypeMap = {"B733","A320"};
+		Nas.destroyInstance();
+		Nas.createInstance(indxToAprtMap,indxToCarrierMap,
+			indxToEquipTypeMap,null);
+		Nas nas = Nas.getInstance();
+
+		// Set of modeled airports.
+		assertTrue(NaspacBridge.createModeledAirportsSet(4,null) == null);
+		int[] mAprts = {-1};
+		assertTrue(NaspacBridge.createModeledAirportsSet(4,mAprts) == null);
+		int[] modeledAprts = {nas.getAirportIndex("ATL"),
+			nas.getAirportIndex("PIE")};
+		BitSet modeled = NaspacBridge.createModeledAirportsSet(
+			nas.getNumAirports(),modeledAprts);
+		assertTrue(modeled.cardinality() == 2);
+		assertTrue(modeled.get(nas.getAirportIndex("ATL")));
+		assertTrue(modeled.get(nas.getAirportIndex("PIE")));
+
+		File paretoFile = null, changeCapFile = null;
+		PrintWriter pw = null;
+		try{
+			// Pareto file: 4 header lines then one line per airport and MC.
+			paretoFile = File.createTempFile("pareto", ".txt");
+			pw = new PrintWriter(paretoFile);
+			for(int i=0;i<4;i++)pw.println("# header");
+			String[] aprts = {"ATL","DSM","PIE"};
+			for(int i=0;i<aprts.length;i++){
+				for(Nas.Mc mc : Nas.Mc.values()){
+					pw.println(aprts[i] + " " + mc.name() +
+						" 2 0.0 40.0 40.0 0.0");
+				}
+			}
+			pw.close();
+
+			// Change capacity file.
+			changeCapFile = File.createTempFile("changeCap", ".txt");
+			pw = new PrintWriter(changeCapFile);
+			pw.println("CHANGE 527;");
+			pw.println("AP    ATL IMC");
+			pw.println("AP    DSM VMC");
+			pw.println("CHANGE 714;");
+			pw.println("AP    PIE MVMC");
+			pw.println("AP    DSM IMC");
+			pw.close();
+		} catch(IOException ioe){
+			ioe.printStackTrace();
+			assertTrue(false);
+		}
+
+		// All airports.
+		double[][][][] curves = NaspacBridge.readParetoCurves(nas,paretoFile);
+		assertTrue(curves[nas.getAirportIndex("DSM")] != null);
+		assertTrue(curves[nas.getAirportIndex("VNY")] == null);
+		int[][][] changeCaps =
+			NaspacBridge.readChangeCapacities(nas,changeCapFile);
+		assertTrue(changeCaps[nas.getAirportIndex("DSM")].length == 2);
+
+		// Modeled airports only.
+		curves = NaspacBridge.readParetoCurves(nas,paretoFile,modeled);
+		assertTrue(curves[nas.getAirportIndex("DSM")] == null);
+		assertTrue(curves[nas.getAirportIndex("VNY")] == null);
+		int aprtIndx = nas.getAirportIndex("PIE");
+		int mcIndx = nas.getMcIndex("IMC");
+		assertTrue(curves[aprtIndx][mcIndx][1][Nas.Ad.ARR.ordinal()] == 10.);
+		assertTrue(curves[aprtIndx][mcIndx][1][Nas.Ad.DEP.ordinal()] == 0.);
+
+		changeCaps =
+			NaspacBridge.readChangeCapacities(nas,changeCapFile,modeled);
+		assertTrue(changeCaps[nas.getAirportIndex("DSM")] == null);
+		assertTrue(changeCaps[nas.getAirportIndex("VNY")] == null);
+		aprtIndx = nas.getAirportIndex("ATL");
+		assertTrue(changeCaps[aprtIndx].length == 1);
+		assertTrue(changeCaps[aprtIndx][0][0] == 527);
+		assertTrue(changeCaps[aprtIndx][0][1] == nas.getMcIndex("IMC"));
+		aprtIndx = nas.getAirportIndex("PIE");
+		assertTrue(changeCaps[aprtIndx].length == 1);
+		assertTrue(changeCaps[aprtIndx][0][0] == 714);
+		assertTrue(changeCaps[aprtIndx][0][1] == nas.getMcIndex("MVMC"));
+
+		paretoFile.delete();
+		changeCapFile.delete();
+    }
+
+    /**
+     * Test that the single pass readers give the same results as the two
+     * pass readers they replaced, with and without a modeled airports set,
+     * and for compressed input.
+     */
+    @Test
+    public void testSinglePassReadersMatchTwoPass(){
+    	String[] indxToAprtMap = {"ATL","DSM","PIE","VNY"};
+		Nas.destroyInstance();
+		Nas.createInstance(indxToAprtMap,new String[]{"AAL"},
+			new String[]{"B733"},null);
+		Nas nas = Nas.getInstance();
+		String dayStr = "2008-07-10 00:00:00";
+		SQLDate2 baseDay = new SQLDate2(dayStr,SQLDate2.Element.ss);
+		int[] modeledAprts = {nas.getAirportIndex("ATL"),
+			nas.getAirportIndex("VNY")};
+		BitSet[] sets = {null,NaspacBridge.createModeledAirportsSet(
+			nas.getNumAirports(),modeledAprts)};
+
+		File paretoFile = null, changeCapFile = null, aspmFile = null;
+		File aspmGzFile = null;
+		try{
+			paretoFile = File.createTempFile("pareto", ".txt");
+			PrintWriter pw = new PrintWriter(paretoFile);
+			for(int i=0;i<4;i++)pw.println("# header");
+			for(int i=0;i<indxToAprtMap.length;i++){
+				for(Nas.Mc mc : Nas.Mc.values()){
+					pw.println(" " + indxToAprtMap[i] + "\t" + mc.name() +
+						"  3 0.0 " + (40+i) + " 20.5 20.5 " + (44-i) + " 0.0");
+				}
+			}
+			pw.close();
+
+			changeCapFile = File.createTempFile("changeCap", ".txt");
+			pw = new PrintWriter(changeCapFile);
+			for(int t=0;t<20;t++){
+				pw.println("CHANGE " + 900*t + ";");
+				for(int i=t%2;i<indxToAprtMap.length;i+=2){
+					pw.println("AP    " + indxToAprtMap[i] + " " +
+						Nas.Mc.values()[(i+t)%Nas.Mc.values().length]);
+				}
+			}
+			pw.close();
+
+			aspmFile = File.createTempFile("aspm", ".txt");
+			pw = new PrintWriter(aspmFile);
+			pw.println("# comment");
+			pw.println("  # comment");
+			for(int i=0;i<indxToAprtMap.length;i++){
+				for(int t=0;t<200;t++){
+					pw.println(indxToAprtMap[i] + ", " + (t == 0 ? dayStr :
+						"later") + "," + (60+t%7) + ", " + (64-t%5));
+				}
+			}
+			pw.close();
+			aspmGzFile = new File(aspmFile.getPath() + NaspacBridge.GZIP_SUFFIX);
+			InputBenchmark.compress(aspmFile,aspmGzFile);
+		} catch(IOException ioe){
+			ioe.printStackTrace();
+			assertTrue(false);
+		}
+
+		for(BitSet set : sets){
+			assertTrue(java.util.Arrays.deepEquals(
+				NaspacBridge.readParetoCurves(nas,paretoFile,set),
+				InputBenchmark.readParetoCurvesTwoPass(nas,paretoFile,set)));
+			assertTrue(java.util.Arrays.deepEquals(
+				NaspacBridge.readChangeCapacities(nas,changeCapFile,set),
+				InputBenchmark.readChangeCapacitiesTwoPass(nas,changeCapFile,
+				set)));
+			int[][][] rates = NaspacBridge.readAspmAcceptanceRates(nas,
+				baseDay,aspmFile,set);
+			assertTrue(rates[nas.getAirportIndex("ATL")].length == 200);
+			assertTrue(java.util.Arrays.deepEquals(rates,
+				InputBenchmark.readAspmAcceptanceRatesTwoPass(nas,baseDay,
+				aspmFile,set)));
+			assertTrue(java.util.Arrays.deepEquals(rates,
+				NaspacBridge.readAspmAcceptanceRates(nas,baseDay,aspmGzFile,
+				set)));
+		}
+
+		paretoFile.delete();
+		changeCapFile.delete();
+		aspmFile.delete();
+		aspmGzFile.delete();
+    }
+
     /**
      * Test of readNominalTaxiTimes() method.
      */
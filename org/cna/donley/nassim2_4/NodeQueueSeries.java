@@ -0,0 +1,376 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Quarter hour time series of the queues of the runways and fixes of a
+ * run, for finding the bottleneck airports.  Each departure and arrival
+ * queue of a {@link Runway}, and the queue of each {@link Fix}, is a
+ * series.  For each series and epoch it keeps:
+ * <ul>
+ * <li>{@link Column#QUEUE}: number of planes in the queue at the end of
+ *   the epoch,</li>
+ * <li>{@link Column#SERVED}: number of planes that tookoff, landed or
+ *   traversed the fix in the epoch and</li>
+ * <li>{@link Column#WAIT}: total time those planes waited in the queue.
+ *   Units: seconds.</li>
+ * </ul>
+ * The utilization of a runway in an epoch is then the number served over
+ * its called rate.
+ * <p>
+ * The sim calls {@link #sample(int)} when the time of an event reaches
+ * the end of the epoch, which takes the differences of the counters of
+ * the nodes, so nothing is done per event.  The values are kept in int
+ * arrays, one per column and series, allocated up front for
+ * {@link #DEFAULT_NUM_EPOCHS} epochs and doubled if the run is longer.
+ * They are written to a small binary file, column by column:
+ * <pre>
+ *   int MAGIC, int VERSION, UTF base day, UTF forecast day
+ *   int epoch length, int start time, int number of epochs,
+ *   int number of series
+ *   for each series: UTF airport or fix name, byte kind, byte dep or arr
+ *   for each column, for each series: the value of each epoch
+ * </pre>
+ * All numbers are big-endian.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class NodeQueueSeries
+{
+	/**
+	 * Magic number at the start of a series file, "NSQS".
+	 */
+	public static final int MAGIC = 0x4E535153;
+
+	/**
+	 * Version of the file layout.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Suffix of series files.
+	 */
+	public static final String SUFFIX = ".nqs";
+
+	/**
+	 * Length of an epoch, as in {@link Runway}.  Units: seconds.
+	 */
+	public static final int EPOCH_SECS = 15*60;
+
+	/**
+	 * Epochs allocated up front, four days.
+	 */
+	public static final int DEFAULT_NUM_EPOCHS = 4*24*4;
+
+	/**
+	 * Kinds of nodes with series.
+	 */
+	public enum Kind {RUNWAY,FIX};
+
+	/**
+	 * Values of each series and epoch.
+	 */
+	public enum Column {QUEUE,SERVED,WAIT};
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "NodeQueueSeries";
+
+	private String baseDay, forecastDay;
+	private String[] names;
+	private Kind[] kinds;
+	private Nas.Ad[] ads;
+	/** Nodes of the series; <code>null</code> if read from a file. */
+	private INode[] nodes;
+	/** Values, indexed by column, series and epoch. */
+	private int[][][] values;
+	/** Counters of the nodes at the last sample. */
+	private int[] lastServed;
+	private long[] lastWait;
+	private int startTime = 0, numEpochs = 0;
+
+	private NodeQueueSeries(){}
+
+	/**
+	 * Constructor.  The runways and fixes are found among the nodes, and
+	 * {@link Nas} gives their names.
+	 * @param simElements Elements of the simulation.
+	 * @param initNumEpochs Number of epochs to allocate.
+	 */
+	public NodeQueueSeries(ISimElements simElements, int initNumEpochs){
+		baseDay = simElements.getBaseDay();
+		forecastDay = simElements.getForecastDay();
+		Nas nas = Nas.getInstance();
+		INode[] all = simElements.getNodes();
+		int n = 0;
+		for(INode node : all){
+			if(node instanceof Runway)n += 2;
+			else if(node instanceof Fix)n++;
+		}
+		names = new String[n];
+		kinds = new Kind[n];
+		ads = new Nas.Ad[n];
+		nodes = new INode[n];
+		n = 0;
+		for(INode node : all){
+			if(node instanceof Runway){
+				for(Nas.Ad ad : Nas.Ad.values()){
+					names[n] = nas.getAirportFromIndex(((Runway)node).getAirport());
+					kinds[n] = Kind.RUNWAY;
+					ads[n] = ad;
+					nodes[n++] = node;
+				}
+			} else if(node instanceof Fix){
+				Fix fix = (Fix)node;
+				names[n] = nas.getFixNameFromIndex(fix.getFixType(),fix.getName());
+				kinds[n] = Kind.FIX;
+				ads[n] = fix.getFixType();
+				nodes[n++] = node;
+			}
+		}
+		values = new int[Column.values().length][n][Math.max(1,initNumEpochs)];
+		lastServed = new int[n];
+		lastWait = new long[n];
+	}
+
+	/**
+	 * Starts the series at the epoch of the first event of the run.
+	 * @param time Time of the first event.  Units: seconds.
+	 * @return Time of the first sample.
+	 */
+	public int start(int time){
+		startTime = floorEpoch(time);
+		numEpochs = 0;
+		for(int s=0;s<nodes.length;s++){
+			lastServed[s] = getServed(s);
+			lastWait[s] = getWait(s);
+		}
+		return startTime + EPOCH_SECS;
+	}
+
+	/**
+	 * Ends the epochs before the one of the given time.  Epochs with no
+	 * events are given the queues of the last.
+	 * @param time Time of the event that reached the end of the epoch.
+	 *   Units: seconds.
+	 * @return Time of the next sample.
+	 */
+	public int sample(int time){
+		int nEnd = (floorEpoch(time) - startTime)/EPOCH_SECS;
+		if(nEnd <= numEpochs)return startTime + (numEpochs + 1)*EPOCH_SECS;
+		ensureCapacity(nEnd);
+		int[][] queue = values[Column.QUEUE.ordinal()];
+		int[][] served = values[Column.SERVED.ordinal()];
+		int[][] wait = values[Column.WAIT.ordinal()];
+		int e = numEpochs;
+		for(int s=0;s<nodes.length;s++){
+			int sv = getServed(s);
+			long w = getWait(s);
+			queue[s][e] = getQueueSize(s);
+			served[s][e] = sv - lastServed[s];
+			wait[s][e] = (int)(w - lastWait[s]);
+			lastServed[s] = sv;
+			lastWait[s] = w;
+			for(int k=e+1;k<nEnd;k++)queue[s][k] = queue[s][e];
+		}
+		numEpochs = nEnd;
+		return startTime + (numEpochs + 1)*EPOCH_SECS;
+	}
+
+	/**
+	 * Ends the last epoch, at the end of the run.
+	 * @param time Time of the last event.  Units: seconds.
+	 */
+	public void finish(int time){
+		sample(floorEpoch(time) + EPOCH_SECS);
+	}
+
+	private static int floorEpoch(int time){
+		return time - ((time%EPOCH_SECS) + EPOCH_SECS)%EPOCH_SECS;
+	}
+
+	private void ensureCapacity(int n){
+		if(nodes.length == 0 || n <= values[0][0].length)return;
+		int len = Math.max(n,2*values[0][0].length);
+		for(int[][] col : values){
+			for(int s=0;s<col.length;s++)col[s] = Arrays.copyOf(col[s],len);
+		}
+	}
+
+	private int getServed(int s){
+		if(kinds[s] == Kind.RUNWAY)return ((Runway)nodes[s]).getNumServed(ads[s]);
+		return ((Fix)nodes[s]).getNumServed();
+	}
+
+	private long getWait(int s){
+		if(kinds[s] == Kind.RUNWAY)return ((Runway)nodes[s]).getTotalWait(ads[s]);
+		return ((Fix)nodes[s]).getTotalWait();
+	}
+
+	private int getQueueSize(int s){
+		if(kinds[s] == Kind.RUNWAY)return ((Runway)nodes[s]).getQueue(ads[s]).size();
+		return ((Fix)nodes[s]).getQueue().size();
+	}
+
+	/** @return Base day of the run. */
+	public String getBaseDay(){return baseDay;}
+	/** @return Forecast day of the run. */
+	public String getForecastDay(){return forecastDay;}
+	/** @return Start of the first epoch.  Units: seconds. */
+	public int getStartTime(){return startTime;}
+	/** @return Number of epochs ended so far. */
+	public int getNumEpochs(){return numEpochs;}
+	/** @return Number of series. */
+	public int getNumSeries(){return names.length;}
+	/**
+	 * @param s Series.
+	 * @return Airport of a runway series or name of a fix series.
+	 */
+	public String getName(int s){return names[s];}
+	/**
+	 * @param s Series.
+	 * @return Kind of node of the series.
+	 */
+	public Kind getKind(int s){return kinds[s];}
+	/**
+	 * @param s Series.
+	 * @return Whether the series is of departures or arrivals.
+	 */
+	public Nas.Ad getAd(int s){return ads[s];}
+	/**
+	 * @param col Column.
+	 * @param s Series.
+	 * @return the values of the epochs, a copy.
+	 */
+	public int[] getValues(Column col, int s){
+		return Arrays.copyOf(values[col.ordinal()][s],numEpochs);
+	}
+	/**
+	 * Finds the series of a node.
+	 * @param kind Kind of node.
+	 * @param name Airport or fix name.
+	 * @param ad Departure or arrival.
+	 * @return the series; -1 if there is none.
+	 */
+	public int findSeries(Kind kind, String name, Nas.Ad ad){
+		for(int s=0;s<names.length;s++){
+			if(kinds[s] == kind && ads[s] == ad && names[s].equals(name))return s;
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes the series to a file.
+	 * @param fileNPath File and path.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public boolean write(File fileNPath){
+		DataOutputStream out = null;
+		try{
+			out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(fileNPath)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(baseDay);
+			out.writeUTF(forecastDay);
+			out.writeInt(EPOCH_SECS);
+			out.writeInt(startTime);
+			out.writeInt(numEpochs);
+			out.writeInt(names.length);
+			for(int s=0;s<names.length;s++){
+				out.writeUTF(names[s]);
+				out.writeByte(kinds[s].ordinal());
+				out.writeByte(ads[s].ordinal());
+			}
+			for(int[][] col : values){
+				for(int s=0;s<names.length;s++){
+					for(int e=0;e<numEpochs;e++)out.writeInt(col[s][e]);
+				}
+			}
+			return true;
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return false;
+		}finally{
+			if(out != null){
+				try{
+					out.close();
+				}catch(IOException ioe){
+					ioe.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the series from a file.
+	 * @param fileNPath File and path.
+	 * @return the series; <code>null</code> if the file can't be read.
+	 */
+	public static NodeQueueSeries read(File fileNPath){
+		final String method = className + ".read()";
+		DataInputStream in = null;
+		try{
+			in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fileNPath)));
+			if(in.readInt() != MAGIC){
+				System.err.println(method + ": " + fileNPath +
+					" is not a queue series file.");
+				return null;
+			}
+			int version = in.readInt();
+			if(version != VERSION){
+				System.err.println(method + ": " + fileNPath + " has version " +
+					version + ", not " + VERSION + ".");
+				return null;
+			}
+			NodeQueueSeries q = new NodeQueueSeries();
+			q.baseDay = in.readUTF();
+			q.forecastDay = in.readUTF();
+			int epochSecs = in.readInt();
+			if(epochSecs != EPOCH_SECS){
+				System.err.println(method + ": " + fileNPath + " has epochs of " +
+					epochSecs + " s, not " + EPOCH_SECS + ".");
+				return null;
+			}
+			q.startTime = in.readInt();
+			q.numEpochs = in.readInt();
+			int n = in.readInt();
+			q.names = new String[n];
+			q.kinds = new Kind[n];
+			q.ads = new Nas.Ad[n];
+			for(int s=0;s<n;s++){
+				q.names[s] = in.readUTF();
+				q.kinds[s] = Kind.values()[in.readByte()];
+				q.ads[s] = Nas.Ad.values()[in.readByte()];
+			}
+			q.values = new int[Column.values().length][n][q.numEpochs];
+			for(int[][] col : q.values){
+				for(int s=0;s<n;s++){
+					for(int e=0;e<q.numEpochs;e++)col[s][e] = in.readInt();
+				}
+			}
+			return q;
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return null;
+		}finally{
+			if(in != null){
+				try{
+					in.close();
+				}catch(IOException ioe){
+					ioe.printStackTrace();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of the queue series of the runways and fixes.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class NodeQueueSeriesTest
+{
+	private File dir = null;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("nodeQueueSeries","");
+		assertTrue(dir.delete() && dir.mkdir());
+	}
+
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+		for(File f : dir.listFiles())f.delete();
+		dir.delete();
+	}
+
+	private static int sum(int[] a){
+		int s = 0;
+		for(int v : a)s += v;
+		return s;
+	}
+
+	/**
+	 * Test that the epochs get the differences of the counters of the
+	 * nodes, that empty epochs keep the queues, and that the series are
+	 * written and read back.
+	 */
+	@Test
+	public void testSample(){
+		Nas.createInstance(new String[]{"ATL","BOS"},new String[]{"AAL"},
+			new String[]{"B737"},new String[][]{{"DEPA"},{"ARRA"}});
+		Runway rw = new Runway(1,0,false,null,null,null,null);
+		Fix fix = new Fix(0,Nas.Ad.ARR,60);
+		INode[] nodes = {new DummyNode(),rw,fix};
+		NodeQueueSeries q = new NodeQueueSeries(
+			new SimElements("20080710","20080711",new IFlight[0],nodes),2);
+		assertTrue(q.getNumSeries() == 3);
+		assertTrue(q.getKind(0) == NodeQueueSeries.Kind.RUNWAY);
+		assertTrue(q.getName(0).equals("BOS") && q.getAd(0) == Nas.Ad.DEP);
+		assertTrue(q.getName(1).equals("BOS") && q.getAd(1) == Nas.Ad.ARR);
+		assertTrue(q.getKind(2) == NodeQueueSeries.Kind.FIX);
+		assertTrue(q.getName(2).equals("ARRA") && q.getAd(2) == Nas.Ad.ARR);
+
+		// Counters before the start are not counted.
+		rw.setLastTime(Nas.Ad.DEP,0);
+		rw.addWait(Nas.Ad.DEP,500);
+		assertTrue(q.start(-100) == 0);
+		assertTrue(q.getStartTime() == -900);
+
+		rw.setLastTime(Nas.Ad.DEP,10);
+		rw.addWait(Nas.Ad.DEP,30);
+		rw.setLastTime(Nas.Ad.DEP,20);
+		rw.addWait(Nas.Ad.DEP,40);
+		fix.computeNextTime(30);
+		fix.addWait(7);
+		rw.getQueue(Nas.Ad.ARR).add(new Flight(new int[IFlight.Param.values().length]));
+		// Next event is in the third epoch after the start.
+		assertTrue(q.sample(2000) == 2700);
+		assertTrue(q.getNumEpochs() == 3);
+		rw.setLastTime(Nas.Ad.ARR,2000);
+		rw.addWait(Nas.Ad.ARR,15);
+		rw.getQueue(Nas.Ad.ARR).poll();
+		q.finish(2100);
+		assertTrue(q.getNumEpochs() == 4);
+
+		int[][] expected = {
+			{0,0,0,0},{1,1,1,0},{0,0,0,0},
+			{2,0,0,0},{0,0,0,1},{1,0,0,0},
+			{70,0,0,0},{0,0,0,15},{7,0,0,0}};
+		File f = new File(dir,"q" + NodeQueueSeries.SUFFIX);
+		assertTrue(q.write(f));
+		NodeQueueSeries r = NodeQueueSeries.read(f);
+		for(NodeQueueSeries s : new NodeQueueSeries[]{q,r}){
+			assertTrue(s.getBaseDay().equals("20080710"));
+			assertTrue(s.getForecastDay().equals("20080711"));
+			assertTrue(s.getStartTime() == -900 && s.getNumEpochs() == 4);
+			assertTrue(s.findSeries(NodeQueueSeries.Kind.FIX,"ARRA",Nas.Ad.ARR) == 2);
+			assertTrue(s.findSeries(NodeQueueSeries.Kind.FIX,"DEPA",Nas.Ad.DEP) == -1);
+			for(NodeQueueSeries.Column col : NodeQueueSeries.Column.values()){
+				for(int i=0;i<3;i++){
+					int[] v = s.getValues(col,i);
+					int[] e = expected[3*col.ordinal() + i];
+					assertTrue(Arrays.equals(v,e));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that the series of a run account for every leg and agree with
+	 * the delays of the legs.
+	 */
+	@Test
+	public void testRun() throws IOException {
+		Properties p = new Properties();
+		p.setProperty("writeQueueSeries","true");
+		p.setProperty("queueSeriesFilePrefix","series");
+		NasSimEventDriven sim = new NasSimEventDriven(
+			EngineBenchmark.writeDay(dir,2000,5L,p));
+		sim.initialize();
+		sim.run();
+		assertTrue(sim.processOutput());
+		NodeQueueSeries q = NodeQueueSeries.read(
+			new File(dir,"series_20080710_20080710" + NodeQueueSeries.SUFFIX));
+		assertTrue(q != null && q.getNumEpochs() > 4*24);
+
+		int n = 0;
+		long[] wait = new long[4];
+		for(IFlight f : sim.getSimElements().getFlights()){
+			int depFix = f.get(IFlight.Param.DEP_FIX_DELAY);
+			int arrFix = f.get(IFlight.Param.ARR_FIX_DELAY);
+			wait[0] += f.get(IFlight.Param.ACT_OFF_TIME) - depFix -
+				f.get(IFlight.Param.CALC_OFF_TIME);
+			wait[1] += f.get(IFlight.Param.ACT_ON_TIME) - arrFix -
+				f.get(IFlight.Param.CALC_ON_TIME);
+			wait[2] += depFix;
+			wait[3] += arrFix;
+			n++;
+		}
+		int[] served = new int[4];
+		long[] qWait = new long[4];
+		for(int s=0;s<q.getNumSeries();s++){
+			int k = q.getAd(s).ordinal() +
+				(q.getKind(s) == NodeQueueSeries.Kind.FIX ? 2 : 0);
+			served[k] += sum(q.getValues(NodeQueueSeries.Column.SERVED,s));
+			qWait[k] += sum(q.getValues(NodeQueueSeries.Column.WAIT,s));
+			int[] queue = q.getValues(NodeQueueSeries.Column.QUEUE,s);
+			assertTrue(queue[queue.length-1] == 0);
+		}
+		for(int k=0;k<4;k++){
+			assertTrue(served[k] == n);
+			assertTrue(qWait[k] == wait[k]);
+		}
+	}
+}
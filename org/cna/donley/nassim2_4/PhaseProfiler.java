@@ -0,0 +1,344 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Profiles the nested phases of a run, e.g., the stages of a loader within
+ * {@link NasSimEventDriven#initialize()}, the event loop of
+ * {@link NasSimEventDriven#run()} and the writing of the output.  For
+ * each phase the wall time, the CPU time and the bytes allocated by the
+ * thread, and the collections of the JVM and their time, are taken.
+ * <p>
+ * A profiler is started on a thread with {@link #start(String)}, and
+ * code on that thread marks its phases with {@link #enter(String)} and
+ * {@link #exit(String)}, which do nothing if no profiler is started, so the
+ * loaders need not be told of it.  The stages of a
+ * {@link JfrLoaderStageEvent} are phases.  The CPU time and allocation
+ * are those of the profiled thread only; the helper threads, such as
+ * those formatting the flight output, are not counted, though their
+ * wall time is.  The collections are those of the whole JVM.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class PhaseProfiler
+{
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "PhaseProfiler";
+
+	/** Profiler of each thread, if started. */
+	private static final ThreadLocal<PhaseProfiler> current =
+		new ThreadLocal<PhaseProfiler>();
+
+	/** File suffix of the JSON profile. */
+	public static final String SUFFIX = ".json";
+
+	/**
+	 * A phase and what it took.  Times, bytes and collections are -1 if
+	 * the JVM can't measure them.
+	 */
+	public static class Phase
+	{
+		private final String name, path;
+		private final int depth;
+		private long wallNanos, cpuNanos, allocBytes, gcCount, gcMillis;
+
+		private Phase(String name, String path, int depth){
+			this.name = name;
+			this.path = path;
+			this.depth = depth;
+		}
+		/** @return Name of the phase. */
+		public String getName(){return name;}
+		/** @return Names of the phase and those it is within, joined by '/'. */
+		public String getPath(){return path;}
+		/** @return Number of phases it is within. */
+		public int getDepth(){return depth;}
+		/** @return Wall time.  Units: nanoseconds */
+		public long getWallNanos(){return wallNanos;}
+		/** @return CPU time of the thread.  Units: nanoseconds */
+		public long getCpuNanos(){return cpuNanos;}
+		/** @return Bytes allocated by the thread. */
+		public long getAllocBytes(){return allocBytes;}
+		/** @return Number of collections. */
+		public long getGcCount(){return gcCount;}
+		/** @return Time of the collections.  Units: milliseconds */
+		public long getGcMillis(){return gcMillis;}
+	}
+
+	/** Name of the run. */
+	private String runName;
+
+	/** Phases, in the order they were entered. */
+	private final List<Phase> phases = new ArrayList<Phase>();
+
+	/** Open phases and their starting measurements, innermost last. */
+	private final List<Phase> open = new ArrayList<Phase>();
+	private final List<long[]> openStarts = new ArrayList<long[]>();
+
+	/**
+	 * Constructor.
+	 * @param runName Name of the run, e.g., its base and forecast days.
+	 */
+	public PhaseProfiler(String runName){
+		this.runName = runName;
+	}
+
+	/**
+	 * Starts a profiler on the current thread, in place of any already
+	 * started.
+	 * @param runName Name of the run.
+	 * @return the profiler.
+	 */
+	public static PhaseProfiler start(String runName){
+		PhaseProfiler p = new PhaseProfiler(runName);
+		current.set(p);
+		return p;
+	}
+
+	/**
+	 * @return the profiler started on the current thread; <code>null</code>
+	 *   if none.
+	 */
+	public static PhaseProfiler getCurrent(){
+		return current.get();
+	}
+
+	/**
+	 * Enters a phase of the profiler of the current thread, if any.
+	 * @param name Name of the phase.
+	 */
+	public static void enter(String name){
+		PhaseProfiler p = current.get();
+		if(p != null)p.enterPhase(name);
+	}
+
+	/**
+	 * Exits a phase of the profiler of the current thread, if any.
+	 * @param name Name of the phase.
+	 * @see #exitPhase(String)
+	 */
+	public static void exit(String name){
+		PhaseProfiler p = current.get();
+		if(p != null)p.exitPhase(name);
+	}
+
+	/**
+	 * Exits any open phases and stops profiling the current thread, if
+	 * this profiler was started on it.
+	 */
+	public void stop(){
+		while(open.size() > 0)exitPhase();
+		if(current.get() == this)current.remove();
+	}
+
+	/**
+	 * Enters a phase, within the innermost open one.
+	 * @param name Name of the phase.
+	 */
+	public void enterPhase(String name){
+		if(name == null || name.length() == 0){
+			final String method = className + ".enterPhase()";
+			throw new IllegalArgumentException(method + ": phase has no name.");
+		}
+		int depth = open.size();
+		String path = depth == 0 ? name :
+			open.get(depth-1).getPath() + "/" + name;
+		Phase ph = new Phase(name,path,depth);
+		phases.add(ph);
+		open.add(ph);
+		openStarts.add(measure());
+	}
+
+	/**
+	 * Exits the innermost open phase of a name, and any open within it, as
+	 * a loader that failed part way may have left them.  Does nothing if
+	 * no phase of the name is open.
+	 * @param name Name of the phase.
+	 */
+	public void exitPhase(String name){
+		int k = open.size() - 1;
+		while(k >= 0 && !open.get(k).getName().equals(name))k--;
+		if(k < 0)return;
+		while(open.size() > k)exitPhase();
+	}
+
+	/**
+	 * Exits the innermost open phase.  Does nothing if none is open.
+	 */
+	private void exitPhase(){
+		int last = open.size() - 1;
+		if(last < 0)return;
+		long[] end = measure();
+		Phase ph = open.remove(last);
+		long[] start = openStarts.remove(last);
+		ph.wallNanos  = end[0] - start[0];
+		ph.cpuNanos   = diff(start[1],end[1]);
+		ph.allocBytes = diff(start[2],end[2]);
+		ph.gcCount    = diff(start[3],end[3]);
+		ph.gcMillis   = diff(start[4],end[4]);
+	}
+
+	private static long diff(long start, long end){
+		return start < 0 || end < 0 ? -1 : end - start;
+	}
+
+	/**
+	 * Takes the wall time, the CPU time and allocation of the thread, and
+	 * the collections of the JVM and their time.
+	 */
+	private static long[] measure(){
+		ThreadMXBean tmx = ManagementFactory.getThreadMXBean();
+		long cpu = tmx.isCurrentThreadCpuTimeSupported() &&
+			tmx.isThreadCpuTimeEnabled() ? tmx.getCurrentThreadCpuTime() : -1;
+		long gcCount = 0, gcMillis = 0;
+		for(GarbageCollectorMXBean gc :
+			ManagementFactory.getGarbageCollectorMXBeans()){
+			long c = gc.getCollectionCount(), t = gc.getCollectionTime();
+			if(c < 0 || gcCount < 0)gcCount = -1;
+			else gcCount += c;
+			if(t < 0 || gcMillis < 0)gcMillis = -1;
+			else gcMillis += t;
+		}
+		return new long[]{System.nanoTime(),cpu,ThreadAllocation.allocatedBytes(),
+			gcCount,gcMillis};
+	}
+
+	/** @return Name of the run. */
+	public String getRunName(){return runName;}
+	/**
+	 * @param runName Name of the run, e.g., once the loader has read its
+	 *   days.
+	 */
+	public void setRunName(String runName){this.runName = runName;}
+
+	/**
+	 * @return the phases, in the order they were entered, so each is
+	 *   followed by those within it.
+	 */
+	public List<Phase> getPhases(){
+		return Collections.unmodifiableList(phases);
+	}
+
+	/**
+	 * Finds a phase.
+	 * @param path Path of the phase, e.g., "initialize/loader/flights".
+	 * @return the first phase entered with the path; <code>null</code> if
+	 *   none.
+	 */
+	public Phase findPhase(String path){
+		for(Phase ph : phases){
+			if(ph.getPath().equals(path))return ph;
+		}
+		return null;
+	}
+
+	/**
+	 * Reports the phases, each indented under the one it is within, with
+	 * its wall time, its share of the wall time of the outermost phases,
+	 * its CPU time, allocation and collections.  Times are in
+	 * milliseconds and allocation in megabytes; values the JVM can't
+	 * measure are shown as "-".
+	 * @return the report, one line per phase.
+	 */
+	public String report(){
+		long total = 0;
+		for(Phase ph : phases){
+			if(ph.getDepth() == 0)total += ph.getWallNanos();
+		}
+		Formatter f = new Formatter(Locale.US);
+		f.format("%-32s %10s %6s %10s %10s %6s %8s%n","phase","wall ms",
+			"share","cpu ms","alloc MB","gcs","gc ms");
+		for(Phase ph : phases){
+			StringBuilder name = new StringBuilder();
+			for(int d=0;d<ph.getDepth();d++)name.append("  ");
+			name.append(ph.getName());
+			f.format("%-32s %10.1f %5.1f%% %10s %10s %6s %8s%n",name,
+				ph.getWallNanos()/1.e6,
+				total > 0 ? 100.*ph.getWallNanos()/total : 0.,
+				ph.getCpuNanos() < 0 ? "-" :
+					String.format(Locale.US,"%.1f",ph.getCpuNanos()/1.e6),
+				ph.getAllocBytes() < 0 ? "-" :
+					String.format(Locale.US,"%.1f",ph.getAllocBytes()/1048576.),
+				ph.getGcCount() < 0 ? "-" : String.valueOf(ph.getGcCount()),
+				ph.getGcMillis() < 0 ? "-" : String.valueOf(ph.getGcMillis()));
+		}
+		return f.toString();
+	}
+
+	/**
+	 * Returns the profile as JSON: an object with the "run" name and the
+	 * "phases", in the order they were entered, each with its "name",
+	 * "path", "depth", "wallMs", "cpuMs", "allocBytes", "gcCount" and
+	 * "gcMs".  Values the JVM can't measure are -1.
+	 * @return the JSON.
+	 */
+	public String toJson(){
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"run\":").append(quote(runName)).append(",\"phases\":[");
+		for(int i=0;i<phases.size();i++){
+			Phase ph = phases.get(i);
+			if(i > 0)sb.append(',');
+			sb.append("\n  {\"name\":").append(quote(ph.getName()));
+			sb.append(",\"path\":").append(quote(ph.getPath()));
+			sb.append(",\"depth\":").append(ph.getDepth());
+			sb.append(",\"wallMs\":").append(millis(ph.getWallNanos()));
+			sb.append(",\"cpuMs\":").append(millis(ph.getCpuNanos()));
+			sb.append(",\"allocBytes\":").append(ph.getAllocBytes());
+			sb.append(",\"gcCount\":").append(ph.getGcCount());
+			sb.append(",\"gcMs\":").append(ph.getGcMillis()).append('}');
+		}
+		sb.append("\n]}\n");
+		return sb.toString();
+	}
+
+	private static String millis(long nanos){
+		return nanos < 0 ? "-1" : String.format(Locale.US,"%.3f",nanos/1.e6);
+	}
+
+	/** Quotes a string for JSON. */
+	private static String quote(String s){
+		StringBuilder sb = new StringBuilder("\"");
+		for(int i=0;i<s.length();i++){
+			char c = s.charAt(i);
+			if(c == '"' || c == '\\')sb.append('\\').append(c);
+			else if(c < 0x20)sb.append(String.format(Locale.US,"\\u%04x",(int)c));
+			else sb.append(c);
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * Writes the profile as JSON.
+	 * @param fileNPath File and path.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public boolean writeJson(File fileNPath){
+		PrintWriter pw = null;
+		try{
+			pw = new PrintWriter(new FileWriter(fileNPath));
+			pw.print(toJson());
+			if(pw.checkError())throw new IOException("write failed");
+			return true;
+		}catch(IOException ioe){
+			final String method = className + ".writeJson()";
+			System.err.println(method + ": can't write " + fileNPath + ": " +
+				ioe.getMessage());
+			return false;
+		}finally{
+			if(pw != null)pw.close();
+		}
+	}
+}
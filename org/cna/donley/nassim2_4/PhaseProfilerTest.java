@@ -0,0 +1,142 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of the phase profiler and its phases of a run.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class PhaseProfilerTest
+{
+	@After
+	public void tearDown(){
+		PhaseProfiler p = PhaseProfiler.getCurrent();
+		if(p != null)p.stop();
+		Nas.destroyInstance();
+	}
+
+	/**
+	 * Test that phases nest, that those left open are exited with the one
+	 * they are within, and that nothing is profiled when not started.
+	 */
+	@Test
+	public void testPhases(){
+		PhaseProfiler.enter("ignored");
+		PhaseProfiler.exit("ignored");
+		assertTrue(PhaseProfiler.getCurrent() == null);
+
+		PhaseProfiler p = PhaseProfiler.start("test \"run\"");
+		assertTrue(PhaseProfiler.getCurrent() == p);
+		PhaseProfiler.enter("outer");
+		PhaseProfiler.enter("inner");
+		long[] garbage = null;
+		for(int i=0;i<100;i++)garbage = new long[1000];
+		assertTrue(garbage.length == 1000);
+		PhaseProfiler.exit("inner");
+		JfrLoaderStageEvent stage = JfrLoaderStageEvent.start("test","first");
+		stage = stage.next("second");
+		// Left open, as by a loader that failed.
+		PhaseProfiler.exit("outer");
+		PhaseProfiler.exit("outer");
+		PhaseProfiler.enter("last");
+		p.stop();
+		stage.finish();
+		assertTrue(PhaseProfiler.getCurrent() == null);
+
+		List<PhaseProfiler.Phase> phases = p.getPhases();
+		String[] paths = {"outer","outer/inner","outer/first","outer/second",
+			"last"};
+		assertTrue(phases.size() == paths.length);
+		for(int i=0;i<paths.length;i++){
+			PhaseProfiler.Phase ph = phases.get(i);
+			assertTrue(ph.getPath().equals(paths[i]));
+			assertTrue(p.findPhase(paths[i]) == ph);
+			assertTrue(ph.getWallNanos() >= 0);
+		}
+		PhaseProfiler.Phase outer = p.findPhase("outer");
+		PhaseProfiler.Phase inner = p.findPhase("outer/inner");
+		assertTrue(outer.getDepth() == 0 && inner.getDepth() == 1);
+		assertTrue(inner.getName().equals("inner"));
+		assertTrue(outer.getWallNanos() >= inner.getWallNanos());
+		if(ThreadAllocation.allocatedBytes() >= 0){
+			assertTrue(inner.getAllocBytes() >= 100*8000);
+			assertTrue(outer.getAllocBytes() >= inner.getAllocBytes());
+		}
+		assertTrue(p.findPhase("inner") == null);
+
+		String report = p.report();
+		assertTrue(report.startsWith("phase"));
+		assertTrue(report.contains("\n  inner "));
+
+		String json = p.toJson();
+		assertTrue(json.startsWith("{\"run\":\"test \\\"run\\\"\",\"phases\":["));
+		assertTrue(json.contains("{\"name\":\"second\",\"path\":\"outer/second\"," +
+			"\"depth\":1,\"wallMs\":"));
+		assertTrue(json.trim().endsWith("]}"));
+
+		boolean thrown = false;
+		try{
+			p.enterPhase("");
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * Test that a profiled run has the phases of the sim and its loader,
+	 * and writes the profile.
+	 */
+	@Test
+	public void testRun() throws IOException {
+		File dir = File.createTempFile("phaseProfiler","");
+		assertTrue(dir.delete() && dir.mkdir());
+		try{
+			Properties p = new Properties();
+			p.setProperty("profilePhases","true");
+			p.setProperty("writePhaseProfile","true");
+			NasSimEventDriven sim = new NasSimEventDriven(
+				EngineBenchmark.writeDay(dir,1000,5L,p));
+			sim.initialize();
+			sim.run();
+			assertTrue(sim.processOutput());
+			PhaseProfiler prof = sim.getPhaseProfiler();
+			assertTrue(PhaseProfiler.getCurrent() == null);
+			String[] paths = {"initialize","initialize/loader",
+				"initialize/loader/flights","initialize/loader/nodes",
+				"initialize/loader/routes","initialize/seedEvents",
+				"initialize/setup","run","run/eventLoop","processOutput",
+				"processOutput/flightOutput"};
+			for(String path : paths)assertTrue(path,prof.findPhase(path) != null);
+			assertTrue(prof.findPhase("run").getWallNanos() >=
+				prof.findPhase("run/eventLoop").getWallNanos());
+			assertTrue(prof.getRunName().indexOf('_') > 0);
+
+			File json = null;
+			for(File f : dir.listFiles()){
+				if(f.getName().startsWith("phaseProfile_"))json = f;
+			}
+			assertTrue(json != null && json.getName().endsWith(PhaseProfiler.SUFFIX));
+			BufferedReader br = new BufferedReader(new FileReader(json));
+			try{
+				assertTrue(br.readLine().startsWith("{\"run\":\"" +
+					prof.getRunName() + "\""));
+			}finally{
+				br.close();
+			}
+		}finally{
+			for(File f : dir.listFiles())f.delete();
+			dir.delete();
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Mergeable sketch of a distribution of int values, from which quantiles
+ * can be estimated to within a relative accuracy.  Values are counted in
+ * buckets whose bounds grow geometrically, by a factor of
+ * <code>(1+a)/(1-a)</code> where <code>a</code> is the relative accuracy,
+ * with separate buckets for negative values and a count of zeros.  A
+ * quantile is then within <code>a</code> of the true value, relative to
+ * its size.  Two sketches with the same accuracy are merged by adding
+ * their bucket counts, so sketches of separate replications or partitions
+ * of a run can be combined into one of the whole.
+ * <p>
+ * Only the buckets with values are kept, sorted, so a sketch costs about
+ * 100 bytes plus 12 bytes for each bucket in use, which matters when
+ * there is one for each airport, fix and hour.  Delays span about 1
+ * second to a day, so with the default accuracy of 1% a sketch has at
+ * most a few hundred buckets on each side.  No sketch keeps more than its
+ * maximum number of buckets, by default {@link #DEFAULT_MAX_BUCKETS};
+ * past that, the lowest two are merged, so only the lowest quantiles lose
+ * accuracy.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class QuantileSketch
+{
+	/**
+	 * Default relative accuracy.
+	 */
+	public static final double DEFAULT_ACCURACY = 0.01;
+
+	/**
+	 * Default maximum number of buckets.
+	 */
+	public static final int DEFAULT_MAX_BUCKETS = 1024;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "QuantileSketch";
+
+	private final double accuracy;
+	private final double gamma;
+	private final double lnGamma;
+	private final int maxBuckets;
+
+	/** Buckets of an empty sketch, shared until it has values. */
+	private static final int[] NO_KEYS = new int[0];
+	private static final long[] NO_COUNTS = new long[0];
+
+	/**
+	 * Buckets in use and their counts, in increasing order of value.
+	 * Bucket k of the positive values, which holds magnitudes in
+	 * (gamma^(k-1), gamma^k], has the key k, and that of the negative
+	 * values the key -(k+1).
+	 */
+	private int[] keys = NO_KEYS;
+	private long[] counts = NO_COUNTS;
+	private int numBuckets = 0;
+	private long zeros = 0;
+	private long count = 0;
+
+	/**
+	 * Constructor with the default accuracy.
+	 */
+	public QuantileSketch(){
+		this(DEFAULT_ACCURACY);
+	}
+
+	/**
+	 * Constructor with the default maximum number of buckets.
+	 * @param accuracy Relative accuracy of the quantiles.  Must be between
+	 *   0 and 1.
+	 */
+	public QuantileSketch(double accuracy){
+		this(accuracy,DEFAULT_MAX_BUCKETS);
+	}
+
+	/**
+	 * Constructor.
+	 * @param accuracy Relative accuracy of the quantiles.  Must be between
+	 *   0 and 1.
+	 * @param maxBuckets Maximum number of buckets.  Must be at least 2.
+	 */
+	public QuantileSketch(double accuracy, int maxBuckets){
+		final String method = className + ".QuantileSketch()";
+		if(!(accuracy > 0. && accuracy < 1.)){
+			throw new IllegalArgumentException(method + ": accuracy, " +
+				accuracy + ", is not between 0 and 1.");
+		}
+		if(maxBuckets < 2){
+			throw new IllegalArgumentException(method + ": maximum number " +
+				"of buckets, " + maxBuckets + ", is less than 2.");
+		}
+		this.accuracy = accuracy;
+		this.maxBuckets = maxBuckets;
+		gamma = (1. + accuracy)/(1. - accuracy);
+		lnGamma = Math.log(gamma);
+	}
+
+	/**
+	 * @return Relative accuracy of the sketch.
+	 */
+	public double getAccuracy(){return accuracy;}
+
+	/**
+	 * @return Number of values added.
+	 */
+	public long getCount(){return count;}
+
+	/**
+	 * @return Number of buckets in use.
+	 */
+	public int getNumBuckets(){return numBuckets;}
+
+	/**
+	 * Bucket of a magnitude of at least one.
+	 */
+	private int bucket(long magnitude){
+		return (int)Math.ceil(Math.log(magnitude)/lnGamma);
+	}
+
+	/**
+	 * Adds to the count of a bucket, which is put in if it is not in use.
+	 * If that makes too many, the lowest two are merged.
+	 */
+	private void addCount(int key, long c){
+		int i = Arrays.binarySearch(keys,0,numBuckets,key);
+		if(i >= 0){
+			counts[i] += c;
+			return;
+		}
+		i = -(i + 1);
+		if(numBuckets == keys.length){
+			int n = Math.min(Math.max(4,2*numBuckets),maxBuckets + 1);
+			keys = Arrays.copyOf(keys,n);
+			counts = Arrays.copyOf(counts,n);
+		}
+		System.arraycopy(keys,i,keys,i+1,numBuckets-i);
+		System.arraycopy(counts,i,counts,i+1,numBuckets-i);
+		keys[i] = key;
+		counts[i] = c;
+		numBuckets++;
+		if(numBuckets > maxBuckets){
+			counts[1] += counts[0];
+			numBuckets--;
+			System.arraycopy(keys,1,keys,0,numBuckets);
+			System.arraycopy(counts,1,counts,0,numBuckets);
+		}
+	}
+
+	/**
+	 * Adds a value.
+	 * @param value Value.
+	 */
+	public void add(int value){
+		if(value > 0){
+			addCount(bucket(value),1);
+		} else if(value < 0){
+			addCount(-bucket(-(long)value) - 1,1);
+		} else {
+			zeros++;
+		}
+		count++;
+	}
+
+	/**
+	 * Adds the counts of another sketch to this one.
+	 * @param other Another sketch.  Must have the same accuracy.
+	 */
+	public void merge(QuantileSketch other){
+		if(other.accuracy != accuracy){
+			final String method = className + ".merge()";
+			throw new IllegalArgumentException(method + ": sketches have " +
+				"different accuracies, " + accuracy + " and " +
+				other.accuracy + ".");
+		}
+		for(int i=0;i<other.numBuckets;i++){
+			addCount(other.keys[i],other.counts[i]);
+		}
+		zeros += other.zeros;
+		count += other.count;
+	}
+
+	/**
+	 * Value representing a bucket, within the accuracy of all its values.
+	 */
+	private double value(int key){
+		if(key < 0)return -value(-key - 1);
+		return 2.*Math.pow(gamma,key)/(gamma + 1.);
+	}
+
+	/**
+	 * Estimates a quantile.
+	 * @param q Quantile, between 0 and 1.  For example, 0.9 for the 90th
+	 *   percentile.
+	 * @return the estimate; <code>NaN</code> if the sketch is empty.
+	 */
+	public double getQuantile(double q){
+		if(q < 0. || q > 1.){
+			final String method = className + ".getQuantile()";
+			throw new IllegalArgumentException(method + ": quantile, " + q +
+				", is not between 0 and 1.");
+		}
+		if(count == 0)return Double.NaN;
+		long rank = (long)Math.floor(q*(count - 1));
+		long n = 0;
+		// Most negative first, with the zeros before the positive values.
+		boolean zerosCounted = false;
+		for(int i=0;i<numBuckets;i++){
+			if(!zerosCounted && keys[i] >= 0){
+				zerosCounted = true;
+				n += zeros;
+				if(n > rank)return 0.;
+			}
+			n += counts[i];
+			if(n > rank)return value(keys[i]);
+		}
+		// Only zeros are left.
+		return 0.;
+	}
+
+	/**
+	 * Writes the sketch, as for {@link #read(DataInput)}.
+	 * @param out Output.
+	 * @throws IOException if it can't be written.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeDouble(accuracy);
+		out.writeLong(zeros);
+		// The counts of each side, from bucket 0 to the last in use.
+		int firstPos = 0;
+		while(firstPos < numBuckets && keys[firstPos] < 0)firstPos++;
+		int n = firstPos == numBuckets ? 0 : keys[numBuckets-1] + 1;
+		out.writeInt(n);
+		for(int k=0,i=firstPos;k<n;k++){
+			if(i < numBuckets && keys[i] == k)out.writeLong(counts[i++]);
+			else out.writeLong(0);
+		}
+		n = firstPos == 0 ? 0 : -keys[0];
+		out.writeInt(n);
+		for(int k=0,i=firstPos-1;k<n;k++){
+			if(i >= 0 && keys[i] == -k - 1)out.writeLong(counts[i--]);
+			else out.writeLong(0);
+		}
+	}
+
+	/**
+	 * Reads the counts of a side of a sketch.
+	 * @param in Input.
+	 * @param qs Sketch to add them to.
+	 * @param negative <code>true</code> for the negative side.
+	 */
+	private static void readCounts(DataInput in, QuantileSketch qs,
+		boolean negative) throws IOException {
+		int n = in.readInt();
+		if(n < 0){
+			final String method = className + ".read()";
+			throw new IOException(method + ": bad number of buckets, " +
+				n + ".");
+		}
+		for(int k=0;k<n;k++){
+			long c = in.readLong();
+			if(c == 0)continue;
+			qs.addCount(negative ? -k - 1 : k,c);
+			qs.count += c;
+		}
+	}
+
+	/**
+	 * Reads a sketch written by {@link #write(DataOutput)}, with the
+	 * default maximum number of buckets.
+	 * @param in Input.
+	 * @return the sketch.
+	 * @throws IOException if it can't be read.
+	 */
+	public static QuantileSketch read(DataInput in) throws IOException {
+		double accuracy = in.readDouble();
+		if(!(accuracy > 0. && accuracy < 1.)){
+			final String method = className + ".read()";
+			throw new IOException(method + ": bad accuracy, " + accuracy + ".");
+		}
+		QuantileSketch qs = new QuantileSketch(accuracy);
+		qs.zeros = in.readLong();
+		qs.count = qs.zeros;
+		readCounts(in,qs,false);
+		readCounts(in,qs,true);
+		return qs;
+	}
+}
@@ -0,0 +1,189 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the QuantileSketch and DelayStats classes.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class QuantileSketchTest
+{
+	/**
+	 * Checks that a quantile estimate is within the accuracy of the
+	 * exact value of the sorted values.
+	 */
+	private static void checkQuantile(QuantileSketch qs, int[] sorted,
+		double q){
+		int exact = sorted[(int)Math.floor(q*(sorted.length - 1))];
+		double est = qs.getQuantile(q);
+		assertTrue(Math.abs(est - exact) <=
+			qs.getAccuracy()*Math.abs(exact) + 1.e-9);
+	}
+
+	/**
+	 * Test of quantiles of delays, which are mostly small, some negative
+	 * and a few large.
+	 */
+	@Test
+	public void testQuantiles(){
+		Random rand = new Random(7L);
+		int n = 100000;
+		int[] values = new int[n];
+		QuantileSketch qs = new QuantileSketch();
+		for(int i=0;i<n;i++){
+			double x = rand.nextDouble();
+			values[i] = x < 0.2 ? 0 : x < 0.3 ? -rand.nextInt(600) :
+				(int)(-600.*Math.log(1. - rand.nextDouble()));
+			qs.add(values[i]);
+		}
+		assertTrue(qs.getCount() == n);
+		int[] sorted = values.clone();
+		Arrays.sort(sorted);
+		double[] qq = {0.,0.01,0.1,0.25,0.5,0.75,0.9,0.99,0.999,1.};
+		for(double q : qq)checkQuantile(qs,sorted,q);
+	}
+
+	/**
+	 * Test that a merged sketch is the same as one of all the values.
+	 */
+	@Test
+	public void testMerge(){
+		Random rand = new Random(8L);
+		QuantileSketch all = new QuantileSketch();
+		QuantileSketch a = new QuantileSketch(), b = new QuantileSketch();
+		int[] values = new int[5000];
+		for(int i=0;i<values.length;i++){
+			values[i] = rand.nextInt(20000) - 2000;
+			all.add(values[i]);
+			if(i < 1000)a.add(values[i]);
+			else b.add(values[i]);
+		}
+		// Extreme values.
+		a.add(Integer.MIN_VALUE);
+		all.add(Integer.MIN_VALUE);
+		b.add(Integer.MAX_VALUE);
+		all.add(Integer.MAX_VALUE);
+		a.merge(b);
+		assertTrue(a.getCount() == all.getCount());
+		for(double q=0.;q<=1.;q+=0.05){
+			assertTrue(a.getQuantile(q) == all.getQuantile(q));
+		}
+		assertTrue(new QuantileSketch().getQuantile(0.5) !=
+			new QuantileSketch().getQuantile(0.5));
+	}
+
+	/**
+	 * Test that a sketch keeps only the buckets in use, no more than its
+	 * maximum, and that the high quantiles keep their accuracy when the
+	 * lowest buckets are merged.  Also that it reads back as written.
+	 */
+	@Test
+	public void testMaxBuckets() throws IOException {
+		QuantileSketch few = new QuantileSketch();
+		for(int i=0;i<100;i++)few.add(i%2 == 0 ? 600 : -60);
+		assertTrue(few.getNumBuckets() == 2);
+
+		Random rand = new Random(10L);
+		int n = 20000;
+		int[] values = new int[n];
+		QuantileSketch capped = new QuantileSketch(0.01,64);
+		QuantileSketch full = new QuantileSketch();
+		for(int i=0;i<n;i++){
+			values[i] = 1 + rand.nextInt(86400);
+			capped.add(values[i]);
+			full.add(values[i]);
+		}
+		assertTrue(capped.getNumBuckets() == 64);
+		assertTrue(full.getNumBuckets() > 64 &&
+			full.getNumBuckets() <= QuantileSketch.DEFAULT_MAX_BUCKETS);
+		assertTrue(capped.getCount() == n);
+		int[] sorted = values.clone();
+		Arrays.sort(sorted);
+		for(double q : new double[]{0.5,0.9,0.99,1.})checkQuantile(capped,sorted,q);
+		// The lowest are in the lowest bucket kept.
+		assertTrue(capped.getQuantile(0.) > sorted[0]);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		full.add(0);
+		full.add(-5);
+		full.add(Integer.MIN_VALUE);
+		full.write(out);
+		out.close();
+		QuantileSketch read = QuantileSketch.read(new DataInputStream(
+			new ByteArrayInputStream(bytes.toByteArray())));
+		assertTrue(read.getCount() == full.getCount());
+		assertTrue(read.getNumBuckets() == full.getNumBuckets());
+		for(double q=0.;q<=1.;q+=0.01){
+			assertTrue(read.getQuantile(q) == full.getQuantile(q));
+		}
+
+		boolean thrown = false;
+		try{
+			new QuantileSketch(0.01,1);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * Test of exception if merging sketches of different accuracies.
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testMergeDifferentAccuracies(){
+		new QuantileSketch(0.01).merge(new QuantileSketch(0.02));
+	}
+
+	/**
+	 * Test of DelayStats, including a merge.
+	 */
+	@Test
+	public void testDelayStats(){
+		Random rand = new Random(9L);
+		int n = 1000;
+		DelayStats all = new DelayStats();
+		DelayStats a = new DelayStats(), b = new DelayStats();
+		double sum = 0.;
+		int[] values = new int[n];
+		for(int i=0;i<n;i++){
+			values[i] = rand.nextInt(3600) - 300;
+			sum += values[i];
+			all.add(values[i]);
+			if(i%3 == 0)a.add(values[i]);
+			else b.add(values[i]);
+		}
+		double mean = sum/n;
+		double ss = 0.;
+		for(int v : values)ss += (v - mean)*(v - mean);
+		double var = ss/(n - 1);
+		int[] sorted = values.clone();
+		Arrays.sort(sorted);
+
+		a.merge(b);
+		a.merge(new DelayStats());
+		DelayStats[] ds = {all,a};
+		for(DelayStats d : ds){
+			assertTrue(d.getCount() == n);
+			assertTrue(Math.abs(d.getMean() - mean) < 1.e-9);
+			assertTrue(Math.abs(d.getVariance() - var) < 1.e-6*var);
+			assertTrue(d.getMin() == sorted[0]);
+			assertTrue(d.getMax() == sorted[n-1]);
+			double p90 = sorted[(int)Math.floor(0.9*(n - 1))];
+			assertTrue(Math.abs(d.getQuantile(0.9) - p90) <=
+				QuantileSketch.DEFAULT_ACCURACY*Math.abs(p90));
+		}
+		DelayStats empty = new DelayStats();
+		assertTrue(empty.getCount() == 0 && empty.getVariance() == 0.);
+	}
+}
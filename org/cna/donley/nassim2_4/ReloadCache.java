@@ -0,0 +1,239 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In memory cache of the products of reading the simulation input files,
+ * so that when the sim is re-initialized in the same process after one
+ * input has been edited, only what depends on that input is read again.
+ * <p>
+ * Each product is stored under a key along with the files it was read
+ * from and the keys of the products it was computed from.  A product is
+ * reused if none of its files have changed and none of the products it
+ * depends on have been reloaded since.  A file has changed if its content
+ * digest has changed; the digest is only recomputed when the size or
+ * modification time are different, so a check of an unchanged file costs
+ * a stat.  If a reloaded product is equal to the one it replaces (as by
+ * {@link Arrays#deepEquals(Object[], Object[])}), it keeps its stamp, so
+ * the products depending on it are not reloaded either.
+ * <p>
+ * Cached products are shared between initializations, so they must not
+ * be modified by the sim.  Anything the sim changes, such as the flights
+ * and the nodes, should be created fresh from the cached products.  A file
+ * that does not exist, but whose gzip compressed version does, is checked
+ * through the compressed file, as for {@link NaspacBridge#openReader(File)}.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ReloadCache
+{
+	/**
+	 * Reads or computes a product.
+	 * @param <T> Type of product.
+	 */
+	public interface Loader<T> {
+		/**
+		 * @return the product or <code>null</code> if there is a problem,
+		 *   in which case nothing is cached.
+		 */
+		T load();
+	}
+
+	/**
+	 * Cached product and what it was made from.
+	 */
+	private static final class Entry {
+		File[] files;
+		long[] lengths;
+		long[] modTimes;
+		byte[][] digests;
+		String[] deps;
+		long[] depStamps;
+		Object product;
+		long stamp;
+	}
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "ReloadCache";
+
+	/**
+	 * Cached products by key.
+	 */
+	private final Map<String,Entry> entries = new HashMap<String,Entry>();
+
+	/**
+	 * Stamp given to the next product that is loaded.
+	 */
+	private long nextStamp = 1;
+
+	/**
+	 * Number of loads and of cache hits.
+	 */
+	private int numLoads = 0, numHits = 0;
+
+	/**
+	 * Gets a product from the cache, loading it if it isn't there or is
+	 * out of date.  The products it depends on must have been gotten from
+	 * the cache first.
+	 * @param <T> Type of product.
+	 * @param key Key of the product.
+	 * @param files Files the product is read from.  May be empty.
+	 * @param deps Keys of the products this one is computed from.  May be
+	 *   empty.
+	 * @param loader Loads the product.
+	 * @return the product or <code>null</code> if it couldn't be loaded.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> T get(String key, File[] files, String[] deps,
+		Loader<T> loader){
+		final String method = className + ".get()";
+		if(key == null || files == null || deps == null || loader == null){
+			throw new IllegalArgumentException(method + ": an input is null.");
+		}
+		File[] fs = new File[files.length];
+		for(int i=0;i<fs.length;i++)fs[i] = resolve(files[i]);
+		long[] depStamps = new long[deps.length];
+		for(int i=0;i<deps.length;i++){
+			Entry d = entries.get(deps[i]);
+			if(d == null){
+				throw new IllegalArgumentException(method + ": dependency: " +
+					deps[i] + ", of: " + key + ", is not in the cache.");
+			}
+			depStamps[i] = d.stamp;
+		}
+
+		Entry old = entries.get(key);
+		if(old != null && isCurrent(old,fs,deps,depStamps)){
+			numHits++;
+			return (T)old.product;
+		}
+
+		// Fingerprint the files before loading so that an edit made while
+		// loading is seen next time.
+		Entry e = new Entry();
+		e.files = fs;
+		e.lengths = new long[fs.length];
+		e.modTimes = new long[fs.length];
+		e.digests = new byte[fs.length][];
+		for(int i=0;i<fs.length;i++){
+			e.lengths[i] = fs[i].length();
+			e.modTimes[i] = fs[i].lastModified();
+			e.digests[i] = digest(fs[i]);
+		}
+		e.deps = deps.clone();
+		e.depStamps = depStamps;
+
+		T product = loader.load();
+		numLoads++;
+		if(product == null){
+			entries.remove(key);
+			return null;
+		}
+		e.product = product;
+		if(old != null && Arrays.deepEquals(new Object[]{old.product},
+				new Object[]{product})){
+			// Same as before, so dependents are still good.
+			e.stamp = old.stamp;
+			e.product = old.product;
+		} else {
+			e.stamp = nextStamp++;
+		}
+		entries.put(key,e);
+		return (T)e.product;
+	}
+
+	/**
+	 * Checks if an entry was made from the given files and dependencies,
+	 * and that the files haven't changed since.
+	 */
+	private static boolean isCurrent(Entry e, File[] fs, String[] deps,
+		long[] depStamps){
+		if(!Arrays.equals(e.files,fs) || !Arrays.equals(e.deps,deps) ||
+			!Arrays.equals(e.depStamps,depStamps))return false;
+		for(int i=0;i<fs.length;i++){
+			long len = fs[i].length();
+			long mod = fs[i].lastModified();
+			if(len == e.lengths[i] && mod == e.modTimes[i])continue;
+			// Touched or edited.  Compare contents.
+			byte[] d = digest(fs[i]);
+			if(d == null || e.digests[i] == null ||
+				!MessageDigest.isEqual(d,e.digests[i]))return false;
+			e.lengths[i] = len;
+			e.modTimes[i] = mod;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the file to fingerprint for an input file: the file itself,
+	 * or its compressed version if only that exists.
+	 * @param fileNPath Input file.
+	 * @return File to fingerprint.
+	 */
+	private static File resolve(File fileNPath){
+		if(!fileNPath.exists()){
+			File gz = new File(fileNPath.getPath() + NaspacBridge.GZIP_SUFFIX);
+			if(gz.exists())return gz;
+		}
+		return fileNPath;
+	}
+
+	/**
+	 * Computes the digest of a file's contents.
+	 * @param fileNPath File.
+	 * @return the digest or <code>null</code> if the file can't be read.
+	 */
+	public static byte[] digest(File fileNPath){
+		InputStream is = null;
+		try{
+			MessageDigest md = MessageDigest.getInstance("MD5");
+			is = new FileInputStream(fileNPath);
+			byte[] buf = new byte[64*1024];
+			int n = 0;
+			while((n = is.read(buf)) >= 0)md.update(buf,0,n);
+			return md.digest();
+		}catch(NoSuchAlgorithmException nsae){
+			nsae.printStackTrace();
+			return null;
+		}catch(IOException ioe){
+			// Missing file.  Treated as changed once it shows up.
+			return null;
+		}finally{
+			try{
+				if(is != null)is.close();
+			}catch(IOException ioe){}
+		}
+	}
+
+	/**
+	 * Empties the cache.
+	 */
+	public synchronized void clear(){
+		entries.clear();
+	}
+
+	/**
+	 * @return Number of products loaded since the cache was created.
+	 */
+	public synchronized int getNumLoads(){
+		return numLoads;
+	}
+
+	/**
+	 * @return Number of products found current in the cache since it was
+	 *   created.
+	 */
+	public synchronized int getNumHits(){
+		return numHits;
+	}
+}
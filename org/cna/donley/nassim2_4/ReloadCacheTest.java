@@ -0,0 +1,184 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the ReloadCache class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ReloadCacheTest
+{
+	private File fileA = null, fileB = null;
+
+	/**
+	 * Loader that reads the first line of a file and counts its calls.
+	 */
+	private static class LineLoader implements ReloadCache.Loader<String> {
+		final File file;
+		int numCalls = 0;
+		LineLoader(File file){this.file = file;}
+		public String load(){
+			numCalls++;
+			try{
+				java.io.BufferedReader br = NaspacBridge.openReader(file);
+				String line = br.readLine();
+				br.close();
+				return line;
+			}catch(IOException ioe){
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Loader that computes a product from another one.
+	 */
+	private static class LengthLoader implements ReloadCache.Loader<int[]> {
+		final String[] in;
+		int numCalls = 0;
+		LengthLoader(String[] in){this.in = in;}
+		public int[] load(){
+			numCalls++;
+			return new int[]{in[0].length()};
+		}
+	}
+
+	private static void write(File f, String s) throws IOException {
+		PrintWriter pw = new PrintWriter(f);
+		pw.println(s);
+		pw.close();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		fileA = File.createTempFile("cacheA", ".txt");
+		fileB = File.createTempFile("cacheB", ".txt");
+		write(fileA,"alpha");
+		write(fileB,"beta");
+	}
+
+	@After
+	public void tearDown(){
+		fileA.delete();
+		fileB.delete();
+	}
+
+	/**
+	 * Gets the products a, b and the length of a, which depends on a.
+	 */
+	private static String[] getAll(ReloadCache cache, LineLoader la,
+		LineLoader lb, LengthLoader ll, File fileA, File fileB){
+		String[] a = {cache.get("a",new File[]{fileA},new String[0],la)};
+		String b = cache.get("b",new File[]{fileB},new String[0],lb);
+		ll.in[0] = a[0];
+		int[] len = cache.get("lenA",new File[0],new String[]{"a"},ll);
+		String[] all = {a[0],b,String.valueOf(len[0])};
+		return all;
+	}
+
+	/**
+	 * Test that only the products of changed files and their dependents
+	 * are reloaded.
+	 */
+	@Test
+	public void testReload() throws IOException {
+		ReloadCache cache = new ReloadCache();
+		LineLoader la = new LineLoader(fileA), lb = new LineLoader(fileB);
+		LengthLoader ll = new LengthLoader(new String[1]);
+
+		String[] all = getAll(cache,la,lb,ll,fileA,fileB);
+		assertTrue(all[0].equals("alpha") && all[1].equals("beta") &&
+			all[2].equals("5"));
+		assertTrue(la.numCalls == 1 && lb.numCalls == 1 && ll.numCalls == 1);
+
+		// Nothing changed.
+		getAll(cache,la,lb,ll,fileA,fileB);
+		assertTrue(la.numCalls == 1 && lb.numCalls == 1 && ll.numCalls == 1);
+		assertTrue(cache.getNumHits() == 3 && cache.getNumLoads() == 3);
+
+		// Touched but not changed.
+		assertTrue(fileB.setLastModified(fileB.lastModified() - 10000));
+		getAll(cache,la,lb,ll,fileA,fileB);
+		assertTrue(lb.numCalls == 1);
+
+		// Edit b.  Only b is reloaded.
+		write(fileB,"gamma");
+		all = getAll(cache,la,lb,ll,fileA,fileB);
+		assertTrue(all[1].equals("gamma"));
+		assertTrue(la.numCalls == 1 && lb.numCalls == 2 && ll.numCalls == 1);
+
+		// Edit a, same length.  a and its dependent are reloaded.
+		write(fileA,"omega");
+		fileA.setLastModified(fileA.lastModified() + 10000);
+		all = getAll(cache,la,lb,ll,fileA,fileB);
+		assertTrue(all[0].equals("omega") && all[2].equals("5"));
+		assertTrue(la.numCalls == 2 && lb.numCalls == 2 && ll.numCalls == 2);
+
+		// Edit a so that its product is the same.  The dependent is not
+		// reloaded.
+		write(fileA,"omega\nsecond line");
+		getAll(cache,la,lb,ll,fileA,fileB);
+		assertTrue(la.numCalls == 3 && ll.numCalls == 2);
+
+		// Different file for the same key.
+		LineLoader lb2 = new LineLoader(fileA);
+		assertTrue(cache.get("b",new File[]{fileA},new String[0],lb2).
+			equals("omega"));
+		assertTrue(lb2.numCalls == 1);
+
+		// A failed load is not cached.
+		File missing = new File(fileA.getPath() + ".missing");
+		LineLoader lm = new LineLoader(missing);
+		assertTrue(cache.get("m",new File[]{missing},new String[0],lm) == null);
+		assertTrue(cache.get("m",new File[]{missing},new String[0],lm) == null);
+		assertTrue(lm.numCalls == 2);
+	}
+
+	/**
+	 * Test that a dependency must be in the cache.
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testMissingDependency(){
+		ReloadCache cache = new ReloadCache();
+		cache.get("lenA",new File[0],new String[]{"a"},
+			new LengthLoader(new String[]{"x"}));
+	}
+
+	/**
+	 * Test of copyFlights().  Parameters and leg links are copied.
+	 */
+	@Test
+	public void testCopyFlights(){
+		int nPars = IFlight.Param.values().length;
+		IFlight[] flights = new IFlight[3];
+		for(int i=0;i<flights.length;i++){
+			int[] pars = new int[nPars];
+			for(int j=0;j<nPars;j++)pars[j] = 10*i + j;
+			flights[i] = new Flight(pars);
+		}
+		flights[0].setNextLeg(flights[1]);
+		flights[1].setPrevLeg(flights[0]);
+		IFlight[] copies = NaspacBridge.copyFlights(flights);
+		for(int i=0;i<flights.length;i++){
+			assertTrue(copies[i] != flights[i]);
+			for(IFlight.Param p : IFlight.Param.values()){
+				assertTrue(copies[i].get(p) == flights[i].get(p));
+			}
+		}
+		assertTrue(copies[0].getNextLeg() == copies[1]);
+		assertTrue(copies[1].getPrevLeg() == copies[0]);
+		assertTrue(copies[1].getNextLeg() == null);
+		assertTrue(copies[2].getPrevLeg() == null);
+		copies[0].set(IFlight.Param.ACT_ON_TIME,-5);
+		assertTrue(flights[0].get(IFlight.Param.ACT_ON_TIME) ==
+			IFlight.Param.ACT_ON_TIME.ordinal());
+	}
+}
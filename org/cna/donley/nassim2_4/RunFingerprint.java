@@ -0,0 +1,300 @@
+package org.cna.donley.nassim2_4;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fingerprint of the results of a run: a 64-bit hash of all the final
+ * {@link IFlight.Param} values of all the legs, each with the index of the
+ * leg in the {@link ISimElements}, and a partial hash for each quarter
+ * hour epoch of the legs that reached their arrival gate in it.  Two runs
+ * of the same scenario have the same hash if and only if (barring
+ * collisions) they give the same results, and the first epoch whose
+ * partial hashes differ tells about when they diverged, see
+ * {@link #firstDivergence(RunFingerprint)}.
+ * <p>
+ * The hash of each leg is added to the sums, so a {@link Builder} can
+ * fold in the legs as they complete, in any order, and the run need not
+ * keep them.  The hash is made from the ints alone, so it is the same on
+ * every JVM and platform.  Legs are put in the epoch of their
+ * {@link IFlight.Param#ACT_IN_TIME}, within the first and last
+ * {@link #MAX_EPOCHS} after the earliest.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class RunFingerprint
+{
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "RunFingerprint";
+
+	/**
+	 * Length of an epoch, as in {@link Runway}.  Units: seconds.
+	 */
+	public static final int EPOCH_SECS = 15*60;
+
+	/**
+	 * Most epochs kept, a week.  Legs past the last are put in it.
+	 */
+	public static final int MAX_EPOCHS = 7*24*4;
+
+	/** Multiplier of the hash, the 64-bit golden ratio. */
+	private static final long MULT = 0x9E3779B97F4A7C15L;
+
+	private final long hash;
+	private final int startTime;
+	private final long[] partials;
+	private final int[] numLegs;
+
+	/**
+	 * Constructor.
+	 * @param hash Hash of all the legs.
+	 * @param startTime Start of the first epoch.  Units: seconds.
+	 * @param partials Hash of the legs of each epoch.
+	 * @param numLegs Number of legs of each epoch.
+	 */
+	public RunFingerprint(long hash, int startTime, long[] partials,
+		int[] numLegs){
+		final String method = className + ".RunFingerprint()";
+		if(partials.length != numLegs.length){
+			throw new IllegalArgumentException(method + ": " + partials.length +
+				" partial hashes and " + numLegs.length + " leg counts.");
+		}
+		this.hash = hash;
+		this.startTime = startTime;
+		this.partials = partials.clone();
+		this.numLegs = numLegs.clone();
+	}
+
+	/**
+	 * Folds in the legs of a run as they complete.  Each leg is folded
+	 * once, by its index in the flights array, so the order in which they
+	 * complete doesn't matter.  Those not complete at the end of the run
+	 * are folded by {@link #finish()}.  Only the flights array of the run
+	 * is kept, not a copy, so legs the run releases can be collected.
+	 */
+	public static class Builder implements ILegListener
+	{
+		private static final IFlight.Param[] params = IFlight.Param.values();
+
+		private final IFlight[] flights;
+		private final BitSet folded;
+		private final int[] values = new int[params.length];
+
+		/** Start of each epoch with legs, and its hash and number of legs. */
+		private final TreeMap<Integer,long[]> epochs =
+			new TreeMap<Integer,long[]>();
+		private int lastEpoch = 0;
+		private long[] last = null;
+
+		private long sum = 0;
+		private int numLegs = 0;
+
+		/**
+		 * Constructor.
+		 * @param flights Legs of the run, as in the {@link ISimElements}.
+		 */
+		public Builder(IFlight[] flights){
+			this.flights = flights;
+			folded = new BitSet(flights.length);
+		}
+
+		/**
+		 * Folds in a leg that has completed.
+		 * @param leg The completed leg, one of the flights.
+		 * @param time Sim time at which it completed.
+		 */
+		public void legCompleted(IFlight leg, int time){
+			add(indexOf(leg),leg);
+		}
+
+		/** Index of a leg in the flights. */
+		private int indexOf(IFlight leg){
+			if(leg instanceof Flight){
+				int indx = ((Flight)leg).getElementIndex();
+				if(indx >= 0 && indx < flights.length)return indx;
+			}
+			for(int i=0;i<flights.length;i++){
+				if(flights[i] == leg)return i;
+			}
+			final String method = className + ".Builder.indexOf()";
+			throw new IllegalArgumentException(method + ": leg, " + leg +
+				", is not one of the flights.");
+		}
+
+		/**
+		 * Folds in a leg.
+		 * @param indx Index of the leg in the flights.
+		 * @param leg The leg.
+		 */
+		private void add(int indx, IFlight leg){
+			if(folded.get(indx)){
+				final String method = className + ".Builder.add()";
+				throw new IllegalArgumentException(method + ": leg, " + leg +
+					", is already folded in.");
+			}
+			folded.set(indx);
+			for(int p=0;p<params.length;p++)values[p] = leg.get(params[p]);
+			long h = hashLeg(values);
+			sum += mix(h,indx);
+			numLegs++;
+			// Legs mostly complete in the epoch of the last.
+			int epoch = floorEpoch(values[IFlight.Param.ACT_IN_TIME.ordinal()]);
+			if(last == null || epoch != lastEpoch){
+				last = epochs.get(epoch);
+				if(last == null){
+					last = new long[2];
+					epochs.put(epoch,last);
+				}
+				lastEpoch = epoch;
+			}
+			last[0] += h;
+			last[1]++;
+		}
+
+		/**
+		 * Folds in the legs not yet folded that are still in the flights,
+		 * and makes the fingerprint.
+		 * @return the fingerprint.
+		 */
+		public RunFingerprint finish(){
+			for(int i=folded.nextClearBit(0);i<flights.length;
+				i=folded.nextClearBit(i+1)){
+				if(flights[i] != null)add(i,flights[i]);
+			}
+			int startTime = 0, nEpochs = 1;
+			if(!epochs.isEmpty()){
+				startTime = epochs.firstKey();
+				int endTime = epochs.lastKey();
+				nEpochs = (int)Math.min(MAX_EPOCHS,
+					((long)endTime - startTime)/EPOCH_SECS + 1);
+			}
+			long[] partials = new long[nEpochs];
+			int[] nLegs = new int[nEpochs];
+			for(Map.Entry<Integer,long[]> en : epochs.entrySet()){
+				int e = (int)Math.min(nEpochs - 1,
+					((long)en.getKey() - startTime)/EPOCH_SECS);
+				partials[e] += en.getValue()[0];
+				nLegs[e] += (int)en.getValue()[1];
+			}
+			return new RunFingerprint(mix(sum,numLegs),startTime,partials,nLegs);
+		}
+	}
+
+	/**
+	 * Computes the fingerprint of the legs at the end of a run.
+	 * @param flights Legs of the run.
+	 * @return the fingerprint.
+	 */
+	public static RunFingerprint compute(IFlight[] flights){
+		return new Builder(flights).finish();
+	}
+
+	private static long hashLeg(int[] values){
+		long h = values.length;
+		for(int v : values)h = mix(h,v);
+		return h;
+	}
+
+	private static long mix(long h, long v){
+		h = (h ^ v)*MULT;
+		return h ^ (h >>> 29);
+	}
+
+	private static int floorEpoch(int time){
+		return time - ((time%EPOCH_SECS) + EPOCH_SECS)%EPOCH_SECS;
+	}
+
+	/** @return Hash of all the legs. */
+	public long getHash(){return hash;}
+	/** @return Start of the first epoch.  Units: seconds. */
+	public int getStartTime(){return startTime;}
+	/** @return Number of epochs. */
+	public int getNumEpochs(){return partials.length;}
+	/**
+	 * @param e Epoch.
+	 * @return Hash of the legs of the epoch.
+	 */
+	public long getPartial(int e){return partials[e];}
+	/**
+	 * @param e Epoch.
+	 * @return Number of legs of the epoch.
+	 */
+	public int getNumLegs(int e){return numLegs[e];}
+
+	/**
+	 * Finds the first epoch in which two runs differ, comparing the epochs
+	 * by their start times.
+	 * @param other Fingerprint of the other run.
+	 * @return Start time of the first epoch whose legs differ, or of the
+	 *   first epoch if the epochs are the same but the order of the legs
+	 *   isn't; <code>Integer.MAX_VALUE</code> if the runs are the same.
+	 *   Units: seconds.
+	 */
+	public int firstDivergence(RunFingerprint other){
+		if(hash == other.hash)return Integer.MAX_VALUE;
+		int start = Math.min(startTime,other.startTime);
+		int end = Math.max(startTime + partials.length*EPOCH_SECS,
+			other.startTime + other.partials.length*EPOCH_SECS);
+		for(int t=start;t<end;t+=EPOCH_SECS){
+			int e = (t - startTime)/EPOCH_SECS;
+			int o = (t - other.startTime)/EPOCH_SECS;
+			boolean in = t >= startTime && e < partials.length;
+			boolean oIn = t >= other.startTime && o < other.partials.length;
+			long p = in ? partials[e] : 0, op = oIn ? other.partials[o] : 0;
+			int n = in ? numLegs[e] : 0, on = oIn ? other.numLegs[o] : 0;
+			if(p != op || n != on)return t;
+		}
+		return start;
+	}
+
+	/**
+	 * @return the hash, as 16 hex digits.
+	 */
+	public String toString(){
+		return String.format("%016x",hash);
+	}
+
+	/**
+	 * Formats the fingerprint as one line, for a golden file: the hash,
+	 * the start time, then the number of legs and hash of each epoch.
+	 * @return the line.
+	 */
+	public String format(){
+		StringBuilder sb = new StringBuilder();
+		sb.append(toString()).append(' ').append(startTime);
+		for(int e=0;e<partials.length;e++){
+			sb.append(' ').append(numLegs[e]).append(':');
+			sb.append(String.format("%016x",partials[e]));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Parses a line written by {@link #format()}.
+	 * @param line Line.
+	 * @return the fingerprint.
+	 */
+	public static RunFingerprint parse(String line){
+		final String method = className + ".parse()";
+		String[] ss = line.trim().split("\\s+");
+		if(ss.length < 2){
+			throw new IllegalArgumentException(method + ": bad line, " + line);
+		}
+		try{
+			long[] partials = new long[ss.length - 2];
+			int[] numLegs = new int[ss.length - 2];
+			for(int e=0;e<partials.length;e++){
+				String[] np = ss[e+2].split(":");
+				numLegs[e] = Integer.parseInt(np[0]);
+				partials[e] = Long.parseUnsignedLong(np[1],16);
+			}
+			return new RunFingerprint(Long.parseUnsignedLong(ss[0],16),
+				Integer.parseInt(ss[1]),partials,numLegs);
+		}catch(RuntimeException re){
+			throw new IllegalArgumentException(method + ": bad line, " + line);
+		}
+	}
+}
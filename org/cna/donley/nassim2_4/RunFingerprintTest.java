@@ -0,0 +1,174 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of the fingerprints of runs and the golden run harness.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class RunFingerprintTest
+{
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+	}
+
+	private static IFlight[] createFlights(int n, long seed){
+		Random rand = new Random(seed);
+		IFlight[] flights = new IFlight[n];
+		for(int i=0;i<n;i++){
+			int[] pars = new int[IFlight.Param.values().length];
+			for(int p=0;p<pars.length;p++)pars[p] = rand.nextInt(10000);
+			pars[IFlight.Param.ACT_IN_TIME.ordinal()] = rand.nextInt(24*3600) - 3600;
+			flights[i] = new Flight(pars);
+		}
+		return flights;
+	}
+
+	/**
+	 * Test that the fingerprint is that of the values and order of the
+	 * legs, and that the first epoch of a change is found.
+	 */
+	@Test
+	public void testCompute(){
+		IFlight[] flights = createFlights(500,7L);
+		RunFingerprint f = RunFingerprint.compute(flights);
+		RunFingerprint g = RunFingerprint.compute(createFlights(500,7L));
+		assertTrue(f.getHash() == g.getHash());
+		assertTrue(f.firstDivergence(g) == Integer.MAX_VALUE);
+		assertTrue(f.getStartTime() == -3600);
+		assertTrue(f.getNumEpochs() == 96);
+		int n = 0;
+		for(int e=0;e<f.getNumEpochs();e++)n += f.getNumLegs(e);
+		assertTrue(n == 500);
+
+		// One param of a leg that got in at 10:05.
+		flights[17].set(IFlight.Param.ACT_IN_TIME,10*3600 + 300);
+		f = RunFingerprint.compute(flights);
+		flights[17].set(IFlight.Param.TAXI_IN_TIME,
+			flights[17].get(IFlight.Param.TAXI_IN_TIME) + 1);
+		g = RunFingerprint.compute(flights);
+		assertTrue(f.getHash() != g.getHash());
+		assertTrue(f.firstDivergence(g) == 10*3600);
+		assertTrue(g.firstDivergence(f) == 10*3600);
+
+		// Order of the legs.
+		IFlight[] swapped = flights.clone();
+		swapped[0] = flights[1];
+		swapped[1] = flights[0];
+		RunFingerprint s = RunFingerprint.compute(swapped);
+		assertTrue(s.getHash() != g.getHash());
+		assertTrue(s.firstDivergence(g) == g.getStartTime());
+
+		// A line of a golden file.
+		RunFingerprint p = RunFingerprint.parse(g.format());
+		assertTrue(p.getHash() == g.getHash());
+		assertTrue(p.getStartTime() == g.getStartTime());
+		assertTrue(p.firstDivergence(g) == Integer.MAX_VALUE);
+		for(int e=0;e<g.getNumEpochs();e++){
+			assertTrue(p.getPartial(e) == g.getPartial(e));
+			assertTrue(p.getNumLegs(e) == g.getNumLegs(e));
+		}
+		boolean thrown = false;
+		try{
+			RunFingerprint.parse("0123 x");
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+	/**
+	 * Test that legs folded in as they complete, in any order, give the
+	 * fingerprint of the legs, and that a run's fingerprint is that of its
+	 * legs at the end.
+	 */
+	@Test
+	public void testBuilder() throws IOException {
+		IFlight[] flights = createFlights(500,7L);
+		RunFingerprint f = RunFingerprint.compute(flights);
+		List<IFlight> order = new ArrayList<IFlight>(Arrays.asList(flights));
+		Collections.shuffle(order,new Random(3L));
+		RunFingerprint.Builder b = new RunFingerprint.Builder(flights);
+		for(int i=0;i<400;i++){
+			IFlight leg = order.get(i);
+			b.legCompleted(leg,leg.get(IFlight.Param.ACT_IN_TIME));
+		}
+		boolean thrown = false;
+		try{
+			b.legCompleted(order.get(0),0);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+		thrown = false;
+		try{
+			b.legCompleted(createFlights(1,8L)[0],0);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+		RunFingerprint g = b.finish();
+		assertTrue(g.getHash() == f.getHash());
+		assertTrue(g.getStartTime() == f.getStartTime());
+		assertTrue(g.getNumEpochs() == f.getNumEpochs());
+		for(int e=0;e<f.getNumEpochs();e++){
+			assertTrue(g.getPartial(e) == f.getPartial(e));
+			assertTrue(g.getNumLegs(e) == f.getNumLegs(e));
+		}
+
+		File dir = File.createTempFile("runFingerprint","");
+		assertTrue(dir.delete() && dir.mkdir());
+		try{
+			Properties p = new Properties();
+			p.setProperty("registerProgressMBean","false");
+			p.setProperty("computeFingerprint","true");
+			NasSimEventDriven sim = new NasSimEventDriven(
+				EngineBenchmark.writeDay(dir,1000,EngineBenchmark.SEED,p));
+			sim.initialize();
+			sim.run();
+			RunFingerprint r = RunFingerprint.compute(
+				sim.getSimElements().getFlights());
+			assertTrue(sim.getFingerprint().getHash() == r.getHash());
+			assertTrue(sim.getFingerprint().firstDivergence(r) ==
+				Integer.MAX_VALUE);
+		}finally{
+			for(File fl : dir.listFiles())fl.delete();
+			dir.delete();
+		}
+	}
+
+	/**
+	 * Test that runs repeat, that the outputs don't change the results,
+	 * and that a different day is found to drift.
+	 */
+	@Test
+	public void testGoldenRuns() throws IOException {
+		long seed = EngineBenchmark.SEED;
+		RunFingerprint base = GoldenRunHarness.runDay(2000,seed,null);
+		assertTrue(base != null);
+		assertTrue(GoldenRunHarness.describeDrift(base,
+			GoldenRunHarness.runDay(2000,seed,null)) == null);
+		Properties alt = new Properties();
+		alt.setProperty("streamOutput","true");
+		alt.setProperty("aggregateDelays","true");
+		alt.setProperty("writeQueueSeries","true");
+		alt.setProperty("registerProgressMBean","true");
+		assertTrue(GoldenRunHarness.describeDrift(base,
+			GoldenRunHarness.runDay(2000,seed,alt)) == null);
+		assertTrue(GoldenRunHarness.describeDrift(base,
+			GoldenRunHarness.runDay(2000,seed + 1,null)) != null);
+	}
+}
@@ -103,6 +103,17 @@ public class Runway implements INode
      */
     private int[] lastTime = null;
     
+    /**
+     * Number of planes that have taken off or landed, i.e., the number of
+     * calls to {@link #setLastTime(Nas.Ad, int)}.
+     */
+    private final int[] numServed = new int[2];
+    /**
+     * Total time the departures and arrivals served waited in the queues,
+     * as given by {@link #addWait(Nas.Ad, int)}.  Units: seconds.
+     */
+    private final long[] totalWait = new long[2];
+    
     /**
      * Time of next allowed runway off or on time.  It will computed
      * at the "last" time. Units: seconds from some reference.
@@ -278,7 +289,30 @@ public class Runway implements INode
      */
     public void setLastTime(Nas.Ad aOrD, int time){
     	lastTime[aOrD.ordinal()] = time;
+    	numServed[aOrD.ordinal()]++;
+    }
+    /**
+     * Gets the number of planes that have taken off or landed, which one
+     * depending upon the aOrD value.
+     * @param aOrD Arrival or departure?
+     * @return Number of departures or arrivals so far.
+     */
+    public int getNumServed(Nas.Ad aOrD){return numServed[aOrD.ordinal()];}
+    /**
+     * Adds the time a plane waited in a queue before it tookoff or landed.
+     * @param aOrD Arrival or departure?
+     * @param wait Time in the queue.  Units: seconds.
+     */
+    public void addWait(Nas.Ad aOrD, int wait){
+    	totalWait[aOrD.ordinal()] += wait;
     }
+    /**
+     * Gets the total time the planes served waited in a queue, which one
+     * depending upon the aOrD value.
+     * @param aOrD Arrival or departure?
+     * @return Total wait so far.  Units: seconds.
+     */
+    public long getTotalWait(Nas.Ad aOrD){return totalWait[aOrD.ordinal()];}
     /**
      * Gets the last time a plane tookoff or landed, which one depending
      *  upon the aOrD value.
@@ -745,7 +779,9 @@ public class Runway implements INode
     				   pareto[iMin][Nas.Ad.DEP.ordinal()])/nSteps;
     	double xx = pareto[iMin][Nas.Ad.DEP.ordinal()], yy = 0.;
     	success = false;
-    	for(int i=0;i<nSteps;i++){
+    	// Up to and including the iMax point, as the ray may cross in the
+    	// last step.
+    	for(int i=0;i<=nSteps;i++){
     		yy = aa*xx + bb;
     		if(yy/xx < nArrDepSlope){
     			rates[Nas.Ad.DEP.ordinal()] = xx;
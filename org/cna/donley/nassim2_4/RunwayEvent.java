@@ -93,6 +93,8 @@ public class RunwayEvent implements IEvent
     			int offTime = time;
     			fTop.set(IFlight.Param.ACT_OFF_TIME, offTime);
     			node.setLastTime(Nas.Ad.DEP, offTime);
+    			node.addWait(Nas.Ad.DEP,
+    				offTime - fTop.get(IFlight.Param.CALC_OFF_TIME));
     			// Compute next off time for runway.
     			node.computeNextTime(Nas.Ad.DEP,offTime);
     			
@@ -155,6 +157,9 @@ public class RunwayEvent implements IEvent
     			// and act_on_time.
     			fTop = qq.poll();
     			int onTime = time;
+    			// The arrival fix set the time it joined the queue.
+    			node.addWait(Nas.Ad.ARR,
+    				onTime - fTop.get(IFlight.Param.ACT_ON_TIME));
     			fTop.set(IFlight.Param.ACT_ON_TIME, onTime);
     			node.setLastTime(Nas.Ad.ARR, onTime);
     			// Compute next on time for runway.
@@ -328,6 +328,13 @@ public class RunwayTest
 		assertEquals(rates[0],47.6,1.e-5);
 		assertEquals(rates[1],40.32,1.e-5);
 		
+		// Ray crosses in the last step of a segment.
+		numArr = 1;
+		numDep = 30;
+		rates = Runway.computeOptimalAcceptRatesPerQtrhour(numDep,numArr,pareto);
+		assertEquals(rates[0],70.4,1.e-5);
+		assertEquals(rates[1],0.0,1.e-5);
+		
 		// Special case: the pareto curve has a perfectly horizontal or vertical
 		// segment.  In this case will choose the point that gives the
 		// total max number of sched arrival and departures.
@@ -0,0 +1,369 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark of how the sim scales with demand and with the number of days
+ * run at once on one machine.  For each demand scale, a multiple of the
+ * base number of flights, and each number of concurrent runs, it starts
+ * that many JVMs at once, each running a different synthetic day made by
+ * the {@link ScenarioGenerator}.  Days are run in their own JVMs since the
+ * {@link Nas} is one per JVM, and that is how days are run side by side
+ * in a study anyway.  Each JVM runs its day a number of times for warm-up,
+ * which are not counted, then a number of counted times, measuring for
+ * each:
+ * <ul>
+ * <li> initMs, runMs: wall time of {@link NasSimEventDriven#initialize()}
+ *   and {@link NasSimEventDriven#run()}.
+ * <li> events, eventsPerSec: events processed, and per second of the run.
+ * <li> peakHeapBytes: sum of the peaks of the heap pools in the day.
+ * <li> peakRssBytes: peak resident set of the JVM so far, from
+ *   /proc/self/status; -1 if not on Linux.
+ * <li> gcMs, gcCount: time and number of garbage collections in the day.
+ * <li> allocBytesPerFlight: bytes allocated by the sim thread in the day
+ *   per flight; -1 if the JVM can't measure it.
+ * </ul>
+ * The results are written to a comma separated report, one line per
+ * counted day of each JVM with a header line, labeled so that reports of
+ * several releases can be put together.  A summary of each configuration
+ * is printed: the median run time, the sum over the JVMs of their median
+ * rates, and the largest peak resident set.
+ * <p>
+ * Usage: <code>ScalingBenchmark [-base nFlights] [-scales 1,2,5,10]
+ *   [-concurrency 1,2,4] [-warmup n] [-reps n] [-label name]
+ *   [-jvm "-Xmx8g ..."] [-out report.csv]</code>
+ * <br>
+ * Each JVM is given the options after -jvm; give them a fixed heap large
+ * enough for the largest scale.  Run it on a quiet machine.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ScalingBenchmark
+{
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "ScalingBenchmark";
+
+	/** Columns of the report. */
+	public static final String HEADER = "label,baseFlights,scale,nFlights," +
+		"concurrency,jvm,rep,initMs,runMs,events,eventsPerSec," +
+		"peakHeapBytes,peakRssBytes,gcMs,gcCount,allocBytesPerFlight";
+
+	/** Start of the lines of results a JVM prints. */
+	private static final String RESULT = "RESULT ";
+
+	/**
+	 * Main method.
+	 * @param args See the class description.
+	 */
+	public static void main(String[] args){
+		if(args.length > 0 && args[0].equals("-child")){
+			System.exit(runChild(args) ? 0 : 1);
+		}
+		int base = 50000, warmup = 1, reps = 3;
+		int[] scales = {1,2,5,10}, concurrency = {1,2,4};
+		String label = "nassim", jvmArgs = "";
+		File out = new File("scaling.csv");
+		try{
+			for(int i=0;i<args.length;i++){
+				String a = args[i];
+				if(a.equals("-base"))base = Integer.parseInt(args[++i]);
+				else if(a.equals("-scales"))scales = parseInts(args[++i]);
+				else if(a.equals("-concurrency"))concurrency = parseInts(args[++i]);
+				else if(a.equals("-warmup"))warmup = Integer.parseInt(args[++i]);
+				else if(a.equals("-reps"))reps = Integer.parseInt(args[++i]);
+				else if(a.equals("-label"))label = args[++i];
+				else if(a.equals("-jvm"))jvmArgs = args[++i];
+				else if(a.equals("-out"))out = new File(args[++i]);
+				else throw new IllegalArgumentException(a);
+			}
+			if(reps < 1 || warmup < 0)throw new IllegalArgumentException();
+		}catch(RuntimeException re){
+			System.err.println("Usage: " + className + " [-base nFlights] " +
+				"[-scales 1,2,5,10] [-concurrency 1,2,4] [-warmup n] " +
+				"[-reps n] [-label name] [-jvm \"options\"] [-out report.csv]");
+			System.exit(-1);
+		}
+
+		PrintWriter pw = null;
+		boolean success = true;
+		try{
+			pw = new PrintWriter(out);
+			pw.println(HEADER);
+			for(int scale : scales){
+				for(int nJvms : concurrency){
+					List<String[]> rows = runConfiguration(base*scale,nJvms,
+						warmup,reps,jvmArgs);
+					if(rows == null){
+						success = false;
+						continue;
+					}
+					for(String[] row : rows){
+						pw.println(label + "," + base + "," + scale + "," +
+							base*scale + "," + nJvms + "," + join(row));
+					}
+					pw.flush();
+					System.out.println(summarize(base*scale,nJvms,rows));
+				}
+			}
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			success = false;
+		}finally{
+			if(pw != null)pw.close();
+		}
+		System.out.println("wrote " + out);
+		if(!success)System.exit(1);
+	}
+
+	/**
+	 * Runs a configuration: starts the JVMs at once and waits for them.
+	 * @param nFlights Number of flights of each day.
+	 * @param nJvms Number of JVMs.
+	 * @param warmup Number of warm-up days of each JVM.
+	 * @param reps Number of counted days of each JVM.
+	 * @param jvmArgs Options of the JVMs, separated by white space.
+	 * @return Rows of the report from "jvm" on; <code>null</code> if a JVM
+	 *   failed.
+	 * @throws IOException if a JVM can't be started.
+	 */
+	public static List<String[]> runConfiguration(int nFlights, int nJvms,
+		int warmup, int reps, String jvmArgs) throws IOException {
+		final String method = className + ".runConfiguration()";
+		String java = System.getProperty("java.home") + File.separator + "bin" +
+			File.separator + "java";
+		Process[] procs = new Process[nJvms];
+		File[] logs = new File[nJvms];
+		try{
+			for(int j=0;j<nJvms;j++){
+				List<String> cmd = new ArrayList<String>();
+				cmd.add(java);
+				for(String a : jvmArgs.trim().split("\\s+")){
+					if(a.length() > 0)cmd.add(a);
+				}
+				cmd.add("-cp");
+				cmd.add(System.getProperty("java.class.path"));
+				cmd.add(ScalingBenchmark.class.getName());
+				cmd.add("-child");
+				cmd.add(String.valueOf(nFlights));
+				cmd.add(String.valueOf(EngineBenchmark.SEED + j));
+				cmd.add(String.valueOf(warmup));
+				cmd.add(String.valueOf(reps));
+				logs[j] = File.createTempFile("scaling",".log");
+				ProcessBuilder pb = new ProcessBuilder(cmd);
+				pb.redirectErrorStream(true);
+				pb.redirectOutput(logs[j]);
+				procs[j] = pb.start();
+			}
+			List<String[]> rows = new ArrayList<String[]>();
+			boolean ok = true;
+			for(int j=0;j<nJvms;j++){
+				int status;
+				try{
+					status = procs[j].waitFor();
+				}catch(InterruptedException ie){
+					Thread.currentThread().interrupt();
+					throw new IOException(method + ": interrupted.");
+				}
+				List<String> lines = readLines(logs[j]);
+				int n = 0;
+				for(String line : lines){
+					if(!line.startsWith(RESULT))continue;
+					String[] ss = line.substring(RESULT.length()).trim().split(" ");
+					String[] row = new String[ss.length + 1];
+					row[0] = String.valueOf(j);
+					System.arraycopy(ss,0,row,1,ss.length);
+					rows.add(row);
+					n++;
+				}
+				if(status != 0 || n != reps){
+					System.err.println(method + ": " + nFlights + " flights, jvm " +
+						j + " of " + nJvms + " failed, status " + status + ":");
+					for(String line : lines)System.err.println("  " + line);
+					ok = false;
+				}
+			}
+			return ok ? rows : null;
+		}finally{
+			for(int j=0;j<nJvms;j++){
+				if(procs[j] != null)procs[j].destroy();
+				if(logs[j] != null)logs[j].delete();
+			}
+		}
+	}
+
+	/**
+	 * Runs the days of one JVM and prints a result line for each counted
+	 * one: rep, initMs, runMs, events, eventsPerSec, peakHeapBytes,
+	 * peakRssBytes, gcMs, gcCount, allocBytesPerFlight.
+	 * @param args "-child", number of flights, seed, number of warm-up
+	 *   days and number of counted days.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	private static boolean runChild(String[] args){
+		int nFlights = Integer.parseInt(args[1]);
+		long seed = Long.parseLong(args[2]);
+		int warmup = Integer.parseInt(args[3]);
+		int reps = Integer.parseInt(args[4]);
+		File dir = null;
+		try{
+			dir = File.createTempFile("scaling","");
+			if(!dir.delete() || !dir.mkdir()){
+				throw new IOException(className + ": can't create " + dir);
+			}
+			File props = EngineBenchmark.writeDay(dir,nFlights,seed,null);
+			List<MemoryPoolMXBean> heap = new ArrayList<MemoryPoolMXBean>();
+			for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+				if(pool.getType() == MemoryType.HEAP)heap.add(pool);
+			}
+			for(int rep=0;rep<warmup+reps;rep++){
+				System.gc();
+				for(MemoryPoolMXBean pool : heap)pool.resetPeakUsage();
+				long gcMs = -gcMillis(), gcCount = -gcCount();
+				long bytes = ThreadAllocation.allocatedBytes();
+				long t0 = System.nanoTime();
+				NasSimEventDriven sim = new NasSimEventDriven(props);
+				sim.initialize();
+				long t1 = System.nanoTime();
+				sim.run();
+				long t2 = System.nanoTime();
+				long bytes2 = ThreadAllocation.allocatedBytes();
+				gcMs += gcMillis();
+				gcCount += gcCount();
+				long peakHeap = 0;
+				for(MemoryPoolMXBean pool : heap)peakHeap += pool.getPeakUsage().getUsed();
+				if(sim.getProgress() != null)sim.getProgress().unregister();
+				if(rep < warmup)continue;
+				long events = sim.getNumEvents();
+				double runSecs = (t2 - t1)/1.e9;
+				System.out.println(RESULT + (rep - warmup) + " " +
+					(t1 - t0)/1000000 + " " + (t2 - t1)/1000000 + " " + events + " " +
+					String.format("%.0f",events/runSecs) + " " + peakHeap + " " +
+					peakRss() + " " + gcMs + " " + gcCount + " " +
+					(bytes < 0 || bytes2 < 0 ? -1 : (bytes2 - bytes)/nFlights));
+			}
+			return true;
+		}catch(Exception e){
+			e.printStackTrace();
+			return false;
+		}finally{
+			if(dir != null){
+				File[] files = dir.listFiles();
+				for(int i=0;files != null && i<files.length;i++)files[i].delete();
+				dir.delete();
+			}
+		}
+	}
+
+	private static long gcMillis(){
+		long ms = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+			ms += Math.max(0,gc.getCollectionTime());
+		}
+		return ms;
+	}
+
+	private static long gcCount(){
+		long n = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+			n += Math.max(0,gc.getCollectionCount());
+		}
+		return n;
+	}
+
+	/**
+	 * Peak resident set of this JVM so far, the VmHWM line of
+	 * /proc/self/status.
+	 * @return the bytes; -1 if it can't be read.
+	 */
+	public static long peakRss(){
+		File status = new File("/proc/self/status");
+		if(!status.canRead())return -1;
+		try{
+			for(String line : readLines(status)){
+				if(line.startsWith("VmHWM:")){
+					String[] ss = line.substring(6).trim().split("\\s+");
+					return Long.parseLong(ss[0])*1024;
+				}
+			}
+		}catch(IOException ioe){
+			// Not available.
+		}catch(NumberFormatException nfe){
+			// Not available.
+		}
+		return -1;
+	}
+
+	/**
+	 * Summarizes the rows of a configuration.
+	 * @return the summary.
+	 */
+	private static String summarize(int nFlights, int nJvms, List<String[]> rows){
+		// Columns of the rows: jvm, rep, initMs, runMs, events, eventsPerSec,
+		// peakHeapBytes, peakRssBytes, ...
+		long[] runMs = new long[rows.size()];
+		long maxRss = -1;
+		double eps = 0.;
+		for(int j=0;j<nJvms;j++){
+			List<Double> rates = new ArrayList<Double>();
+			for(String[] row : rows){
+				if(Integer.parseInt(row[0]) == j)rates.add(Double.valueOf(row[5]));
+			}
+			if(rates.isEmpty())continue;
+			Double[] r = rates.toArray(new Double[rates.size()]);
+			Arrays.sort(r);
+			eps += r[r.length/2];
+		}
+		for(int i=0;i<rows.size();i++){
+			runMs[i] = Long.parseLong(rows.get(i)[3]);
+			maxRss = Math.max(maxRss,Long.parseLong(rows.get(i)[7]));
+		}
+		Arrays.sort(runMs);
+		return String.format("flights: %d, jvms: %d, median run: %d ms, " +
+			"events/sec: %.0f, peak rss: %.0f MB",nFlights,nJvms,
+			runMs[runMs.length/2],eps,maxRss/1048576.);
+	}
+
+	private static int[] parseInts(String s){
+		String[] ss = s.split(",");
+		int[] v = new int[ss.length];
+		for(int i=0;i<ss.length;i++){
+			v[i] = Integer.parseInt(ss[i].trim());
+			if(v[i] < 1)throw new IllegalArgumentException(s);
+		}
+		return v;
+	}
+
+	private static String join(String[] ss){
+		StringBuilder sb = new StringBuilder();
+		for(int i=0;i<ss.length;i++){
+			if(i > 0)sb.append(',');
+			sb.append(ss[i]);
+		}
+		return sb.toString();
+	}
+
+	private static List<String> readLines(File f) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new FileReader(f));
+		try{
+			String line;
+			while((line = br.readLine()) != null)lines.add(line);
+		}finally{
+			br.close();
+		}
+		return lines;
+	}
+}
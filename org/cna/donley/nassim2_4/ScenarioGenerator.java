@@ -0,0 +1,953 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * This is an implementation of the {@link ISimInitializer} interface that
+ * makes up a whole scenario from a seed instead of reading one, so the
+ * simulation can be run, benchmarked and stress tested without the NASPAC
+ * input files.  The same seed and properties always give the same
+ * scenario.
+ * <p>
+ * The scenario has:
+ * <ul>
+ * <li> Airports with Zipf distributed demand.  The busiest are the hubs;
+ *   a leg from a spoke goes to a hub with probability "hubFraction",
+ *   otherwise anywhere.  Airports are placed at random in a 2400 by 1200
+ *   nmi box, and the airborne time follows from the distance.
+ * <li> Itineraries of one to four legs, linked through their previous and
+ *   next legs, with a daily profile of first departures and a turn time
+ *   between legs.  Every leg leaves on the base day.  Times are whole
+ *   minutes, in seconds.
+ * <li> Departure and arrival fixes, enough per airport for its peak hour
+ *   at "fixMinTimeSpacing", the fix of a leg being the one in the
+ *   direction of the other airport.
+ * <li> For the modeled airports, the busiest ones: pareto curves scaled to
+ *   the airport's peak demand, a change capacity timeline with a spell of
+ *   IMC or MVMC at some airports, and called rates that follow the
+ *   weather.  The hubs compute their rates from the pareto curves, the
+ *   other modeled airports use the called rates, and the rest have
+ *   unlimited capacity.
+ * </ul>
+ * The properties are "baseDay", "numFlights" and optionally
+ * "forecastDay", "seed", "numAirports", "numHubs", "numModeledAirports",
+ * "numCarriers", "hubFraction", "weatherProbability" and
+ * "fixMinTimeSpacing", with defaults given by the <code>DEFAULT_</code>
+ * constants.  Generation is linear in the number of flights, so scenarios
+ * from a thousand to millions of flights can be made to measure how the
+ * engine scales.
+ * <p>
+ * A scenario can also be written out: as a {@link ScheduleBridge}
+ * schedule, called rates and properties file, which the sim can load like
+ * any other, see {@link #writeSchedule(File)}; and as NASPAC format
+ * files, see {@link #writeNaspacFiles(File)}.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ScenarioGenerator implements ISimInitializer
+{
+	/**
+	 * NASPAC format files written by {@link #writeNaspacFiles(File)}, in
+	 * the layouts the {@link NaspacBridge} readers expect.
+	 */
+	public static enum NaspacFile {FIND_CROSSINGS,VFR_FLIGHTS,ITIN_MAP,
+		PARETO,CHANGE_CAP,ASPM_RATES,DEP_FIX_DELAYS,ARR_FIX_DELAYS,
+		MODELED_AIRPORTS};
+
+	/** Defaults of the optional properties. */
+	public static final long DEFAULT_SEED = 1L;
+	public static final int DEFAULT_NUM_AIRPORTS = 300;
+	public static final int DEFAULT_NUM_HUBS = 30;
+	public static final int DEFAULT_NUM_MODELED_AIRPORTS = 77;
+	public static final int DEFAULT_NUM_CARRIERS = 20;
+	public static final double DEFAULT_HUB_FRACTION = 0.85;
+	public static final double DEFAULT_WEATHER_PROBABILITY = 0.25;
+	/** Units: seconds */
+	public static final int DEFAULT_FIX_MIN_TIME_SPACING = 60;
+
+	/**
+	 * Names of the files written by {@link #writeSchedule(File)}.
+	 */
+	public static final String SCHEDULE_FILE = "schedule.csv",
+		CALLED_RATES_FILE = "calledRates.txt",
+		SCHEDULE_PROPS_FILE = "schedule.properties";
+
+	/**
+	 * Fix that no flight uses, first in the fix maps, as the NASPAC bridge
+	 * has it.
+	 */
+	public static final String UNKNOWN_FIX = "????";
+
+	/**
+	 * Number of quarter hours of called rates, midnight of the base day to
+	 * 9am the next day.
+	 */
+	public static final int NUM_EPOCHS = 33*4;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "ScenarioGenerator";
+
+	/** Most itineraries and legs per itinerary of the NASPAC files. */
+	private static final int MAX_NASPAC_ITINS = 99999, MAX_NASPAC_LEGS = 99;
+
+	/** Demand of the airport of rank r goes as 1/(r+1)^ZIPF_EXPONENT. */
+	private static final double ZIPF_EXPONENT = 1.0;
+	/** Relative numbers of itineraries of one to four legs. */
+	private static final double[] LEG_WEIGHTS = {0.35,0.30,0.20,0.15};
+	/** Relative numbers of first departures by hour of the day. */
+	private static final double[] HOUR_WEIGHTS = {0.1,0.05,0.05,0.05,0.1,
+		0.5,3,4,4,3.5,3,3,3,3,3,3.5,4,4,3.5,3,2,1.5,0.5,0.2};
+	private static final String[] EQUIP_TYPES = {"A320","B738","B752",
+		"CRJ2","E145","MD88"};
+	private static final double[] EQUIP_WEIGHTS = {4,5,1,3,3,2};
+	/** No leg leaves after the base day.  Units: seconds */
+	private static final int LAST_OUT_TIME = 24*3600;
+	/** Size of the box of airports.  Units: nmi */
+	private static final double WIDTH = 2400., HEIGHT = 1200.;
+	/** Airborne time is AIR_MIN_OVERHEAD + distance/AIR_SPEED. */
+	private static final double AIR_MIN_OVERHEAD = 15., AIR_SPEED = 7.;
+
+	/**
+	 * VMC pareto curve as fractions of the hourly capacity, {dep,arr}
+	 * points in order of dep, the balanced point summing to one.  The end
+	 * points are off the axes, since the {@link Runway} assumes a pareto
+	 * curve always gives a non-zero rate.
+	 */
+	private static final double[][] PARETO_SHAPE = {{0.10,0.66},{0.36,0.64},
+		{0.42,0.58},{0.50,0.46},{0.76,0.10}};
+	/** Capacity of each {@link Nas.Mc} condition relative to VMC. */
+	private static final double[] MC_FACTORS = {1.0,0.8,0.9};
+	/** Capacity over the peak hourly demand. */
+	private static final double CAPACITY_MARGIN = 1.1;
+	/** Most fixes of an airport, for each direction. */
+	private static final int MAX_FIXES = 100;
+	/** Least hourly capacity of a modeled airport. */
+	private static final int MIN_CAPACITY = 40;
+
+	private final Properties props;
+	private final String baseDay, forecastDay;
+	private final long seed;
+	private final int numFlights, numAirports, numHubs, numModeled;
+	private final int numCarriers, fixMinTimeSpacing;
+	private final double hubFraction, weatherProbability;
+
+	// Generated.
+	private String[] aprts = null, carriers = null;
+	private String[][] fixes = null;
+	private IFlight[] flights = null;
+	private int numItins = 0;
+	private boolean[] hub = null, modeled = null;
+	private double[][][][] paretoCurves = null;
+	private int[][][] changeCaps = null, calledRates = null;
+
+	/**
+	 * Constructor.  Reads the properties from a file.
+	 * @param propsFileNPath File and path of the generator properties file.
+	 */
+	public ScenarioGenerator(File propsFileNPath){
+		this(readProperties(propsFileNPath));
+	}
+
+	/**
+	 * Constructor.
+	 * @param props Generator properties.  Throws an
+	 *   {@link IllegalArgumentException} if they are missing or out of
+	 *   range.
+	 */
+	public ScenarioGenerator(Properties props){
+		final String method = className + ".ScenarioGenerator()";
+		if(!checkProperties(props)){
+			throw new IllegalArgumentException(method + ": required " +
+				"properties are not set.");
+		}
+		this.props = props;
+		baseDay = props.getProperty("baseDay").trim();
+		forecastDay = props.getProperty("forecastDay",baseDay).trim();
+		seed = Long.valueOf(props.getProperty("seed","" + DEFAULT_SEED).trim());
+		numFlights = intProperty("numFlights",0);
+		numAirports = intProperty("numAirports",DEFAULT_NUM_AIRPORTS);
+		numHubs = intProperty("numHubs",DEFAULT_NUM_HUBS);
+		numModeled = Math.min(numAirports,Math.max(numHubs,
+			intProperty("numModeledAirports",DEFAULT_NUM_MODELED_AIRPORTS)));
+		numCarriers = intProperty("numCarriers",DEFAULT_NUM_CARRIERS);
+		fixMinTimeSpacing = intProperty("fixMinTimeSpacing",
+			DEFAULT_FIX_MIN_TIME_SPACING);
+		hubFraction = Double.valueOf(props.getProperty("hubFraction",
+			"" + DEFAULT_HUB_FRACTION).trim());
+		weatherProbability = Double.valueOf(props.getProperty(
+			"weatherProbability","" + DEFAULT_WEATHER_PROBABILITY).trim());
+		if(baseDay.length() != 8 || forecastDay.length() != 8){
+			throw new IllegalArgumentException(method + ": days must be " +
+				"yyyymmdd.");
+		}
+		if(numFlights < 1 || numAirports < 2 || numAirports > 26*26*26 ||
+			numHubs < 1 || numHubs > numAirports || numCarriers < 1 ||
+			numCarriers > 26*26*26 || fixMinTimeSpacing < 0){
+			throw new IllegalArgumentException(method + ": numFlights, " +
+				"numAirports, numHubs, numCarriers or fixMinTimeSpacing is " +
+				"out of range.");
+		}
+		if(hubFraction < 0. || hubFraction > 1. || weatherProbability < 0. ||
+			weatherProbability > 1.){
+			throw new IllegalArgumentException(method + ": hubFraction and " +
+				"weatherProbability must be between 0 and 1.");
+		}
+	}
+
+	private int intProperty(String name, int def){
+		return Integer.valueOf(props.getProperty(name,"" + def).trim());
+	}
+
+	/**
+	 * Main method.  Generates a scenario and writes it to a directory.
+	 * @param args Number of flights, seed and output directory, and
+	 *   <code>-naspac</code> to write the NASPAC files as well.
+	 */
+	public static void main(String[] args){
+		final String method = className + ".main()";
+		if(args.length < 3){
+			System.err.println("Usage: " + className +
+				" numFlights seed outDir [-naspac]");
+			System.exit(-1);
+		}
+		Properties props = new Properties();
+		props.setProperty("baseDay","20080710");
+		props.setProperty("numFlights",args[0]);
+		props.setProperty("seed",args[1]);
+		File dir = new File(args[2]);
+		try{
+			long start = System.nanoTime();
+			ScenarioGenerator gen = new ScenarioGenerator(props);
+			gen.initialize();
+			System.out.println(method + ": generated " + args[0] +
+				" flights in " + (System.nanoTime() - start)/1000000 + " ms.");
+			start = System.nanoTime();
+			gen.writeSchedule(dir);
+			if(args.length > 3 && args[3].equals("-naspac")){
+				gen.writeNaspacFiles(dir);
+			}
+			System.out.println(method + ": wrote " + dir + " in " +
+				(System.nanoTime() - start)/1000000 + " ms.");
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Generates the scenario, creates the {@link Nas} singleton, replacing
+	 * any previous one, the flights and the airport and fix nodes, and
+	 * routes the flights through them.
+	 * @return An object that implements the interface {@link ISimElements}.
+	 */
+	public ISimElements initialize(){
+		Random rand = new Random(seed);
+
+		//---------------------------------------------------------------------
+		// Airports, carriers, equipment types and fixes.
+		//---------------------------------------------------------------------
+		// Each stage is a Flight Recorder event.
+		JfrLoaderStageEvent stage = JfrLoaderStageEvent.start(className,
+			"airports");
+		aprts = new String[numAirports];
+		for(int a=0;a<numAirports;a++)aprts[a] = code(a);
+		// Demand rank of each airport, so the hubs are spread over the names.
+		int[] byRank = new int[numAirports];
+		for(int r=0;r<numAirports;r++)byRank[r] = r;
+		for(int r=numAirports-1;r>0;r--){
+			int k = rand.nextInt(r+1), h = byRank[r];
+			byRank[r] = byRank[k];
+			byRank[k] = h;
+		}
+		int[] rank = new int[numAirports];
+		for(int r=0;r<numAirports;r++)rank[byRank[r]] = r;
+		hub = new boolean[numAirports];
+		double[] aprtWeights = new double[numAirports];
+		double[] hubWeights = new double[numHubs];
+		for(int a=0;a<numAirports;a++){
+			aprtWeights[a] = 1./Math.pow(rank[a]+1,ZIPF_EXPONENT);
+			hub[a] = rank[a] < numHubs;
+		}
+		for(int r=0;r<numHubs;r++)hubWeights[r] = aprtWeights[byRank[r]];
+		double[] cumAprts = cumulate(aprtWeights);
+		double[] cumHubs = cumulate(hubWeights);
+		double[] x = new double[numAirports], y = new double[numAirports];
+		for(int a=0;a<numAirports;a++){
+			x[a] = WIDTH*rand.nextDouble();
+			y[a] = HEIGHT*rand.nextDouble();
+		}
+
+		carriers = new String[numCarriers];
+		double[] carrierWeights = new double[numCarriers];
+		for(int c=0;c<numCarriers;c++){
+			carriers[c] = code(c);
+			carrierWeights[c] = 1./Math.pow(c+1,ZIPF_EXPONENT);
+		}
+		double[] cumCarriers = cumulate(carrierWeights);
+		double[] cumEquips = cumulate(EQUIP_WEIGHTS);
+		double[] cumLegs = cumulate(LEG_WEIGHTS);
+		double[] cumHours = cumulate(HOUR_WEIGHTS);
+
+		//---------------------------------------------------------------------
+		// Flights, an itinerary at a time.
+		//---------------------------------------------------------------------
+		stage = stage.next("flights");
+		int nHours = NUM_EPOCHS/4;
+		int[][] depsByHour = new int[numAirports][nHours];
+		int[][] arrsByHour = new int[numAirports][nHours];
+		flights = new IFlight[numFlights];
+		int[] pars = new int[IFlight.Param.values().length];
+		int n = 0;
+		numItins = 0;
+		while(n < numFlights){
+			numItins++;
+			int nLegs = Math.min(1 + sample(cumLegs,rand),numFlights - n);
+			int carrier = sample(cumCarriers,rand);
+			int equip = sample(cumEquips,rand);
+			int aprt = sample(cumAprts,rand);
+			int out = 60*(60*sample(cumHours,rand) + rand.nextInt(60));
+			for(int leg=1;leg<=nLegs;leg++){
+				// Every leg leaves on the base day, so it lands well inside
+				// the called rates.
+				if(out >= LAST_OUT_TIME)break;
+				int next = hub[aprt] || rand.nextDouble() >= hubFraction ?
+					sample(cumAprts,rand) : byRank[sample(cumHubs,rand)];
+				if(next == aprt)next = byRank[rank[aprt] == 0 ? 1 : 0];
+				double dx = x[next] - x[aprt], dy = y[next] - y[aprt];
+				int air = 60*(int)Math.round(AIR_MIN_OVERHEAD +
+					Math.sqrt(dx*dx + dy*dy)/AIR_SPEED);
+				int taxiOut = 60*((hub[aprt] ? 14 : 8) + rand.nextInt(7));
+				int taxiIn = 60*((hub[next] ? 7 : 4) + rand.nextInt(4));
+				int in = out + taxiOut + air + taxiIn;
+
+				pars[IFlight.Param.ITIN_NUM.ordinal()] = numItins;
+				pars[IFlight.Param.LEG_NUM.ordinal()] = leg;
+				pars[IFlight.Param.SCHED_ID.ordinal()] = n + 1;
+				pars[IFlight.Param.CARRIER.ordinal()] = carrier;
+				pars[IFlight.Param.EQUIP_TYPE.ordinal()] = equip;
+				pars[IFlight.Param.DEP_APRT.ordinal()] = aprt;
+				pars[IFlight.Param.ARR_APRT.ordinal()] = next;
+				pars[IFlight.Param.SCHED_OUT_TIME.ordinal()] = out;
+				pars[IFlight.Param.MIN_OUT_TIME.ordinal()] = out;
+				pars[IFlight.Param.SCHED_IN_TIME.ordinal()] = in;
+				pars[IFlight.Param.ACT_AIR_TIME.ordinal()] = air;
+				pars[IFlight.Param.TURN_TIME.ordinal()] =
+					60*(30 + rand.nextInt(31));
+				pars[IFlight.Param.PUSHBACK_TIME.ordinal()] =
+					60*(1 + rand.nextInt(3));
+				pars[IFlight.Param.TAXI_OUT_TIME.ordinal()] = taxiOut;
+				pars[IFlight.Param.TAXI_IN_TIME.ordinal()] = taxiIn;
+				// Bearings for now; fixes once the demand is known.
+				pars[IFlight.Param.DEP_FIX.ordinal()] = bearing(dx,dy);
+				pars[IFlight.Param.ARR_FIX.ordinal()] = bearing(-dx,-dy);
+				flights[n] = new Flight(pars);
+				if(leg > 1){
+					flights[n].setPrevLeg(flights[n-1]);
+					flights[n-1].setNextLeg(flights[n]);
+				}
+				depsByHour[aprt][Math.min(nHours-1,(out + taxiOut)/3600)]++;
+				arrsByHour[next][Math.min(nHours-1,(in - taxiIn)/3600)]++;
+				n++;
+				out = in + pars[IFlight.Param.TURN_TIME.ordinal()];
+				aprt = next;
+			}
+		}
+
+		//---------------------------------------------------------------------
+		// Fixes, enough for the peak hour of each airport, the same by name
+		// for departures and arrivals.  Sorted since the airport codes are.
+		// The legs of an airport, in order of bearing, are shared equally by
+		// its fixes, so no fix has much more than its share.
+		//---------------------------------------------------------------------
+		stage = stage.next("fixes");
+		int[] numFixes = new int[numAirports], fixStart = new int[numAirports];
+		List<String> fixList = new ArrayList<String>();
+		fixList.add(UNKNOWN_FIX);
+		for(int a=0;a<numAirports;a++){
+			int peak = 0;
+			for(int h=0;h<nHours;h++){
+				peak = Math.max(peak,Math.max(depsByHour[a][h],arrsByHour[a][h]));
+			}
+			numFixes[a] = Math.max(1,Math.min(MAX_FIXES,(int)Math.ceil(
+				CAPACITY_MARGIN*peak*fixMinTimeSpacing/3600.)));
+			fixStart[a] = fixList.size();
+			for(int k=0;k<numFixes[a];k++){
+				fixList.add(aprts[a] + String.format("F%02d",k));
+			}
+		}
+		IFlight.Param[][] fixParams = {
+			{IFlight.Param.DEP_APRT,IFlight.Param.DEP_FIX},
+			{IFlight.Param.ARR_APRT,IFlight.Param.ARR_FIX}};
+		long[] keys = new long[numFlights];
+		int[] numLegs = new int[numAirports];
+		for(IFlight.Param[] fp : fixParams){
+			Arrays.fill(numLegs,0);
+			for(int i=0;i<numFlights;i++){
+				int a = flights[i].get(fp[0]);
+				numLegs[a]++;
+				keys[i] = ((long)a << 41) | ((long)flights[i].get(fp[1]) << 32) | i;
+			}
+			Arrays.sort(keys);
+			int a = -1, rnk = 0;
+			for(long key : keys){
+				IFlight f = flights[(int)(key & 0xFFFFFFFFL)];
+				int ka = (int)(key >>> 41);
+				if(ka != a){
+					a = ka;
+					rnk = 0;
+				}
+				f.set(fp[1],fixStart[a] + (int)((long)rnk*numFixes[a]/numLegs[a]));
+				rnk++;
+			}
+		}
+		fixes = new String[2][];
+		fixes[Nas.Ad.DEP.ordinal()] = fixList.toArray(new String[0]);
+		fixes[Nas.Ad.ARR.ordinal()] = fixList.toArray(new String[0]);
+
+		Nas.destroyInstance();
+		Nas.createInstance(aprts,carriers,EQUIP_TYPES.clone(),fixes);
+		Nas nas = Nas.getInstance();
+
+		//---------------------------------------------------------------------
+		// Capacities of the modeled airports.  Only airports with flights
+		// are modeled, as the bridges only know of those.
+		//---------------------------------------------------------------------
+		stage = stage.next("capacities");
+		int nMc = Nas.Mc.values().length;
+		modeled = new boolean[numAirports];
+		paretoCurves = new double[numAirports][][][];
+		changeCaps = new int[numAirports][][];
+		calledRates = new int[numAirports][][];
+		for(int a=0;a<numAirports;a++){
+			int peakDep = 0, peakArr = 0, ops = 0;
+			for(int h=0;h<nHours;h++){
+				peakDep = Math.max(peakDep,depsByHour[a][h]);
+				peakArr = Math.max(peakArr,arrsByHour[a][h]);
+				ops += depsByHour[a][h] + arrsByHour[a][h];
+			}
+			modeled[a] = rank[a] < numModeled && ops > 0;
+			if(!modeled[a])continue;
+
+			double cap = CAPACITY_MARGIN*Math.max(peakDep+peakArr,MIN_CAPACITY);
+			paretoCurves[a] = new double[nMc][PARETO_SHAPE.length][2];
+			for(int mc=0;mc<nMc;mc++){
+				for(int k=0;k<PARETO_SHAPE.length;k++){
+					// Whole numbers per hour, so per quarter hour is exact.
+					for(Nas.Ad ad : Nas.Ad.values()){
+						paretoCurves[a][mc][k][ad.ordinal()] = Math.round(
+							PARETO_SHAPE[k][ad.ordinal()]*cap*MC_FACTORS[mc])/4.;
+					}
+				}
+			}
+
+			if(rand.nextDouble() < weatherProbability){
+				int start = 3600*(6 + rand.nextInt(14));
+				int end = start + 3600*(2 + rand.nextInt(5));
+				Nas.Mc mc = rand.nextBoolean() ? Nas.Mc.IMC : Nas.Mc.MVMC;
+				changeCaps[a] = new int[][]{{0,Nas.Mc.VMC.ordinal()},
+					{start,mc.ordinal()},{end,Nas.Mc.VMC.ordinal()}};
+			} else {
+				changeCaps[a] = new int[][]{{0,Nas.Mc.VMC.ordinal()}};
+			}
+
+			calledRates[a] = new int[NUM_EPOCHS][2];
+			int c = 0;
+			for(int q=0;q<NUM_EPOCHS;q++){
+				while(c+1 < changeCaps[a].length &&
+					changeCaps[a][c+1][0] <= 900*q)c++;
+				double f = CAPACITY_MARGIN*MC_FACTORS[changeCaps[a][c][1]]/4.;
+				calledRates[a][q][Nas.Ad.DEP.ordinal()] =
+					(int)Math.ceil(f*Math.max(peakDep,MIN_CAPACITY/2));
+				calledRates[a][q][Nas.Ad.ARR.ordinal()] =
+					(int)Math.ceil(f*Math.max(peakArr,MIN_CAPACITY/2));
+			}
+		}
+		int[][][] estOnNOffTimes = NaspacBridge.computeEstimatedOnNOffTimes(
+			nas,new int[numAirports][][],flights);
+
+		//------------------------------------------------------------------
+		// Create network nodes, in the same order as the NaspacBridge does.
+		//------------------------------------------------------------------
+		stage = stage.next("nodes");
+		INode[] runways   = new Runway[numAirports];
+		INode[] taxiways  = new Taxiway[numAirports];
+		INode[] terminals = new Terminal[numAirports];
+		for(int a=0;a<numAirports;a++){
+			boolean computeRates = hub[a] && modeled[a];
+			if(computeRates){
+				for(int k=0;k<2;k++){
+					if(estOnNOffTimes[a][k] == null)estOnNOffTimes[a][k] = new int[0];
+				}
+			}
+			runways[a] = new Runway(a,0,computeRates,calledRates[a],
+				paretoCurves[a],changeCaps[a],
+				computeRates ? estOnNOffTimes[a] : null);
+			taxiways[a] = new Taxiway(a,null,null);
+			terminals[a]= new Terminal(a,null,null);
+		}
+		INode[] depFixes = new Fix[fixList.size()];
+		INode[] arrFixes = new Fix[fixList.size()];
+		for(int i=0;i<fixList.size();i++){
+			depFixes[i] = new Fix(i,Nas.Ad.DEP,fixMinTimeSpacing);
+			arrFixes[i] = new Fix(i,Nas.Ad.ARR,fixMinTimeSpacing);
+		}
+		INode[] nod = new INode[3*numAirports + 2*fixList.size()];
+		int count = 0;
+		INode[][] nodeTypes = {runways,terminals,taxiways,depFixes,arrFixes};
+		for(INode[] nt : nodeTypes){
+			for(int i=0;i<nt.length;i++)nod[count++] = nt[i];
+		}
+		stage = stage.next("routes");
+		NaspacBridge.createFlightRoutes(flights,terminals,taxiways,runways,
+			depFixes,arrFixes);
+		stage.finish();
+		return new SimElements(baseDay,forecastDay,flights,nod);
+	}
+
+	/**
+	 * Three letter code of an index: AAA, AAB, ...
+	 */
+	private static String code(int i){
+		char[] c = {(char)('A' + i/676%26),(char)('A' + i/26%26),
+			(char)('A' + i%26)};
+		return new String(c);
+	}
+
+	/**
+	 * Cumulative sums of weights.
+	 */
+	private static double[] cumulate(double[] weights){
+		double[] cum = new double[weights.length];
+		double sum = 0.;
+		for(int i=0;i<weights.length;i++)cum[i] = sum += weights[i];
+		return cum;
+	}
+
+	/**
+	 * Samples an index with probability proportional to its weight.
+	 * @param cum Cumulative sums of the weights.
+	 * @param rand Random numbers.
+	 * @return the index.
+	 */
+	private static int sample(double[] cum, Random rand){
+		double u = rand.nextDouble()*cum[cum.length-1];
+		int i = Arrays.binarySearch(cum,u);
+		i = i < 0 ? -i-1 : i+1;
+		return Math.min(i,cum.length-1);
+	}
+
+	/**
+	 * Bearing of a direction, in whole degrees from 0 to 359.
+	 */
+	private static int bearing(double dx, double dy){
+		int k = (int)((Math.atan2(dy,dx) + Math.PI)/(2*Math.PI)*360);
+		return Math.min(k,359);
+	}
+
+	/**
+	 * Throws an {@link IllegalStateException} if the scenario hasn't been
+	 * generated.
+	 */
+	private void checkGenerated(String method){
+		if(flights == null){
+			throw new IllegalStateException(method + ": initialize() has " +
+				"not been called.");
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Writing the scenario.
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes the scenario for the {@link ScheduleBridge}: the schedule,
+	 * the called rates of the modeled airports as an ASPM file, and the
+	 * bridge properties file.  The bridge gives every runway its called
+	 * rates, so the hubs don't use their pareto curves, and there is no
+	 * weather other than in the called rates.
+	 * @param dir Output directory.  Created if it doesn't exist.
+	 * @return The bridge properties file.
+	 * @throws IOException if a file can't be written.
+	 */
+	public File writeSchedule(File dir) throws IOException {
+		final String method = className + ".writeSchedule()";
+		checkGenerated(method);
+		if(!dir.isDirectory() && !dir.mkdirs()){
+			throw new IOException(method + ": can't create " + dir);
+		}
+		Nas nas = Nas.getInstance();
+		PrintWriter pw = open(new File(dir,SCHEDULE_FILE));
+		try{
+			pw.println("# itin,leg,sched_id,carrier,equip,dep,arr,out,in," +
+				"air,turn,push,taxi_out,taxi_in,dep_fix,arr_fix");
+			StringBuilder sb = new StringBuilder();
+			for(IFlight f : flights){
+				sb.setLength(0);
+				sb.append(f.get(IFlight.Param.ITIN_NUM)).append(',');
+				sb.append(f.get(IFlight.Param.LEG_NUM)).append(',');
+				sb.append(f.get(IFlight.Param.SCHED_ID)).append(',');
+				sb.append(carriers[f.get(IFlight.Param.CARRIER)]).append(',');
+				sb.append(EQUIP_TYPES[f.get(IFlight.Param.EQUIP_TYPE)]).append(',');
+				sb.append(aprts[f.get(IFlight.Param.DEP_APRT)]).append(',');
+				sb.append(aprts[f.get(IFlight.Param.ARR_APRT)]).append(',');
+				IFlight.Param[] times = {IFlight.Param.SCHED_OUT_TIME,
+					IFlight.Param.SCHED_IN_TIME,IFlight.Param.ACT_AIR_TIME,
+					IFlight.Param.TURN_TIME,IFlight.Param.PUSHBACK_TIME,
+					IFlight.Param.TAXI_OUT_TIME,IFlight.Param.TAXI_IN_TIME};
+				for(IFlight.Param p : times)sb.append(f.get(p)).append(',');
+				sb.append(nas.getFixNameFromIndex(Nas.Ad.DEP,
+					f.get(IFlight.Param.DEP_FIX))).append(',');
+				sb.append(nas.getFixNameFromIndex(Nas.Ad.ARR,
+					f.get(IFlight.Param.ARR_FIX)));
+				pw.println(sb);
+			}
+		}finally{
+			pw.close();
+		}
+		writeAspmRates(new File(dir,CALLED_RATES_FILE));
+
+		File propsFile = new File(dir,SCHEDULE_PROPS_FILE);
+		pw = open(propsFile);
+		try{
+			pw.println("# Synthetic scenario, seed " + seed + ".");
+			pw.println("baseDir=" + dir.getPath().replace('\\','/'));
+			pw.println("baseDay=" + baseDay);
+			pw.println("forecastDay=" + forecastDay);
+			pw.println("scheduleFile=" + SCHEDULE_FILE);
+			pw.println("calledRatesFile=" + CALLED_RATES_FILE);
+			pw.println("fixMinTimeSpacing=" + fixMinTimeSpacing);
+		}finally{
+			pw.close();
+		}
+		return propsFile;
+	}
+
+	/**
+	 * Gets the file and path of a NASPAC file written by
+	 * {@link #writeNaspacFiles(File)}.
+	 * @param dir Output directory.
+	 * @param f The file.
+	 * @return File and path, the name being that of the enum in lower case
+	 *   with ".txt" appended.
+	 */
+	public static File getNaspacFile(File dir, NaspacFile f){
+		return new File(dir,f.name().toLowerCase() + ".txt");
+	}
+
+	/**
+	 * Writes the scenario as NASPAC format files, in the layouts read by
+	 * {@link NaspacBridge#readFlightsFromFCnVFRFiles(Nas, File, File)},
+	 * {@link NaspacBridge#addSchedIdsToFlights(File, IFlight[])},
+	 * {@link NaspacBridge#readParetoCurves(Nas, File)},
+	 * {@link NaspacBridge#readChangeCapacities(Nas, File)},
+	 * {@link NaspacBridge#readAspmAcceptanceRates(Nas, org.cna.donley.jdbc.SQLDate2, File)},
+	 * {@link NaspacBridge#readFixDelaysFromFile(Nas, File, File)} and
+	 * {@link NaspacBridge#readModeledAirports(Nas, File)}.  All flights are
+	 * IFR, so the VFR file is empty.  The airports that compute their
+	 * rates, the "computeAcceptRatesAirports" property of the bridge, are
+	 * the hubs, see {@link #getComputeRatesAirports()}.  Times in the
+	 * flight files are minutes, which is why the generated times are whole
+	 * minutes.
+	 * <p>
+	 * The find crossings file has five digits for the itinerary number, so
+	 * a scenario of more than 99999 itineraries can't be written; use
+	 * {@link #writeSchedule(File)} for those.
+	 * @param dir Output directory.  Created if it doesn't exist.
+	 * @throws IOException if a file can't be written.
+	 */
+	public void writeNaspacFiles(File dir) throws IOException {
+		final String method = className + ".writeNaspacFiles()";
+		checkGenerated(method);
+		if(numItins > MAX_NASPAC_ITINS){
+			throw new IllegalArgumentException(method + ": " + numItins +
+				" itineraries are more than the NASPAC files can hold.");
+		}
+		if(!dir.isDirectory() && !dir.mkdirs()){
+			throw new IOException(method + ": can't create " + dir);
+		}
+		Nas nas = Nas.getInstance();
+		final int minInSecs = 60;
+
+		// Find crossings: a header per itinerary, then each leg followed
+		// by its fixes.
+		PrintWriter pw = open(getNaspacFile(dir,NaspacFile.FIND_CROSSINGS));
+		try{
+			for(int i=0;i<flights.length;){
+				IFlight f = flights[i];
+				int nLegs = 1;
+				while(i+nLegs < flights.length &&
+					flights[i+nLegs].getPrevLeg() != null)nLegs++;
+				if(nLegs > MAX_NASPAC_LEGS){
+					throw new IllegalArgumentException(method + ": itinerary " +
+						"has too many legs.");
+				}
+				pw.println(String.format("%05d%-3s%-4s00 %2d",
+					f.get(IFlight.Param.ITIN_NUM),
+					carriers[f.get(IFlight.Param.CARRIER)],
+					EQUIP_TYPES[f.get(IFlight.Param.EQUIP_TYPE)],nLegs));
+				for(int k=0;k<nLegs;k++,i++){
+					f = flights[i];
+					pw.println(String.format("%05d%-4s %-5s%17s%4d%18s%4d" +
+						"%6s%4d",f.get(IFlight.Param.ITIN_NUM),
+						aprts[f.get(IFlight.Param.DEP_APRT)],
+						aprts[f.get(IFlight.Param.ARR_APRT)],"",
+						f.get(IFlight.Param.SCHED_OUT_TIME)/minInSecs,"",
+						f.get(IFlight.Param.SCHED_IN_TIME)/minInSecs,"",
+						f.get(IFlight.Param.ACT_AIR_TIME)/minInSecs));
+					pw.println("DF" + nas.getFixNameFromIndex(Nas.Ad.DEP,
+						f.get(IFlight.Param.DEP_FIX)));
+					pw.println("AF" + nas.getFixNameFromIndex(Nas.Ad.ARR,
+						f.get(IFlight.Param.ARR_FIX)));
+				}
+			}
+		}finally{
+			pw.close();
+		}
+		open(getNaspacFile(dir,NaspacFile.VFR_FLIGHTS)).close();
+
+		pw = open(getNaspacFile(dir,NaspacFile.ITIN_MAP));
+		try{
+			pw.println("# index,itin,leg,flight_id,ifr_vfr");
+			for(int i=0;i<flights.length;i++){
+				pw.println(i + "," + flights[i].get(IFlight.Param.ITIN_NUM) +
+					"," + flights[i].get(IFlight.Param.LEG_NUM) + "," +
+					flights[i].get(IFlight.Param.SCHED_ID) + ",IFR");
+			}
+		}finally{
+			pw.close();
+		}
+
+		// Pareto curves, arrivals then departures, per hour.
+		pw = open(getNaspacFile(dir,NaspacFile.PARETO));
+		try{
+			pw.println("# Synthetic pareto curves, seed " + seed + ".");
+			pw.println("# aprt condition numPoints arr1 dep1 arr2 dep2 ...");
+			pw.println("# Units: number per hour");
+			pw.println("#");
+			for(int a=0;a<numAirports;a++){
+				if(!modeled[a])continue;
+				for(Nas.Mc mc : Nas.Mc.values()){
+					double[][] curve = paretoCurves[a][mc.ordinal()];
+					StringBuilder sb = new StringBuilder();
+					sb.append(aprts[a]).append(' ').append(mc.name());
+					sb.append(' ').append(curve.length);
+					for(double[] pt : curve){
+						sb.append(' ').append(4.*pt[Nas.Ad.ARR.ordinal()]);
+						sb.append(' ').append(4.*pt[Nas.Ad.DEP.ordinal()]);
+					}
+					pw.println(sb);
+				}
+			}
+		}finally{
+			pw.close();
+		}
+
+		// Change capacities, grouped by time.
+		List<int[]> changes = new ArrayList<int[]>();
+		for(int a=0;a<numAirports;a++){
+			if(!modeled[a])continue;
+			for(int[] cc : changeCaps[a])changes.add(new int[]{cc[0],a,cc[1]});
+		}
+		Collections.sort(changes,new Comparator<int[]>(){
+			public int compare(int[] l, int[] r){
+				return l[0] != r[0] ? (l[0] < r[0] ? -1 : 1) :
+					(l[1] < r[1] ? -1 : l[1] > r[1] ? 1 : 0);
+			}
+		});
+		pw = open(getNaspacFile(dir,NaspacFile.CHANGE_CAP));
+		try{
+			int last = -1;
+			for(int[] ch : changes){
+				if(ch[0] != last)pw.println("CHANGE " + ch[0] + ";");
+				last = ch[0];
+				pw.println(String.format("AP    %-4s%s",aprts[ch[1]],
+					Nas.Mc.values()[ch[2]].name()));
+			}
+		}finally{
+			pw.close();
+		}
+
+		writeAspmRates(getNaspacFile(dir,NaspacFile.ASPM_RATES));
+
+		// Fix delays, in minutes, without the unknown fix.
+		int[] headerLines = {6,4};
+		NaspacFile[] fixFiles = {NaspacFile.DEP_FIX_DELAYS,
+			NaspacFile.ARR_FIX_DELAYS};
+		for(Nas.Ad ad : Nas.Ad.values()){
+			pw = open(getNaspacFile(dir,fixFiles[ad.ordinal()]));
+			try{
+				for(int k=0;k<headerLines[ad.ordinal()];k++){
+					pw.println("# Synthetic " + ad + " fix delays");
+				}
+				String[] names = fixes[ad.ordinal()];
+				for(int i=0;i<names.length;i++){
+					if(names[i].equals(UNKNOWN_FIX))continue;
+					pw.println(names[i] + " " + fixMinTimeSpacing/60.);
+				}
+			}finally{
+				pw.close();
+			}
+		}
+
+		pw = open(getNaspacFile(dir,NaspacFile.MODELED_AIRPORTS));
+		try{
+			pw.println("# Synthetic modeled airports, seed " + seed + ".");
+			for(int a=0;a<numAirports;a++){
+				if(modeled[a])pw.println(aprts[a]);
+			}
+		}finally{
+			pw.close();
+		}
+	}
+
+	/**
+	 * Writes the called rates of the modeled airports as an ASPM file, in
+	 * numbers per hour with the time of each quarter hour.
+	 */
+	private void writeAspmRates(File fileNPath) throws IOException {
+		SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		Calendar cal = Calendar.getInstance();
+		String[] times = new String[NUM_EPOCHS];
+		cal.clear();
+		cal.set(Integer.valueOf(baseDay.substring(0,4)),
+			Integer.valueOf(baseDay.substring(4,6)) - 1,
+			Integer.valueOf(baseDay.substring(6,8)),0,0,0);
+		for(int q=0;q<NUM_EPOCHS;q++){
+			times[q] = fmt.format(cal.getTime());
+			cal.add(Calendar.MINUTE,15);
+		}
+		PrintWriter pw = open(fileNPath);
+		try{
+			pw.println("# aprt,time,ADR,AAR");
+			for(int a=0;a<numAirports;a++){
+				if(!modeled[a])continue;
+				for(int q=0;q<NUM_EPOCHS;q++){
+					pw.println(aprts[a] + "," + times[q] + "," +
+						4*calledRates[a][q][Nas.Ad.DEP.ordinal()] + "," +
+						4*calledRates[a][q][Nas.Ad.ARR.ordinal()]);
+				}
+			}
+		}finally{
+			pw.close();
+		}
+	}
+
+	private static PrintWriter open(File fileNPath) throws IOException {
+		return new PrintWriter(new BufferedWriter(new FileWriter(fileNPath),
+			64*1024));
+	}
+
+	//--------------------------------------------------------------------------
+	// Getters of the generated scenario.
+	//--------------------------------------------------------------------------
+	/**
+	 * @return Number of itineraries generated.
+	 */
+	public int getNumItins(){return numItins;}
+	/**
+	 * @return Flags of the hub airports, by airport index.
+	 */
+	public boolean[] getHubs(){return hub;}
+	/**
+	 * @return Flags of the modeled airports, by airport index.
+	 */
+	public boolean[] getModeledAirports(){return modeled;}
+	/**
+	 * @return Comma separated list of the airports that compute their
+	 *   rates from the pareto curves: the modeled hubs.
+	 */
+	public String getComputeRatesAirports(){
+		StringBuilder sb = new StringBuilder();
+		for(int a=0;a<numAirports;a++){
+			if(hub[a] && modeled[a])sb.append(sb.length() > 0 ? "," : "").
+				append(aprts[a]);
+		}
+		return sb.toString();
+	}
+	/**
+	 * @return Pareto curves by airport, as from
+	 *   {@link NaspacBridge#readParetoCurves(Nas, File)}; <code>null</code>
+	 *   for airports that are not modeled.
+	 */
+	public double[][][][] getParetoCurves(){return paretoCurves;}
+	/**
+	 * @return Change capacities by airport, as from
+	 *   {@link NaspacBridge#readChangeCapacities(Nas, File)};
+	 *   <code>null</code> for airports that are not modeled.
+	 */
+	public int[][][] getChangeCapacities(){return changeCaps;}
+	/**
+	 * @return Called rates by airport, per quarter hour, as from
+	 *   {@link NaspacBridge#readAspmAcceptanceRates(Nas,
+	 *   org.cna.donley.jdbc.SQLDate2, File)}; <code>null</code> for
+	 *   airports that are not modeled.
+	 */
+	public int[][][] getCalledRates(){return calledRates;}
+
+	/**
+	 * Reads the generator properties from a file.
+	 * @param propsFileNPath The properties file and where it is.
+	 * @return The properties.  Throws an {@link IllegalArgumentException}
+	 *   if the file can't be read.
+	 */
+	private static Properties readProperties(File propsFileNPath){
+		final String method = className + ".readProperties()";
+		Properties props = new Properties();
+		FileInputStream fis = null;
+		try{
+			fis = new FileInputStream(propsFileNPath);
+			props.load(fis);
+		}catch(FileNotFoundException fnfe){
+			throw new IllegalArgumentException(method + ": problem reading " +
+				"properties file: " + propsFileNPath);
+		}catch(IOException ioe){
+			throw new IllegalArgumentException(method + ": problem reading " +
+				"properties file: " + propsFileNPath);
+		}finally{
+			try{
+				if(fis != null)fis.close();
+			}catch(IOException ioe){}
+		}
+		return props;
+	}
+
+	/**
+	 * Checks that the required properties are set, printing a warning for
+	 * each one that is not.
+	 * @param props Generator properties.
+	 * @return <code>true</code> if they are; <code>false</code> if not.
+	 */
+	public static boolean checkProperties(Properties props){
+		final String method = className + ".checkProperties()";
+		String[] propertyNames = {"baseDay","numFlights"};
+		boolean success = true;
+		for(int i=0;i<propertyNames.length;i++){
+			String prop = props.getProperty(propertyNames[i]);
+			if(prop == null){
+				success = false;
+				System.err.println("Warning: " + method + ": " + propertyNames[i] + " is null.");
+			}
+			else if(prop.trim().equals("")){
+				success = false;
+				System.err.println("Warning: " + method + ": " + propertyNames[i] + " is not set.");
+			}
+		}
+		return success;
+	}
+}
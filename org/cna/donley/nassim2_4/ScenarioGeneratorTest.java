@@ -0,0 +1,252 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.cna.donley.jdbc.SQLDate2;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the ScenarioGenerator class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ScenarioGeneratorTest
+{
+	private static final IFlight.Param[] params = IFlight.Param.values();
+
+	private File dir = null;
+
+	private static Properties createProperties(int nFlights, long seed){
+		Properties props = new Properties();
+		props.setProperty("baseDay","20080710");
+		props.setProperty("numFlights","" + nFlights);
+		props.setProperty("seed","" + seed);
+		props.setProperty("numAirports","120");
+		props.setProperty("numHubs","12");
+		props.setProperty("numModeledAirports","30");
+		return props;
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("scenario","");
+		assertTrue(dir.delete() && dir.mkdir());
+	}
+
+	@After
+	public void tearDown(){
+		for(File f : dir.listFiles())f.delete();
+		dir.delete();
+		Nas.destroyInstance();
+	}
+
+	/**
+	 * Test that a seed gives the same scenario each time and another seed
+	 * a different one, and that the itineraries are well formed.
+	 */
+	@Test
+	public void testInitialize(){
+		final int nFlights = 5000;
+		ScenarioGenerator gen = new ScenarioGenerator(createProperties(nFlights,5L));
+		IFlight[] flights = gen.initialize().getFlights();
+		IFlight[] again = new ScenarioGenerator(
+			createProperties(nFlights,5L)).initialize().getFlights();
+		IFlight[] other = new ScenarioGenerator(
+			createProperties(nFlights,6L)).initialize().getFlights();
+		assertTrue(flights.length == nFlights && again.length == nFlights &&
+			other.length == nFlights);
+		boolean differ = false;
+		for(int i=0;i<nFlights;i++){
+			for(IFlight.Param p : params){
+				assertTrue(flights[i].get(p) == again[i].get(p));
+				differ |= flights[i].get(p) != other[i].get(p);
+			}
+		}
+		assertTrue(differ);
+
+		boolean[] hubs = gen.getHubs();
+		int hubLegs = 0;
+		for(int i=0;i<nFlights;i++){
+			IFlight f = flights[i];
+			assertTrue(f.get(IFlight.Param.SCHED_ID) == i+1);
+			assertTrue(f.get(IFlight.Param.DEP_APRT) != f.get(IFlight.Param.ARR_APRT));
+			assertTrue(f.get(IFlight.Param.SCHED_OUT_TIME) % 60 == 0);
+			assertTrue(f.get(IFlight.Param.SCHED_IN_TIME) ==
+				f.get(IFlight.Param.SCHED_OUT_TIME) +
+				f.get(IFlight.Param.TAXI_OUT_TIME) +
+				f.get(IFlight.Param.ACT_AIR_TIME) +
+				f.get(IFlight.Param.TAXI_IN_TIME));
+			IFlight prev = f.getPrevLeg();
+			if(f.get(IFlight.Param.LEG_NUM) == 1){
+				assertTrue(prev == null);
+			} else {
+				assertTrue(prev == flights[i-1] && prev.getNextLeg() == f);
+				assertTrue(prev.get(IFlight.Param.ITIN_NUM) == f.get(IFlight.Param.ITIN_NUM));
+				assertTrue(prev.get(IFlight.Param.ARR_APRT) == f.get(IFlight.Param.DEP_APRT));
+				assertTrue(f.get(IFlight.Param.SCHED_OUT_TIME) ==
+					prev.get(IFlight.Param.SCHED_IN_TIME) +
+					prev.get(IFlight.Param.TURN_TIME));
+			}
+			if(hubs[f.get(IFlight.Param.DEP_APRT)] ||
+				hubs[f.get(IFlight.Param.ARR_APRT)])hubLegs++;
+		}
+		assertTrue(hubLegs > 0.8*nFlights);
+		assertTrue(flights[nFlights-1].get(IFlight.Param.ITIN_NUM) == gen.getNumItins());
+
+		// Modeled airports have capacities; hubs compute their rates.
+		boolean[] modeled = gen.getModeledAirports();
+		int nModeled = 0;
+		for(int a=0;a<modeled.length;a++){
+			if(!modeled[a]){
+				assertTrue(gen.getParetoCurves()[a] == null);
+				continue;
+			}
+			nModeled++;
+			assertTrue(gen.getParetoCurves()[a].length == Nas.Mc.values().length);
+			assertTrue(gen.getChangeCapacities()[a][0][0] == 0);
+			assertTrue(gen.getCalledRates()[a].length == ScenarioGenerator.NUM_EPOCHS);
+		}
+		assertTrue(nModeled > 12 && nModeled <= 30);
+		assertTrue(gen.getComputeRatesAirports().split(",").length == 12);
+	}
+
+	/**
+	 * Test that the NASPAC files read back as the generated scenario.
+	 */
+	@Test
+	public void testWriteNaspacFiles() throws IOException {
+		ScenarioGenerator gen = new ScenarioGenerator(createProperties(3000,8L));
+		IFlight[] flights = gen.initialize().getFlights();
+		gen.writeNaspacFiles(dir);
+		Nas nas = Nas.getInstance();
+
+		IFlight[] read = NaspacBridge.readFlightsFromFCnVFRFiles(nas,
+			ScenarioGenerator.getNaspacFile(dir,ScenarioGenerator.NaspacFile.FIND_CROSSINGS),
+			ScenarioGenerator.getNaspacFile(dir,ScenarioGenerator.NaspacFile.VFR_FLIGHTS));
+		assertTrue(NaspacBridge.addSchedIdsToFlights(ScenarioGenerator.getNaspacFile(
+			dir,ScenarioGenerator.NaspacFile.ITIN_MAP),read));
+		assertTrue(read.length == flights.length);
+		Arrays.sort(read);
+		IFlight.Param[] ps = {IFlight.Param.ITIN_NUM,IFlight.Param.LEG_NUM,
+			IFlight.Param.SCHED_ID,IFlight.Param.CARRIER,IFlight.Param.EQUIP_TYPE,
+			IFlight.Param.DEP_APRT,IFlight.Param.ARR_APRT,
+			IFlight.Param.SCHED_OUT_TIME,IFlight.Param.SCHED_IN_TIME,
+			IFlight.Param.ACT_AIR_TIME,IFlight.Param.DEP_FIX,IFlight.Param.ARR_FIX};
+		for(int i=0;i<flights.length;i++){
+			for(IFlight.Param p : ps)assertTrue(read[i].get(p) == flights[i].get(p));
+		}
+
+		boolean[] modeled = gen.getModeledAirports();
+		int[] modeledAprts = NaspacBridge.readModeledAirports(nas,
+			ScenarioGenerator.getNaspacFile(dir,ScenarioGenerator.NaspacFile.MODELED_AIRPORTS));
+		int n = 0;
+		for(int a=0;a<modeled.length;a++){
+			if(modeled[a])assertTrue(modeledAprts[n++] == a);
+		}
+		assertTrue(n == modeledAprts.length);
+
+		double[][][][] pareto = NaspacBridge.readParetoCurves(nas,
+			ScenarioGenerator.getNaspacFile(dir,ScenarioGenerator.NaspacFile.PARETO));
+		int[][][] changeCaps = NaspacBridge.readChangeCapacities(nas,
+			ScenarioGenerator.getNaspacFile(dir,ScenarioGenerator.NaspacFile.CHANGE_CAP));
+		int[][][] rates = NaspacBridge.readAspmAcceptanceRates(nas,
+			new SQLDate2("2008-07-10 00:00:00",SQLDate2.Element.ss),
+			ScenarioGenerator.getNaspacFile(dir,ScenarioGenerator.NaspacFile.ASPM_RATES));
+		for(int a=0;a<modeled.length;a++){
+			assertTrue(Arrays.deepEquals(pareto[a],gen.getParetoCurves()[a]));
+			assertTrue(Arrays.deepEquals(changeCaps[a],gen.getChangeCapacities()[a]));
+			assertTrue(Arrays.deepEquals(rates[a],gen.getCalledRates()[a]));
+		}
+
+		int[][] fixDelays = NaspacBridge.readFixDelaysFromFile(nas,
+			ScenarioGenerator.getNaspacFile(dir,ScenarioGenerator.NaspacFile.DEP_FIX_DELAYS),
+			ScenarioGenerator.getNaspacFile(dir,ScenarioGenerator.NaspacFile.ARR_FIX_DELAYS));
+		for(Nas.Ad ad : Nas.Ad.values()){
+			int[] delays = fixDelays[ad.ordinal()];
+			assertTrue(delays.length == nas.getNumFixes(ad));
+			for(int i=1;i<delays.length;i++){
+				assertTrue(delays[i] == ScenarioGenerator.DEFAULT_FIX_MIN_TIME_SPACING);
+			}
+		}
+	}
+
+	/**
+	 * Test that the written schedule loads through the ScheduleBridge as
+	 * the generated flights.
+	 */
+	@Test
+	public void testWriteSchedule() throws IOException {
+		ScenarioGenerator gen = new ScenarioGenerator(createProperties(3000,9L));
+		IFlight[] flights = gen.initialize().getFlights();
+		Nas nas = Nas.getInstance();
+		String[][] names = new String[flights.length][];
+		for(int i=0;i<flights.length;i++)names[i] = names(nas,flights[i]);
+
+		File propsFile = gen.writeSchedule(dir);
+		IFlight[] read = new ScheduleBridge(propsFile).initialize().getFlights();
+		nas = Nas.getInstance();
+		assertTrue(read.length == flights.length);
+		IFlight.Param[] ps = {IFlight.Param.ITIN_NUM,IFlight.Param.LEG_NUM,
+			IFlight.Param.SCHED_ID,IFlight.Param.SCHED_OUT_TIME,
+			IFlight.Param.SCHED_IN_TIME,IFlight.Param.ACT_AIR_TIME,
+			IFlight.Param.TURN_TIME,IFlight.Param.PUSHBACK_TIME,
+			IFlight.Param.TAXI_OUT_TIME,IFlight.Param.TAXI_IN_TIME};
+		for(int i=0;i<flights.length;i++){
+			for(IFlight.Param p : ps)assertTrue(read[i].get(p) == flights[i].get(p));
+			assertTrue(Arrays.equals(names(nas,read[i]),names[i]));
+			assertTrue((read[i].getPrevLeg() == null) ==
+				(flights[i].getPrevLeg() == null));
+		}
+	}
+
+	private static String[] names(Nas nas, IFlight f){
+		return new String[]{
+			nas.getCarrierFromIndex(f.get(IFlight.Param.CARRIER)),
+			nas.getEquipTypeFromIndex(f.get(IFlight.Param.EQUIP_TYPE)),
+			nas.getAirportFromIndex(f.get(IFlight.Param.DEP_APRT)),
+			nas.getAirportFromIndex(f.get(IFlight.Param.ARR_APRT)),
+			nas.getFixNameFromIndex(Nas.Ad.DEP,f.get(IFlight.Param.DEP_FIX)),
+			nas.getFixNameFromIndex(Nas.Ad.ARR,f.get(IFlight.Param.ARR_FIX))};
+	}
+
+	/**
+	 * Test that bad properties are rejected.
+	 */
+	@Test
+	public void testBadProperties(){
+		Properties props = createProperties(100,1L);
+		props.remove("numFlights");
+		boolean thrown = false;
+		try{
+			new ScenarioGenerator(props);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+
+		props = createProperties(100,1L);
+		props.setProperty("numAirports","1");
+		thrown = false;
+		try{
+			new ScenarioGenerator(props);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+
+		thrown = false;
+		try{
+			new ScenarioGenerator(createProperties(100,1L)).writeSchedule(dir);
+		}catch(IllegalStateException ise){
+			thrown = true;
+		}catch(IOException ioe){
+		}
+		assertTrue(thrown);
+	}
+}
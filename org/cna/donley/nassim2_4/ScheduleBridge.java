@@ -0,0 +1,713 @@
+package org.cna.donley.nassim2_4;
+
+import org.cna.donley.jdbc.SQLDate2;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This is an implementation of the {@link ISimInitializer} interface
+ * that reads the flights from a single delimited schedule file rather
+ * than from the NASPAC preprocessor output.  Each line is one flight leg
+ * with all of its parameters already resolved, so no other flight files
+ * are needed.  It is meant for synthetic or externally generated demand
+ * sets, which can be millions of flights.
+ * <p>
+ * The line format is given by the {@link Col} enum, in that order:
+ * itin_num, leg_num, sched_id, carrier, equip_type, dep_aprt, arr_aprt,
+ * sched_out_time, sched_in_time, act_air_time, turn_time, pushback_time,
+ * taxi_out_time, taxi_in_time, dep_fix, arr_fix.  Times are in seconds
+ * from midnight of the base day.  Carrier and equipment type may be
+ * empty, in which case they are -1 as for NASPAC VFR flights.  An empty
+ * schedule ID is given a negative one of its own, as the
+ * {@link NaspacBridge} does for the VFR legs of a split IFR flight, so the
+ * leg is not counted as scheduled but can still be told apart; no two
+ * legs may have the same schedule ID.  An empty fix is mapped to the fix
+ * {@link #NO_FIX}.  Lines starting with "#" and blank lines are skipped.
+ * <p>
+ * The file is split into byte ranges at line boundaries and the ranges
+ * are parsed in parallel.  Each range keeps its own name to index
+ * dictionaries, which are merged into the {@link Nas} maps (in sorted
+ * order so the result doesn't depend on the number of threads) once all
+ * ranges are read.  The flights are then sorted and the legs of each
+ * itinerary linked in a final pass.  A gzip compressed schedule can't be
+ * split, so it is read as a single range.
+ * <p>
+ * Airport capacities are optional.  If the "calledRatesFile" property is
+ * set, it is read as an ASPM acceptance rate file; otherwise the runways
+ * have unlimited capacity.  Fixes all have the same minimum time spacing,
+ * the "fixMinTimeSpacing" property, zero if not set.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ScheduleBridge implements ISimInitializer
+{
+	/**
+	 * Columns of the schedule file, in order.
+	 */
+	public static enum Col {ITIN_NUM,LEG_NUM,SCHED_ID,CARRIER,EQUIP_TYPE,
+		DEP_APRT,ARR_APRT,SCHED_OUT_TIME,SCHED_IN_TIME,ACT_AIR_TIME,
+		TURN_TIME,PUSHBACK_TIME,TAXI_OUT_TIME,TAXI_IN_TIME,DEP_FIX,ARR_FIX};
+
+	/**
+	 * Name dictionaries built while parsing.  The index is used for the
+	 * dictionaries of each range and for the merged ones.
+	 */
+	private static enum Dict {APRT,CARRIER,EQUIP_TYPE,DEP_FIX,ARR_FIX};
+
+	/**
+	 * Flight parameter held by each name column.
+	 */
+	private static final IFlight.Param[] dictParam = {null,
+		IFlight.Param.CARRIER,IFlight.Param.EQUIP_TYPE,
+		IFlight.Param.DEP_FIX,IFlight.Param.ARR_FIX};
+
+	/**
+	 * Name of the fix used if the fix column is empty.
+	 */
+	public static final String NO_FIX = "NONE";
+
+	/**
+	 * Schedule ID of a leg whose ID column is empty, until it is given one.
+	 */
+	private static final int NO_SCHED_ID = Integer.MIN_VALUE;
+
+	/**
+	 * Smallest byte range worth handing to a thread. Units: bytes
+	 */
+	public static final long MIN_RANGE_BYTES = 1024*1024;
+
+	/**
+	 * Properties of this bridge.
+	 */
+	private Properties props = null;
+
+	/**
+	 * Name of class.
+	 */
+	private static String className = null;
+
+	/**
+	 * Constructor.  Takes a properties file of data specific to this
+	 * bridge and stores it in the local properties file.
+	 * @param schedPropsFileNPath File and path of the schedule bridge
+	 *   properties file.
+	 */
+	public ScheduleBridge(File schedPropsFileNPath){
+		className = this.getClass().getName();
+		props = new Properties();
+		if(!readModelInputProperties(schedPropsFileNPath,props)){
+			final String method = this.getClass().getName();
+			throw new IllegalArgumentException(method + ": problem reading " +
+				"properties file: " + schedPropsFileNPath);
+		}
+	}
+
+	/**
+	 * Reads the schedule, creates the {@link Nas} singleton, the flights,
+	 * and the airport and fix nodes, and routes the flights through them.
+	 * @return An object that implements the interface {@link ISimElements},
+	 *   or <code>null</code> if there is a problem.
+	 */
+	public ISimElements initialize(){
+		final String method = className + ".initialize()";
+
+		String baseDir = props.getProperty("baseDir");
+		String baseDay = props.getProperty("baseDay");
+		String forecastDay = props.getProperty("forecastDay");
+		File schedFileNPath = new File(baseDir + File.separator +
+			props.getProperty("scheduleFile"));
+		char delim = ',';
+		String delimStr = props.getProperty("delimiter");
+		if(delimStr != null && delimStr.length() > 0){
+			delimStr = delimStr.equals("\\t") ? "\t" : delimStr;
+			delim = delimStr.charAt(0);
+		}
+		int nThreads = Runtime.getRuntime().availableProcessors();
+		String nThreadsStr = props.getProperty("numThreads");
+		if(nThreadsStr != null && nThreadsStr.length() > 0){
+			nThreads = Integer.valueOf(nThreadsStr.trim());
+		}
+
+		//---------------------------------------------------------------------
+		// Read the flights.  Creates the Nas singleton.
+		//---------------------------------------------------------------------
+		// Each stage is a Flight Recorder event.
+		JfrLoaderStageEvent stage = JfrLoaderStageEvent.start(className,
+			"flights");
+		IFlight[] flights = readFlights(schedFileNPath,delim,nThreads,
+			MIN_RANGE_BYTES);
+		if(flights == null){
+			final String callMethod = className + ".readFlights()";
+			System.err.println(method + ": " + callMethod + " failed.");
+			return null;
+		}
+		Nas nas = Nas.getInstance();
+
+		//---------------------------------------------------------------------
+		// Airport capacities, if any.
+		//---------------------------------------------------------------------
+		stage = stage.next("calledRates");
+		int numAprts = nas.getNumAirports();
+		int[][][] calledRates = new int[numAprts][][];
+		String calledRatesFile = props.getProperty("calledRatesFile");
+		if(calledRatesFile != null && calledRatesFile.length() > 0){
+			File calledRatesFileNPath = new File(baseDir + File.separator +
+				calledRatesFile);
+			calledRates = NaspacBridge.readAspmAcceptanceRates(nas,
+				(new SQLDate2(baseDay,SQLDate2.Element.dd)),
+				calledRatesFileNPath);
+			if(calledRates == null){
+				final String callMethod = className +
+					".readAspmAcceptanceRates()";
+				System.err.println(method + ": " + callMethod + " failed.");
+				return null;
+			}
+		}
+		int fixMinTimeSpacing = 0;
+		String fixSpacingStr = props.getProperty("fixMinTimeSpacing");
+		if(fixSpacingStr != null && fixSpacingStr.length() > 0){
+			fixMinTimeSpacing = Integer.valueOf(fixSpacingStr.trim());
+		}
+
+		//------------------------------------------------------------------
+		// Create network nodes.
+		//------------------------------------------------------------------
+		stage = stage.next("nodes");
+		INode[] runways   = new Runway[numAprts];
+		INode[] taxiways  = new Taxiway[numAprts];
+		INode[] terminals = new Terminal[numAprts];
+		int startTime = 0;
+		for(int i=0;i<numAprts;i++){
+			runways[i] = new Runway(i,startTime,false,calledRates[i],
+				null,null,null);
+			taxiways[i] = new Taxiway(i,null,null);
+			terminals[i]= new Terminal(i,null,null);
+		}
+		INode[] depFixes = new Fix[nas.getNumFixes(Nas.Ad.DEP)];
+		INode[] arrFixes = new Fix[nas.getNumFixes(Nas.Ad.ARR)];
+		for(int i=0;i<depFixes.length;i++){
+			depFixes[i] = new Fix(i,Nas.Ad.DEP,fixMinTimeSpacing);
+		}
+		for(int i=0;i<arrFixes.length;i++){
+			arrFixes[i] = new Fix(i,Nas.Ad.ARR,fixMinTimeSpacing);
+		}
+
+		// Put nodes into a single array, in the same order as the
+		// NaspacBridge does.
+		INode[] nod = new INode[3*numAprts + depFixes.length +
+			arrFixes.length];
+		int count = 0;
+		INode[][] nodeTypes = {runways,terminals,taxiways,depFixes,arrFixes};
+		for(INode[] nt : nodeTypes){
+			for(int i=0;i<nt.length;i++)nod[count++] = nt[i];
+		}
+
+		//-----------------------------------------------------------------
+		// Create routes for flights based upon network nodes.
+		//-----------------------------------------------------------------
+		stage = stage.next("routes");
+		if(!NaspacBridge.createFlightRoutes(flights,terminals,taxiways,
+				runways,depFixes,arrFixes)){
+			final String callMethod = className + ".createFlightRoutes()";
+			System.err.println(method + ": " + callMethod + " failed.");
+			return null;
+		}
+		stage.finish();
+		return new SimElements(baseDay,forecastDay,flights,nod);
+	}
+
+	/**
+	 * Reads the flights from the schedule file and creates the {@link Nas}
+	 * singleton from the airports, carriers, equipment types and fixes
+	 * in it.  Any previous instance is destroyed.  The file is split into
+	 * byte ranges which are parsed in parallel.  The returned flights are
+	 * sorted and their legs linked.
+	 * @param schedFileNPath Schedule file and path.
+	 * @param delim Field delimiter.
+	 * @param nThreads Number of threads to parse with.
+	 * @param minRangeBytes Smallest byte range to give a thread.
+	 * @return Array of flights or <code>null</code> if there is an error
+	 *   reading the file.  Throws an {@link IllegalArgumentException} if
+	 *   a line is badly formatted.
+	 */
+	public static IFlight[] readFlights(File schedFileNPath, char delim,
+		int nThreads, long minRangeBytes){
+		final String method = className + ".readFlights()";
+		if(nThreads < 1){
+			throw new IllegalArgumentException(method + ": number of " +
+				"threads must be positive.");
+		}
+		ExecutorService exec = null;
+		try{
+			//---------------------------------------------------------------
+			// Parse byte ranges.
+			//---------------------------------------------------------------
+			long[] bounds = null;
+			if(schedFileNPath.getName().endsWith(NaspacBridge.GZIP_SUFFIX) ||
+				!schedFileNPath.exists()){
+				bounds = null;
+			} else {
+				long size = schedFileNPath.length();
+				int nRanges = (int)Math.max(1,
+					Math.min(nThreads,size/Math.max(1,minRangeBytes)));
+				bounds = computeRangeBounds(schedFileNPath,nRanges);
+			}
+			int nRanges = bounds == null ? 1 : bounds.length-1;
+			exec = Executors.newFixedThreadPool(Math.min(nThreads,nRanges));
+
+			List<Future<Range>> parsed = new ArrayList<Future<Range>>();
+			for(int k=0;k<nRanges;k++){
+				final File f = schedFileNPath;
+				final char d = delim;
+				final long start = bounds == null ? 0 : bounds[k];
+				final long end = bounds == null ? -1 : bounds[k+1];
+				parsed.add(exec.submit(new Callable<Range>(){
+					public Range call() throws IOException {
+						return parseRange(f,d,start,end);
+					}
+				}));
+			}
+			Range[] ranges = new Range[nRanges];
+			for(int k=0;k<nRanges;k++)ranges[k] = parsed.get(k).get();
+
+			//---------------------------------------------------------------
+			// Merge dictionaries and create Nas singleton.
+			//---------------------------------------------------------------
+			int nDicts = Dict.values().length;
+			String[][] names = new String[nDicts][];
+			for(int j=0;j<nDicts;j++){
+				TreeSet<String> set = new TreeSet<String>();
+				for(Range r : ranges)set.addAll(r.names.get(j));
+				names[j] = set.toArray(new String[set.size()]);
+			}
+			String[][] indxToFixMap = new String[2][];
+			indxToFixMap[Nas.Ad.DEP.ordinal()] = names[Dict.DEP_FIX.ordinal()];
+			indxToFixMap[Nas.Ad.ARR.ordinal()] = names[Dict.ARR_FIX.ordinal()];
+			Nas.destroyInstance();
+			Nas.createInstance(names[Dict.APRT.ordinal()],
+				names[Dict.CARRIER.ordinal()],names[Dict.EQUIP_TYPE.ordinal()],
+				indxToFixMap);
+			final Nas nas = Nas.getInstance();
+
+			//---------------------------------------------------------------
+			// Create flights, each range into its own part of the array.
+			//---------------------------------------------------------------
+			int nFlights = 0;
+			for(Range r : ranges)nFlights += r.pars.size();
+			final IFlight[] flights = new IFlight[nFlights];
+			List<Future<Boolean>> created = new ArrayList<Future<Boolean>>();
+			int offset = 0;
+			for(int k=0;k<nRanges;k++){
+				final Range r = ranges[k];
+				final int off = offset;
+				created.add(exec.submit(new Callable<Boolean>(){
+					public Boolean call(){
+						createFlights(nas,r,flights,off);
+						return Boolean.TRUE;
+					}
+				}));
+				offset += r.pars.size();
+			}
+			for(Future<Boolean> c : created)c.get();
+
+			//---------------------------------------------------------------
+			// Sort and link legs.
+			//---------------------------------------------------------------
+			Arrays.sort(flights);
+			linkLegs(flights);
+			assignSchedIds(flights);
+			return flights;
+
+		}catch(FileNotFoundException fnfe){
+			fnfe.printStackTrace();
+			return null;
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return null;
+		}catch(InterruptedException ie){
+			ie.printStackTrace();
+			return null;
+		}catch(ExecutionException ee){
+			Throwable cause = ee.getCause();
+			if(cause instanceof RuntimeException)throw (RuntimeException)cause;
+			cause.printStackTrace();
+			return null;
+		}finally{
+			if(exec != null)exec.shutdownNow();
+		}
+	}
+
+	/**
+	 * Links the legs of each itinerary.  The flights must be sorted, i.e.,
+	 * by itinerary number then leg number.  A leg is linked to the one
+	 * before it if they have the same itinerary number and consecutive
+	 * leg numbers.
+	 * @param flights Sorted array of flights.
+	 */
+	public static void linkLegs(IFlight[] flights){
+		for(int i=1;i<flights.length;i++){
+			IFlight prev = flights[i-1], cur = flights[i];
+			if(prev.get(IFlight.Param.ITIN_NUM) ==
+					cur.get(IFlight.Param.ITIN_NUM) &&
+				prev.get(IFlight.Param.LEG_NUM)+1 ==
+					cur.get(IFlight.Param.LEG_NUM)){
+				cur.setPrevLeg(prev);
+				prev.setNextLeg(cur);
+			}
+		}
+	}
+
+	/**
+	 * Gives each leg without a schedule ID the negative ID -(i+1), where i
+	 * is its index in the sorted flights, and checks that no two legs have
+	 * the same ID.  Throws an {@link IllegalArgumentException} if they do.
+	 * @param flights Sorted array of flights.
+	 */
+	static void assignSchedIds(IFlight[] flights){
+		int[] ids = new int[flights.length];
+		for(int i=0;i<flights.length;i++){
+			if(flights[i].get(IFlight.Param.SCHED_ID) == NO_SCHED_ID){
+				flights[i].set(IFlight.Param.SCHED_ID,-(i+1));
+			}
+			ids[i] = flights[i].get(IFlight.Param.SCHED_ID);
+		}
+		Arrays.sort(ids);
+		for(int i=1;i<ids.length;i++){
+			if(ids[i] == ids[i-1]){
+				final String method = className + ".assignSchedIds()";
+				throw new IllegalArgumentException(method + ": schedule ID, " +
+					ids[i] + ", is used by more than one leg.");
+			}
+		}
+	}
+
+	/**
+	 * Splits a file into byte ranges that start at the beginning of a line.
+	 * @param fileNPath File to split.
+	 * @param nRanges Wanted number of ranges.  There may be fewer if the
+	 *   lines are long compared to the ranges.
+	 * @return Start of each range followed by the length of the file.
+	 *   Units: bytes
+	 * @throws IOException if the file can't be read.
+	 */
+	public static long[] computeRangeBounds(File fileNPath, int nRanges)
+		throws IOException {
+		long size = fileNPath.length();
+		List<Long> bounds = new ArrayList<Long>();
+		bounds.add(0L);
+		RandomAccessFile raf = null;
+		try{
+			raf = new RandomAccessFile(fileNPath,"r");
+			byte[] buf = new byte[256];
+			for(int k=1;k<nRanges;k++){
+				long pos = Math.max(k*size/nRanges,bounds.get(bounds.size()-1));
+				// Move to just past the next end of line.
+				raf.seek(pos);
+				boolean found = false;
+				int n = 0;
+				while(!found && (n = raf.read(buf)) > 0){
+					for(int i=0;i<n;i++){
+						if(buf[i] == '\n'){
+							pos += i+1;
+							found = true;
+							break;
+						}
+					}
+					if(!found)pos += n;
+				}
+				if(pos < size && pos > bounds.get(bounds.size()-1)){
+					bounds.add(pos);
+				}
+			}
+		}finally{
+			if(raf != null)raf.close();
+		}
+		bounds.add(size);
+		long[] b = new long[bounds.size()];
+		for(int i=0;i<b.length;i++)b[i] = bounds.get(i);
+		return b;
+	}
+
+	/**
+	 * Flights parsed from one byte range of the schedule file.  Names are
+	 * held as indices into the range's own dictionaries until they are
+	 * merged.
+	 */
+	private static final class Range {
+		/** Flight parameters, one array per flight. */
+		final List<int[]> pars = new ArrayList<int[]>();
+		/** Name dictionaries of this range, indexed by {@link Dict}. */
+		final List<List<String>> names = new ArrayList<List<String>>();
+		/** Maps from name to index into the above. */
+		final List<Map<String,Integer>> indices =
+			new ArrayList<Map<String,Integer>>();
+		Range(){
+			for(int j=0;j<Dict.values().length;j++){
+				names.add(new ArrayList<String>());
+				indices.add(new HashMap<String,Integer>());
+			}
+		}
+		/**
+		 * Index of a name in one of the dictionaries, adding it if new.
+		 * An empty name is -1.
+		 */
+		int index(Dict d, String name){
+			if(name.length() == 0)return -1;
+			Map<String,Integer> m = indices.get(d.ordinal());
+			Integer indx = m.get(name);
+			if(indx == null){
+				List<String> l = names.get(d.ordinal());
+				indx = l.size();
+				l.add(name);
+				m.put(name,indx);
+			}
+			return indx.intValue();
+		}
+	}
+
+	/**
+	 * Parses the lines of one byte range of the schedule file.
+	 * @param schedFileNPath Schedule file and path.
+	 * @param delim Field delimiter.
+	 * @param start Start of the range. Units: bytes
+	 * @param end End of the range (exclusive) or -1 to read the whole file.
+	 * @return Parsed flights.
+	 * @throws IOException if the file can't be read.
+	 */
+	private static Range parseRange(File schedFileNPath, char delim,
+		long start, long end) throws IOException {
+		final String method = className + ".parseRange()";
+		Range r = new Range();
+		int nCols = Col.values().length;
+		int nPars = IFlight.Param.values().length;
+		String[] ss = new String[nCols];
+		BufferedReader br = null;
+		try{
+			if(end < 0){
+				br = NaspacBridge.openReader(schedFileNPath);
+			} else {
+				FileInputStream fis = new FileInputStream(schedFileNPath);
+				fis.getChannel().position(start);
+				br = new BufferedReader(new InputStreamReader(
+					new RangeInputStream(fis,end-start)),64*1024);
+			}
+			String line = null;
+			while((line = br.readLine()) != null){
+				if(line.length() == 0 || line.charAt(0) == '#')continue;
+				// Split without a regex.
+				int n = 0, from = 0, to = 0;
+				while(n < nCols && (to = line.indexOf(delim,from)) >= 0){
+					ss[n++] = line.substring(from,to).trim();
+					from = to + 1;
+				}
+				if(n < nCols)ss[n++] = line.substring(from).trim();
+				if(n != nCols || line.indexOf(delim,from) >= 0){
+					throw new IllegalArgumentException(method + ": line: \"" +
+						line + "\", does not have " + nCols + " fields.");
+				}
+
+				int[] pars = new int[nPars];
+				pars[IFlight.Param.ITIN_NUM.ordinal()] =
+					Integer.parseInt(ss[Col.ITIN_NUM.ordinal()]);
+				pars[IFlight.Param.LEG_NUM.ordinal()] =
+					Integer.parseInt(ss[Col.LEG_NUM.ordinal()]);
+				pars[IFlight.Param.SCHED_ID.ordinal()] =
+					ss[Col.SCHED_ID.ordinal()].length() == 0 ? NO_SCHED_ID :
+					Integer.parseInt(ss[Col.SCHED_ID.ordinal()]);
+				pars[IFlight.Param.CARRIER.ordinal()] =
+					r.index(Dict.CARRIER,ss[Col.CARRIER.ordinal()]);
+				pars[IFlight.Param.EQUIP_TYPE.ordinal()] =
+					r.index(Dict.EQUIP_TYPE,ss[Col.EQUIP_TYPE.ordinal()]);
+				pars[IFlight.Param.DEP_APRT.ordinal()] =
+					r.index(Dict.APRT,ss[Col.DEP_APRT.ordinal()]);
+				pars[IFlight.Param.ARR_APRT.ordinal()] =
+					r.index(Dict.APRT,ss[Col.ARR_APRT.ordinal()]);
+				if(pars[IFlight.Param.DEP_APRT.ordinal()] < 0 ||
+					pars[IFlight.Param.ARR_APRT.ordinal()] < 0){
+					throw new IllegalArgumentException(method + ": line: \"" +
+						line + "\", is missing an airport.");
+				}
+				int schedOutTime =
+					Integer.parseInt(ss[Col.SCHED_OUT_TIME.ordinal()]);
+				pars[IFlight.Param.SCHED_OUT_TIME.ordinal()] = schedOutTime;
+				pars[IFlight.Param.MIN_OUT_TIME.ordinal()] = schedOutTime;
+				pars[IFlight.Param.SCHED_IN_TIME.ordinal()] =
+					Integer.parseInt(ss[Col.SCHED_IN_TIME.ordinal()]);
+				pars[IFlight.Param.ACT_AIR_TIME.ordinal()] =
+					Integer.parseInt(ss[Col.ACT_AIR_TIME.ordinal()]);
+				pars[IFlight.Param.TURN_TIME.ordinal()] =
+					Integer.parseInt(ss[Col.TURN_TIME.ordinal()]);
+				pars[IFlight.Param.PUSHBACK_TIME.ordinal()] =
+					Integer.parseInt(ss[Col.PUSHBACK_TIME.ordinal()]);
+				pars[IFlight.Param.TAXI_OUT_TIME.ordinal()] =
+					Integer.parseInt(ss[Col.TAXI_OUT_TIME.ordinal()]);
+				pars[IFlight.Param.TAXI_IN_TIME.ordinal()] =
+					Integer.parseInt(ss[Col.TAXI_IN_TIME.ordinal()]);
+				String depFix = ss[Col.DEP_FIX.ordinal()];
+				String arrFix = ss[Col.ARR_FIX.ordinal()];
+				pars[IFlight.Param.DEP_FIX.ordinal()] = r.index(Dict.DEP_FIX,
+					depFix.length() == 0 ? NO_FIX : depFix);
+				pars[IFlight.Param.ARR_FIX.ordinal()] = r.index(Dict.ARR_FIX,
+					arrFix.length() == 0 ? NO_FIX : arrFix);
+				r.pars.add(pars);
+			}
+		}finally{
+			if(br != null)br.close();
+		}
+		return r;
+	}
+
+	/**
+	 * Creates the flights of one range, mapping the range's name indices
+	 * to those of the {@link Nas} singleton.
+	 * @param nas Instance of {@link Nas}.
+	 * @param r Parsed range.
+	 * @param flights Array of all flights.
+	 * @param offset Index in the flights array of the range's first flight.
+	 */
+	private static void createFlights(Nas nas, Range r, IFlight[] flights,
+		int offset){
+		int nDicts = Dict.values().length;
+		int[][] toNas = new int[nDicts][];
+		for(int j=0;j<nDicts;j++){
+			List<String> l = r.names.get(j);
+			toNas[j] = new int[l.size()];
+			for(int i=0;i<l.size();i++){
+				String name = l.get(i);
+				if(j == Dict.APRT.ordinal()){
+					toNas[j][i] = nas.getAirportIndex(name);
+				}else if(j == Dict.CARRIER.ordinal()){
+					toNas[j][i] = nas.getCarrierIndex(name);
+				}else if(j == Dict.EQUIP_TYPE.ordinal()){
+					toNas[j][i] = nas.getEquipTypeIndex(name);
+				}else if(j == Dict.DEP_FIX.ordinal()){
+					toNas[j][i] = nas.getFixIndex(Nas.Ad.DEP,name);
+				}else {
+					toNas[j][i] = nas.getFixIndex(Nas.Ad.ARR,name);
+				}
+			}
+		}
+		int[] aprtMap = toNas[Dict.APRT.ordinal()];
+		for(int i=0;i<r.pars.size();i++){
+			int[] pars = r.pars.get(i);
+			pars[IFlight.Param.DEP_APRT.ordinal()] =
+				aprtMap[pars[IFlight.Param.DEP_APRT.ordinal()]];
+			pars[IFlight.Param.ARR_APRT.ordinal()] =
+				aprtMap[pars[IFlight.Param.ARR_APRT.ordinal()]];
+			for(int j=1;j<nDicts;j++){
+				int p = dictParam[j].ordinal();
+				if(pars[p] >= 0)pars[p] = toNas[j][pars[p]];
+			}
+			flights[offset+i] = new Flight(pars);
+			// Let the parsed array go as soon as it is copied.
+			r.pars.set(i,null);
+		}
+	}
+
+	/**
+	 * Input stream that reads only a given number of bytes from the
+	 * underlying stream.
+	 */
+	static final class RangeInputStream extends FilterInputStream {
+		private long remaining;
+		RangeInputStream(InputStream in, long length){
+			super(in);
+			remaining = length;
+		}
+		@Override
+		public int read() throws IOException {
+			if(remaining <= 0)return -1;
+			int b = super.read();
+			if(b >= 0)remaining--;
+			return b;
+		}
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(remaining <= 0)return -1;
+			int n = super.read(b,off,(int)Math.min(len,remaining));
+			if(n > 0)remaining -= n;
+			return n;
+		}
+		@Override
+		public long skip(long n) throws IOException {
+			long s = super.skip(Math.min(n,remaining));
+			remaining -= s;
+			return s;
+		}
+		@Override
+		public int available() throws IOException {
+			return (int)Math.min(super.available(),remaining);
+		}
+	}
+
+	/**
+	 * Reads the bridge properties from a file.  If needed properties are
+	 * not set, the method prints a description and returns
+	 * <code>false</code>.
+	 * @param propsFileNPath  The properties file and where it is.
+	 * @param props contains bridge properties.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public static boolean readModelInputProperties(File propsFileNPath,
+			Properties props){
+		final String method = className + ".readModelInputProperties()";
+		if(props == null){
+			System.err.println(method + " :props object is null");
+			return false;
+		}
+		FileInputStream fis = null;
+		try{
+			fis = new FileInputStream(propsFileNPath);
+			props.load(fis);
+		} catch(FileNotFoundException fnfe){
+			fnfe.printStackTrace();
+			return false;
+		} catch(IOException ioe){
+			ioe.printStackTrace();
+			return false;
+		} finally{
+			try{
+				if(fis != null)fis.close();
+			}catch(IOException e){
+				e.printStackTrace();
+				return false;
+			}
+		}
+		String[] propertyNames = {"baseDir","baseDay","forecastDay",
+			"scheduleFile"};
+		boolean success = true;
+		String prop = null;
+		for(int i=0;i<propertyNames.length;i++){
+			prop = props.getProperty(propertyNames[i]);
+			if(prop == null){
+				success = false;
+				System.err.println("Warning: " + method + ": " + propertyNames[i] + " is null.");
+			}
+			else if(prop.equals("")){
+				success = false;
+				System.err.println("Warning: " + method + ": " + propertyNames[i] + " is not set.");
+			}
+		}
+		return success;
+	}
+}
@@ -0,0 +1,200 @@
+package org.cna.donley.nassim2_4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the ScheduleBridge class.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ScheduleBridgeTest
+{
+	private static final String[] aprts = {"ORD","ATL","DFW","BOS","LAX"};
+
+	/**
+	 * Writes a schedule of nItins itineraries of three legs each, with the
+	 * itineraries in reverse order so the bridge has to sort them.
+	 */
+	private static File writeSchedule(int nItins) throws IOException {
+		File f = File.createTempFile("schedule", ".csv");
+		PrintWriter pw = new PrintWriter(f);
+		pw.println("# itin,leg,sched_id,carrier,equip,dep,arr,out,in," +
+			"air,turn,push,taxi_out,taxi_in,dep_fix,arr_fix");
+		for(int i=nItins-1;i>=0;i--){
+			for(int leg=1;leg<=3;leg++){
+				String dep = aprts[(i+leg-1)%aprts.length];
+				String arr = aprts[(i+leg)%aprts.length];
+				int out = 3600*leg + i;
+				// Every tenth itinerary is VFR with no fixes.
+				boolean vfr = i%10 == 0;
+				pw.println(i + "," + leg + "," + (100*i+leg) + "," +
+					(vfr ? "" : "C" + (i%7)) + "," + (vfr ? "" : "E" + (i%3)) +
+					"," + dep + "," + arr + "," + out + "," + (out+3000) +
+					",2400,1800,60,600,300," + (vfr ? "" : "D" + dep) + "," +
+					(vfr ? "" : "A" + arr));
+			}
+			if(i%50 == 0)pw.println();
+		}
+		pw.close();
+		return f;
+	}
+
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+	}
+
+	/**
+	 * Test of computeRangeBounds().  Every bound except the first and last
+	 * must be just past an end of line.
+	 */
+	@Test
+	public void testComputeRangeBounds() throws IOException {
+		File f = writeSchedule(1000);
+		byte[] bytes = new byte[(int)f.length()];
+		java.io.FileInputStream fis = new java.io.FileInputStream(f);
+		int n = 0;
+		while(n < bytes.length)n += fis.read(bytes,n,bytes.length-n);
+		fis.close();
+		int[] nRanges = {1,2,3,7,64};
+		for(int k=0;k<nRanges.length;k++){
+			long[] b = ScheduleBridge.computeRangeBounds(f,nRanges[k]);
+			assertTrue(b[0] == 0);
+			assertTrue(b[b.length-1] == f.length());
+			assertTrue(b.length-1 <= nRanges[k]);
+			for(int i=1;i<b.length-1;i++){
+				assertTrue(b[i] > b[i-1]);
+				assertTrue(bytes[(int)b[i]-1] == '\n');
+			}
+		}
+		f.delete();
+	}
+
+	/**
+	 * Test of readFlights().  The result must be the same for one and
+	 * several threads, sorted and with the legs linked.
+	 */
+	@Test
+	public void testReadFlights(){
+		File f = null;
+		try{
+			f = writeSchedule(1000);
+		}catch(IOException ioe){
+			assertTrue(false);
+		}
+		IFlight[] single = ScheduleBridge.readFlights(f,',',1,1);
+		assertTrue(single != null && single.length == 3000);
+		Nas nas = Nas.getInstance();
+		int numAprts = nas.getNumAirports();
+		int numDepFixes = nas.getNumFixes(Nas.Ad.DEP);
+		String[] aprtNames = new String[numAprts];
+		for(int i=0;i<numAprts;i++)aprtNames[i] = nas.getAirportFromIndex(i);
+		assertTrue(numAprts == aprts.length);
+		for(int i=1;i<numAprts;i++){
+			assertTrue(aprtNames[i-1].compareTo(aprtNames[i]) < 0);
+		}
+		// VFR flights use the placeholder fix.
+		assertTrue(nas.getFixIndex(Nas.Ad.DEP,ScheduleBridge.NO_FIX) >= 0);
+		assertTrue(numDepFixes == aprts.length+1);
+
+		IFlight[] multi = ScheduleBridge.readFlights(f,',',4,1);
+		assertTrue(multi != null && multi.length == single.length);
+		nas = Nas.getInstance();
+		for(int i=0;i<numAprts;i++){
+			assertTrue(aprtNames[i].equals(nas.getAirportFromIndex(i)));
+		}
+		for(int i=0;i<single.length;i++){
+			for(IFlight.Param p : IFlight.Param.values()){
+				assertTrue(single[i].get(p) == multi[i].get(p));
+			}
+		}
+
+		for(int i=0;i<multi.length;i++){
+			IFlight fl = multi[i];
+			int itin = fl.get(IFlight.Param.ITIN_NUM);
+			int leg = fl.get(IFlight.Param.LEG_NUM);
+			assertTrue(itin == i/3 && leg == i%3 + 1);
+			assertTrue(fl.get(IFlight.Param.SCHED_ID) == 100*itin+leg);
+			assertTrue(nas.getAirportFromIndex(fl.get(IFlight.Param.DEP_APRT)).
+				equals(aprts[(itin+leg-1)%aprts.length]));
+			if(itin%10 == 0){
+				assertTrue(fl.get(IFlight.Param.CARRIER) == -1);
+				assertTrue(fl.get(IFlight.Param.EQUIP_TYPE) == -1);
+			} else {
+				assertTrue(nas.getCarrierFromIndex(
+					fl.get(IFlight.Param.CARRIER)).equals("C" + (itin%7)));
+			}
+			if(leg == 1)assertTrue(fl.getPrevLeg() == null);
+			else assertTrue(fl.getPrevLeg() == multi[i-1]);
+			if(leg == 3)assertTrue(fl.getNextLeg() == null);
+			else assertTrue(fl.getNextLeg() == multi[i+1]);
+		}
+		f.delete();
+	}
+
+	/**
+	 * Test that each leg has its own schedule ID: those given are kept,
+	 * those left empty are given negative ones, and two legs with the same
+	 * ID are rejected.
+	 */
+	@Test
+	public void testSchedIds() throws IOException {
+		String[] lines = {
+			"2,1,,,,ORD,ATL,0,3000,2400,1800,60,600,300,,",
+			"1,1,11,C1,E1,ORD,ATL,0,3000,2400,1800,60,600,300,DORD,AATL",
+			"1,2,,C1,E1,ATL,ORD,3600,6600,2400,1800,60,600,300,DATL,AORD",
+			"3,1,-9,,,ATL,BOS,0,3000,2400,1800,60,600,300,,"};
+		IFlight[] flights = ScheduleBridge.readFlights(
+			writeLines(lines),',',1,1);
+		assertTrue(flights != null && flights.length == 4);
+		int[] expected = {11,-2,-3,-9};
+		for(int i=0;i<flights.length;i++){
+			assertTrue(flights[i].get(IFlight.Param.SCHED_ID) == expected[i]);
+		}
+
+		// Given twice, or given the ID an empty one would get.
+		String[][] dups = {{lines[1],lines[2],lines[3].replace("-9","11")},
+			{lines[1],lines[2],lines[3].replace("-9","-2")}};
+		for(String[] d : dups){
+			Nas.destroyInstance();
+			boolean thrown = false;
+			try{
+				ScheduleBridge.readFlights(writeLines(d),',',1,1);
+			}catch(IllegalArgumentException iae){
+				thrown = true;
+			}
+			assertTrue(thrown);
+		}
+	}
+
+	/**
+	 * Writes lines to a temporary schedule file.
+	 */
+	private static File writeLines(String[] lines) throws IOException {
+		File f = File.createTempFile("schedule", ".csv");
+		f.deleteOnExit();
+		PrintWriter pw = new PrintWriter(f);
+		for(String line : lines)pw.println(line);
+		pw.close();
+		return f;
+	}
+
+	/**
+	 * Test that a line with the wrong number of fields is rejected.
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testBadLine() throws IOException {
+		File f = File.createTempFile("schedule", ".csv");
+		f.deleteOnExit();
+		PrintWriter pw = new PrintWriter(f);
+		pw.println("1,1,1,C1,E1,ORD,ATL,0,3000,2400,1800,60,600,300,DORD");
+		pw.close();
+		ScheduleBridge.readFlights(f,',',1,1);
+	}
+}
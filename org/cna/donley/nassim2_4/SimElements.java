@@ -18,7 +18,8 @@ public class SimElements implements ISimElements
 	/** array of NAS nodes */
 	private INode[] nodes = null;
 	/**
-	 * Constructor.
+	 * Constructor.  Each {@link Flight} is told its index in the flights
+	 * array, so that it can be released without a search.
 	 * @param baseDay
 	 * @param forecastDay
 	 * @param flights
@@ -30,6 +31,11 @@ public class SimElements implements ISimElements
     	this.forecastDay = forecastDay;
     	this.flights = flights;
     	this.nodes = nodes;
+    	for(int i=0;i<flights.length;i++){
+    		if(flights[i] instanceof Flight){
+    			((Flight)flights[i]).setElementIndex(i);
+    		}
+    	}
     }
     /** 
 	 *  Returns the base start day of the simulation.  Usually the sim
@@ -61,4 +67,28 @@ public class SimElements implements ISimElements
      * @return {@link INode} array.
      */
     public INode[] getNodes(){return nodes;}
+    /**
+     * Releases a flight, so that the container no longer holds on to it.
+     * Its element in the flights array is set to <code>null</code>.  A
+     * {@link Flight} is found by the index it was given by the latest
+     * container made with it, so only that container can release it.
+     * @param flight Flight to release.  Nothing is done if it is not
+     *   held.
+     */
+    public void releaseFlight(IFlight flight){
+    	if(flight instanceof Flight){
+    		int indx = ((Flight)flight).getElementIndex();
+    		if(indx >= 0 && indx < flights.length && flights[indx] == flight){
+    			flights[indx] = null;
+    		}
+    		return;
+    	}
+    	// Some other kind of flight, so search for it.
+    	for(int i=0;flight != null && i<flights.length;i++){
+    		if(flights[i] == flight){
+    			flights[i] = null;
+    			return;
+    		}
+    	}
+    }
 }
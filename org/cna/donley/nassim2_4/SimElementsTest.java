@@ -28,4 +28,32 @@ public class SimElementsTest
     	assertTrue(flights == si.getFlights());
     	assertTrue(nodes == si.getNodes());  	  	
     }	
+    
+    /**
+     * Test of releaseFlight().
+     */
+    @Test
+    public void testReleaseFlight()
+    {
+    	IFlight[] flights = new IFlight[3];
+    	for(int i=0;i<flights.length;i++){
+    		flights[i] = new Flight(new int[IFlight.Param.values().length]);
+    	}
+    	IFlight f1 = flights[1];
+    	SimElements si = new SimElements("20080828","20090825",flights,
+    		new INode[0]);
+    	assertTrue(((Flight)f1).getElementIndex() == 1);
+    	si.releaseFlight(f1);
+    	assertTrue(si.getFlights()[1] == null);
+    	assertTrue(si.getFlights()[0] != null && si.getFlights()[2] != null);
+    	// Not held, so nothing done.
+    	si.releaseFlight(f1);
+    	si.releaseFlight(new Flight(new int[IFlight.Param.values().length]));
+    	assertTrue(si.getFlights()[0] != null && si.getFlights()[2] != null);
+    	// Held by another container at another index.
+    	IFlight[] other = {flights[2],flights[0]};
+    	new SimElements("20080828","20090825",other,new INode[0]);
+    	si.releaseFlight(flights[0]);
+    	assertTrue(si.getFlights()[0] != null && other[1] != null);
+    }
 }
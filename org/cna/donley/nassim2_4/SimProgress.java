@@ -0,0 +1,240 @@
+package org.cna.donley.nassim2_4;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live progress of a {@link NasSimEventDriven} run, registered as an MBean
+ * so batch runs can be watched, and runaway scenarios killed, from JMX
+ * consoles and dashboards.
+ * <p>
+ * The sim thread is the only writer.  It counts completed legs as an
+ * {@link ILegListener} and calls {@link #update(int, long, int)} every
+ * {@link #UPDATE_INTERVAL} events, which sums the runway counters, finds
+ * the deepest runway queues and the rates over the sliding window, and
+ * publishes them in volatile fields.  JMX threads only read those fields,
+ * so there are no locks and the run pays for an update only once in
+ * {@link #UPDATE_INTERVAL} events.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class SimProgress implements SimProgressMBean, ILegListener
+{
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "SimProgress";
+
+	/** Events between updates.  A power of two. */
+	public static final int UPDATE_INTERVAL = 1024;
+
+	/** Length of the sliding window of the rates.  Units: seconds */
+	public static final int WINDOW_SECS = 10;
+
+	/** Domain of the MBean names. */
+	public static final String DOMAIN = "org.cna.donley.nassim2_4";
+
+	/** Number of the next MBean, so several sims can run in a process. */
+	private static final AtomicInteger nextId = new AtomicInteger(1);
+
+	/** Number of updates kept for the sliding window. */
+	private static final int NUM_SAMPLES = 256;
+
+	private final String baseDay;
+	private final int numFlights;
+	private final Runway[] runways;
+	private final int topN;
+
+	// Written by the sim thread only.
+	private int legsCompleted = 0;
+	private final long[] sampleNanos = new long[NUM_SAMPLES];
+	private final long[] sampleEvents = new long[NUM_SAMPLES];
+	private final int[] sampleLegs = new int[NUM_SAMPLES];
+	private int numSamples = 0;
+	private final int[] topDepth, topRunway, topAd;
+
+	// Published by the sim thread.
+	private volatile boolean running = false;
+	private volatile int simTime = 0, mainQueueSize = 0;
+	private volatile long eventsProcessed = 0;
+	private volatile double eventsPerSecond = 0.;
+	private volatile int departed = 0, arrived = 0, completed = 0;
+	private volatile String[] deepest = new String[0];
+	private volatile long secondsToCompletion = -1;
+
+	private ObjectName name = null;
+
+	/**
+	 * Constructor.
+	 * @param simElements Elements of the simulation.  The runways are found
+	 *   among the nodes.
+	 * @param topN Number of the deepest runway queues to report.
+	 */
+	public SimProgress(ISimElements simElements, int topN){
+		baseDay = simElements.getBaseDay();
+		numFlights = simElements.getFlights().length;
+		int n = 0;
+		for(INode node : simElements.getNodes())if(node instanceof Runway)n++;
+		runways = new Runway[n];
+		n = 0;
+		for(INode node : simElements.getNodes()){
+			if(node instanceof Runway)runways[n++] = (Runway)node;
+		}
+		this.topN = Math.max(0,topN);
+		topDepth = new int[this.topN];
+		topRunway = new int[this.topN];
+		topAd = new int[this.topN];
+	}
+
+	/**
+	 * Counts a completed leg.  Called on the sim thread.
+	 */
+	public void legCompleted(IFlight leg, int time){
+		legsCompleted++;
+	}
+
+	/**
+	 * Marks the start of the run.  Called on the sim thread.
+	 */
+	public void start(){
+		numSamples = 0;
+		running = true;
+		update(0,0,0);
+	}
+
+	/**
+	 * Publishes the progress.  Called on the sim thread.
+	 * @param time Current sim time.  Units: seconds
+	 * @param events Number of events processed.
+	 * @param queueSize Size of the main queue.
+	 */
+	public void update(int time, long events, int queueSize){
+		long now = System.nanoTime();
+		int dep = 0, arr = 0;
+		int nTop = 0;
+		for(int r=0;r<runways.length;r++){
+			dep += runways[r].getNumServed(Nas.Ad.DEP);
+			arr += runways[r].getNumServed(Nas.Ad.ARR);
+			for(Nas.Ad ad : Nas.Ad.values()){
+				int depth = runways[r].getQueue(ad).size();
+				if(depth == 0 || (nTop == topN &&
+					(topN == 0 || depth <= topDepth[topN-1])))continue;
+				// Insert in order, deepest first.
+				int k = nTop < topN ? nTop++ : topN-1;
+				while(k > 0 && topDepth[k-1] < depth){
+					topDepth[k] = topDepth[k-1];
+					topRunway[k] = topRunway[k-1];
+					topAd[k] = topAd[k-1];
+					k--;
+				}
+				topDepth[k] = depth;
+				topRunway[k] = r;
+				topAd[k] = ad.ordinal();
+			}
+		}
+
+		// Sliding window: the oldest sample no older than the window.
+		int head = numSamples % NUM_SAMPLES;
+		sampleNanos[head] = now;
+		sampleEvents[head] = events;
+		sampleLegs[head] = legsCompleted;
+		numSamples++;
+		int old = head;
+		int nBack = Math.min(numSamples,NUM_SAMPLES);
+		for(int i=1;i<nBack;i++){
+			int k = (head - i + NUM_SAMPLES) % NUM_SAMPLES;
+			if(now - sampleNanos[k] > WINDOW_SECS*1000000000L)break;
+			old = k;
+		}
+		double secs = (now - sampleNanos[old])/1.e9;
+		if(secs > 0.){
+			eventsPerSecond = (events - sampleEvents[old])/secs;
+			double legRate = (legsCompleted - sampleLegs[old])/secs;
+			secondsToCompletion = legRate > 0. ?
+				(long)Math.ceil((numFlights - legsCompleted)/legRate) : -1;
+		}
+
+		String[] names = new String[nTop];
+		Nas nas = Nas.getInstance();
+		for(int i=0;i<nTop;i++){
+			names[i] = nas.getAirportFromIndex(runways[topRunway[i]].getAirport()) +
+				" " + Nas.Ad.values()[topAd[i]] + " " + topDepth[i];
+		}
+		deepest = names;
+		departed = dep;
+		arrived = arr;
+		completed = legsCompleted;
+		mainQueueSize = queueSize;
+		simTime = time;
+		eventsProcessed = events;
+	}
+
+	/**
+	 * Publishes the progress at the end of the run.  Called on the sim
+	 * thread.
+	 * @param time Final sim time.  Units: seconds
+	 * @param events Number of events processed.
+	 * @param queueSize Size of the main queue.
+	 */
+	public void finish(int time, long events, int queueSize){
+		update(time,events,queueSize);
+		if(completed == numFlights)secondsToCompletion = 0;
+		running = false;
+	}
+
+	/**
+	 * Registers this as an MBean with the platform MBean server, named
+	 * "org.cna.donley.nassim2_4:type=SimProgress,name=baseDay-n", n being
+	 * a count of the sims in the process.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public boolean register(){
+		final String method = className + ".register()";
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			name = new ObjectName(DOMAIN + ":type=" + className + ",name=" +
+				baseDay + "-" + nextId.getAndIncrement());
+			server.registerMBean(this,name);
+		}catch(JMException jme){
+			System.err.println(method + ": " + jme.getMessage());
+			name = null;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Unregisters this MBean, if it is registered.
+	 */
+	public void unregister(){
+		if(name == null)return;
+		try{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}catch(JMException jme){
+			jme.printStackTrace();
+		}
+		name = null;
+	}
+
+	/**
+	 * @return Name of the MBean; <code>null</code> if not registered.
+	 */
+	public ObjectName getObjectName(){return name;}
+
+	public String getBaseDay(){return baseDay;}
+	public boolean isRunning(){return running;}
+	public int getSimTime(){return simTime;}
+	public long getEventsProcessed(){return eventsProcessed;}
+	public double getEventsPerSecond(){return eventsPerSecond;}
+	public int getMainQueueSize(){return mainQueueSize;}
+	public int getNumFlights(){return numFlights;}
+	public int getFlightsDeparted(){return departed;}
+	public int getFlightsArrived(){return arrived;}
+	public int getFlightsCompleted(){return completed;}
+	public String[] getDeepestRunwayQueues(){return deepest.clone();}
+	public long getEstimatedSecondsToCompletion(){return secondsToCompletion;}
+}
@@ -0,0 +1,67 @@
+package org.cna.donley.nassim2_4;
+
+/**
+ * Management interface of {@link SimProgress}, the live progress of a
+ * simulation run, as seen from JMX consoles and dashboards.  Values are
+ * as of the last update by the sim thread, which is every
+ * {@link SimProgress#UPDATE_INTERVAL} events.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+
+public interface SimProgressMBean
+{
+	/**
+	 * @return Base day of the simulation, yyyymmdd.
+	 */
+	public String getBaseDay();
+	/**
+	 * @return <code>true</code> while the run is going on.
+	 */
+	public boolean isRunning();
+	/**
+	 * @return Current sim time.  Units: seconds from midnight of the base
+	 *   day.
+	 */
+	public int getSimTime();
+	/**
+	 * @return Number of events processed so far.
+	 */
+	public long getEventsProcessed();
+	/**
+	 * @return Events processed per second of wall time, over the last
+	 *   {@link SimProgress#WINDOW_SECS} seconds.
+	 */
+	public double getEventsPerSecond();
+	/**
+	 * @return Number of events in the main queue.
+	 */
+	public int getMainQueueSize();
+	/**
+	 * @return Number of flights, i.e., legs, in the simulation.
+	 */
+	public int getNumFlights();
+	/**
+	 * @return Number of legs that have taken off.
+	 */
+	public int getFlightsDeparted();
+	/**
+	 * @return Number of legs that have landed.
+	 */
+	public int getFlightsArrived();
+	/**
+	 * @return Number of legs that have parked at their arrival gate.
+	 */
+	public int getFlightsCompleted();
+	/**
+	 * @return The deepest runway queues, deepest first, as
+	 *   "airport DEP|ARR depth".
+	 */
+	public String[] getDeepestRunwayQueues();
+	/**
+	 * @return Estimated wall time until all legs are complete, from the
+	 *   rate legs completed over the last {@link SimProgress#WINDOW_SECS}
+	 *   seconds; -1 if it can't be estimated yet.  Units: seconds
+	 */
+	public long getEstimatedSecondsToCompletion();
+}
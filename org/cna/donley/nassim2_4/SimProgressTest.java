@@ -0,0 +1,100 @@
+package org.cna.donley.nassim2_4;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of the progress MBean of the sim.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class SimProgressTest
+{
+	@After
+	public void tearDown(){
+		Nas.destroyInstance();
+	}
+
+	/**
+	 * Test that a run registers an MBean whose attributes, read through the
+	 * MBean server, agree with the run at its end.
+	 */
+	@Test
+	public void testRun() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName pattern = new ObjectName(SimProgress.DOMAIN + ":type=SimProgress,*");
+		Set<ObjectName> before = server.queryNames(pattern,null);
+		EngineBenchmark.Bench b = EngineBenchmark.benchDay(3000);
+		b.setUp();
+		Set<ObjectName> names = new HashSet<ObjectName>(server.queryNames(pattern,null));
+		names.removeAll(before);
+		assertTrue(names.size() == 1);
+		ObjectName name = names.iterator().next();
+		assertTrue(server.getAttribute(name,"Running").equals(Boolean.FALSE));
+		assertTrue(server.getAttribute(name,"NumFlights").equals(3000));
+		long numEvents = b.run();
+
+		assertTrue(server.getAttribute(name,"Running").equals(Boolean.FALSE));
+		assertTrue(server.getAttribute(name,"EventsProcessed").equals(numEvents));
+		assertTrue(server.getAttribute(name,"MainQueueSize").equals(0));
+		assertTrue(server.getAttribute(name,"FlightsDeparted").equals(3000));
+		assertTrue(server.getAttribute(name,"FlightsArrived").equals(3000));
+		assertTrue(server.getAttribute(name,"FlightsCompleted").equals(3000));
+		assertTrue(server.getAttribute(name,"EstimatedSecondsToCompletion").equals(0L));
+		assertTrue((Integer)server.getAttribute(name,"SimTime") > 0);
+		assertTrue((Double)server.getAttribute(name,"EventsPerSecond") > 0.);
+		assertTrue(((String[])server.getAttribute(name,"DeepestRunwayQueues")).length == 0);
+		server.unregisterMBean(name);
+	}
+
+	/**
+	 * Test that the deepest runway queues are found, deepest first, and no
+	 * more than asked for.
+	 */
+	@Test
+	public void testDeepestRunwayQueues(){
+		Nas.destroyInstance();
+		Nas.createInstance(new String[]{"ATL","BOS","ORD"},
+			new String[]{"AAL"},new String[]{"B737"},null);
+		int[][] depths = {{3,0},{1,7},{0,5}};
+		INode[] nodes = new INode[depths.length];
+		for(int i=0;i<depths.length;i++){
+			Runway rw = new Runway(i,0,false,null,null,null,null);
+			for(Nas.Ad ad : Nas.Ad.values()){
+				for(int j=0;j<depths[i][ad.ordinal()];j++){
+					rw.getQueue(ad).add(new Flight(new int[IFlight.Param.values().length]));
+				}
+			}
+			nodes[i] = rw;
+		}
+		ISimElements se = new SimElements("20080710","20080710",new IFlight[4],nodes);
+
+		SimProgress p = new SimProgress(se,3);
+		p.update(100,2048,17);
+		String[] deepest = p.getDeepestRunwayQueues();
+		assertTrue(deepest.length == 3);
+		assertTrue(deepest[0].equals("BOS ARR 7"));
+		assertTrue(deepest[1].equals("ORD ARR 5"));
+		assertTrue(deepest[2].equals("ATL DEP 3"));
+		assertTrue(p.getSimTime() == 100);
+		assertTrue(p.getEventsProcessed() == 2048);
+		assertTrue(p.getMainQueueSize() == 17);
+		assertTrue(p.getNumFlights() == 4);
+
+		p = new SimProgress(se,10);
+		p.update(100,2048,17);
+		assertTrue(p.getDeepestRunwayQueues().length == 4);
+		assertTrue(p.getDeepestRunwayQueues()[3].equals("BOS DEP 1"));
+		p = new SimProgress(se,0);
+		p.update(100,2048,17);
+		assertTrue(p.getDeepestRunwayQueues().length == 0);
+	}
+}
@@ -0,0 +1,71 @@
+package org.cna.donley.nassim2_4;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary of strings to int codes, shared by the {@link ColumnTable}s
+ * of an analysis so that string columns of different tables can be joined
+ * and grouped by comparing codes.  As in Oracle, an empty string is the
+ * same as a null and has the code {@link ColumnTable#NULL}.
+ * <p>
+ * Thread safe, so tables can be loaded in parallel.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class StringDictionary
+{
+	private final Map<String,Integer> codes = new HashMap<String,Integer>();
+	private final List<String> names = new ArrayList<String>();
+
+	/**
+	 * Gets the code of a string, adding it if it is new.
+	 * @param s String.
+	 * @return the code; {@link ColumnTable#NULL} if the string is
+	 *   <code>null</code> or empty.
+	 */
+	public synchronized int getCode(String s){
+		if(s == null || s.length() == 0)return ColumnTable.NULL;
+		Integer code = codes.get(s);
+		if(code == null){
+			code = names.size();
+			codes.put(s,code);
+			names.add(s);
+		}
+		return code;
+	}
+
+	/**
+	 * Gets the string of a code.
+	 * @param code Code.
+	 * @return the string; <code>null</code> if the code is
+	 *   {@link ColumnTable#NULL}.
+	 */
+	public synchronized String getName(int code){
+		return code == ColumnTable.NULL ? null : names.get(code);
+	}
+
+	/**
+	 * @return Number of strings in the dictionary.
+	 */
+	public synchronized int size(){
+		return names.size();
+	}
+
+	/**
+	 * Compares the strings of two codes, as for sorting.  Nulls are last,
+	 * as in Oracle.
+	 * @param a Code.
+	 * @param b Code.
+	 * @return negative, zero or positive as the string of <code>a</code>
+	 *   is less than, equal to or greater than that of <code>b</code>.
+	 */
+	public int compare(int a, int b){
+		if(a == b)return 0;
+		if(a == ColumnTable.NULL)return 1;
+		if(b == ColumnTable.NULL)return -1;
+		return getName(a).compareTo(getName(b));
+	}
+}
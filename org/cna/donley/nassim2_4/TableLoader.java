@@ -0,0 +1,479 @@
+package org.cna.donley.nassim2_4;
+
+import org.cna.donley.jdbc.JDBCManager;
+import org.cna.donley.jdbc.SQLDate2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the flight output and schedule files into the database tables of
+ * {@link NasSimOutputAnalyzer}.  Instead of building every row of a file as
+ * boxed objects for <code>JDBCManager.populateTable()</code>, each line is
+ * bound straight to one reused <code>PreparedStatement</code> and the rows
+ * are inserted in JDBC batches, each committed when it is done.  Sim times
+ * are converted to timestamps by adding milliseconds to those of the base
+ * day, and schedule times by adding seconds to those of their day, so no
+ * <code>SQLDate2</code> is created per time.
+ * <p>
+ * The file is split into byte ranges as in {@link ScheduleBridge}, one per
+ * connection, and the ranges are loaded on their own connections in
+ * parallel.  Since batches are committed as they go, as rows were by
+ * <code>populateTable()</code>, a failed load leaves the batches done before
+ * it in the table.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class TableLoader
+{
+	/**
+	 * Source of database connections, so a loader can be run against any
+	 * database.
+	 */
+	public interface ConnectionSource {
+		/**
+		 * @return a new connection.
+		 * @throws SQLException if one can't be opened.
+		 */
+		Connection openConnection() throws SQLException;
+	}
+
+	/**
+	 * Default number of rows per batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/**
+	 * Number of columns of the flight output table, as in
+	 * {@link NasSimOutputAnalyzer#createFlightOutputTable(Properties, boolean, String, String, File, String)}.
+	 */
+	public static final int NUM_FLIGHT_OUTPUT_COLS = 32;
+
+	/**
+	 * Number of columns of the schedule table, as in
+	 * {@link NasSimOutputAnalyzer#createScheduleTable(Properties, boolean, String, String, File, String)}.
+	 */
+	public static final int NUM_SCHEDULE_COLS = 27;
+
+	/**
+	 * Name of class.
+	 */
+	private static final String className = "TableLoader";
+
+	private final ConnectionSource source;
+	private final int batchSize;
+	private final int numConnections;
+
+	/**
+	 * Constructor.
+	 * @param source Source of the connections.
+	 * @param batchSize Number of rows per batch.
+	 * @param numConnections Number of connections to load with at once.
+	 */
+	public TableLoader(ConnectionSource source, int batchSize,
+		int numConnections){
+		final String method = className + ".TableLoader()";
+		if(batchSize < 1 || numConnections < 1){
+			throw new IllegalArgumentException(method + ": batch size, " +
+				batchSize + ", and number of connections, " + numConnections +
+				", must be positive.");
+		}
+		this.source = source;
+		this.batchSize = batchSize;
+		this.numConnections = numConnections;
+	}
+
+	/**
+	 * Creates a loader of connections from <code>JDBCManager</code>, with
+	 * the "loadBatchSize" property batch size, by default
+	 * {@link #DEFAULT_BATCH_SIZE}, and the "loadConnections" property
+	 * number of connections, by default one.
+	 * @param props Database and load properties.
+	 * @return the loader.
+	 */
+	public static TableLoader create(final Properties props){
+		int batchSize = DEFAULT_BATCH_SIZE;
+		String s = props.getProperty("loadBatchSize");
+		if(s != null && s.length() > 0)batchSize = Integer.valueOf(s.trim());
+		int nConns = 1;
+		s = props.getProperty("loadConnections");
+		if(s != null && s.length() > 0)nConns = Integer.valueOf(s.trim());
+		return new TableLoader(new ConnectionSource(){
+			public Connection openConnection() throws SQLException {
+				return JDBCManager.openConnection(props,false);
+			}
+		},batchSize,nConns);
+	}
+
+	/**
+	 * @return Number of rows per batch.
+	 */
+	public int getBatchSize(){return batchSize;}
+
+	/**
+	 * @return Number of connections loaded with at once.
+	 */
+	public int getNumConnections(){return numConnections;}
+
+	/**
+	 * Loads the same flights and fields of a comma separated flight output
+	 * file into a table as
+	 * {@link NasSimOutputAnalyzer#createFlightOutputTable(Properties, boolean, String, String, File, String)}.
+	 * The first line is a header.  Flights must have an itinerary number, be
+	 * non-VFR and have a scheduled gate out time.
+	 * @param flightsFileNPath Flight output file and path.
+	 * @param baseDate Base date of the flights.
+	 * @param forecastDate Forecast date of the flights.
+	 * @param table Table, which must exist.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public boolean loadFlightOutput(final File flightsFileNPath,
+		final Timestamp baseDate, final Timestamp forecastDate, String table){
+		final long[] bounds = getBounds(flightsFileNPath);
+		if(bounds == null)return false;
+		return insert(table,NUM_FLIGHT_OUTPUT_COLS,bounds.length-1,new PartLoader(){
+			public void load(int part, Batch batch) throws IOException, SQLException {
+				LineTokenizer lt = openRange(flightsFileNPath,bounds[part],
+					bounds[part+1]);
+				try{
+					// Skip the header.
+					if(part == 0)lt.next();
+					PreparedStatement ps = batch.pstmt;
+					long baseMillis = baseDate.getTime();
+					while(lt.next()){
+						if(lt.length() == 0 || lt.charAt(0) == '#')continue;
+						if(lt.fieldEquals(0,"") || lt.intField(2) < 0 ||
+							lt.fieldEquals(7,""))continue;
+						ps.setTimestamp(1,baseDate);
+						ps.setTimestamp(2,forecastDate);
+						// Itinerary number, leg number and schedule id.
+						ps.setInt(3,lt.intField(0));
+						for(int k=1;k<3;k++)setInt(ps,4+k-1,lt,k);
+						// Carrier, aircraft type and airports.
+						for(int k=3;k<7;k++)ps.setString(3+k,lt.field(k));
+						// Times.
+						for(int k=7;k<16;k++){
+							ps.setTimestamp(3+k,
+								new Timestamp(baseMillis + 1000L*lt.intField(k)));
+						}
+						// Times and delays in minutes, then the airborne delay,
+						// which is not computed.
+						for(int k=16;k<23;k++)ps.setFloat(3+k,minutes(lt,k));
+						ps.setFloat(26,0.f);
+						for(int k=23;k<25;k++)ps.setFloat(4+k,minutes(lt,k));
+						// Fixes.
+						ps.setString(29,lt.field(25));
+						ps.setFloat(30,minutes(lt,26));
+						ps.setString(31,lt.field(27));
+						ps.setFloat(32,minutes(lt,28));
+						batch.add();
+					}
+				}finally{
+					lt.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Loads the same flights and fields of a schedule file into a table as
+	 * {@link NasSimOutputAnalyzer#createScheduleTable(Properties, boolean, String, String, File, String)}.
+	 * Flights with a negative id number are skipped.
+	 * @param schedFileNPath Schedule file and path.
+	 * @param baseDate Base date of the flights.
+	 * @param forecastDate Forecast date of the flights.
+	 * @param table Table, which must exist.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public boolean loadSchedule(final File schedFileNPath,
+		final Timestamp baseDate, final Timestamp forecastDate, String table){
+		final long[] bounds = getBounds(schedFileNPath);
+		if(bounds == null)return false;
+		return insert(table,NUM_SCHEDULE_COLS,bounds.length-1,new PartLoader(){
+			public void load(int part, Batch batch) throws IOException, SQLException {
+				LineTokenizer lt = openRange(schedFileNPath,bounds[part],
+					bounds[part+1]);
+				try{
+					PreparedStatement ps = batch.pstmt;
+					Days days = new Days();
+					while(lt.next()){
+						int c = lt.firstNonWhiteSpace();
+						if(c < 0 || c == '#' || lt.intField(0) < 0)continue;
+						ps.setTimestamp(1,baseDate);
+						ps.setTimestamp(2,forecastDate);
+						ps.setInt(3,lt.intField(0));
+						ps.setTimestamp(4,days.getDay(lt.field(1)));
+						ps.setString(5,lt.field(2));
+						ps.setInt(6,lt.intField(3));
+						// Gate out, wheels off, wheels on and gate in times.
+						for(int k=0;k<4;k++){
+							if(lt.fieldEquals(5+2*k,""))ps.setNull(7+k,Types.TIMESTAMP);
+							else ps.setTimestamp(7+k,days.getTime(lt.field(5+2*k)));
+						}
+						// Altitude and airspeed.
+						for(int k=12;k<14;k++){
+							if(lt.fieldEquals(k,""))ps.setNull(k-1,Types.FLOAT);
+							else ps.setFloat(k-1,Float.parseFloat(lt.field(k)));
+						}
+						ps.setString(13,lt.field(14));
+						ps.setString(14,lt.field(15));
+						ps.setInt(15,lt.intField(19));
+						ps.setInt(16,lt.intField(23));
+						for(int k=24;k<27;k++)ps.setString(k-7,lt.field(k));
+						ps.setInt(20,lt.intField(27));
+						ps.setInt(21,lt.intField(28));
+						for(int k=29;k<35;k++)ps.setString(k-7,lt.field(k));
+						batch.add();
+					}
+				}finally{
+					lt.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Loads rows already in memory, such as those of
+	 * {@link NasSimOutputAnalyzer#readFlightOutputColumns(FlightColumnFile, Timestamp, Timestamp)},
+	 * into a table.  The rows are split evenly among the connections.
+	 * @param data Rows.
+	 * @param colTypes <code>java.sql.Types</code> of the columns, for nulls.
+	 * @param table Table, which must exist.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	public boolean loadRows(final Object[][] data, final int[] colTypes,
+		String table){
+		final int nParts = Math.max(1,Math.min(numConnections,
+			(data.length + batchSize - 1)/batchSize));
+		return insert(table,colTypes.length,nParts,new PartLoader(){
+			public void load(int part, Batch batch) throws SQLException {
+				int start = (int)((long)data.length*part/nParts);
+				int end = (int)((long)data.length*(part+1)/nParts);
+				for(int i=start;i<end;i++){
+					for(int c=0;c<colTypes.length;c++){
+						if(data[i][c] == null)batch.pstmt.setNull(c+1,colTypes[c]);
+						else batch.pstmt.setObject(c+1,data[i][c]);
+					}
+					batch.add();
+				}
+			}
+		});
+	}
+
+	//---------------------------------------------------------------------
+	// Batches.
+	//---------------------------------------------------------------------
+
+	/**
+	 * Rows being inserted on one connection.
+	 */
+	private final class Batch {
+		final Connection conn;
+		final PreparedStatement pstmt;
+		/** Rows in the current batch. */
+		int size = 0;
+		Batch(Connection conn, PreparedStatement pstmt){
+			this.conn = conn;
+			this.pstmt = pstmt;
+		}
+		/**
+		 * Adds the row bound to the statement, and executes and commits
+		 * the batch if it is full.
+		 */
+		void add() throws SQLException {
+			pstmt.addBatch();
+			if(++size == batchSize)flush();
+		}
+		/**
+		 * Executes and commits the current batch.
+		 */
+		void flush() throws SQLException {
+			if(size == 0)return;
+			int[] results = pstmt.executeBatch();
+			// A successful row either returns an int >= 0 or
+			// Statement.SUCCESS_NO_INFO.
+			for(int r : results){
+				if(!(r == Statement.SUCCESS_NO_INFO || r >= 0)){
+					throw new SQLException(className + ".flush(): batch " +
+						"insert failed.");
+				}
+			}
+			conn.commit();
+			size = 0;
+		}
+	}
+
+	/**
+	 * Loads one part of the rows.
+	 */
+	private interface PartLoader {
+		void load(int part, Batch batch) throws IOException, SQLException;
+	}
+
+	/**
+	 * Loads parts of the rows in parallel, each on its own connection and
+	 * prepared statement.
+	 * @return <code>true</code> if successful; <code>false</code> if not.
+	 */
+	private boolean insert(String table, int nCols, int nParts,
+		final PartLoader loader){
+		StringBuilder sb = new StringBuilder("insert into " + table + " values (");
+		for(int c=0;c<nCols;c++)sb.append(c == 0 ? "?" : ",?");
+		final String insertStr = sb.append(")").toString();
+
+		ExecutorService exec = Executors.newFixedThreadPool(nParts);
+		boolean success = true;
+		try{
+			List<Future<Boolean>> parts = new ArrayList<Future<Boolean>>();
+			for(int k=0;k<nParts;k++){
+				final int part = k;
+				parts.add(exec.submit(new Callable<Boolean>(){
+					public Boolean call() throws Exception {
+						Connection conn = null;
+						PreparedStatement pstmt = null;
+						try{
+							conn = source.openConnection();
+							conn.setAutoCommit(false);
+							pstmt = conn.prepareStatement(insertStr);
+							Batch batch = new Batch(conn,pstmt);
+							loader.load(part,batch);
+							batch.flush();
+							return Boolean.TRUE;
+						}catch(Exception e){
+							// Don't commit a partial batch on close.
+							if(conn != null){
+								try{
+									conn.rollback();
+								}catch(SQLException sqle){
+									sqle.printStackTrace();
+								}
+							}
+							throw e;
+						}finally{
+							JDBCManager.close(pstmt);
+							JDBCManager.close(conn);
+						}
+					}
+				}));
+			}
+			for(Future<Boolean> f : parts){
+				try{
+					f.get();
+				}catch(ExecutionException ee){
+					ee.getCause().printStackTrace();
+					success = false;
+				}
+			}
+		}catch(InterruptedException ie){
+			ie.printStackTrace();
+			success = false;
+		}finally{
+			exec.shutdown();
+		}
+		return success;
+	}
+
+	//---------------------------------------------------------------------
+	// Files.
+	//---------------------------------------------------------------------
+
+	/**
+	 * @return Byte ranges of a file, one per connection; <code>null</code>
+	 *   if the file can't be read.
+	 */
+	private long[] getBounds(File fileNPath){
+		try{
+			if(!fileNPath.exists())throw new IOException(className +
+				".getBounds(): " + fileNPath + " does not exist.");
+			return ScheduleBridge.computeRangeBounds(fileNPath,numConnections);
+		}catch(IOException ioe){
+			ioe.printStackTrace();
+			return null;
+		}
+	}
+
+	private static LineTokenizer openRange(File fileNPath, long start,
+		long end) throws IOException {
+		FileInputStream fis = new FileInputStream(fileNPath);
+		fis.getChannel().position(start);
+		return new LineTokenizer(new InputStreamReader(
+			new ScheduleBridge.RangeInputStream(fis,end-start)),',');
+	}
+
+	private static void setInt(PreparedStatement ps, int col, LineTokenizer lt,
+		int field) throws SQLException {
+		if(lt.fieldEquals(field,""))ps.setNull(col,Types.INTEGER);
+		else ps.setInt(col,lt.intField(field));
+	}
+
+	private static float minutes(LineTokenizer lt, int field){
+		return Float.parseFloat(lt.field(field))/60.f;
+	}
+
+	/**
+	 * Timestamps of the days of a schedule file, each made once with
+	 * <code>SQLDate2</code>.  Times are a day's timestamp plus their
+	 * seconds, unless the day is not 24 hours long, at a change to or from
+	 * daylight time, when they are made with <code>SQLDate2</code> too.
+	 */
+	private static final class Days {
+		private final Map<Integer,Timestamp> days = new HashMap<Integer,Timestamp>();
+		private final Map<Integer,Boolean> normal = new HashMap<Integer,Boolean>();
+
+		private Timestamp getDay(int yyyymmdd){
+			Timestamp t = days.get(yyyymmdd);
+			if(t == null){
+				t = new SQLDate2(String.valueOf(yyyymmdd),
+					SQLDate2.Element.dd).getAsTimestamp();
+				days.put(yyyymmdd,t);
+			}
+			return t;
+		}
+
+		/**
+		 * @param s Date, such as "2008-07-10".
+		 * @return the timestamp of the start of the day.
+		 */
+		Timestamp getDay(String s){
+			return getDay(NasSimLocalAnalyzer.parseDate(s));
+		}
+
+		/**
+		 * @param s Date and time, such as "2008-07-10 13:05:00".
+		 * @return the timestamp.
+		 */
+		Timestamp getTime(String s){
+			int day = NasSimLocalAnalyzer.parseDate(s);
+			Timestamp t = getDay(day);
+			Boolean b = normal.get(day);
+			if(b == null){
+				int next = NasSimLocalAnalyzer.toDate(
+					NasSimLocalAnalyzer.toSeconds(day) + 86400);
+				b = getDay(next).getTime() - t.getTime() == 86400000L;
+				normal.put(day,b);
+			}
+			if(!b)return new SQLDate2(s,SQLDate2.Element.ss).getAsTimestamp();
+			int secs = NasSimLocalAnalyzer.parseSeconds(s) -
+				NasSimLocalAnalyzer.toSeconds(day);
+			return new Timestamp(t.getTime() + 1000L*secs);
+		}
+	}
+}
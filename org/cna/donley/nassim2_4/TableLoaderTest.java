@@ -0,0 +1,307 @@
+package org.cna.donley.nassim2_4;
+
+import org.cna.donley.jdbc.SQLDate2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test to validate the TableLoader class, against a stand-in database.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class TableLoaderTest
+{
+	/**
+	 * Stand-in database of one table.  Connections and prepared statements
+	 * are proxies that keep the rows of each batch, and add them to the
+	 * table when they are committed.
+	 */
+	private static class StandInDatabase implements TableLoader.ConnectionSource {
+		final List<Object[]> rows = new ArrayList<Object[]>();
+		final List<String> inserts = new ArrayList<String>();
+		int numConnections = 0, numCommits = 0, numRollbacks = 0;
+		int maxBatch = 0;
+		/** Batch that fails, counting from one; 0 for none. */
+		int failingBatch = 0;
+		int numBatches = 0;
+
+		public synchronized Connection openConnection(){
+			numConnections++;
+			return (Connection)Proxy.newProxyInstance(
+				Connection.class.getClassLoader(),new Class<?>[]{Connection.class},
+				new InvocationHandler(){
+					final List<Object[]> executed = new ArrayList<Object[]>();
+					public Object invoke(Object p, Method m, Object[] args)
+						throws SQLException {
+						String name = m.getName();
+						if(name.equals("prepareStatement")){
+							synchronized(StandInDatabase.this){
+								inserts.add((String)args[0]);
+							}
+							return prepareStatement(executed);
+						} else if(name.equals("commit")){
+							synchronized(StandInDatabase.this){
+								rows.addAll(executed);
+								numCommits++;
+							}
+							executed.clear();
+						} else if(name.equals("rollback")){
+							synchronized(StandInDatabase.this){
+								numRollbacks++;
+							}
+							executed.clear();
+						}
+						return null;
+					}
+				});
+		}
+
+		private PreparedStatement prepareStatement(final List<Object[]> executed){
+			return (PreparedStatement)Proxy.newProxyInstance(
+				PreparedStatement.class.getClassLoader(),
+				new Class<?>[]{PreparedStatement.class},new InvocationHandler(){
+					final Map<Integer,Object> row = new HashMap<Integer,Object>();
+					final List<Object[]> batch = new ArrayList<Object[]>();
+					public Object invoke(Object p, Method m, Object[] args)
+						throws SQLException {
+						String name = m.getName();
+						if(name.equals("setNull")){
+							row.put((Integer)args[0],null);
+						} else if(name.startsWith("set") && args.length == 2){
+							row.put((Integer)args[0],args[1]);
+						} else if(name.equals("addBatch")){
+							Object[] r = new Object[row.size()];
+							for(int c=0;c<r.length;c++){
+								assertTrue(row.containsKey(c+1));
+								r[c] = row.get(c+1);
+							}
+							batch.add(r);
+							row.clear();
+						} else if(name.equals("executeBatch")){
+							synchronized(StandInDatabase.this){
+								maxBatch = Math.max(maxBatch,batch.size());
+								if(++numBatches == failingBatch){
+									batch.clear();
+									throw new SQLException("failed");
+								}
+							}
+							executed.addAll(batch);
+							int[] results = new int[batch.size()];
+							Arrays.fill(results,1);
+							batch.clear();
+							return results;
+						}
+						return null;
+					}
+				});
+		}
+
+		/**
+		 * @return the rows, by the int value of a column.
+		 */
+		synchronized Map<Integer,Object[]> getRows(int col){
+			Map<Integer,Object[]> m = new HashMap<Integer,Object[]>();
+			for(Object[] r : rows)assertTrue(m.put((Integer)r[col],r) == null);
+			return m;
+		}
+	}
+
+	private File dir = null;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("tableLoader","");
+		dir.delete();
+		dir.mkdir();
+	}
+
+	@After
+	public void tearDown(){
+		File[] files = dir.listFiles();
+		if(files != null)for(File f : files)f.delete();
+		dir.delete();
+	}
+
+	private static void writeLines(File file, List<String> lines)
+		throws IOException {
+		PrintWriter pw = new PrintWriter(file);
+		for(String s : lines)pw.println(s);
+		pw.close();
+	}
+
+	/**
+	 * Test of loading a flight output file on several connections.
+	 */
+	@Test
+	public void testLoadFlightOutput() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		lines.add("#itin_num,leg_num,...");
+		int nGood = 0;
+		for(int i=0;i<200;i++){
+			if(i % 50 == 7){
+				lines.add("# comment");
+				continue;
+			}
+			// Some VFR flights and some without an itinerary number.
+			boolean vfr = i % 10 == 3, noItin = i % 25 == 4;
+			if(!vfr && !noItin)nGood++;
+			StringBuilder sb = new StringBuilder();
+			sb.append(noItin ? "" : String.valueOf(1000+i)).append(",");
+			sb.append(i % 2 == 0 ? "" : "2").append(",");
+			sb.append(vfr ? -i : i).append(",AAL,B737,ATL,BOS");
+			for(int k=0;k<9;k++)sb.append(",").append(3600*k + i);
+			for(int k=0;k<9;k++)sb.append(",").append(60*k);
+			sb.append(",DEPA,120,ARRA,180");
+			lines.add(sb.toString());
+		}
+		File file = new File(dir,"flightOutput.csv");
+		writeLines(file,lines);
+
+		StandInDatabase db = new StandInDatabase();
+		Timestamp base = new SQLDate2("20080710",SQLDate2.Element.dd).getAsTimestamp();
+		Timestamp forecast = new SQLDate2("20080711",SQLDate2.Element.dd).getAsTimestamp();
+		TableLoader loader = new TableLoader(db,7,3);
+		assertTrue(loader.loadFlightOutput(file,base,forecast,"flight_output"));
+
+		assertTrue(db.numConnections == 3 && db.maxBatch == 7);
+		assertTrue(db.inserts.get(0).equals("insert into flight_output values (" +
+			"?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)"));
+		Map<Integer,Object[]> rows = db.getRows(2);
+		assertTrue(rows.size() == nGood);
+		for(int i=0;i<200;i++){
+			Object[] r = rows.get(1000+i);
+			if(r == null)continue;
+			assertTrue(r.length == TableLoader.NUM_FLIGHT_OUTPUT_COLS);
+			assertTrue(r[0].equals(base) && r[1].equals(forecast));
+			assertTrue(i % 2 == 0 ? r[3] == null : r[3].equals(2));
+			assertTrue(r[4].equals(i) && r[5].equals("AAL") && r[8].equals("BOS"));
+			for(int k=0;k<9;k++){
+				assertTrue(((Timestamp)r[9+k]).getTime() ==
+					base.getTime() + 1000L*(3600*k + i));
+			}
+			for(int k=0;k<7;k++)assertTrue(r[18+k].equals((float)k));
+			assertTrue(r[25].equals(0.f));
+			assertTrue(r[26].equals(7.f) && r[27].equals(8.f));
+			assertTrue(r[28].equals("DEPA") && r[29].equals(2.f));
+			assertTrue(r[30].equals("ARRA") && r[31].equals(3.f));
+		}
+
+		// Missing file.
+		assertTrue(!loader.loadFlightOutput(new File(dir,"none.csv"),base,
+			forecast,"flight_output"));
+	}
+
+	/**
+	 * Test of loading a schedule file.
+	 */
+	@Test
+	public void testLoadSchedule() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		lines.add("# schedule");
+		for(int i=0;i<30;i++){
+			String[] ss = new String[35];
+			for(int k=0;k<ss.length;k++)ss[k] = "x" + k;
+			ss[0] = String.valueOf(i % 6 == 5 ? -i : i);
+			ss[1] = "2008-07-10";
+			ss[3] = "1";
+			ss[5] = String.format("2008-07-10 %02d:%02d:%02d",i % 24,i,2*i);
+			ss[7] = "";
+			ss[9] = "2008-07-11 00:00:00";
+			ss[11] = "2008-11-02 03:00:00";
+			ss[12] = "350";
+			ss[13] = "";
+			for(int k : new int[]{19,23,27,28})ss[k] = String.valueOf(k);
+			StringBuilder sb = new StringBuilder(ss[0]);
+			for(int k=1;k<ss.length;k++)sb.append(",").append(ss[k]);
+			lines.add(sb.toString());
+		}
+		File file = new File(dir,"schedule.txt");
+		writeLines(file,lines);
+
+		StandInDatabase db = new StandInDatabase();
+		Timestamp base = new SQLDate2("20080710",SQLDate2.Element.dd).getAsTimestamp();
+		TableLoader loader = new TableLoader(db,4,2);
+		assertTrue(loader.loadSchedule(file,base,base,"schedule"));
+		Map<Integer,Object[]> rows = db.getRows(2);
+		assertTrue(rows.size() == 25);
+		for(int i=0;i<30;i++){
+			Object[] r = rows.get(i);
+			if(i % 6 == 5){
+				assertTrue(r == null);
+				continue;
+			}
+			assertTrue(r.length == TableLoader.NUM_SCHEDULE_COLS);
+			assertTrue(r[3].equals(base) && r[4].equals("x2") && r[5].equals(1));
+			String out = String.format("2008-07-10 %02d:%02d:%02d",i % 24,i,2*i);
+			assertTrue(r[6].equals(new SQLDate2(out,SQLDate2.Element.ss).getAsTimestamp()));
+			assertTrue(r[7] == null);
+			assertTrue(r[8].equals(new SQLDate2("2008-07-11 00:00:00",
+				SQLDate2.Element.ss).getAsTimestamp()));
+			// A day that may end daylight time.
+			assertTrue(r[9].equals(new SQLDate2("2008-11-02 03:00:00",
+				SQLDate2.Element.ss).getAsTimestamp()));
+			assertTrue(r[10].equals(350.f) && r[11] == null);
+			assertTrue(r[12].equals("x14") && r[13].equals("x15"));
+			assertTrue(r[14].equals(19) && r[15].equals(23));
+			assertTrue(r[16].equals("x24") && r[18].equals("x26"));
+			assertTrue(r[19].equals(27) && r[20].equals(28));
+			assertTrue(r[21].equals("x29") && r[26].equals("x34"));
+		}
+	}
+
+	/**
+	 * Test of loading rows in memory, and of a failed batch.
+	 */
+	@Test
+	public void testLoadRows(){
+		Object[][] data = new Object[23][];
+		for(int i=0;i<data.length;i++){
+			data[i] = new Object[]{i,i % 3 == 0 ? null : "s" + i};
+		}
+		int[] colTypes = {Types.INTEGER,Types.VARCHAR};
+		StandInDatabase db = new StandInDatabase();
+		assertTrue(new TableLoader(db,5,2).loadRows(data,colTypes,"t"));
+		assertTrue(db.numConnections == 2 && db.maxBatch == 5);
+		Map<Integer,Object[]> rows = db.getRows(0);
+		assertTrue(rows.size() == data.length);
+		for(int i=0;i<data.length;i++){
+			assertTrue(Arrays.equals(rows.get(i),data[i]));
+		}
+
+		// The second batch fails; the first stays and the rest are rolled
+		// back.
+		db = new StandInDatabase();
+		db.failingBatch = 2;
+		assertTrue(!new TableLoader(db,5,1).loadRows(data,colTypes,"t"));
+		assertTrue(db.rows.size() == 5 && db.numCommits == 1);
+		assertTrue(db.numRollbacks == 1);
+
+		boolean thrown = false;
+		try{
+			new TableLoader(db,0,1);
+		}catch(IllegalArgumentException iae){
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+}
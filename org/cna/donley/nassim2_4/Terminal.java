@@ -38,6 +38,12 @@ public class Terminal implements INode
      */
     private int[][][] pushbackTimes;
     
+    /**
+     * Told when a leg arriving at this terminal is complete.  May be 
+     * <code>null</code>.
+     */
+    private ILegListener legListener = null;
+    
     /**
      * Make default constructor private.
      */
@@ -123,6 +129,17 @@ public class Terminal implements INode
      */
     public int[][][] getPushbackTimes(){return pushbackTimes;}
     
+    /**
+     * Sets the object to tell when a leg arriving at this terminal is
+     * complete.
+     * @param listener Leg listener or <code>null</code> for none.
+     */
+    public void setLegListener(ILegListener listener){legListener = listener;}
+    /**
+     * @return the leg listener or <code>null</code> if there is none.
+     */
+    public ILegListener getLegListener(){return legListener;}
+    
     /**
      * Creates events for all departing flights associated with this terminal
      * These events will later be loaded into an event queue. These flights 
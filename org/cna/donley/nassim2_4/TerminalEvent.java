@@ -107,6 +107,12 @@ public class TerminalEvent implements IEvent
     				new TerminalEvent(tt,farr2,IEvent.Cmd.DEP,outTime);
     			queue.add(newEvent);
     		}
+    		
+    		// The leg is complete.
+    		ILegListener listener = node.getLegListener();
+    		if(listener != null){
+    			listener.legCompleted(flight,time);
+    		}
     	}else {
     		// This exception should never be reached as long as the
     		// Constructor does the same check.  Keep it in though just
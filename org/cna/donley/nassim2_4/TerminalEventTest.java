@@ -278,4 +278,44 @@ public class TerminalEventTest
  
 	}
 	
+	/**
+	 * Test that the leg listener of the terminal is told when an arriving
+	 * leg is in, and not when a leg departs.
+	 */
+	@Test
+	public void testLegListener(){
+		int aprt = 31;
+		Terminal t1 = new Terminal(aprt,null,null);
+		Taxiway tw = new Taxiway(aprt,null,null);
+		final List<IFlight> completed = new ArrayList<IFlight>();
+		final List<Integer> times = new ArrayList<Integer>();
+		t1.setLegListener(new ILegListener(){
+			public void legCompleted(IFlight leg, int time){
+				completed.add(leg);
+				times.add(time);
+			}
+		});
+		assertTrue(t1.getLegListener() != null);
+		
+		int[] pars = new int[IFlight.Param.values().length];
+		pars[IFlight.Param.CALC_IN_TIME.ordinal()] = 391;
+		IFlight f = new Flight(pars);
+		List<INode> nList = new ArrayList<INode>();
+		nList.add(tw);
+		f.setRoute(new Route(nList));
+		IQueue<IEvent> queue = new EventQueue();
+		
+		new TerminalEvent(t1,f,IEvent.Cmd.DEP,100).processEvent(queue);
+		assertTrue(completed.size() == 0);
+		
+		new TerminalEvent(t1,f,IEvent.Cmd.ARR,391).processEvent(queue);
+		assertTrue(completed.size() == 1 && completed.get(0) == f);
+		assertTrue(times.get(0) == 391);
+		assertTrue(f.get(IFlight.Param.ACT_IN_TIME) == 391);
+		
+		t1.setLegListener(null);
+		new TerminalEvent(t1,f,IEvent.Cmd.ARR,400).processEvent(queue);
+		assertTrue(completed.size() == 1);
+	}
+	
 }
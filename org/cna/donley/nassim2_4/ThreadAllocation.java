@@ -0,0 +1,28 @@
+package org.cna.donley.nassim2_4;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by the current thread, as taken by the
+ * {@link PhaseProfiler} and the benchmarks.  Uses
+ * com.sun.management.ThreadMXBean, so not every JVM can measure them.
+ *
+ * @author agent &lt;agent@local&gt;
+ */
+public class ThreadAllocation
+{
+	/**
+	 * Bytes allocated by the current thread so far.
+	 * @return the bytes, or -1 if the JVM can't measure them.
+	 */
+	public static long allocatedBytes(){
+		java.lang.management.ThreadMXBean tmx =
+			ManagementFactory.getThreadMXBean();
+		if(!(tmx instanceof com.sun.management.ThreadMXBean))return -1;
+		com.sun.management.ThreadMXBean stmx =
+			(com.sun.management.ThreadMXBean)tmx;
+		if(!stmx.isThreadAllocatedMemorySupported() ||
+			!stmx.isThreadAllocatedMemoryEnabled())return -1;
+		return stmx.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}